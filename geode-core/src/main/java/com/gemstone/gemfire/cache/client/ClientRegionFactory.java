@@ -303,7 +303,32 @@ public interface ClientRegionFactory<K,V> {
    * @since 8.0
    */
   public ClientRegionFactory<K,V> setCompressor(Compressor compressor);
-  
+
+  /**
+   * Makes the region a near cache: a bounded local cache in front of the
+   * servers that serves repeated reads of the same keys locally. The region
+   * keeps the entries it reads and writes even if it was created with a
+   * PROXY shortcut. Unless eviction attributes are set, the least recently
+   * used entries beyond the default LRU entry limit are destroyed locally;
+   * use {@link #setEvictionAttributes} to bound the region by entry count or
+   * memory size instead.
+   * <p>
+   * If the region's pool has subscriptions enabled, interest without values
+   * is registered in each key the region holds and unregistered once its
+   * entry is evicted, so when a cached entry changes the servers only send
+   * its key and the next read fetches the new value. Caching a key costs an
+   * extra round trip to register the interest. Without subscriptions,
+   * entries changed by other clients are not refreshed, so an entry time to
+   * live should be set to bound how stale they can get.
+   *
+   * @param nearCache whether the region is a near cache
+   * @return a reference to this ClientRegionFactory object
+   * @throws IllegalStateException from {@link #create} if the region has no
+   *           pool
+   * @since 9.0
+   */
+  public ClientRegionFactory<K,V> setNearCache(boolean nearCache);
+
   /**
    * Creates a region in the {@link ClientCache} using
    * the configuration contained in this ClientRegionFactory. Validation of the
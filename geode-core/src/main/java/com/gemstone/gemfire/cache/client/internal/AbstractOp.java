@@ -389,6 +389,53 @@ public abstract class AbstractOp implements Op {
       endAttempt(cnx.getStats(), start);
     }
   }
+
+  /**
+   * Attempts this op on a connection that other threads are sending their
+   * requests on too. The reply is read in turn and processed once the next
+   * reader can go ahead.
+   * @since 9.0
+   */
+  final Object attemptPipelined(PipelinedConnection pipeline) throws Exception {
+    final Connection cnx = pipeline.getConnection();
+    this.failed = true;
+    this.timedOut = false;
+    long start = startAttempt(cnx.getStats());
+    try {
+      final PipelinedConnection.Ticket ticket;
+      try {
+        ticket = pipeline.send(this);
+        this.failed = false;
+      } finally {
+        endSendAttempt(cnx.getStats(), start);
+      }
+      this.failed = true;
+      try {
+        Message msg = pipeline.receive(ticket, createResponseMessage());
+        Object result = processResponse(msg, cnx);
+        this.failed = false;
+        return result;
+      } catch (SocketTimeoutException ste) {
+        this.failed = false;
+        this.timedOut = true;
+        throw ste;
+      }
+    } finally {
+      endAttempt(cnx.getStats(), start);
+    }
+  }
+
+  /**
+   * Subclasses should override this method to return true if this op can
+   * share a connection with other threads' ops. Such an op must read a
+   * single non-chunked reply through {@link #attemptReadResponse} and must
+   * not depend on per-user authentication.
+   * @since 9.0
+   */
+  protected boolean canBePipelined() {
+    return false;
+  }
+
   protected final boolean hasFailed() {
     return this.failed;
   }
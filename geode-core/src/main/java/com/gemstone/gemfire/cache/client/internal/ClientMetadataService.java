@@ -248,7 +248,58 @@ public final class ClientMetadataService {
 
     return serverToKeysMap;
   }
-  
+
+  /**
+   * Groups the keys of a bulk operation (getAll, putAll or removeAll) by the
+   * server hosting the primary of their bucket. Unlike
+   * {@link #getServerToFilterMap(Collection, Region, boolean)}, which gives up
+   * as soon as one primary is unknown, the keys of buckets without a known
+   * primary (typically buckets that have not been created yet) are added to
+   * the group of a random server, which routes them within the cluster. The
+   * other keys still go straight to their primary.
+   *
+   * @return the keys grouped by server, or null if there is no metadata for
+   *         the region
+   * @since 9.0
+   */
+  @SuppressWarnings("rawtypes") // the single hop executors take raw key sets
+  public Map<ServerLocation, HashSet> getServerToFilterMapForBulkOp(
+      final Collection<?> keys, final Region<?, ?> region) {
+    ClientPartitionAdvisor prAdvisor = this.getClientPartitionAdvisor(region
+        .getFullPath());
+    ServerLocation randomServer = prAdvisor == null ? null : prAdvisor
+        .adviseRandomServerLocation();
+    if (randomServer == null) {
+      scheduleGetPRMetaData((LocalRegion)region, false);
+      return null;
+    }
+    HashMap<Integer, HashSet> bucketToKeysMap = groupByBucketOnClientSide(
+        region, prAdvisor, keys, false);
+
+    // use LinkedHashSet to maintain the order of keys
+    Map<ServerLocation, LinkedHashSet<Object>> serverToKeysMap = new HashMap<ServerLocation, LinkedHashSet<Object>>();
+    for (Map.Entry<Integer, HashSet> entry : bucketToKeysMap.entrySet()) {
+      ServerLocation server = prAdvisor.advisePrimaryServerLocation(entry
+          .getKey());
+      if (server == null) {
+        // not created yet or not known here; any server can route these keys
+        server = randomServer;
+      }
+      LinkedHashSet<Object> serverKeys = serverToKeysMap.get(server);
+      if (serverKeys == null) {
+        serverKeys = new LinkedHashSet<Object>();
+        serverToKeysMap.put(server, serverKeys);
+      }
+      for (Object key : entry.getValue()) {
+        serverKeys.add(key);
+      }
+    }
+    if (logger.isDebugEnabled()) {
+      logger.debug("Returning server to keys map for bulk op : {}", serverToKeysMap);
+    }
+    return new HashMap<ServerLocation, HashSet>(serverToKeysMap);
+  }
+
   public HashMap<ServerLocation, HashSet<Integer>> groupByServerToAllBuckets(Region region, boolean primaryOnly){
     final String regionFullPath = region.getFullPath();
     ClientPartitionAdvisor prAdvisor = this.getClientPartitionAdvisor(regionFullPath);
@@ -19,6 +19,7 @@ package com.gemstone.gemfire.cache.client.internal;
 import com.gemstone.gemfire.cache.AttributesFactory;
 import com.gemstone.gemfire.cache.CacheListener;
 import com.gemstone.gemfire.cache.CustomExpiry;
+import com.gemstone.gemfire.cache.DataPolicy;
 import com.gemstone.gemfire.cache.EvictionAttributes;
 import com.gemstone.gemfire.cache.ExpirationAttributes;
 import com.gemstone.gemfire.cache.InterestPolicy;
@@ -30,6 +31,7 @@ import com.gemstone.gemfire.cache.SubscriptionAttributes;
 import com.gemstone.gemfire.cache.client.ClientRegionFactory;
 import com.gemstone.gemfire.cache.client.ClientRegionShortcut;
 import com.gemstone.gemfire.cache.client.Pool;
+import com.gemstone.gemfire.cache.client.PoolManager;
 import com.gemstone.gemfire.compression.Compressor;
 import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
 import com.gemstone.gemfire.internal.cache.LocalRegion;
@@ -45,6 +47,8 @@ public class ClientRegionFactoryImpl<K,V> implements ClientRegionFactory<K,V>
 {
   private final AttributesFactory<K,V> attrsFactory;
   private final GemFireCacheImpl cache;
+  private final DataPolicy dataPolicy;
+  private boolean nearCache;
 
   /**
    * Constructs a ClientRegionFactory by creating a DistributedSystem and a Cache. If
@@ -65,6 +69,7 @@ public class ClientRegionFactoryImpl<K,V> implements ClientRegionFactory<K,V>
                                       + " has been removed from " + cache.listRegionAttributes());
     }
     this.attrsFactory = new AttributesFactory<K,V>(ra);
+    this.dataPolicy = ra.getDataPolicy();
     initAttributeFactoryDefaults();
   }
 
@@ -87,6 +92,7 @@ public class ClientRegionFactoryImpl<K,V> implements ClientRegionFactory<K,V>
                                       + "\" has not been defined.");
     }
     this.attrsFactory = new AttributesFactory<K,V>(ra);
+    this.dataPolicy = ra.getDataPolicy();
     initAttributeFactoryDefaults();
   }
 
@@ -225,6 +231,11 @@ public class ClientRegionFactoryImpl<K,V> implements ClientRegionFactory<K,V>
     return this;
   }
 
+  public ClientRegionFactory<K,V> setNearCache(boolean nearCache) {
+    this.nearCache = nearCache;
+    return this;
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public Region<K,V> create(String name) throws RegionExistsException {
@@ -237,8 +248,23 @@ public class ClientRegionFactoryImpl<K,V> implements ClientRegionFactory<K,V>
     return ((LocalRegion)parent).createSubregion(name, createRegionAttributes());
   }
   
-  @SuppressWarnings("deprecation")
   private RegionAttributes<K,V> createRegionAttributes() {
+    if (!this.nearCache) {
+      return basicCreateRegionAttributes();
+    }
+    // a near cache keeps what it reads even if the shortcut is a proxy, so
+    // eviction may be set on it; the factory gets its own policy back after
+    this.attrsFactory.setDataPolicy(DataPolicy.NORMAL);
+    try {
+      return createNearCacheAttributes(basicCreateRegionAttributes());
+    }
+    finally {
+      this.attrsFactory.setDataPolicy(this.dataPolicy);
+    }
+  }
+
+  @SuppressWarnings("deprecation")
+  private RegionAttributes<K,V> basicCreateRegionAttributes() {
     RegionAttributes<K,V> ra = this.attrsFactory.create();
     if (ra.getPoolName() == null || "".equals(ra.getPoolName())) {
       UserSpecifiedRegionAttributes<K, V> ura = (UserSpecifiedRegionAttributes<K, V>)ra;
@@ -255,6 +281,26 @@ public class ClientRegionFactoryImpl<K,V> implements ClientRegionFactory<K,V>
     return ra;
   }
 
+  /**
+   * Returns a copy of the given attributes for a near cache. The factory's
+   * own attributes are left alone for the regions it creates later.
+   */
+  @SuppressWarnings("deprecation")
+  private RegionAttributes<K,V> createNearCacheAttributes(RegionAttributes<K,V> ra) {
+    if (ra.getPoolName() == null || "".equals(ra.getPoolName())) {
+      throw new IllegalStateException("The poolName must be set on a near cache.");
+    }
+    AttributesFactory<K,V> nearCacheAttrs = new AttributesFactory<K,V>(ra);
+    if (ra.getEvictionAttributes().getAlgorithm().isNone()) {
+      nearCacheAttrs.setEvictionAttributes(EvictionAttributes.createLRUEntryAttributes());
+    }
+    Pool pool = PoolManager.find(ra.getPoolName());
+    if (pool != null && pool.getSubscriptionEnabled()) {
+      nearCacheAttrs.addCacheListener(new NearCacheInterestListener<K,V>());
+    }
+    return nearCacheAttrs.create();
+  }
+
   //  public ClientRegionFactory<K, V> addParallelGatewaySenderId(
 //      String parallelGatewaySenderId) {
 //    this.attrsFactory.addParallelGatewaySenderId(parallelGatewaySenderId);
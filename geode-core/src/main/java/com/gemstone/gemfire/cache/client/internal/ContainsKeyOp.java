@@ -66,6 +66,12 @@ public class ContainsKeyOp {
       this.key = key;
       this.mode = mode;
     }
+
+    @Override
+    protected boolean canBePipelined() {
+      return true;
+    }
+
     @Override
     protected Object processResponse(Message msg) throws Exception {
       return processObjResponse(msg, "containsKey");
@@ -69,8 +69,8 @@ public class GetAllOp {
     ClientMetadataService cms = ((LocalRegion)region).getCache()
         .getClientMetadataService();
 
-    Map<ServerLocation, HashSet> serverToFilterMap = cms.getServerToFilterMap(
-        keys, region, true);
+    Map<ServerLocation, HashSet> serverToFilterMap = cms
+        .getServerToFilterMapForBulkOp(keys, region);
     
     if (serverToFilterMap == null || serverToFilterMap.isEmpty()) {
       op.initMessagePart();
@@ -142,6 +142,11 @@ public class GetOp {
       }
     }
     
+    @Override
+    protected boolean canBePipelined() {
+      return true;
+    }
+
     @Override
     protected Object processResponse(Message msg) throws Exception {
       throw new UnsupportedOperationException(); // version tag processing requires the connection
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.client.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.GemFireException;
+import com.gemstone.gemfire.cache.EntryEvent;
+import com.gemstone.gemfire.cache.EntryNotFoundException;
+import com.gemstone.gemfire.cache.InterestResultPolicy;
+import com.gemstone.gemfire.cache.RegionEvent;
+import com.gemstone.gemfire.cache.util.CacheListenerAdapter;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+import com.gemstone.gemfire.internal.logging.LogService;
+import com.gemstone.gemfire.internal.logging.log4j.LocalizedMessage;
+
+/**
+ * Keeps the interest of a near cache registered in exactly the keys it
+ * holds, so that servers only queue invalidations for the entries this
+ * client has cached. Interest in a key is registered without values when
+ * its entry is created and unregistered once the entry is evicted or
+ * destroyed.
+ *
+ * @since 9.0
+ */
+class NearCacheInterestListener<K,V> extends CacheListenerAdapter<K,V> {
+
+  private static final Logger logger = LogService.getLogger();
+
+  private final Set<Object> registeredKeys = Collections
+      .newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+
+  @Override
+  public void afterCreate(EntryEvent<K,V> event) {
+    Object key = event.getKey();
+    if (!this.registeredKeys.add(key)) {
+      return;
+    }
+    LocalRegion region = (LocalRegion)event.getRegion();
+    try {
+      // the region refetches the value once interest is registered, so an
+      // update made on a server after the value was read is not missed
+      region.registerInterest(key, InterestResultPolicy.KEYS_VALUES, false,
+          false);
+    }
+    catch (GemFireException e) {
+      // without interest the entry would never be invalidated, so do not
+      // keep it
+      this.registeredKeys.remove(key);
+      if (!region.isDestroyed()) {
+        logger.warn(LocalizedMessage.create(
+            LocalizedStrings.NearCacheInterestListener_COULD_NOT_REGISTER_INTEREST_IN_KEY_0_OF_NEAR_CACHE_1,
+            new Object[] {key, region.getFullPath()}), e);
+        try {
+          region.localDestroy(key);
+        }
+        catch (EntryNotFoundException ignore) {
+        }
+      }
+    }
+  }
+
+  @Override
+  public void afterDestroy(EntryEvent<K,V> event) {
+    Object key = event.getKey();
+    if (!this.registeredKeys.remove(key)) {
+      return;
+    }
+    LocalRegion region = (LocalRegion)event.getRegion();
+    if (region.isDestroyed()) {
+      return;
+    }
+    try {
+      region.unregisterInterest(key);
+    }
+    catch (GemFireException e) {
+      // the server drops the interest of this client when it goes away
+      if (logger.isDebugEnabled()) {
+        logger.debug("Could not unregister interest in key {} of near cache {}",
+            key, region.getFullPath(), e);
+      }
+    }
+  }
+
+  @Override
+  public void afterRegionClear(RegionEvent<K,V> event) {
+    List<Object> keys = new ArrayList<Object>(this.registeredKeys);
+    this.registeredKeys.removeAll(keys);
+    if (keys.isEmpty()) {
+      return;
+    }
+    LocalRegion region = (LocalRegion)event.getRegion();
+    try {
+      region.unregisterInterest(keys);
+    }
+    catch (GemFireException e) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("Could not unregister interest in {} keys of near cache {}",
+            keys.size(), region.getFullPath(), e);
+      }
+    }
+  }
+
+  @Override
+  public void afterRegionDestroy(RegionEvent<K,V> event) {
+    this.registeredKeys.clear();
+  }
+}
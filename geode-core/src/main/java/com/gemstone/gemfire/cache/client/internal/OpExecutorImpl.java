@@ -28,6 +28,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.Logger;
 
@@ -78,6 +79,19 @@ public class OpExecutorImpl implements ExecutablePool {
   
   private static final boolean TRY_SERVERS_ONCE = Boolean.getBoolean("gemfire.PoolImpl.TRY_SERVERS_ONCE");
   private static final int TX_RETRY_ATTEMPT = Integer.getInteger("gemfire.txRetryAttempt", 500);
+  /**
+   * The number of pool connections that ops from different threads are
+   * pipelined on; zero disables pipelining.
+   * @since 9.0
+   */
+  private static final int PIPELINED_CONNECTIONS = Integer.getInteger("gemfire.PoolImpl.PIPELINED_CONNECTIONS", 0);
+  /**
+   * The most ops in flight on one pipelined connection. Ops that find every
+   * pipeline full use a connection of their own.
+   * @since 9.0
+   */
+  private static final int PIPELINE_DEPTH = Integer.getInteger("gemfire.PoolImpl.PIPELINE_DEPTH", 16);
+  private static final Object NOT_PIPELINED = new Object();
   
   private final ConnectionManager connectionManager;
   private final int retryAttempts;
@@ -105,6 +119,11 @@ public class OpExecutorImpl implements ExecutablePool {
       return 0;
     };
   };
+  /** Connections shared by pipelined ops; null if pipelining is disabled */
+  private final PipelinedConnection[] pipelines;
+  private final AtomicInteger nextPipeline = new AtomicInteger();
+  /** Set once a server is found that cannot pipeline */
+  private volatile boolean pipeliningUnsupported;
   
   public OpExecutorImpl(ConnectionManager manager, QueueManager queueManager, EndpointManager endpointManager, RegisterInterestTracker riTracker, int retryAttempts,
       long serverTimeout, boolean threadLocalConnections, CancelCriterion cancelCriterion, PoolImpl pool)  {
@@ -117,6 +136,7 @@ public class OpExecutorImpl implements ExecutablePool {
     this.threadLocalConnections = threadLocalConnections;
     this.cancelCriterion = cancelCriterion;
     this.pool = pool;
+    this.pipelines = (PIPELINED_CONNECTIONS > 0 && !threadLocalConnections) ? new PipelinedConnection[PIPELINED_CONNECTIONS] : null;
   }  
   
   public Object execute(Op op) {
@@ -135,6 +155,12 @@ public class OpExecutorImpl implements ExecutablePool {
       }
       return executeWithServerAffinity(loc, op);
     }
+    if (this.pipelines != null && op instanceof AbstractOp) {
+      Object result = executePipelined((AbstractOp)op);
+      if (result != NOT_PIPELINED) {
+        return result;
+      }
+    }
     boolean success = false;
     
     Set attemptedServers = new HashSet();
@@ -327,6 +353,123 @@ public class OpExecutorImpl implements ExecutablePool {
   /* (non-Javadoc)
    * @see com.gemstone.gemfire.cache.client.internal.OpExecutor#executeOn(com.gemstone.gemfire.distributed.internal.ServerLocation, com.gemstone.gemfire.cache.client.internal.Op)
    */
+  /**
+   * Executes the op on a connection shared with other threads' ops.
+   * @return NOT_PIPELINED if the op must be executed on a connection of its
+   * own, which is also the case if the pipelined attempt failed
+   */
+  private Object executePipelined(AbstractOp op) {
+    if (!op.canBePipelined() || this.pipeliningUnsupported
+        || TXManagerImpl.getCurrentTXUniqueId() != TXManagerImpl.NOTX
+        || UserAttributes.userAttributes.get() != null) {
+      return NOT_PIPELINED;
+    }
+    final PipelinedConnection pipeline = getPipeline();
+    if (pipeline == null || !pipeline.reserve()) {
+      return NOT_PIPELINED;
+    }
+    try {
+      return op.attemptPipelined(pipeline);
+    } catch (ServerOperationException e) {
+      // the reply was read so the pipeline is still usable
+      throw e;
+    } catch (Exception e) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("Pipelined {} failed on {}; retrying on a connection of its own", op, pipeline.getConnection(), e);
+      }
+      if (pipeline.hasFailed()) {
+        retirePipeline(pipeline);
+      }
+      // the server may have seen the request
+      op.getMessage().setIsRetry();
+      return NOT_PIPELINED;
+    } finally {
+      pipeline.release();
+    }
+  }
+
+  private PipelinedConnection getPipeline() {
+    final int index = (this.nextPipeline.getAndIncrement() & Integer.MAX_VALUE) % this.pipelines.length;
+    PipelinedConnection failed = null;
+    synchronized (this.pipelines) {
+      final PipelinedConnection pipeline = this.pipelines[index];
+      if (pipeline != null && !pipeline.hasFailed()) {
+        return pipeline;
+      }
+      if (pipeline != null) {
+        this.pipelines[index] = null;
+        failed = pipeline;
+      }
+    }
+    if (failed != null) {
+      destroyPipeline(failed);
+    }
+    // connecting can take a while so it is done without holding the lock
+    final Connection conn;
+    try {
+      conn = this.connectionManager.borrowConnection(this.serverTimeout);
+    } catch (RuntimeException e) {
+      // let the normal path deal with it
+      return null;
+    }
+    if (!PipelinedConnection.isSupportedBy(conn)) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("Not pipelining ops since {} does not support it", conn.getServer());
+      }
+      this.pipeliningUnsupported = true;
+      this.connectionManager.returnConnection(conn);
+      return null;
+    }
+    final PipelinedConnection created;
+    try {
+      created = new PipelinedConnection(conn, PIPELINE_DEPTH);
+    } catch (SocketException e) {
+      conn.destroy();
+      this.connectionManager.returnConnection(conn);
+      return null;
+    }
+    final PipelinedConnection replaced;
+    synchronized (this.pipelines) {
+      replaced = this.pipelines[index];
+      if (replaced != null && !replaced.hasFailed()) {
+        // another thread filled the slot first
+        this.connectionManager.returnConnection(conn);
+        return replaced;
+      }
+      this.pipelines[index] = created;
+    }
+    if (replaced != null) {
+      destroyPipeline(replaced);
+    }
+    return created;
+  }
+
+  /**
+   * Takes a failed pipeline out of its slot. Whoever takes a pipeline out of
+   * its slot destroys its connection.
+   */
+  private void retirePipeline(PipelinedConnection pipeline) {
+    boolean removed = false;
+    synchronized (this.pipelines) {
+      for (int i = 0; i < this.pipelines.length; i++) {
+        if (this.pipelines[i] == pipeline) {
+          this.pipelines[i] = null;
+          removed = true;
+          break;
+        }
+      }
+    }
+    if (removed) {
+      destroyPipeline(pipeline);
+    }
+  }
+
+  private void destroyPipeline(PipelinedConnection pipeline) {
+    final Connection conn = pipeline.getConnection();
+    conn.destroy();
+    this.connectionManager.returnConnection(conn);
+  }
+
   public Object executeOn(ServerLocation server, Op op) {
     return executeOn(server, op, true,false);
   }
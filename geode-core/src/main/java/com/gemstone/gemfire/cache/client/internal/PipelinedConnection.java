@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.client.internal;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Semaphore;
+
+import com.gemstone.gemfire.distributed.DistributedMember;
+import com.gemstone.gemfire.distributed.internal.membership.InternalDistributedMember;
+import com.gemstone.gemfire.internal.Version;
+import com.gemstone.gemfire.internal.cache.tier.sockets.Message;
+import com.gemstone.gemfire.internal.cache.tier.sockets.ServerConnection;
+
+/**
+ * A pool connection that several threads send requests on without waiting
+ * for the replies to the requests sent before theirs. Each request carries
+ * a correlation id that the server puts in the header of its reply.
+ * <p>
+ * A server answers the requests on a connection one at a time, so the
+ * replies come back in the order the requests were sent. Threads take turns
+ * reading in that order and the correlation id checks that each reply is
+ * the one expected. A failure to send or read leaves the stream in an
+ * unknown state, so it fails every op in flight on the connection.
+ *
+ * @since 9.0
+ */
+class PipelinedConnection {
+
+  /**
+   * Identifies a request that has been sent and whose reply has not been
+   * read yet.
+   */
+  static final class Ticket {
+    final long sequence;
+    final int correlationId;
+
+    Ticket(long sequence, int correlationId) {
+      this.sequence = sequence;
+      this.correlationId = correlationId;
+    }
+  }
+
+  private final Connection cnx;
+  private final Semaphore inFlight;
+  /** Used for reading so that sends can use the connection's own buffer */
+  private final ByteBuffer readBuffer;
+
+  private final Object sendLock = new Object();
+  /** guarded by sendLock */
+  private long sendSequence;
+  /** guarded by sendLock */
+  private int lastCorrelationId;
+
+  private final Object readLock = new Object();
+  /** guarded by readLock */
+  private long readSequence;
+
+  private volatile boolean failed;
+
+  PipelinedConnection(Connection cnx, int maxInFlight) throws SocketException {
+    this.cnx = cnx;
+    this.inFlight = new Semaphore(maxInFlight);
+    this.readBuffer = ServerConnection.allocateCommBuffer(cnx.getCommBuffer().capacity(), cnx.getSocket());
+  }
+
+  /**
+   * Returns true if requests can be pipelined on the given connection.
+   * Servers older than {@link Version#GFE_9001} do not echo correlation ids
+   * and pipelining is not used when the server authenticates each request.
+   */
+  static boolean isSupportedBy(Connection cnx) {
+    if (cnx.getServer().getRequiresCredentials()) {
+      return false;
+    }
+    final DistributedMember member = cnx.getEndpoint().getMemberId();
+    return member instanceof InternalDistributedMember
+        && ((InternalDistributedMember)member).getVersionObject().compareTo(Version.GFE_9001) >= 0;
+  }
+
+  Connection getConnection() {
+    return this.cnx;
+  }
+
+  boolean hasFailed() {
+    return this.failed;
+  }
+
+  /**
+   * Reserves room for one more request in flight.
+   * @return false if the pipeline is full or has failed
+   */
+  boolean reserve() {
+    return !this.failed && this.inFlight.tryAcquire();
+  }
+
+  /**
+   * Gives back a reservation obtained from {@link #reserve()}.
+   */
+  void release() {
+    this.inFlight.release();
+  }
+
+  /**
+   * Sends the request of the given op. The caller must hold a reservation
+   * and must call {@link #receive} with the returned ticket.
+   */
+  Ticket send(AbstractOp op) throws Exception {
+    synchronized (this.sendLock) {
+      checkFailed();
+      if (++this.lastCorrelationId == Message.NO_CORRELATION_ID) {
+        ++this.lastCorrelationId;
+      }
+      final Ticket ticket = new Ticket(this.sendSequence, this.lastCorrelationId);
+      final Message msg = op.getMessage();
+      msg.setCorrelationId(ticket.correlationId);
+      try {
+        op.attemptSend(this.cnx);
+      } catch (Exception e) {
+        fail();
+        throw e;
+      } finally {
+        msg.setCorrelationId(Message.NO_CORRELATION_ID);
+      }
+      this.sendSequence++;
+      return ticket;
+    }
+  }
+
+  /**
+   * Waits for the turn of the given ticket and reads its reply into
+   * <code>msg</code>.
+   */
+  Message receive(Ticket ticket, Message msg) throws Exception {
+    synchronized (this.readLock) {
+      try {
+        while (!this.failed && this.readSequence != ticket.sequence) {
+          this.readLock.wait();
+        }
+      } catch (InterruptedException e) {
+        // our reply would never be read
+        Thread.currentThread().interrupt();
+        fail();
+      }
+      checkFailed();
+    }
+    boolean received = false;
+    try {
+      msg.setComms(this.cnx.getSocket(), this.cnx.getInputStream(),
+          this.cnx.getOutputStream(), this.readBuffer, this.cnx.getStats());
+      msg.setExpectedCorrelationId(ticket.correlationId);
+      try {
+        msg.recv();
+      } finally {
+        msg.unsetComms();
+      }
+      received = true;
+    } finally {
+      if (!received) {
+        fail();
+      }
+      synchronized (this.readLock) {
+        this.readSequence++;
+        this.readLock.notifyAll();
+      }
+    }
+    this.cnx.getEndpoint().updateLastExecute();
+    return msg;
+  }
+
+  private void checkFailed() throws IOException {
+    if (this.failed) {
+      throw new IOException("Pipelined connection to " + this.cnx.getServer() + " has failed");
+    }
+  }
+
+  private void fail() {
+    this.failed = true;
+    synchronized (this.readLock) {
+      this.readLock.notifyAll();
+    }
+  }
+}
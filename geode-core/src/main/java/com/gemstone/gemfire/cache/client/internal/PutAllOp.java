@@ -100,8 +100,8 @@ public class PutAllOp {
     ClientMetadataService cms = ((LocalRegion)region).getCache()
         .getClientMetadataService();
 
-    Map<ServerLocation, HashSet> serverToFilterMap = cms.getServerToFilterMap(
-        map.keySet(), region, true);
+    Map<ServerLocation, HashSet> serverToFilterMap = cms
+        .getServerToFilterMapForBulkOp(map.keySet(), region);
 
     if (serverToFilterMap == null || serverToFilterMap.isEmpty()) {
       AbstractOp op = new PutAllOpImpl(region, map,
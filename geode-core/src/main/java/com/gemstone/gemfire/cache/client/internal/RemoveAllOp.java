@@ -97,8 +97,8 @@ public class RemoveAllOp {
     ClientMetadataService cms = ((LocalRegion)region).getCache()
         .getClientMetadataService();
 
-    Map<ServerLocation, HashSet> serverToFilterMap = cms.getServerToFilterMap(
-        keys, region, true);
+    Map<ServerLocation, HashSet> serverToFilterMap = cms
+        .getServerToFilterMapForBulkOp(keys, region);
 
     if (serverToFilterMap == null || serverToFilterMap.isEmpty()) {
       AbstractOp op = new RemoveAllOpImpl(region, keys,
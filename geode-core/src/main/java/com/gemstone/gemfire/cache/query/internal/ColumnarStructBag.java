@@ -0,0 +1,811 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.gemstone.gemfire.cache.query.Struct;
+import com.gemstone.gemfire.cache.query.internal.types.CollectionTypeImpl;
+import com.gemstone.gemfire.cache.query.internal.types.StructTypeImpl;
+import com.gemstone.gemfire.cache.query.types.CollectionType;
+import com.gemstone.gemfire.cache.query.types.ObjectType;
+import com.gemstone.gemfire.cache.query.types.StructType;
+import com.gemstone.gemfire.internal.DataSerializableFixedID;
+import com.gemstone.gemfire.internal.Version;
+import com.gemstone.gemfire.internal.cache.CachePerfStats;
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+
+/**
+ * A Bag of Structs that stores the field values column by column instead of
+ * as an Object[] per row. Columns of int, long and double fields are kept in
+ * primitive arrays and String columns are dictionary encoded, so the
+ * projection of a query such as <code>select e.id, e.price from /r e</code>
+ * does not hold a boxed value and an Object[] for every row. Structs are
+ * created only when the bag is iterated.
+ * <p>
+ * A column falls back to holding plain objects the first time it is given a
+ * value it can not store, such as a null or a value of another type, so the
+ * declared field types are only a hint.
+ * <p>
+ * Unlike {@link StructBag} the rows are not hashed, so looking up the
+ * occurrences of a struct scans the rows. The bag is used for the results of
+ * queries that are not DISTINCT, where no such lookups are made while the
+ * results are collected. It is serialized as a {@link StructBag}.
+ *
+ * @since 9.0
+ */
+public final class ColumnarStructBag extends Bag<Object> implements StructFields,
+    DataSerializableFixedID {
+
+  /**
+   * Dictionary encoded columns with more distinct values than this and than
+   * half their rows are converted to plain object columns.
+   */
+  private static final int MAX_DICTIONARY_SIZE = 1024;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private Column[] columns;
+
+  private boolean modifiable = true;
+
+  /** The limit applied to this bag, -1 if none */
+  private int appliedLimit = -1;
+
+  /**
+   * The rows hashed into a StructBag for the map views of {@link Bag}, built
+   * on first use and dropped whenever the rows change.
+   */
+  private transient StructBag hashedRows;
+
+  /** Creates an empty bag to be filled by {@link #fromData} */
+  public ColumnarStructBag() {
+    this.columns = new Column[0];
+  }
+
+  /**
+   * @param stats the CachePerfStats to track hash collisions. Should
+   * be null unless this is used as a query execution-time result set.
+   */
+  public ColumnarStructBag(StructType structType, CachePerfStats stats) {
+    super(stats);
+    if (structType == null) { throw new IllegalArgumentException(LocalizedStrings.StructBag_STRUCTTYPE_MUST_NOT_BE_NULL.toLocalizedString()); }
+    this.elementType = structType;
+    this.columns = createColumns(structType);
+  }
+
+  private static Column[] createColumns(StructType structType) {
+    ObjectType[] fieldTypes = structType.getFieldTypes();
+    Column[] columns = new Column[fieldTypes.length];
+    for (int i = 0; i < fieldTypes.length; i++) {
+      columns[i] = createColumn(fieldTypes[i].resolveClass());
+    }
+    return columns;
+  }
+
+  /**
+   * Returns true if at least one field of the given struct type has a type
+   * this bag stores in a specialized column.
+   */
+  public static boolean hasSpecializedColumns(StructType structType) {
+    for (ObjectType fieldType : structType.getFieldTypes()) {
+      if (!(createColumn(fieldType.resolveClass()) instanceof ObjectColumn)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Column createColumn(Class<?> fieldClass) {
+    if (fieldClass == int.class || fieldClass == Integer.class) {
+      return new IntColumn();
+    } else if (fieldClass == long.class || fieldClass == Long.class) {
+      return new LongColumn();
+    } else if (fieldClass == double.class || fieldClass == Double.class) {
+      return new DoubleColumn();
+    } else if (fieldClass == String.class) {
+      return new DictionaryColumn();
+    }
+    return new ObjectColumn();
+  }
+
+  /** Add a Struct */
+  @Override
+  public boolean add(Object obj) {
+    if (!(obj instanceof StructImpl)) {
+      throw new IllegalArgumentException(LocalizedStrings.StructBag_THIS_SET_ONLY_ACCEPTS_STRUCTIMPL.toLocalizedString());
+    }
+    StructImpl s = (StructImpl) obj;
+    if (!this.elementType.equals(s.getStructType())) {
+      throw new IllegalArgumentException(LocalizedStrings.StructBag_OBJ_DOES_NOT_HAVE_THE_SAME_STRUCTTYPE.
+          toLocalizedString(this.elementType, s.getStructType()));
+    }
+    return addFieldValues(s.getFieldValues());
+  }
+
+  /**
+   * For internal use. Just add the Object[] values for a struct with same type
+   */
+  public boolean addFieldValues(Object[] fieldValues) {
+    if (this.appliedLimit > -1) {
+      throw new UnsupportedOperationException(
+          "Addition to the SelectResults not allowed as the query result is constrained by LIMIT");
+    }
+    for (int i = 0; i < this.columns.length; i++) {
+      this.columns[i] = this.columns[i].add(this.size, fieldValues[i]);
+    }
+    this.size++;
+    this.hashedRows = null;
+    return true;
+  }
+
+  /**
+   * Adds the field values of a struct. Always returns 1 because the rows are
+   * not hashed; callers only use the result to spot the first occurrence of a
+   * row for DISTINCT queries, which this bag is not used for.
+   */
+  @Override
+  public int addAndGetOccurence(Object element) {
+    addFieldValues((Object[]) element);
+    return 1;
+  }
+
+  /** Does this bag contain specified struct? */
+  @Override
+  public boolean contains(Object obj) {
+    if (!(obj instanceof Struct)) { return false; }
+    Struct s = (Struct) obj;
+    if (!this.elementType.equals(StructTypeImpl.typeFromStruct(s))) { return false; }
+    return containsFieldValues(s.getFieldValues());
+  }
+
+  /**
+   * Does this bag contain a Struct of the correct type with the specified
+   * values?
+   */
+  public boolean containsFieldValues(Object[] fieldValues) {
+    return indexOf(fieldValues, 0) >= 0;
+  }
+
+  @Override
+  public int occurrences(Object element) {
+    if (!(element instanceof Struct)) {
+      return 0;
+    }
+    Struct s = (Struct) element;
+    if (!this.elementType.equals(StructTypeImpl.typeFromStruct(s))) {
+      return 0;
+    }
+    return mapGet(s.getFieldValues());
+  }
+
+  /** Remove the specified Struct */
+  @Override
+  public boolean remove(Object o) {
+    if (!(o instanceof Struct)) { return false; }
+    Struct s = (Struct) o;
+    if (!this.elementType.equals(StructTypeImpl.typeFromStruct(s))) { return false; }
+    return removeFieldValues(s.getFieldValues());
+  }
+
+  /** Remove the field values from a struct of the correct type */
+  public boolean removeFieldValues(Object[] fieldValues) {
+    int row = indexOf(fieldValues, 0);
+    if (row < 0) {
+      return false;
+    }
+    removeRow(row);
+    return true;
+  }
+
+  @Override
+  public CollectionType getCollectionType() {
+    // Reported as a StructBag so that members and clients that do not know
+    // this class can still rebuild the results.
+    return new CollectionTypeImpl(StructBag.class, this.elementType);
+  }
+
+  /** Return an iterator over the elements in this collection. Duplicates
+    *  will show up the number of times it has occurrances.
+    */
+  @Override
+  public Iterator<Object> iterator() {
+    return new StructIterator();
+  }
+
+  /** Returns an iterator over the fieldValues Object[] instances */
+  public Iterator<Object[]> fieldValuesIterator() {
+    return new FieldValuesIterator();
+  }
+
+  @Override
+  public void setElementType(ObjectType elementType) {
+    if (!(elementType instanceof StructTypeImpl)) {
+      throw new IllegalArgumentException(LocalizedStrings.StructBag_ELEMENT_TYPE_MUST_BE_STRUCT.toLocalizedString());
+    }
+    this.elementType = elementType;
+  }
+
+  @Override
+  public Set<Object> asSet() {
+    List<Object[]> rows = new ArrayList<Object[]>(this.size);
+    for (Iterator<Object[]> itr = fieldValuesIterator(); itr.hasNext();) {
+      rows.add(itr.next());
+    }
+    // StructSet is a raw Set of Structs
+    @SuppressWarnings("unchecked")
+    Set<Object> set = new StructSet(rows, (StructType) this.elementType);
+    return set;
+  }
+
+  @Override
+  public List<Object> asList() {
+    return new ArrayList<Object>(this);
+  }
+
+  @Override
+  public boolean equals(Object o) { // for findbugs
+    return super.equals(o);
+  }
+
+  @Override
+  public int hashCode() { // for findbugs
+    return super.hashCode();
+  }
+
+  /**
+   * Getter for property modifiable.
+   *
+   * @return Value of property modifiable.
+   */
+  @Override
+  public boolean isModifiable() {
+    return this.modifiable;
+  }
+
+  /**
+   * Setter for property modifiable.
+   *
+   * @param modifiable New value of property modifiable.
+   */
+  public void setModifiable(boolean modifiable) {
+    this.modifiable = modifiable;
+    this.hashedRows = null;
+  }
+
+  /**
+   * The rows are kept in the order they were added, so the limit simply
+   * drops the rows past it.
+   */
+  @Override
+  void applyLimit(int limit) {
+    this.appliedLimit = limit;
+    if (limit > -1 && this.size > limit) {
+      for (int i = 0; i < this.columns.length; i++) {
+        this.columns[i].truncate(limit, this.size);
+      }
+      this.size = limit;
+      this.hashedRows = null;
+    }
+  }
+
+  private Object[] getRow(int row) {
+    Object[] values = new Object[this.columns.length];
+    for (int i = 0; i < this.columns.length; i++) {
+      values[i] = this.columns[i].get(row);
+    }
+    return values;
+  }
+
+  private int indexOf(Object[] fieldValues, int fromRow) {
+    if (fieldValues.length != this.columns.length) {
+      return -1;
+    }
+    rows: for (int row = fromRow; row < this.size; row++) {
+      for (int i = 0; i < this.columns.length; i++) {
+        if (!this.columns[i].matches(row, fieldValues[i])) {
+          continue rows;
+        }
+      }
+      return row;
+    }
+    return -1;
+  }
+
+  private void removeRow(int row) {
+    for (int i = 0; i < this.columns.length; i++) {
+      this.columns[i].remove(row, this.size);
+    }
+    this.size--;
+    this.hashedRows = null;
+  }
+
+  /**
+   * Returns a StructBag holding the same rows. It is built once and reused
+   * until the rows change, so it must not be modified.
+   */
+  private StructBag toStructBag() {
+    StructBag bag = this.hashedRows;
+    if (bag == null) {
+      bag = new StructBag(this.size, (StructType) this.elementType, null);
+      for (int row = 0; row < this.size; row++) {
+        bag.addFieldValues(getRow(row));
+      }
+      bag.setModifiable(this.modifiable);
+      this.hashedRows = bag;
+    }
+    return bag;
+  }
+
+  @Override
+  protected int mapGet(Object element) {
+    Object[] fieldValues = (Object[]) element;
+    int count = 0;
+    for (int row = indexOf(fieldValues, 0); row >= 0; row = indexOf(fieldValues, row + 1)) {
+      count++;
+    }
+    return count;
+  }
+
+  @Override
+  protected boolean mapContainsKey(Object element) {
+    return indexOf((Object[]) element, 0) >= 0;
+  }
+
+  @Override
+  protected void mapPut(Object element, int count) {
+    Object[] fieldValues = (Object[]) element;
+    int current = mapGet(fieldValues);
+    for (; current < count; current++) {
+      addFieldValues(fieldValues);
+      this.size--; // Bag adjusts the size itself
+    }
+    for (; current > count; current--) {
+      removeFieldValues(fieldValues);
+      this.size++;
+    }
+  }
+
+  @Override
+  protected int mapSize() {
+    return toStructBag().mapSize();
+  }
+
+  @Override
+  protected int mapRemove(Object element) {
+    Object[] fieldValues = (Object[]) element;
+    int count = 0;
+    while (removeFieldValues(fieldValues)) {
+      this.size++; // Bag adjusts the size itself
+      count++;
+    }
+    return count;
+  }
+
+  @Override
+  protected void mapClear() {
+    for (int i = 0; i < this.columns.length; i++) {
+      this.columns[i] = this.columns[i].clear();
+    }
+    this.hashedRows = null;
+  }
+
+  @Override
+  protected Object getMap() {
+    return toStructBag().getMap();
+  }
+
+  @Override
+  protected int mapHashCode() {
+    return toStructBag().mapHashCode();
+  }
+
+  @Override
+  protected boolean mapEmpty() {
+    return this.size == 0;
+  }
+
+  @Override
+  protected Iterator<?> mapEntryIterator() {
+    return new HashedRowsIterator(toStructBag().mapEntryIterator(), true);
+  }
+
+  @Override
+  protected Iterator<?> mapKeyIterator() {
+    return new HashedRowsIterator(toStructBag().mapKeyIterator(), false);
+  }
+
+  @Override
+  protected Object keyFromEntry(Object entry) {
+    return ((ObjectIntHashMap.Entry) entry).getKey();
+  }
+
+  @Override
+  protected Integer valueFromEntry(Object entry) {
+    return ((ObjectIntHashMap.Entry) entry).getValue();
+  }
+
+  @Override
+  public int getDSFID() {
+    return STRUCT_BAG;
+  }
+
+  @Override
+  public void toData(DataOutput out) throws IOException {
+    toStructBag().toData(out);
+  }
+
+  /**
+   * Reads the rows of a {@link StructBag}, which is the form this bag is
+   * written in.
+   */
+  @Override
+  public void fromData(DataInput in) throws IOException, ClassNotFoundException {
+    StructBag bag = new StructBag();
+    bag.fromData(in);
+    this.elementType = bag.getCollectionType().getElementType();
+    this.columns = createColumns((StructType) this.elementType);
+    this.size = 0;
+    this.appliedLimit = -1;
+    this.hashedRows = null;
+    for (Iterator<?> itr = bag.fieldValuesIterator(); itr.hasNext();) {
+      addFieldValues((Object[]) itr.next());
+    }
+    this.modifiable = bag.isModifiable();
+  }
+
+  @Override
+  public Version[] getSerializationVersions() {
+    return null;
+  }
+
+  /**
+   * Iterates over the rows, returning an element built from the field values
+   * of each.
+   */
+  private abstract class RowIterator<T> implements Iterator<T> {
+    private int next = 0;
+    private boolean canRemove = false;
+
+    abstract T createElement(Object[] fieldValues);
+
+    public boolean hasNext() {
+      return this.next < ColumnarStructBag.this.size;
+    }
+
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      this.canRemove = true;
+      return createElement(getRow(this.next++));
+    }
+
+    public void remove() {
+      if (!this.canRemove) {
+        throw new IllegalStateException();
+      }
+      if (!isModifiable()) {
+        throw new UnsupportedOperationException("Collection unmodifiable");
+      }
+      this.canRemove = false;
+      removeRow(--this.next);
+    }
+  }
+
+  /**
+   * Iterates over the map view of the hashed rows, removing the rows of the
+   * current key or entry from the columns rather than from the StructBag.
+   */
+  private class HashedRowsIterator implements Iterator<Object> {
+    private final Iterator<?> it;
+    private final boolean entries;
+    private Object current;
+    private boolean canRemove = false;
+
+    HashedRowsIterator(Iterator<?> it, boolean entries) {
+      this.it = it;
+      this.entries = entries;
+    }
+
+    public boolean hasNext() {
+      return this.it.hasNext();
+    }
+
+    public Object next() {
+      this.current = this.it.next();
+      this.canRemove = true;
+      return this.current;
+    }
+
+    public void remove() {
+      if (!this.canRemove) {
+        throw new IllegalStateException();
+      }
+      if (!isModifiable()) {
+        throw new UnsupportedOperationException("Collection unmodifiable");
+      }
+      this.canRemove = false;
+      Object[] fieldValues = (Object[]) (this.entries ? keyFromEntry(this.current) : this.current);
+      for (int row = indexOf(fieldValues, 0); row >= 0; row = indexOf(fieldValues, row)) {
+        removeRow(row);
+      }
+    }
+  }
+
+  /**
+   * Iterates over the rows as Object[] field values.
+   */
+  private class FieldValuesIterator extends RowIterator<Object[]> {
+    @Override
+    Object[] createElement(Object[] fieldValues) {
+      return fieldValues;
+    }
+  }
+
+  /**
+   * Iterator wrapper to construct Structs on demand.
+   */
+  private class StructIterator extends RowIterator<Object> {
+    @Override
+    Object createElement(Object[] fieldValues) {
+      return new StructImpl((StructTypeImpl) ColumnarStructBag.this.elementType,
+          fieldValues);
+    }
+  }
+
+  /**
+   * The values of one field. Adding a value the column can not hold returns
+   * an {@link ObjectColumn} with all the values, which replaces it.
+   */
+  private static abstract class Column {
+    abstract Column add(int row, Object value);
+
+    abstract Object get(int row);
+
+    abstract void remove(int row, int size);
+
+    boolean matches(int row, Object value) {
+      Object v = get(row);
+      return v == null ? value == null : v.equals(value);
+    }
+
+    void truncate(int newSize, int size) {
+    }
+
+    Column clear() {
+      return createEmpty();
+    }
+
+    abstract Column createEmpty();
+
+    ObjectColumn toObjectColumn(int size) {
+      ObjectColumn column = new ObjectColumn(Math.max(size + 1, INITIAL_CAPACITY));
+      for (int row = 0; row < size; row++) {
+        column.values[row] = get(row);
+      }
+      return column;
+    }
+
+    static int newCapacity(int row, int capacity) {
+      return row < capacity ? capacity : Math.max(INITIAL_CAPACITY, capacity * 2);
+    }
+  }
+
+  private static final class IntColumn extends Column {
+    private int[] values = new int[0];
+
+    @Override
+    Column add(int row, Object value) {
+      if (!(value instanceof Integer)) {
+        return toObjectColumn(row).add(row, value);
+      }
+      if (row == this.values.length) {
+        this.values = Arrays.copyOf(this.values, newCapacity(row, this.values.length));
+      }
+      this.values[row] = ((Integer) value).intValue();
+      return this;
+    }
+
+    @Override
+    Object get(int row) {
+      return Integer.valueOf(this.values[row]);
+    }
+
+    @Override
+    boolean matches(int row, Object value) {
+      return value instanceof Integer && ((Integer) value).intValue() == this.values[row];
+    }
+
+    @Override
+    void remove(int row, int size) {
+      System.arraycopy(this.values, row + 1, this.values, row, size - row - 1);
+    }
+
+    @Override
+    Column createEmpty() {
+      return new IntColumn();
+    }
+  }
+
+  private static final class LongColumn extends Column {
+    private long[] values = new long[0];
+
+    @Override
+    Column add(int row, Object value) {
+      if (!(value instanceof Long)) {
+        return toObjectColumn(row).add(row, value);
+      }
+      if (row == this.values.length) {
+        this.values = Arrays.copyOf(this.values, newCapacity(row, this.values.length));
+      }
+      this.values[row] = ((Long) value).longValue();
+      return this;
+    }
+
+    @Override
+    Object get(int row) {
+      return Long.valueOf(this.values[row]);
+    }
+
+    @Override
+    boolean matches(int row, Object value) {
+      return value instanceof Long && ((Long) value).longValue() == this.values[row];
+    }
+
+    @Override
+    void remove(int row, int size) {
+      System.arraycopy(this.values, row + 1, this.values, row, size - row - 1);
+    }
+
+    @Override
+    Column createEmpty() {
+      return new LongColumn();
+    }
+  }
+
+  private static final class DoubleColumn extends Column {
+    private double[] values = new double[0];
+
+    @Override
+    Column add(int row, Object value) {
+      if (!(value instanceof Double)) {
+        return toObjectColumn(row).add(row, value);
+      }
+      if (row == this.values.length) {
+        this.values = Arrays.copyOf(this.values, newCapacity(row, this.values.length));
+      }
+      this.values[row] = ((Double) value).doubleValue();
+      return this;
+    }
+
+    @Override
+    Object get(int row) {
+      return Double.valueOf(this.values[row]);
+    }
+
+    @Override
+    void remove(int row, int size) {
+      System.arraycopy(this.values, row + 1, this.values, row, size - row - 1);
+    }
+
+    @Override
+    Column createEmpty() {
+      return new DoubleColumn();
+    }
+  }
+
+  /**
+   * Stores each distinct String once and an int code per row.
+   */
+  private static final class DictionaryColumn extends Column {
+    private final Map<String, Integer> codes = new HashMap<String, Integer>();
+    private final List<String> dictionary = new ArrayList<String>();
+    private int[] rows = new int[0];
+
+    @Override
+    Column add(int row, Object value) {
+      if (!(value instanceof String)) {
+        return toObjectColumn(row).add(row, value);
+      }
+      Integer code = this.codes.get(value);
+      if (code == null) {
+        if (this.dictionary.size() >= MAX_DICTIONARY_SIZE
+            && this.dictionary.size() > row / 2) {
+          // Mostly distinct values; the dictionary costs more than it saves.
+          return toObjectColumn(row).add(row, value);
+        }
+        code = Integer.valueOf(this.dictionary.size());
+        this.dictionary.add((String) value);
+        this.codes.put((String) value, code);
+      }
+      if (row == this.rows.length) {
+        this.rows = Arrays.copyOf(this.rows, newCapacity(row, this.rows.length));
+      }
+      this.rows[row] = code.intValue();
+      return this;
+    }
+
+    @Override
+    Object get(int row) {
+      return this.dictionary.get(this.rows[row]);
+    }
+
+    @Override
+    void remove(int row, int size) {
+      System.arraycopy(this.rows, row + 1, this.rows, row, size - row - 1);
+    }
+
+    @Override
+    Column createEmpty() {
+      return new DictionaryColumn();
+    }
+  }
+
+  private static final class ObjectColumn extends Column {
+    private Object[] values;
+
+    ObjectColumn() {
+      this(0);
+    }
+
+    ObjectColumn(int capacity) {
+      this.values = new Object[capacity];
+    }
+
+    @Override
+    Column add(int row, Object value) {
+      if (row == this.values.length) {
+        this.values = Arrays.copyOf(this.values, newCapacity(row, this.values.length));
+      }
+      this.values[row] = value;
+      return this;
+    }
+
+    @Override
+    Object get(int row) {
+      return this.values[row];
+    }
+
+    @Override
+    void remove(int row, int size) {
+      System.arraycopy(this.values, row + 1, this.values, row, size - row - 1);
+      this.values[size - 1] = null;
+    }
+
+    @Override
+    void truncate(int newSize, int size) {
+      Arrays.fill(this.values, newSize, size, null);
+    }
+
+    @Override
+    Column createEmpty() {
+      return new ObjectColumn();
+    }
+  }
+}
@@ -819,6 +819,12 @@ public class CompiledComparison extends AbstractCompiledValue implements
     if (context instanceof QueryExecutionContext && ((QueryExecutionContext)context).hasHints()) {
       return thisSize <= thatSize;
     }
+
+    //Go with the lowest cost when both estimates are computed from the index.
+    //A RangeJunction only has a fixed estimate.
+    if (DefaultQueryService.COST_BASED_INDEX_SELECTION && thatOperator != LITERAL_and) {
+      return thisSize <= thatSize;
+    }
     
     //There may be some hard rules that give unoptimal selections based on these switch cases.
     if(this._operator == TOK_EQ || this._operator == TOK_NE || this._operator == TOK_NE_ALT) {
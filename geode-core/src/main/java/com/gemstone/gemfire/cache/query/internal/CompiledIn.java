@@ -808,6 +808,13 @@ public class CompiledIn extends AbstractCompiledValue implements Indexable {
     if (context instanceof QueryExecutionContext && ((QueryExecutionContext)context).hasHints()) {
       return thisSize <= thatSize;
     }
+
+    //Go with the lowest cost when both estimates are computed from the index.
+    //A RangeJunction only has a fixed estimate. IN does a lookup per element
+    //so an equal estimate goes to the other filter.
+    if (DefaultQueryService.COST_BASED_INDEX_SELECTION && thatOperator != LITERAL_and) {
+      return thisSize < thatSize;
+    }
         
     switch(thatOperator) {
         case TOK_EQ:
@@ -67,13 +67,11 @@ public class CompiledSelect extends AbstractCompiledValue {
   private boolean count;
   //Asif: limits the SelectResults by the number specified.
   private CompiledValue limit;
-  //Shobhit: counts the no of results satisfying where condition for
-  // count(*) non-distinct queries where no indexes are used.
-  private int countStartQueryResult = 0;
-  
   protected List<CompiledValue> groupBy = null;
   //Are not serialized and are recreated when compiling the query
   private List<String> hints;
+  // Number of threads asked for with a parallelism hint, -1 if none
+  private int parallelismHint = -1;
   protected boolean transformationDone = false;
   protected ObjectType cachedElementTypeForOrderBy = null;
   private boolean hasUnmappedOrderByCols = false; 
@@ -94,6 +92,14 @@ public class CompiledSelect extends AbstractCompiledValue {
    */
   private final static String CLAUSE_EVALUATED = "Evaluated";
 
+  /**
+   * Prefix of the query hint that sets how many threads execute the query on
+   * the local buckets of a partitioned region, as in
+   * <code>&lt;hint 'parallelism=8'&gt; select * from /pr</code>
+   * @since 9.0
+   */
+  public final static String PARALLELISM_HINT_PREFIX = "parallelism=";
+
   public CompiledSelect(boolean distinct, boolean count, CompiledValue whereClause,
                         List iterators, List projAttrs,List<CompiledSortCriterion> orderByAttrs, CompiledValue limit,
                         List<String> hints, List<CompiledValue> groupByClause) {
@@ -104,11 +110,43 @@ public class CompiledSelect extends AbstractCompiledValue {
     this.distinct = distinct;
     this.count = count;
     this.limit = limit;
-    this.hints = hints;
+    this.hints = removeParallelismHint(hints);
     this.groupBy = groupByClause;
      
   }
 
+  /**
+   * Takes a hint of the form <code>'parallelism=n'</code> out of the index
+   * hints and remembers n, so that the rest of the hints still name indexes.
+   */
+  private List<String> removeParallelismHint(List<String> hints) {
+    if (hints == null) {
+      return null;
+    }
+    List<String> indexHints = new ArrayList<String>(hints.size());
+    for (String hint : hints) {
+      if (hint.startsWith(PARALLELISM_HINT_PREFIX)) {
+        try {
+          this.parallelismHint = Integer.parseInt(hint.substring(PARALLELISM_HINT_PREFIX.length()).trim());
+        } catch (NumberFormatException e) {
+          throw new QueryInvalidException("Invalid parallelism hint: " + hint);
+        }
+      } else {
+        indexHints.add(hint);
+      }
+    }
+    return indexHints.isEmpty() ? null : indexHints;
+  }
+
+  /**
+   * Returns the number of threads the query asked to be executed with on each
+   * data node, or -1 if it did not give a parallelism hint.
+   * @since 9.0
+   */
+  public int getParallelismHint() {
+    return this.parallelismHint;
+  }
+
   @Override
   public List getChildren() {
     List list = new ArrayList();
@@ -143,6 +181,13 @@ public class CompiledSelect extends AbstractCompiledValue {
   public boolean isOrderBy() { 
     return this.orderByAttrs != null;
   }
+
+  /**
+   * @since 9.0
+   */
+  public boolean hasLimit() {
+    return this.limit != null;
+  }
     
   public void setDistinct(boolean distinct) {
     this.distinct = distinct;
@@ -237,7 +282,12 @@ public class CompiledSelect extends AbstractCompiledValue {
   
   protected void doTreeTransformation(ExecutionContext context) throws AmbiguousNameException, TypeMismatchException, NameResolutionException {
     if(!this.transformationDone) {
-      this.cachedElementTypeForOrderBy = prepareResultType(context);
+      // Only ordered and grouped selects keep their result type. Others may be
+      // shared by queries on regions of other types through the plan cache of
+      // DefaultQuery and prepare it for each execution.
+      if (this.orderByAttrs != null || this.groupBy != null) {
+        this.cachedElementTypeForOrderBy = prepareResultType(context);
+      }
       this.mapOrderByColumns(context);
       this.transformGroupByIfPossible(context);         
     }
@@ -611,6 +661,9 @@ public class CompiledSelect extends AbstractCompiledValue {
         if (this.count) {
           SelectResults res = (SelectResults) result;
           
+          //Shobhit: counts the no of results satisfying where condition for
+          // count(*) non-distinct queries where no indexes are used.
+          int countStartQueryResult = context.getSelectCount(this)[0];
           if ((this.distinct || evalAsFilters || countStartQueryResult == 0)) {
             // Retrun results as it is as distinct is applied
             // at coordinator node for PR queries.
@@ -843,7 +896,7 @@ public class CompiledSelect extends AbstractCompiledValue {
       if (this.whereClause == null && iterators.size() == 1 && isCount() && !isDistinct() && 
           sr instanceof QRegion) {
         QRegion qr = (QRegion)sr;
-        countStartQueryResult = qr.getRegion().size();
+        context.getSelectCount(this)[0] = qr.getRegion().size();
         return 1;
       }
 
@@ -1011,8 +1064,14 @@ public class CompiledSelect extends AbstractCompiledValue {
           }
         } else {
           if (elementType.isStructType()) {
-            results = new StructBag((StructType) elementType,
-                context.getCachePerfStats());
+            if (DefaultQueryService.COLUMNAR_RESULTS && this.projAttrs != null
+                && ColumnarStructBag.hasSpecializedColumns((StructType) elementType)) {
+              results = new ColumnarStructBag((StructType) elementType,
+                  context.getCachePerfStats());
+            } else {
+              results = new StructBag((StructType) elementType,
+                  context.getCachePerfStats());
+            }
           } else {
             results = new ResultsBag(elementType, context.getCachePerfStats());
           }
@@ -1030,7 +1089,7 @@ public class CompiledSelect extends AbstractCompiledValue {
                                                                      * value
                                                                      */,
           context.getCachePerfStats());
-      countStartQueryResult = 0;
+      context.getSelectCount(this)[0] = 0;
 
     }
    return results;   
@@ -1233,10 +1292,10 @@ public class CompiledSelect extends AbstractCompiledValue {
       // Shobhit: Add count value to the counter for this select expression.
       // Don't care about Order By for count(*).
       if (isCount() && !this.distinct) {
-        // Counter is local to CompileSelect and not available in ResultSet
-        // until
-        // the end of evaluate call to this CompiledSelect object.
-        this.countStartQueryResult++;
+        // Counter is local to this execution of the CompileSelect and not
+        // available in ResultSet until the end of evaluate call to this
+        // CompiledSelect object.
+        context.getSelectCount(this)[0]++;
         occurence = 1;
       } else {
         // if order by is present
@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -98,6 +99,31 @@ public class DefaultQuery implements Query {
 
   public static int TEST_COMPILED_QUERY_CLEAR_TIME = -1;
 
+  /**
+   * System property for the number of compiled queries kept by their query
+   * string, so that creating a query that was created before does not parse
+   * and compile it again. Set to 0 to compile every query.
+   * 
+   * @since 9.0
+   */
+  public static final int QUERY_PLAN_CACHE_SIZE = Integer.getInteger(
+      "gemfire.Query.PLAN_CACHE_SIZE", 1000).intValue();
+
+  /**
+   * Compiled queries by normalized query string, least recently used first.
+   * Only holds queries whose compiled form does not depend on the cache they
+   * were created in, see {@link #isCacheablePlan(CompiledValue)}.
+   */
+  private static final Map<String, CachedPlan> planCache = new LinkedHashMap<String, CachedPlan>(
+      16, 0.75f, true) {
+    private static final long serialVersionUID = 2938446302916128813L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CachedPlan> eldest) {
+      return size() > QUERY_PLAN_CACHE_SIZE;
+    }
+  };
+
   // Use to represent null result.
   // Used while adding PR results to the results-queue, which is a blocking queue.
   public static final Object NULL_RESULT = new Object();
@@ -269,9 +295,20 @@ public class DefaultQuery implements Query {
    * @see QueryService#newQuery
    */
   public DefaultQuery(String queryString, Cache cache, boolean isForRemote) {
+    this(queryString, cache, isForRemote, true);
+  }
+
+  /**
+   * @param usePlanCache
+   *          false if the caller modifies the compiled query, which must then
+   *          not be shared through the plan cache
+   * @since 9.0
+   */
+  public DefaultQuery(String queryString, Cache cache, boolean isForRemote,
+      boolean usePlanCache) {
     this.queryString = queryString;
-    QCompiler compiler = new QCompiler();
-    this.compiledQuery = compiler.compileQuery(queryString);
+    CachedPlan plan = getPlan(queryString, usePlanCache);
+    this.compiledQuery = plan.compiledQuery;
     CompiledSelect cs = this.getSimpleSelect();
     if(cs != null && !isForRemote && (cs.isGroupBy() || cs.isOrderBy())) {
       QueryExecutionContext ctx = new QueryExecutionContext(null, cache);
@@ -281,11 +318,121 @@ public class DefaultQuery implements Query {
         throw new QueryInvalidException("",qe);
       }
     }
-    this.traceOn = (compiler.isTraceRequested() || QUERY_VERBOSE);
+    this.traceOn = (plan.traceRequested || QUERY_VERBOSE);
     this.cache = cache;
     this.stats = new DefaultQueryStatistics();
   }
 
+  /**
+   * Returns the compiled form of the given query, from the plan cache if a
+   * query with the same normalized query string was compiled before.
+   */
+  private static CachedPlan getPlan(String queryString, boolean usePlanCache) {
+    QueryObserver observer = QueryObserverHolder.getInstance();
+    String key = null;
+    if (usePlanCache && QUERY_PLAN_CACHE_SIZE > 0) {
+      key = normalizeQueryString(queryString);
+      CachedPlan plan;
+      synchronized (planCache) {
+        plan = planCache.get(key);
+      }
+      if (plan != null) {
+        observer.queryPlanCacheHit(queryString);
+        return plan;
+      }
+      observer.queryPlanCacheMiss(queryString);
+    }
+    QCompiler compiler = new QCompiler();
+    CachedPlan plan = new CachedPlan(compiler.compileQuery(queryString),
+        compiler.isTraceRequested());
+    if (key != null && isCacheablePlan(plan.compiledQuery)) {
+      synchronized (planCache) {
+        planCache.put(key, plan);
+      }
+    }
+    return plan;
+  }
+
+  /**
+   * Returns false if the compiled query is prepared against the regions of a
+   * cache before it is executed, which is done for order by and group by
+   * selects.
+   */
+  private static boolean isCacheablePlan(CompiledValue cv) {
+    if (cv instanceof CompiledSelect) {
+      CompiledSelect cs = (CompiledSelect)cv;
+      if (cs.isOrderBy() || cs.isGroupBy()) {
+        return false;
+      }
+    }
+    for (Object child : cv.getChildren()) {
+      if (child instanceof CompiledValue && !isCacheablePlan((CompiledValue)child)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the query string with each run of white space outside of string
+   * literals and quoted identifiers replaced by a single space. Query strings
+   * with comments are returned as is, as a line comment ends at the line
+   * break.
+   */
+  static String normalizeQueryString(String queryString) {
+    StringBuilder sb = new StringBuilder(queryString.length());
+    char quote = 0;
+    boolean space = false;
+    for (int i = 0; i < queryString.length(); i++) {
+      char c = queryString.charAt(i);
+      if (quote != 0) {
+        // a doubled quote inside a literal is read as two literals here,
+        // which leaves the same characters verbatim
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (Character.isWhitespace(c)) {
+        space = true;
+        continue;
+      } else if (c == '\'' || c == '"') {
+        quote = c;
+      } else if ((c == '-' || c == '/') && i + 1 < queryString.length()
+          && queryString.charAt(i + 1) == (c == '-' ? '-' : '*')) {
+        return queryString;
+      }
+      if (space && sb.length() > 0) {
+        sb.append(' ');
+      }
+      space = false;
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Removes all compiled queries from the plan cache.
+   */
+  public static void clearPlanCache() {
+    synchronized (planCache) {
+      planCache.clear();
+    }
+  }
+
+  /**
+   * A compiled query in the plan cache. The compiled query is shared by all
+   * the queries created from the same query string and holds no state of an
+   * execution.
+   */
+  private static class CachedPlan {
+    final CompiledValue compiledQuery;
+    final boolean traceRequested;
+
+    CachedPlan(CompiledValue compiledQuery, boolean traceRequested) {
+      this.compiledQuery = compiledQuery;
+      this.traceRequested = traceRequested;
+    }
+  }
+
   public static boolean getPdxReadSerialized() {
     return pdxReadSerialized.get();
   }
@@ -91,6 +91,25 @@ public class DefaultQueryService implements QueryService {
   public static boolean COPY_ON_READ_AT_ENTRY_LEVEL = 
       Boolean.valueOf(System.getProperty("gemfire.QueryService.CopyOnReadAtEntryLevel", "false")).booleanValue(); 
 
+  /**
+   * System property to store the struct results of queries that project
+   * int, long, double or String fields column by column.
+   * By default its set to true.
+   * @since 9.0
+   */
+  public static boolean COLUMNAR_RESULTS =
+      Boolean.valueOf(System.getProperty("gemfire.QueryService.ColumnarResults", "true")).booleanValue();
+
+  /**
+   * System property to choose the index used for an AND junction by the
+   * estimated result sizes of its single conditions, which are computed
+   * from the index, rather than by the kind of their operators.
+   * By default its set to true.
+   * @since 9.0
+   */
+  public static boolean COST_BASED_INDEX_SELECTION =
+      Boolean.valueOf(System.getProperty("gemfire.QueryService.CostBasedIndexSelection", "true")).booleanValue();
+
   
   /** Test purpose only */
   public static boolean TEST_QUERY_HETEROGENEOUS_OBJECTS = false;
@@ -116,6 +135,18 @@ public class DefaultQueryService implements QueryService {
    * @see com.gemstone.gemfire.cache.query.Query
    */
   public Query newQuery(String queryString) {
+    return newQuery(queryString, true);
+  }
+
+  /**
+   * Constructs a new <code>Query</code> object like {@link #newQuery(String)}.
+   * 
+   * @param usePlanCache
+   *          false if the caller modifies the compiled query, which must then
+   *          not be shared through the plan cache
+   * @since 9.0
+   */
+  public Query newQuery(String queryString, boolean usePlanCache) {
     if (QueryMonitor.isLowMemory()) {
       String reason = LocalizedStrings.QueryMonitor_LOW_MEMORY_CANCELED_QUERY.toLocalizedString(QueryMonitor.getMemoryUsedDuringLowMemory());
       throw new QueryExecutionLowMemoryException(reason);
@@ -125,7 +156,7 @@ public class DefaultQueryService implements QueryService {
     if (queryString.length() == 0)
         throw new QueryInvalidException(LocalizedStrings.DefaultQueryService_THE_QUERY_STRING_MUST_NOT_BE_EMPTY.toLocalizedString());
     ServerProxy serverProxy = pool == null ? null : new ServerProxy(pool);
-    DefaultQuery query = new DefaultQuery(queryString, this.cache, serverProxy != null);
+    DefaultQuery query = new DefaultQuery(queryString, this.cache, serverProxy != null, usePlanCache);
     query.setServerProxy(serverProxy);
     return query;
   }
@@ -89,6 +89,12 @@ public class ExecutionContext {
   private boolean distinct = false;
   private Object currentProjectionField = null;
   private boolean isPRQueryNode = false;
+  /**
+   * The count(*) results counted so far by each select of this execution. Kept
+   * here rather than in the CompiledSelect as compiled queries are shared by
+   * concurrent executions.
+   */
+  private Map<CompiledSelect, int[]> selectCounts = null;
   /**
    * Param specialIteratorVar name of special variable to use to denote the
    * current iteration element. Used to implement the "this" var in the query
@@ -645,6 +651,23 @@ public class ExecutionContext {
     return this.pr;
   }
 
+  /**
+   * Returns the count(*) counter of the given select for this execution.
+   * 
+   * @since 9.0
+   */
+  int[] getSelectCount(CompiledSelect select) {
+    if (this.selectCounts == null) {
+      this.selectCounts = new IdentityHashMap<CompiledSelect, int[]>();
+    }
+    int[] count = this.selectCounts.get(select);
+    if (count == null) {
+      count = new int[1];
+      this.selectCounts.put(select, count);
+    }
+    return count;
+  }
+
   // General purpose caching methods for data that is only valid for one
   // query execution
   void cachePut(Object key, Object value) {
@@ -170,6 +170,7 @@ public class GroupJunction extends AbstractGroupOrRangeJunction {
           }
         }
         evalOperands.add(0, currentBestFilter);
+        QueryObserverHolder.getInstance().bestFilterSelected(currentBestFilter, currentBestFilterSize);
       }
     }else {
       indexCount =_operands.length ;
@@ -26,6 +26,7 @@ import com.gemstone.gemfire.DataSerializer;
 import com.gemstone.gemfire.distributed.DistributedMember;
 import com.gemstone.gemfire.distributed.internal.membership.InternalDistributedMember;
 import com.gemstone.gemfire.internal.DataSerializableFixedID;
+import com.gemstone.gemfire.internal.InternalDataSerializer;
 import com.gemstone.gemfire.internal.Version;
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
 
@@ -37,6 +38,7 @@ public class PRQueryTraceInfo implements DataSerializableFixedID {
   private InternalDistributedMember sender;
   private float timeInMillis;
   private int numResults;
+  private int parallelism = 1;
   
   public PRQueryTraceInfo() {
   }
@@ -46,6 +48,9 @@ public class PRQueryTraceInfo implements DataSerializableFixedID {
     out.writeFloat(timeInMillis);
     out.writeInt(numResults);
     DataSerializer.writeString(indexesUsed, out);
+    if (InternalDataSerializer.getVersionForDataStream(out).compareTo(Version.GFE_90) >= 0) {
+      out.writeInt(parallelism);
+    }
   }
 
   @Override
@@ -53,6 +58,9 @@ public class PRQueryTraceInfo implements DataSerializableFixedID {
     timeInMillis = in.readFloat();
     numResults = in.readInt();
     indexesUsed = DataSerializer.readString(in);
+    if (InternalDataSerializer.getVersionForDataStream(in).compareTo(Version.GFE_90) >= 0) {
+      parallelism = in.readInt();
+    }
   }
   
 
@@ -79,10 +87,10 @@ public class PRQueryTraceInfo implements DataSerializableFixedID {
 
   public String createLogLine(DistributedMember me) {
     if (sender.equals(me)) {
-      return LocalizedStrings.PartitionedRegion_QUERY_TRACE_LOCAL_NODE_LOG.toLocalizedString(sender, timeInMillis, numResults, indexesUsed);
+      return LocalizedStrings.PartitionedRegion_QUERY_TRACE_LOCAL_NODE_LOG.toLocalizedString(sender, timeInMillis, numResults, indexesUsed, parallelism);
     }
     else {
-      return LocalizedStrings.PartitionedRegion_QUERY_TRACE_REMOTE_NODE_LOG.toLocalizedString( sender, timeInMillis, numResults, indexesUsed);
+      return LocalizedStrings.PartitionedRegion_QUERY_TRACE_REMOTE_NODE_LOG.toLocalizedString( sender, timeInMillis, numResults, indexesUsed, parallelism);
     }
   }
   
@@ -105,5 +113,17 @@ public class PRQueryTraceInfo implements DataSerializableFixedID {
   public void setIndexesUsed(String indexesUsed) {
     this.indexesUsed = indexesUsed;
   }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Sets the number of threads the query was executed with on the node.
+   * @since 9.0
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
   
 }
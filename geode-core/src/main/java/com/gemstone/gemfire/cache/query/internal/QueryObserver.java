@@ -333,4 +333,30 @@ public interface QueryObserver {
    */
   void orderByColumnsEqual();
 
+  /**
+   * Callback issued when a query is created from the compiled query of an
+   * earlier query with the same query string.
+   * 
+   * @since 9.0
+   */
+  void queryPlanCacheHit(String queryString);
+
+  /**
+   * Callback issued when a query string is not found in the plan cache and is
+   * compiled.
+   * 
+   * @since 9.0
+   */
+  void queryPlanCacheMiss(String queryString);
+
+  /**
+   * Callback issued once the filter of an AND junction that is evaluated using
+   * its index has been chosen from the filters that can use one.
+   * 
+   * @param filter the chosen filter
+   * @param sizeEstimate the estimated number of results of the chosen filter
+   * @since 9.0
+   */
+  void bestFilterSelected(Filter filter, int sizeEstimate);
+
 }
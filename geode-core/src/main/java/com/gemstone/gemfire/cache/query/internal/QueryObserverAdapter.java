@@ -337,4 +337,13 @@ public class QueryObserverAdapter implements QueryObserver {
   public void orderByColumnsEqual() {
     
   }
+
+  public void queryPlanCacheHit(String queryString) {
+  }
+
+  public void queryPlanCacheMiss(String queryString) {
+  }
+
+  public void bestFilterSelected(Filter filter, int sizeEstimate) {
+  }
 }
@@ -63,7 +63,7 @@ public final class Version implements Comparable<Version> {
   /** byte used as ordinal to represent this <code>Version</code> */
   private final short ordinal;
 
-  public static final int HIGHEST_VERSION = 45;
+  public static final int HIGHEST_VERSION = 46;
 
   private static final Version[] VALUES = new Version[HIGHEST_VERSION+1];
 
@@ -198,11 +198,22 @@ public final class Version implements Comparable<Version> {
   public static final Version GFE_90 = new Version("GFE", "9.0", (byte)9,
       (byte)0, (byte)0, (byte)0, GFE_90_ORDINAL);
 
+  /**
+   * Servers of this version echo the correlation id of a request in the
+   * header of its reply, so clients can pipeline requests to them.
+   */
+  private static final byte GFE_9001_ORDINAL = 46;
+
+  public static final Version GFE_9001 = new Version("GFE", "9.0.0.1", (byte)9,
+      (byte)0, (byte)0, (byte)1, GFE_9001_ORDINAL);
+
+  // 47-49 available for 9.0.x variants
+
   /**
    * This constant must be set to the most current version of GFE/SQLF.
    * !!! NOTE: update HIGHEST_VERSION when changing CURRENT !!!
    */
-  public static final Version CURRENT = GFE_90;
+  public static final Version CURRENT = GFE_9001;
 
   /**
    * A lot of versioning code needs access to the current version's ordinal
@@ -1580,6 +1580,10 @@ public abstract class AbstractRegionEntry implements RegionEntry,
       stamp.setVersions(tag);
       stamp.setMemberID(mbr);
       event.setVersionTag(tag);
+      RegionChangeLog changeLog = region.getChangeLog();
+      if (changeLog != null) {
+        changeLog.record(getKey(), tag);
+      }
       if (logger.isDebugEnabled()) {
         logger.debug("generated tag {}; key={}; oldvalue={} newvalue={} client={} region={}; rvv={}", tag,
             event.getKey(), event.getOldValueStringForm(), event.getNewValueStringForm(),
@@ -1810,6 +1814,10 @@ public abstract class AbstractRegionEntry implements RegionEntry,
     mbr = region.getVersionVector().getCanonicalId(mbr);
     tag.setMemberID(mbr);
     stamp.setVersions(tag);
+    RegionChangeLog changeLog = region.getChangeLog();
+    if (changeLog != null) {
+      changeLog.record(getKey(), tag);
+    }
     if (tag.hasPreviousMemberID()) {
       if (tag.getPreviousMemberID() == null) {
         tag.setPreviousMemberID(stamp.getMemberID());
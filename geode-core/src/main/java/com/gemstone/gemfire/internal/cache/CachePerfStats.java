@@ -52,6 +52,7 @@ public class CachePerfStats {
   protected static final int deltaGetInitialImagesCompletedId;
   protected static final int getInitialImageTimeId;
   protected static final int getInitialImageKeysReceivedId;
+  protected static final int getInitialImageBytesReceivedId;
   protected static final int regionsId;
   protected static final int partitionedRegionsId;
   protected static final int destroysId;
@@ -111,6 +112,8 @@ public class CachePerfStats {
   protected static final int evictorQueueSizeId;
   
   protected static final int evictWorkTimeId;
+  protected static final int entryExpiryTasksId;
+  protected static final int entryExpiryLagId;
   
 
   protected static final int indexUpdateInProgressId;
@@ -184,6 +187,7 @@ public class CachePerfStats {
     final String deltaGetInitialImagesCompletedDesc = "Total number of times delta getInitialImages initiated by this cache have completed.";
     final String getInitialImageTimeDesc = "Total time spent doing getInitialImages for region creation.";
     final String getInitialImageKeysReceivedDesc = "Total number of keys received while doing getInitialImage operations.";
+    final String getInitialImageBytesReceivedDesc = "Total number of bytes of image chunks received while doing getInitialImage operations. Divide by getInitialImageTime for the getInitialImage throughput.";
     final String regionsDesc = "The current number of regions in the cache.";
     final String partitionedRegionsDesc = "The current number of partitioned regions in the cache.";
     final String destroysDesc = "The total number of times a cache object entry has been destroyed in this cache.";
@@ -295,6 +299,7 @@ public class CachePerfStats {
         f.createIntCounter("deltaGetInitialImagesCompleted", deltaGetInitialImagesCompletedDesc, "operations"),
         f.createLongCounter("getInitialImageTime", getInitialImageTimeDesc, "nanoseconds"),
         f.createIntCounter("getInitialImageKeysReceived", getInitialImageKeysReceivedDesc, "keys"),
+        f.createLongCounter("getInitialImageBytesReceived", getInitialImageBytesReceivedDesc, "bytes"),
         f.createIntGauge("regions", regionsDesc, "regions"), 
         f.createIntGauge("partitionedRegions", partitionedRegionsDesc, "partitionedRegions"), 
         f.createIntCounter("destroys", destroysDesc, "operations"), 
@@ -362,6 +367,8 @@ public class CachePerfStats {
         f.createIntGauge("evictorJobsCompleted", "Number of evictor jobs completed", "jobs"),
         f.createIntGauge("evictorQueueSize", "Number of jobs waiting to be picked up by evictor threads", "jobs"),
         f.createLongCounter("evictWorkTime", "Total time spent doing eviction work in background threads", "nanoseconds", false),
+        f.createIntGauge("entryExpiryTasks", "Current number of entry expiration tasks waiting in the expiration timer wheel", "tasks"),
+        f.createLongGauge("entryExpiryLag", "How many milliseconds the expiration timer wheel was behind its schedule when it last fired", "milliseconds"),
         f.createLongCounter("nonSingleHopsCount", nonSingleHopsDesc,"Total number of times client request observed more than one hop during operation.", false),
         f.createLongCounter("metaDataRefreshCount",metaDataRefreshCountDesc, "Total number of times the meta data is refreshed due to hopping.", false),
         f.createIntCounter("deltaUpdates", deltaUpdatesDesc, "operations"), 
@@ -420,6 +427,7 @@ public class CachePerfStats {
     deltaGetInitialImagesCompletedId = type.nameToId("deltaGetInitialImagesCompleted");
     getInitialImageTimeId = type.nameToId("getInitialImageTime");
     getInitialImageKeysReceivedId = type.nameToId("getInitialImageKeysReceived");
+    getInitialImageBytesReceivedId = type.nameToId("getInitialImageBytesReceived");
     regionsId = type.nameToId("regions");
     partitionedRegionsId = type.nameToId("partitionedRegions");
     destroysId = type.nameToId("destroys");
@@ -481,6 +489,8 @@ public class CachePerfStats {
     evictorJobsCompletedId = type.nameToId("evictorJobsCompleted");
     evictorQueueSizeId = type.nameToId("evictorQueueSize");
     evictWorkTimeId = type.nameToId("evictWorkTime");
+    entryExpiryTasksId = type.nameToId("entryExpiryTasks");
+    entryExpiryLagId = type.nameToId("entryExpiryLag");
     
     nonSingleHopsCountId = type.nameToId("nonSingleHopsCount");
     metaDataRefreshCountId = type.nameToId("metaDataRefreshCount");
@@ -593,6 +603,9 @@ public class CachePerfStats {
    public int getGetInitialImageKeysReceived() {
      return stats.getInt(getInitialImageKeysReceivedId);
    }   
+   public long getGetInitialImageBytesReceived() {
+     return stats.getLong(getInitialImageBytesReceivedId);
+   }
    public int getRegions() {
      return stats.getInt(regionsId);
    }
@@ -896,6 +909,10 @@ public class CachePerfStats {
   public void incGetInitialImageKeysReceived() {
     stats.incInt(getInitialImageKeysReceivedId, 1);
   }
+
+  public void incGetInitialImageBytesReceived(long bytes) {
+    stats.incLong(getInitialImageBytesReceivedId, bytes);
+  }
   
   public long startIndexUpdate() {
     stats.incInt(indexUpdateInProgressId, 1);
@@ -1169,6 +1186,12 @@ public class CachePerfStats {
   public void incEvictWorkTime(long delta) {
     this.stats.incLong(evictWorkTimeId, delta);
   }
+  public void setEntryExpiryTasks(int tasks) {
+    this.stats.setInt(entryExpiryTasksId, tasks);
+  }
+  public void setEntryExpiryLag(long millis) {
+    this.stats.setLong(entryExpiryLagId, millis);
+  }
 
   /**
    * Returns the Statistics instance that stores the cache perf stats.
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Paces the compactor threads of a disk store so that copying live entries
+ * forward does not starve foreground writes.
+ * <p>
+ * Before copying an entry forward a compactor calls {@link #acquire}. The
+ * call first yields, for at most {@link #getMaxYieldMillis()}, while the
+ * number of foreground writes pending on the disk store is at or above the
+ * yield threshold. It then waits until the bytes being copied fit within
+ * {@link #getMaxBytesPerSecond()}. The rate is shared by all the compactor
+ * threads of the disk store.
+ *
+ * @since 9.0
+ */
+public class CompactionThrottle {
+
+  /**
+   * Reports how many foreground writes are waiting on the disk store.
+   */
+  public static interface ForegroundLoad {
+    /**
+     * Returns the number of writes queued for the async writer plus the
+     * number of synchronous writes in progress.
+     */
+    public int getPendingWrites();
+  }
+
+  /** How long a compactor sleeps before checking the foreground load again */
+  private static final long YIELD_SLEEP_MILLIS = 1;
+
+  /** The longest single sleep done while rate limiting */
+  private static final long MAX_SLEEP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private volatile long maxBytesPerSecond;
+
+  private final int yieldThreshold;
+
+  private final long maxYieldMillis;
+
+  private final ForegroundLoad load;
+
+  private final DiskStoreStats stats;
+
+  /** The time at which the next compactor write may start. Guarded by this. */
+  private long nextFreeNanos;
+
+  /** The number of compactors currently waiting in acquire */
+  private final AtomicInteger throttledThreads = new AtomicInteger();
+
+  /**
+   * @param maxBytesPerSecond
+   *          the rate at which all compactors together may copy bytes forward;
+   *          0 for no limit
+   * @param yieldThreshold
+   *          the number of pending foreground writes at which compactors
+   *          yield; 0 to never yield
+   * @param maxYieldMillis
+   *          the longest a compactor yields before copying an entry anyway,
+   *          so that compaction always makes progress
+   */
+  public CompactionThrottle(long maxBytesPerSecond, int yieldThreshold, long maxYieldMillis, ForegroundLoad load,
+      DiskStoreStats stats) {
+    this.maxBytesPerSecond = Math.max(0, maxBytesPerSecond);
+    this.yieldThreshold = Math.max(0, yieldThreshold);
+    this.maxYieldMillis = Math.max(0, maxYieldMillis);
+    this.load = load;
+    this.stats = stats;
+    this.nextFreeNanos = System.nanoTime();
+  }
+
+  public long getMaxBytesPerSecond() {
+    return this.maxBytesPerSecond;
+  }
+
+  public void setMaxBytesPerSecond(long maxBytesPerSecond) {
+    this.maxBytesPerSecond = Math.max(0, maxBytesPerSecond);
+  }
+
+  public int getYieldThreshold() {
+    return this.yieldThreshold;
+  }
+
+  public long getMaxYieldMillis() {
+    return this.maxYieldMillis;
+  }
+
+  /**
+   * Returns true if a compactor is currently waiting in {@link #acquire}.
+   */
+  public boolean isThrottled() {
+    return this.throttledThreads.get() > 0;
+  }
+
+  /**
+   * Waits until the calling compactor may copy <code>bytes</code> forward.
+   */
+  public void acquire(int bytes) throws InterruptedException {
+    boolean throttled = false;
+    long start = 0;
+    try {
+      if (this.yieldThreshold > 0 && this.load.getPendingWrites() >= this.yieldThreshold) {
+        throttled = true;
+        start = startThrottle();
+        final long giveUp = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.maxYieldMillis);
+        do {
+          Thread.sleep(YIELD_SLEEP_MILLIS);
+        } while (this.load.getPendingWrites() >= this.yieldThreshold && System.nanoTime() - giveUp < 0);
+      }
+      long waitNanos = reserve(bytes);
+      if (waitNanos > 0) {
+        if (!throttled) {
+          throttled = true;
+          start = startThrottle();
+        }
+        TimeUnit.NANOSECONDS.sleep(Math.min(waitNanos, MAX_SLEEP_NANOS));
+      }
+    } finally {
+      if (throttled) {
+        endThrottle(start);
+      }
+    }
+  }
+
+  /**
+   * Reserves the time needed to copy <code>bytes</code> at the configured rate
+   * and returns how long the caller must wait before doing so.
+   */
+  private synchronized long reserve(int bytes) {
+    final long rate = this.maxBytesPerSecond;
+    if (rate <= 0) {
+      return 0;
+    }
+    final long now = System.nanoTime();
+    if (this.nextFreeNanos - now < 0) {
+      // unused time does not accumulate; otherwise an idle period would allow
+      // a burst that defeats the limit
+      this.nextFreeNanos = now;
+    }
+    final long waitNanos = this.nextFreeNanos - now;
+    this.nextFreeNanos += (long) ((double) bytes * TimeUnit.SECONDS.toNanos(1) / rate);
+    return waitNanos;
+  }
+
+  private long startThrottle() {
+    this.throttledThreads.incrementAndGet();
+    return this.stats != null ? this.stats.startCompactionThrottle() : 0;
+  }
+
+  private void endThrottle(long start) {
+    this.throttledThreads.decrementAndGet();
+    if (this.stats != null) {
+      this.stats.endCompactionThrottle(start);
+    }
+  }
+}
@@ -45,4 +45,12 @@ public class CustomEntryExpiryTask extends EntryExpiryTask {
     return this.idleAttr;
   }
 
+  /**
+   * Custom expiry is asked again for a new task instead.
+   */
+  @Override
+  protected boolean isRearmable() {
+    return false;
+  }
+
 }
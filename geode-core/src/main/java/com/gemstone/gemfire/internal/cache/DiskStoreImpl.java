@@ -43,9 +43,12 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
@@ -215,6 +218,69 @@ public class DiskStoreImpl implements DiskStore {
    * These tasks are things like unpreblow oplogs, delete oplogs, etc. 
    */
   public static final int MAX_PENDING_TASKS = Integer.getInteger("gemfire.disk.MAX_PENDING_TASKS", 6);
+
+  /**
+   * If true then synchronous oplog writes done concurrently by different
+   * threads are group committed: one thread does a single write and force on
+   * behalf of the whole group. See {@link OplogGroupCommitter}. Made non static
+   * so tests can set it.
+   */
+  private final boolean GROUP_COMMIT = Boolean.getBoolean("gemfire.disk.GROUP_COMMIT");
+
+  /**
+   * The maximum number of synchronous writes released by a single group
+   * commit.
+   */
+  private final int GROUP_COMMIT_MAX_SIZE = Integer.getInteger("gemfire.disk.GROUP_COMMIT_MAX_SIZE", 64).intValue();
+
+  /**
+   * The maximum number of microseconds the first write of a group waits for
+   * other writes to join it before the group is committed.
+   */
+  private final long GROUP_COMMIT_MAX_WAIT_MICROS = Long.getLong("gemfire.disk.GROUP_COMMIT_MAX_WAIT_MICROS", 500).longValue();
+
+  /**
+   * If true then crf files are memory mapped when they are recovered and once
+   * an oplog is no longer appended to, so that faulting in a value from it
+   * does not need a seek and read on the file. Made non static so tests can set
+   * it.
+   */
+  private final boolean MMAP_READS = Boolean.getBoolean("gemfire.disk.MMAP_READS");
+
+  /**
+   * The number of threads used to read oplogs ahead of the thread that
+   * recovers them. If less than 2 oplogs are only read by the recovering
+   * thread. See {@link OplogPrefetcher}.
+   */
+  private final int RECOVERY_PARALLELISM = Integer.getInteger("gemfire.disk.RECOVERY_PARALLELISM", 1).intValue();
+
+  /**
+   * The number of threads a single compaction uses to compact oplogs
+   * concurrently. If greater than 1 each compaction picks up to this many
+   * oplogs, even if MAX_OPLOGS_PER_COMPACTION is smaller. Made non static so
+   * tests can set it.
+   */
+  private final int COMPACTION_THREADS = Integer.getInteger("gemfire.disk.COMPACTION_THREADS", 1).intValue();
+
+  /**
+   * The number of megabytes per second that all the compactors of this disk
+   * store may copy forward. Ignored if set to <= 0. See
+   * {@link CompactionThrottle}.
+   */
+  private final int COMPACTION_MAX_MB_PER_SEC = Integer.getInteger("gemfire.disk.COMPACTION_MAX_MB_PER_SEC", 0).intValue();
+
+  /**
+   * The number of pending foreground writes (async queue size plus
+   * synchronous writes in progress) at which compactors pause. Ignored if set
+   * to <= 0.
+   */
+  private final int COMPACTION_YIELD_THRESHOLD = Integer.getInteger("gemfire.disk.COMPACTION_YIELD_THRESHOLD", 0).intValue();
+
+  /**
+   * The longest a compactor pauses for foreground writes before it copies its
+   * next entry anyway.
+   */
+  private final long COMPACTION_MAX_YIELD_MILLIS = Long.getLong("gemfire.disk.COMPACTION_MAX_YIELD_MILLIS", 100).longValue();
   /**
    * This system property indicates that IF should also be preallocated. This property 
    * will be used in conjunction with the PREALLOCATE_OPLOGS property. If PREALLOCATE_OPLOGS
@@ -257,6 +323,9 @@ public class DiskStoreImpl implements DiskStore {
   /** The stats for this store */
   private final DiskStoreStats stats;
 
+  /** Coalesces synchronous oplog writes. Null if group commit is disabled. */
+  private final OplogGroupCommitter groupCommitter;
+
   /**
    * Asif:Added as stop gap arrangement to fix bug 39380. It is not a clean fix
    * as keeping track of the threads acquiring read lock, etc is not a good idea
@@ -366,6 +435,15 @@ public class DiskStoreImpl implements DiskStore {
   
   private final ThreadPoolExecutor delayedWritePool;
   private volatile Future lastDelayedWrite;
+
+  /**
+   * Runs the oplogs of a single compaction concurrently. Null if
+   * COMPACTION_THREADS is less than 2.
+   */
+  private final ThreadPoolExecutor compactionPool;
+
+  /** Paces the compactors. Null if compaction is not throttled. */
+  private final CompactionThrottle compactionThrottle;
   
   // ///////////////////// Constructors /////////////////////////
 
@@ -426,6 +504,11 @@ public class DiskStoreImpl implements DiskStore {
     this.cache = (GemFireCacheImpl) cache;
     StatisticsFactory factory = cache.getDistributedSystem();
     this.stats = new DiskStoreStats(factory, getName());
+    if (GROUP_COMMIT && !isOffline()) {
+      this.groupCommitter = new OplogGroupCommitter(GROUP_COMMIT_MAX_SIZE, GROUP_COMMIT_MAX_WAIT_MICROS, this.stats);
+    } else {
+      this.groupCommitter = null;
+    }
 
     // start simple init
 
@@ -496,6 +579,27 @@ public class DiskStoreImpl implements DiskStore {
                                              new LinkedBlockingQueue(),
                                              compactThreadFactory);
     this.diskStoreTaskPool.allowCoreThreadTimeOut(true);
+
+    if (this.oplogCompactor != null && COMPACTION_THREADS > 1) {
+      final ThreadFactory compactionThreadFactory = GemfireCacheHelper.CreateThreadFactory(compactThreadGroup, "OplogCompactor Worker " + getName());
+      this.compactionPool = new ThreadPoolExecutor(COMPACTION_THREADS, COMPACTION_THREADS, 10, TimeUnit.SECONDS,
+                                                   new LinkedBlockingQueue<Runnable>(),
+                                                   compactionThreadFactory);
+      this.compactionPool.allowCoreThreadTimeOut(true);
+    } else {
+      this.compactionPool = null;
+    }
+    if (this.oplogCompactor != null && (COMPACTION_MAX_MB_PER_SEC > 0 || COMPACTION_YIELD_THRESHOLD > 0)) {
+      this.compactionThrottle = new CompactionThrottle(COMPACTION_MAX_MB_PER_SEC * (1024L * 1024L),
+          COMPACTION_YIELD_THRESHOLD, COMPACTION_MAX_YIELD_MILLIS, new CompactionThrottle.ForegroundLoad() {
+            @Override
+            public int getPendingWrites() {
+              return getPendingForegroundWrites();
+            }
+          }, this.stats);
+    } else {
+      this.compactionThrottle = null;
+    }
     
     
     final ThreadGroup deleteThreadGroup = LoggingThreadGroup.createThreadGroup("Oplog Delete Thread Group", this.logger);
@@ -578,6 +682,52 @@ public class DiskStoreImpl implements DiskStore {
     return this.stats;
   }
 
+  /**
+   * Returns the group committer used by synchronous oplog writes or null if
+   * group commit is disabled.
+   */
+  OplogGroupCommitter getGroupCommitter() {
+    return this.groupCommitter;
+  }
+
+  /**
+   * Returns true if values are read from memory mapped crf files.
+   */
+  boolean useMappedReads() {
+    return MMAP_READS;
+  }
+
+  /**
+   * Returns the number of threads used to read oplogs during recovery.
+   */
+  int getRecoveryParallelism() {
+    return RECOVERY_PARALLELISM;
+  }
+
+  /**
+   * Returns the number of threads a single compaction uses.
+   */
+  public int getCompactionThreads() {
+    return this.compactionPool != null ? COMPACTION_THREADS : 1;
+  }
+
+  /**
+   * Returns the throttle used by the compactors or null if compaction is not
+   * throttled.
+   */
+  public CompactionThrottle getCompactionThrottle() {
+    return this.compactionThrottle;
+  }
+
+  /**
+   * Returns the number of foreground writes the compactors yield to: the
+   * writes queued for the async writer plus the synchronous writes in
+   * progress.
+   */
+  int getPendingForegroundWrites() {
+    return this.asyncQueue.size() + this.stats.getWritesInProgress();
+  }
+
   public Map<Long, AbstractDiskRegion> getAllDiskRegions() {
     Map<Long, AbstractDiskRegion> results = new HashMap<Long, AbstractDiskRegion>();
     results.putAll(drMap);
@@ -2750,7 +2900,8 @@ public class DiskStoreImpl implements DiskStore {
     int max = Integer.MAX_VALUE;
     if (!all && max > MAX_OPLOGS_PER_COMPACTION
         && MAX_OPLOGS_PER_COMPACTION > 0) {
-      max = MAX_OPLOGS_PER_COMPACTION;
+      // give each compaction thread an oplog of its own
+      max = Math.max(MAX_OPLOGS_PER_COMPACTION, getCompactionThreads());
     }
     persistentOplogs.getCompactableOplogs(l, max);
 
@@ -2968,12 +3119,16 @@ public class DiskStoreImpl implements DiskStore {
       long compactionStart = getStats().startCompaction();
       long start = System.nanoTime();
       try {
-        for (int i = 0; i < oplogs.length && keepCompactorRunning() /*
-                                                                     * @todo &&
-                                                                     * !owner.
-                                                                     * isDestroyed
-                                                                     */; i++) {
-          totalCount += oplogs[i].compact(this);
+        if (compactionPool != null && oplogs.length > 1) {
+          totalCount = compactConcurrently(oplogs);
+        } else {
+          for (int i = 0; i < oplogs.length && keepCompactorRunning() /*
+                                                                       * @todo &&
+                                                                       * !owner.
+                                                                       * isDestroyed
+                                                                       */; i++) {
+            totalCount += oplogs[i].compact(this);
+          }
         }
 
         // TODO:Asif : DiskRegion: How do we tackle
@@ -2986,6 +3141,81 @@ public class DiskStoreImpl implements DiskStore {
       return true /* @todo !owner.isDestroyed */;
     }
 
+    /**
+     * Compacts each of the given oplogs on its own compactionPool thread and
+     * waits for all of them to finish. Each oplog copies its live entries
+     * forward to the active oplog which serializes the writes themselves; what
+     * runs concurrently is finding the live entries and reading their values.
+     * 
+     * @return the total number of entries copied forward
+     */
+    private int compactConcurrently(CompactableOplog[] oplogs) {
+      List<Future<Integer>> futures = new ArrayList<Future<Integer>>(oplogs.length);
+      for (final CompactableOplog oplog : oplogs) {
+        try {
+          futures.add(compactionPool.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+              if (!keepCompactorRunning()) {
+                return 0;
+              }
+              return oplog.compact(OplogCompactor.this);
+            }
+          }));
+        } catch (RejectedExecutionException ex) {
+          // the disk store is closing; the remaining oplogs stay compactable
+          break;
+        }
+      }
+      int totalCount = 0;
+      Throwable failure = null;
+      boolean interrupted = false;
+      for (Future<Integer> f : futures) {
+        for (;;) {
+          try {
+            totalCount += f.get();
+            break;
+          } catch (InterruptedException ex) {
+            // the other oplogs are still being compacted; wait for them so
+            // that the next compaction can not start while they run
+            interrupted = true;
+          } catch (CancellationException ex) {
+            break;
+          } catch (ExecutionException ex) {
+            if (failure == null) {
+              failure = ex.getCause();
+            }
+            break;
+          }
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      } else if (failure instanceof Error) {
+        throw (Error) failure;
+      }
+      return totalCount;
+    }
+
+    /**
+     * Called by a compactor after it copied an entry forward. Records the
+     * bytes copied and waits in the compaction throttle, if there is one.
+     * Must not be called while holding the entry's locks.
+     */
+    void afterCopyForward(int bytes) {
+      getStats().incCompactedBytes(bytes);
+      if (compactionThrottle != null && keepCompactorRunning()) {
+        try {
+          compactionThrottle.acquire(bytes);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
     private boolean isClosing() {
       if (getCache().isClosed()) {
         return true;
@@ -4741,6 +4971,9 @@ public class DiskStoreImpl implements DiskStore {
       logger.debug("Stopping DiskStoreTaskPool");
     }
     shutdownPool(diskStoreTaskPool);
+    if (compactionPool != null) {
+      shutdownPool(compactionPool);
+    }
     
     //Allow the delayed writes to complete
     delayedWritePool.shutdown();
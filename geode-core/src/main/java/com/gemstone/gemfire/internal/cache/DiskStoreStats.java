@@ -80,6 +80,18 @@ public class DiskStoreStats {
   private static final int backupsInProgress;
   private static final int backupsCompleted;
 
+  private static final int groupCommitsInProgressId;
+  private static final int groupCommitTimeId;
+  private static final int groupSyncsId;
+  private static final int groupSyncOpsId;
+
+  private static final int recoveryBytesPerSecondId;
+  private static final int recoveryEntriesPerSecondId;
+
+  private static final int compactedBytesId;
+  private static final int compactionThrottlesId;
+  private static final int compactionThrottleTimeId;
+
   static {
     String statName = "DiskStoreStatistics";
     String statDescription =
@@ -172,6 +184,15 @@ public class DiskStoreStats {
          f.createIntGauge("uncreatedRecoveredRegions", "The current number of regions that have been recovered but have not yet been created.", "regions"),
          f.createIntGauge("backupsInProgress", backupsInProgressDesc, "backups"),
          f.createIntCounter("backupsCompleted", backupsCompletedDesc, "backups"),
+         f.createIntGauge("groupCommitsInProgress", "Current number of synchronous oplog writes waiting for their group to be synced", "ops"),
+         f.createLongCounter("groupCommitTime", "Total amount of time, in nanoseconds, synchronous oplog writes spent waiting for their group to be synced", "nanoseconds"),
+         f.createLongCounter("groupSyncs", "Total number of write and force calls done on behalf of a group of synchronous oplog writes", "ops"),
+         f.createLongCounter("groupSyncOps", "Total number of synchronous oplog writes released by group syncs. Divide by groupSyncs for the average group size.", "ops"),
+         f.createLongGauge("recoveryBytesPerSecond", "The rate at which oplog bytes were read by the most recent recovery", "bytes/second"),
+         f.createLongGauge("recoveryEntriesPerSecond", "The rate at which entry records were processed by the most recent recovery", "entries/second"),
+         f.createLongCounter("compactedBytes", "Total number of bytes of live entries copied forward by oplog compactions", "bytes"),
+         f.createLongCounter("compactionThrottles", "Total number of times a compactor waited for foreground writes or for its rate limit", "ops"),
+         f.createLongCounter("compactionThrottleTime", "Total amount of time, in nanoseconds, compactors spent waiting for foreground writes or for their rate limit", "nanoseconds"),
        });
 
     // Initialize id fields
@@ -220,6 +241,15 @@ public class DiskStoreStats {
     uncreatedRecoveredRegionsId = type.nameToId("uncreatedRecoveredRegions");
     backupsInProgress = type.nameToId("backupsInProgress");
     backupsCompleted= type.nameToId("backupsCompleted");
+    groupCommitsInProgressId = type.nameToId("groupCommitsInProgress");
+    groupCommitTimeId = type.nameToId("groupCommitTime");
+    groupSyncsId = type.nameToId("groupSyncs");
+    groupSyncOpsId = type.nameToId("groupSyncOps");
+    recoveryBytesPerSecondId = type.nameToId("recoveryBytesPerSecond");
+    recoveryEntriesPerSecondId = type.nameToId("recoveryEntriesPerSecond");
+    compactedBytesId = type.nameToId("compactedBytes");
+    compactionThrottlesId = type.nameToId("compactionThrottles");
+    compactionThrottleTimeId = type.nameToId("compactionThrottleTime");
   }
 
   //////////////////////  Instance Fields  //////////////////////
@@ -316,6 +346,14 @@ public class DiskStoreStats {
   public void incQueueSize(int delta) {
     this.stats.incInt(queueSizeId, delta);
   }
+
+  /**
+   * Returns the current number of synchronous oplog writes in progress
+   */
+  public int getWritesInProgress() {
+    return this.stats.getInt(writesInProgressId);
+  }
+
   public void incUncreatedRecoveredRegions(int delta) {
     this.stats.incInt(uncreatedRecoveredRegionsId, delta);
   }
@@ -456,6 +494,20 @@ public class DiskStoreStats {
     this.stats.incLong(recoveredValuesSkippedDueToLRUId, 1);
   }
 
+  /**
+   * Returns the total number of entry create, update and destroy records
+   * processed while recovering oplogs.
+   */
+  public long getRecoveredEntries() {
+    return this.stats.getLong(recoveredEntryCreatesId) + this.stats.getLong(recoveredEntryUpdatesId)
+        + this.stats.getLong(recoveredEntryDestroysId);
+  }
+
+  public void setRecoveryThroughput(long bytesPerSecond, long entriesPerSecond) {
+    this.stats.setLong(recoveryBytesPerSecondId, bytesPerSecond);
+    this.stats.setLong(recoveryEntriesPerSecondId, entriesPerSecond);
+  }
+
   /**
    * Invoked before data is removed from disk.
    *
@@ -504,6 +556,42 @@ public class DiskStoreStats {
     this.stats.incLong(compactUpdatesId, 1);
     this.stats.incLong(compactUpdateTimeId, getStatTime()-start);
   }
+  public void incCompactedBytes(long bytes) {
+    this.stats.incLong(compactedBytesId, bytes);
+  }
+  public long getCompactedBytes() {
+    return this.stats.getLong(compactedBytesId);
+  }
+  public int getCompactsInProgress() {
+    return this.stats.getInt(compactsInProgressId);
+  }
+
+  /**
+   * Invoked when a compactor starts waiting in its
+   * {@link CompactionThrottle}.
+   *
+   * @return The timestamp that marks the start of the wait
+   */
+  public long startCompactionThrottle() {
+    return DistributionStats.getStatTime();
+  }
+
+  /**
+   * Invoked when a compactor is done waiting in its
+   * {@link CompactionThrottle}.
+   *
+   * @param start
+   *        The time at which the compactor started waiting
+   */
+  public void endCompactionThrottle(long start) {
+    this.stats.incLong(compactionThrottlesId, 1);
+    this.stats.incLong(compactionThrottleTimeId, DistributionStats.getStatTime() - start);
+  }
+
+  public long getCompactionThrottles() {
+    return this.stats.getLong(compactionThrottlesId);
+  }
+
   public long getStatTime() {
     return DistributionStats.getStatTime();
   }
@@ -520,6 +608,46 @@ public class DiskStoreStats {
     this.stats.incInt(backupsInProgress, -1);
     this.stats.incInt(backupsCompleted, 1);
   }
+
+  /**
+   * Invoked when a synchronous oplog write joins a group commit.
+   *
+   * @return The timestamp that marks the start of the operation
+   */
+  public long startGroupCommit() {
+    this.stats.incInt(groupCommitsInProgressId, 1);
+    return DistributionStats.getStatTime();
+  }
+
+  /**
+   * Invoked when a synchronous oplog write has been released by its group.
+   *
+   * @param start
+   *        The time at which the write joined its group
+   */
+  public void endGroupCommit(long start) {
+    this.stats.incInt(groupCommitsInProgressId, -1);
+    this.stats.incLong(groupCommitTimeId, DistributionStats.getStatTime() - start);
+  }
+
+  /**
+   * Invoked by a group leader once it has synced its group.
+   *
+   * @param groupSize
+   *        The number of writes released by the sync
+   */
+  public void endGroupSync(int groupSize) {
+    this.stats.incLong(groupSyncsId, 1);
+    this.stats.incLong(groupSyncOpsId, groupSize);
+  }
+
+  public long getGroupSyncs() {
+    return this.stats.getLong(groupSyncsId);
+  }
+
+  public long getGroupSyncOps() {
+    return this.stats.getLong(groupSyncOpsId);
+  }
   
   public Statistics getStats(){
     return stats;
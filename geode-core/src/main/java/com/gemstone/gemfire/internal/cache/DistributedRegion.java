@@ -1232,6 +1232,11 @@ public class DistributedRegion extends LocalRegion implements
         throw dae;
       }
 
+      if (InitialImageOperation.CHANGE_LOG_SIZE > 0 && this.concurrencyChecksEnabled
+          && getDataPolicy().withPersistence() && getVersionVector() != null) {
+        createChangeLog(InitialImageOperation.CHANGE_LOG_SIZE);
+      }
+
       initMembershipRoles();
       isInitializingThread = false;
       super.initialize(null, null, null); // makes sure all latches are released if they haven't been already
@@ -99,6 +99,11 @@ public class DummyCachePerfStats extends CachePerfStats {
     return 0;
   }
 
+  @Override
+  public long getGetInitialImageBytesReceived() {
+    return 0;
+  }
+
   @Override
   public int getRegions() {
     return 0;
@@ -302,6 +307,10 @@ public class DummyCachePerfStats extends CachePerfStats {
   public void incGetInitialImageKeysReceived() {
   }
 
+  @Override
+  public void incGetInitialImageBytesReceived(long bytes) {
+  }
+
   @Override
   public void incRegions(int inc) {
   }
@@ -465,6 +474,14 @@ public class DummyCachePerfStats extends CachePerfStats {
   public void incRetries() {
   }
 
+  @Override
+  public void setEntryExpiryTasks(int tasks) {
+  }
+
+  @Override
+  public void setEntryExpiryLag(long millis) {
+  }
+
   @Override
   public Statistics getStats() {
     return null;
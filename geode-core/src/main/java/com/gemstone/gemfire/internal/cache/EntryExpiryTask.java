@@ -56,6 +56,18 @@ public class EntryExpiryTask extends ExpiryTask {
   public static boolean expireSendsEntryAsCallback =
       Boolean.getBoolean("gemfire.EXPIRE_SENDS_ENTRY_AS_CALLBACK");
 
+  /**
+   * If true, reads of an entry only update its last accessed time, even if
+   * the region has a custom idle timeout. When a task on the timer wheel
+   * comes due before its entry has expired it is put back on the wheel,
+   * rather than replaced by a new task.
+   *
+   * This field is neither private nor final so that tests can change it.
+   * @since 9.0
+   */
+  public static boolean lazyIdleExpiration =
+      Boolean.getBoolean("gemfire.LAZY_IDLE_EXPIRATION");
+
   protected EntryExpiryTask(LocalRegion region, RegionEntry re) {
     super(region);
     this.re = re;
@@ -232,6 +244,9 @@ public class EntryExpiryTask extends ExpiryTask {
   @Override
   protected void performTimeout() throws CacheException
   {
+    if (lazyIdleExpiration && rearm()) {
+      return;
+    }
     // remove the task from the region's map first thing
     // so the next call to addExpiryTaskIfAbsent will
     // add a new task instead of doing nothing, which would
@@ -240,6 +255,49 @@ public class EntryExpiryTask extends ExpiryTask {
     getLocalRegion().performExpiryTimeout(this);
   }
   
+  /**
+   * Puts this task back on the timer wheel if its entry has not expired yet.
+   * The task stays in the region's map, so the entry keeps its task without
+   * a new one being created.
+   *
+   * @return true if the task was put back on the wheel
+   */
+  private boolean rearm() {
+    ExpirationTimerWheel wheel = this.wheel;
+    if (wheel == null || !isRearmable() || !isExpirationAllowed()) {
+      return false;
+    }
+    long expiryMillis;
+    try {
+      long expTime = getExpirationTime();
+      long now = getNow();
+      if (expTime == 0L || now >= expTime) {
+        return false;
+      }
+      expiryMillis = expTime - now;
+    }
+    catch (EntryNotFoundException e) {
+      return false;
+    }
+    if (!wheel.reschedule(this, expiryMillis)) {
+      return false;
+    }
+    if (expiryTaskListener != null) {
+      expiryTaskListener.afterReschedule(this);
+    }
+    return true;
+  }
+
+  /**
+   * Returns true if this task can be put back on the timer wheel when its
+   * entry has not expired yet. The expiration attributes of the task must
+   * not depend on the entry for that.
+   * @since 9.0
+   */
+  protected boolean isRearmable() {
+    return true;
+  }
+
   @Override
   public boolean isPending() {
     RegionEntry re = this.re;
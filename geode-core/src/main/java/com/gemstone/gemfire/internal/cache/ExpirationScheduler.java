@@ -29,8 +29,10 @@ import com.gemstone.gemfire.internal.logging.log4j.LocalizedMessage;
 
 /**
  * ExpirationScheduler uses a single instance of java.util.Timer (and
- * therefore a single thread) per VM to schedule and execute region and 
- * entry expiration tasks.
+ * therefore a single thread) per VM to schedule and execute region 
+ * expiration tasks. Entry expiration tasks are kept in an
+ * {@link ExpirationTimerWheel} unless gemfire.EXPIRY_TICK_MILLIS is 0, in
+ * which case they go to the timer as well.
  */
 
 public class ExpirationScheduler
@@ -40,9 +42,18 @@ public class ExpirationScheduler
   private final SystemTimer timer;
   private final AtomicInteger pendingCancels = new AtomicInteger();
   private static final int MAX_PENDING_CANCELS = Integer.getInteger("gemfire.MAX_PENDING_CANCELS", 10000).intValue();
+  /**
+   * The tick length of the entry expiration timer wheel in milliseconds.
+   * @since 9.0
+   */
+  private static final long EXPIRY_TICK_MILLIS = Long.getLong("gemfire.EXPIRY_TICK_MILLIS", 10).longValue();
+
+  /** null if entry expiration tasks are scheduled on the timer */
+  private final ExpirationTimerWheel wheel;
 
-  public ExpirationScheduler(InternalDistributedSystem ds) {
+  public ExpirationScheduler(InternalDistributedSystem ds, CachePerfStats stats) {
     this.timer = new SystemTimer(ds, true);
+    this.wheel = EXPIRY_TICK_MILLIS > 0 ? new ExpirationTimerWheel(EXPIRY_TICK_MILLIS, stats) : null;
   }
   
   public void forcePurge() {
@@ -96,11 +107,32 @@ public class ExpirationScheduler
   
   /** schedules the given entry expiration task and returns true; returns false if not scheduled */
   public boolean addEntryExpiryTask(EntryExpiryTask task) {
-    return addExpiryTask(task) != null;
+    if (this.wheel == null) {
+      return addExpiryTask(task) != null;
+    }
+    try {
+      if(logger.isTraceEnabled()) {
+        logger.trace(LocalizedMessage.create(LocalizedStrings.ExpirationScheduler_SCHEDULING__0__TO_FIRE_IN__1__MS, new Object[] {task, Long.valueOf(task.getExpiryMillis())}));
+      }
+      this.wheel.schedule(task, task.getExpiryMillis());
+    }
+    catch (EntryNotFoundException e) {
+      // ignore - there are unsynchronized paths that allow an entry to
+      // be destroyed out from under us.
+      return false;
+    }
+    catch (IllegalStateException e) {
+      // task must have been cancelled by another thread so don't schedule it
+      return false;
+    }
+    return true;
   }
 
   /** @see java.util.Timer#cancel() */
   public void cancel() {
     timer.cancel();
+    if (this.wheel != null) {
+      this.wheel.cancel();
+    }
   }
 }
@@ -0,0 +1,401 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.CancelException;
+import com.gemstone.gemfire.SystemFailure;
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+import com.gemstone.gemfire.internal.logging.LogService;
+import com.gemstone.gemfire.internal.logging.LoggingThreadGroup;
+import com.gemstone.gemfire.internal.logging.log4j.LocalizedMessage;
+
+/**
+ * A hashed hierarchical timer wheel for entry expiry tasks. Time is divided
+ * into ticks. The wheel has {@link #LEVELS} levels of 64 slots each, and a slot
+ * in level n holds the tasks that are due in one span of 64^n ticks. A task is
+ * linked into the slot of the lowest level that can hold its deadline, so
+ * scheduling and cancelling a task take constant time. When the wheel reaches
+ * the start of a span the tasks in the slot of the next level are moved down.
+ * <p>
+ * The tasks that are due in a tick are run in one batch per region, so each
+ * bucket of a partitioned region gets its own batch. The batches run in the
+ * expiry thread pool if there is one, and in the wheel thread if not.
+ *
+ * @since 9.0
+ */
+final class ExpirationTimerWheel implements Runnable {
+  private static final Logger logger = LogService.getLogger();
+
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+  static final int LEVELS = 6;
+  /** Tasks further away than this are moved around the top level until due */
+  private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+  /** Keeps deadlines in nanoseconds from overflowing */
+  private static final long MAX_DELAY_MILLIS = TimeUnit.NANOSECONDS.toMillis(Long.MAX_VALUE / 4);
+
+  /* ExpiryTask.wheelState values */
+  static final int NEW = 0;
+  static final int SCHEDULED = 1;
+  static final int DUE = 2;
+  static final int RUNNING = 3;
+  static final int DONE = 4;
+  static final int CANCELLED = 5;
+
+  private static final AtomicIntegerFieldUpdater<ExpiryTask> STATE =
+      AtomicIntegerFieldUpdater.newUpdater(ExpiryTask.class, "wheelState");
+
+  private final long tickNanos;
+  private final long startNanos;
+  private final CachePerfStats stats;
+
+  /** The first task of each slot, by level; guarded by this */
+  private final ExpiryTask[][] slots = new ExpiryTask[LEVELS][SLOTS];
+  /** The last tick whose tasks have been fired; guarded by this */
+  private long currentTick;
+  /** The number of scheduled tasks; guarded by this */
+  private int size;
+  /** guarded by this */
+  private boolean cancelled;
+  /** Started when the first task is scheduled; guarded by this */
+  private Thread thread;
+
+  ExpirationTimerWheel(long tickMillis, CachePerfStats stats) {
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, tickMillis));
+    this.startNanos = System.nanoTime();
+    this.stats = stats;
+  }
+
+  private long elapsedNanos() {
+    return System.nanoTime() - this.startNanos;
+  }
+
+  /**
+   * Schedules the given task to run after the given number of milliseconds.
+   * The task runs in the first tick that starts at or after that time, so
+   * it never runs early.
+   *
+   * @throws IllegalStateException
+   *           if the task has already been scheduled or cancelled, or if the
+   *           wheel has been cancelled
+   */
+  void schedule(ExpiryTask task, long delayMillis) {
+    if (!add(task, delayMillis, NEW)) {
+      throw new IllegalStateException("Task already scheduled or cancelled");
+    }
+  }
+
+  /**
+   * Puts a task that is running back on the wheel to run again after the
+   * given number of milliseconds.
+   *
+   * @return false if the task was cancelled while it ran or if the wheel has
+   *         been cancelled
+   */
+  boolean reschedule(ExpiryTask task, long delayMillis) {
+    try {
+      return add(task, delayMillis, RUNNING);
+    } catch (IllegalStateException e) {
+      return false;
+    }
+  }
+
+  private boolean add(ExpiryTask task, long delayMillis, int expectedState) {
+    long delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(delayMillis, MAX_DELAY_MILLIS));
+    long dueNanos = elapsedNanos() + delayNanos;
+    long deadline = (dueNanos + this.tickNanos - 1) / this.tickNanos;
+    task.wheel = this;
+    synchronized (this) {
+      if (this.cancelled) {
+        throw new IllegalStateException("Timer wheel already cancelled.");
+      }
+      if (!STATE.compareAndSet(task, expectedState, SCHEDULED)) {
+        return false;
+      }
+      if (this.size == 0) {
+        // nothing to cascade, so skip the ticks that passed while idle
+        this.currentTick = Math.max(this.currentTick, elapsedNanos() / this.tickNanos);
+        if (this.thread == null) {
+          startThread();
+        } else {
+          notifyAll();
+        }
+      }
+      task.wheelDeadline = Math.max(deadline, this.currentTick + 1);
+      insert(task);
+      this.size++;
+    }
+    return true;
+  }
+
+  private void startThread() {
+    this.thread = new Thread(LoggingThreadGroup.createThreadGroup("Expiration Timer Wheel", logger),
+        this, "Expiration Timer Wheel");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Cancels the given task if it has been scheduled on a wheel and has not
+   * started to run. A task that has not been scheduled yet is marked so that
+   * it will not be, and a running task so that it cannot be rescheduled.
+   *
+   * @return true if the task was scheduled and will now not run
+   */
+  static boolean cancel(ExpiryTask task) {
+    for (;;) {
+      switch (task.wheelState) {
+      case NEW:
+        if (STATE.compareAndSet(task, NEW, CANCELLED)) {
+          return false;
+        }
+        break;
+      case SCHEDULED:
+        ExpirationTimerWheel wheel = task.wheel;
+        synchronized (wheel) {
+          if (task.wheelState == SCHEDULED) {
+            wheel.unlink(task);
+            task.wheelState = CANCELLED;
+            wheel.size--;
+            return true;
+          }
+        }
+        break;
+      case DUE:
+        if (STATE.compareAndSet(task, DUE, CANCELLED)) {
+          return true;
+        }
+        break;
+      case RUNNING:
+        if (STATE.compareAndSet(task, RUNNING, CANCELLED)) {
+          return false;
+        }
+        break;
+      default:
+        return false;
+      }
+    }
+  }
+
+  /** Stops the wheel thread and drops all scheduled tasks */
+  void cancel() {
+    synchronized (this) {
+      this.cancelled = true;
+      for (int level = 0; level < LEVELS; level++) {
+        for (int slot = 0; slot < SLOTS; slot++) {
+          ExpiryTask task = this.slots[level][slot];
+          this.slots[level][slot] = null;
+          while (task != null) {
+            ExpiryTask next = task.wheelNext;
+            task.wheelNext = null;
+            task.wheelPrev = null;
+            task.wheelState = CANCELLED;
+            task = next;
+          }
+        }
+      }
+      this.size = 0;
+      notifyAll();
+    }
+  }
+
+  /** Returns the number of scheduled tasks */
+  synchronized int size() {
+    return this.size;
+  }
+
+  private static int slotIndex(long deadline, int level) {
+    return (int)(deadline >>> (SLOT_BITS * level)) & SLOT_MASK;
+  }
+
+  /** Links the task into the slot for its deadline; guarded by this */
+  private void insert(ExpiryTask task) {
+    long delta = Math.min(task.wheelDeadline - this.currentTick, MAX_DELTA);
+    int level = (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS;
+    int slot = slotIndex(task.wheelDeadline, level);
+    ExpiryTask head = this.slots[level][slot];
+    task.wheelLevel = level;
+    task.wheelPrev = null;
+    task.wheelNext = head;
+    if (head != null) {
+      head.wheelPrev = task;
+    }
+    this.slots[level][slot] = task;
+  }
+
+  /** Removes the task from its slot; guarded by this */
+  private void unlink(ExpiryTask task) {
+    ExpiryTask prev = task.wheelPrev;
+    ExpiryTask next = task.wheelNext;
+    if (prev == null) {
+      this.slots[task.wheelLevel][slotIndex(task.wheelDeadline, task.wheelLevel)] = next;
+    } else {
+      prev.wheelNext = next;
+    }
+    if (next != null) {
+      next.wheelPrev = prev;
+    }
+    task.wheelPrev = null;
+    task.wheelNext = null;
+  }
+
+  /**
+   * Advances the wheel by one tick and adds the tasks that are now due to
+   * the batch of their region; guarded by this
+   */
+  private void advance(Map<LocalRegion, Batch> batches) {
+    long tick = ++this.currentTick;
+    for (int level = 1; level < LEVELS; level++) {
+      if ((tick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+        break;
+      }
+      int slot = slotIndex(tick, level);
+      ExpiryTask task = this.slots[level][slot];
+      this.slots[level][slot] = null;
+      while (task != null) {
+        ExpiryTask next = task.wheelNext;
+        task.wheelNext = null;
+        task.wheelPrev = null;
+        if (task.wheelDeadline <= tick) {
+          due(task, batches);
+        } else {
+          insert(task);
+        }
+        task = next;
+      }
+    }
+    int slot = slotIndex(tick, 0);
+    ExpiryTask task = this.slots[0][slot];
+    this.slots[0][slot] = null;
+    while (task != null) {
+      ExpiryTask next = task.wheelNext;
+      task.wheelNext = null;
+      task.wheelPrev = null;
+      due(task, batches);
+      task = next;
+    }
+  }
+
+  private void due(ExpiryTask task, Map<LocalRegion, Batch> batches) {
+    task.wheelState = DUE;
+    this.size--;
+    LocalRegion region = task.getLocalRegion();
+    Batch batch = batches.get(region);
+    if (batch == null) {
+      batch = new Batch();
+      batches.put(region, batch);
+    }
+    batch.tasks.add(task);
+  }
+
+  public void run() {
+    Map<LocalRegion, Batch> batches = new HashMap<LocalRegion, Batch>();
+    for (;;) {
+      long lagNanos = -1;
+      int scheduled;
+      try {
+        synchronized (this) {
+          if (this.cancelled) {
+            return;
+          }
+          long now = elapsedNanos();
+          long nextTickNanos = (this.currentTick + 1) * this.tickNanos;
+          if (now < nextTickNanos) {
+            if (this.size == 0) {
+              wait();
+            } else {
+              long waitNanos = nextTickNanos - now;
+              wait(waitNanos / 1000000L, (int)(waitNanos % 1000000L));
+            }
+            continue;
+          }
+          lagNanos = now - nextTickNanos;
+          long target = now / this.tickNanos;
+          while (this.currentTick < target && this.size > 0) {
+            advance(batches);
+          }
+          if (this.size == 0) {
+            this.currentTick = Math.max(this.currentTick, target);
+          }
+          scheduled = this.size;
+        }
+      } catch (InterruptedException e) {
+        synchronized (this) {
+          if (this.cancelled) {
+            return;
+          }
+        }
+        continue;
+      }
+      for (Batch batch : batches.values()) {
+        fire(batch);
+      }
+      batches.clear();
+      this.stats.setEntryExpiryTasks(scheduled);
+      this.stats.setEntryExpiryLag(TimeUnit.NANOSECONDS.toMillis(lagNanos));
+    }
+  }
+
+  private void fire(Batch batch) {
+    try {
+      ExpiryTask.execute(batch);
+    } catch (CancelException e) {
+      // the cache is closing
+    } catch (VirtualMachineError err) {
+      SystemFailure.initiateFailure(err);
+      // If this ever returns, rethrow the error.  We're poisoned
+      // now, so don't let this thread continue.
+      throw err;
+    } catch (Throwable t) {
+      // Whenever you catch Error or Throwable, you must also
+      // catch VirtualMachineError (see above).  However, there is
+      // _still_ a possibility that you are dealing with a cascading
+      // error condition, so you also need to check to see if the JVM
+      // is still usable:
+      SystemFailure.checkFailure();
+      logger.fatal(LocalizedMessage.create(LocalizedStrings.ExpiryTask_EXCEPTION_IN_EXPIRATION_TASK), t);
+    }
+  }
+
+  /** The tasks of one region that are due in the same tick */
+  private static final class Batch implements Runnable {
+    final List<ExpiryTask> tasks = new ArrayList<ExpiryTask>();
+
+    public void run() {
+      for (ExpiryTask task : this.tasks) {
+        if (STATE.compareAndSet(task, DUE, RUNNING)) {
+          try {
+            task.runInThreadPool();
+          } finally {
+            // unless it was rescheduled or cancelled while it ran
+            STATE.compareAndSet(task, RUNNING, DONE);
+          }
+        }
+      }
+    }
+  }
+}
@@ -51,6 +51,17 @@ public abstract class ExpiryTask extends SystemTimer.SystemTimerTask {
   private static final Logger logger = LogService.getLogger();
   
   private LocalRegion region; // no longer final so cancel can null it out see bug 37574
+
+  /*
+   * Used by ExpirationTimerWheel for entry expiry tasks. The links, deadline
+   * and level are guarded by the wheel.
+   */
+  volatile ExpirationTimerWheel wheel;
+  volatile int wheelState;
+  ExpiryTask wheelNext;
+  ExpiryTask wheelPrev;
+  long wheelDeadline;
+  int wheelLevel;
   
   private static final ThreadPoolExecutor executor;
 
@@ -284,6 +295,9 @@ public abstract class ExpiryTask extends SystemTimer.SystemTimerTask {
   @Override
   public boolean cancel() {
     boolean superCancel = super.cancel();
+    if (ExpirationTimerWheel.cancel(this)) {
+      superCancel = true;
+    }
     LocalRegion lr = getLocalRegion();
     if (lr != null) {
       if (superCancel) {
@@ -355,6 +369,25 @@ public abstract class ExpiryTask extends SystemTimer.SystemTimerTask {
     }
   }
 
+  /**
+   * Runs the given command in an expiry thread, or in the calling thread if
+   * there is no expiry thread pool.
+   * @since 9.0
+   */
+  static void execute(Runnable command) {
+    if (executor != null) {
+      try {
+        executor.execute(command);
+      } catch (RejectedExecutionException ex) {
+        if (logger.isDebugEnabled()) {
+          logger.debug("Rejected execution in expiration task", ex);
+        }
+      }
+    } else {
+      command.run();
+    }
+  }
+
   protected void runInThreadPool() {
     try {
       if (isCacheClosing() || 
@@ -168,7 +168,13 @@ public class FilterProfile implements DataSerializableFixedID {
   AtomicInteger cqCount;
 
   /** CQs that are registered on the remote node **/
-  private final Map cqs = new CopyOnWriteHashMap();
+  private final CopyOnWriteHashMap<String, ServerCQ> cqs = new CopyOnWriteHashMap<String, ServerCQ>();
+
+  /**
+   * The index of the CQs' where clauses last built by the CQ service, which
+   * checks it against {@link #getCqMapSnapshot()} before using it
+   */
+  private transient volatile Object cqIndex;
 
   /* the ID of the member that this profile describes */
   private DistributedMember memberID;
@@ -793,6 +799,32 @@ public class FilterProfile implements DataSerializableFixedID {
   public Map getCqMap() {
     return this.cqs;
   }
+
+  /**
+   * Returns the CQs registered on this region as a map that never changes.
+   * Adding or removing a CQ replaces the snapshot, so two snapshots are the
+   * same object only if the CQs did not change in between.
+   * @since 9.0
+   */
+  public Map<String, ServerCQ> getCqMapSnapshot() {
+    return this.cqs.getSnapshot();
+  }
+
+  /**
+   * Returns the index of the CQs last set by the CQ service, or null.
+   * @since 9.0
+   */
+  public Object getCqIndex() {
+    return this.cqIndex;
+  }
+
+  /**
+   * Sets the index of the CQs the CQ service matches events with.
+   * @since 9.0
+   */
+  public void setCqIndex(Object cqIndex) {
+    this.cqIndex = cqIndex;
+  }
   
   /**
    * does this profile contain any continuous queries?
@@ -802,7 +834,7 @@ public class FilterProfile implements DataSerializableFixedID {
   }
 
   public ServerCQ getCq(String cqName) {
-    return (ServerCQ)this.cqs.get(cqName);
+    return this.cqs.get(cqName);
   }
   
   public void registerCq(ServerCQ cq) {
@@ -874,7 +906,7 @@ public class FilterProfile implements DataSerializableFixedID {
   }
   
   public void processCloseCq(String serverCqName) {
-    ServerCQ cq = (ServerCQ)this.cqs.get(serverCqName);
+    ServerCQ cq = this.cqs.get(serverCqName);
     if (cq != null){
       try {
         cq.close(false);
@@ -890,7 +922,7 @@ public class FilterProfile implements DataSerializableFixedID {
   }
   
   public void processSetCqState(String serverCqName, ServerCQ ServerCQ) {
-    ServerCQ cq = (ServerCQ)this.cqs.get(serverCqName);
+    ServerCQ cq = this.cqs.get(serverCqName);
     if (cq != null){
       CqStateImpl cqState = (CqStateImpl)ServerCQ.getState(); 
       cq.setCqState(cqState.getState());
@@ -898,7 +930,7 @@ public class FilterProfile implements DataSerializableFixedID {
   }
 
   public void processStopCq(String serverCqName) {
-    ServerCQ cq = (ServerCQ)this.cqs.get(serverCqName);
+    ServerCQ cq = this.cqs.get(serverCqName);
     if (cq != null){
       try {
         cq.stop();
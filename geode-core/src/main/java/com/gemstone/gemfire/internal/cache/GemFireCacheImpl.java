@@ -923,7 +923,7 @@ public class GemFireCacheImpl implements InternalCache, ClientCache, HasCachePer
         HARegionQueue.setMessageSyncInterval(HARegionQueue.DEFAULT_MESSAGE_SYNC_INTERVAL);
       }
       FunctionService.registerFunction(new PRContainsValueFunction());
-      this.expirationScheduler = new ExpirationScheduler(this.system);
+      this.expirationScheduler = new ExpirationScheduler(this.system, this.cachePerfStats);
 
       // uncomment following line when debugging CacheExistsException
       if (DEBUG_CREATION_STACK) {
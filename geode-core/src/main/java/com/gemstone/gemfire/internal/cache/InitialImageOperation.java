@@ -35,8 +35,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.logging.log4j.Logger;
 
@@ -125,6 +129,25 @@ public class InitialImageOperation  {
   public static int CHUNK_PERMITS =
     Integer.getInteger("gemfire.GetInitialImage.CHUNK_PERMITS", 16).intValue();
 
+  /**
+   * Maximum number of concurrent chunk streams (series) a provider uses to
+   * send a full image. Each stream is packed and sent by its own thread and
+   * all of them share the permits of {@link InitialImageFlowControl}.
+   * @since 9.0
+   */
+  public static int CHUNK_STREAMS =
+    Integer.getInteger("gemfire.GetInitialImage.CHUNK_STREAMS", 4).intValue();
+
+  /**
+   * Number of recently changed keys a persistent region remembers the
+   * versions of, so that it can provide a delta image to a member that
+   * missed those changes, even after their tombstones were collected.
+   * Zero disables the change log.
+   * @since 9.0
+   */
+  public static int CHANGE_LOG_SIZE =
+    Integer.getInteger("gemfire.GetInitialImage.CHANGE_LOG_SIZE", 0).intValue();
+
   /**
    * maximum number of unfinished operations to be supported by delta GII
    */
@@ -493,6 +516,7 @@ public class InitialImageOperation  {
             LocalizedStrings.InitialImageOperation_REGION_0_REQUESTING_INITIAL_IMAGE_FROM_1,
             new Object[] { this.region.getName(), recipient }));
 
+        final long requestStart = System.nanoTime();
         dm.putOutgoing(m);
         this.region.cache.getCancelCriterion().checkCancelInProgress(null);
         if (internalAfterSentRequestImage != null && internalAfterSentRequestImage.getRegionName().equals(this.region.getName())) {
@@ -557,7 +581,11 @@ public class InitialImageOperation  {
           }
           if (this.gotImage) {
             // TODO add localizedString
-            logger.info("{} is done getting image from {}. isDeltaGII is {}", this.region.getName(), recipient, this.isDeltaGII);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart);
+            long bytes = processor.getBytesReceived();
+            logger.info("{} is done getting image from {}. isDeltaGII is {}. Received {} bytes in {} ms ({} MB/s)",
+                this.region.getName(), recipient, this.isDeltaGII, bytes, elapsedMillis,
+                String.format("%.2f", bytes / 1048576.0 / Math.max(elapsedMillis, 1) * 1000));
           } else {
             // TODO add localizedString
             logger.info("{} failed to get image from {}", this.region.getName(), recipient);
@@ -1180,6 +1208,16 @@ public class InitialImageOperation  {
      * number of outstanding executors currently in-flight on this request
      */
     private final AtomicInteger msgsBeingProcessed = new AtomicInteger();
+
+    /**
+     * number of bytes of image chunks received from the provider, used to
+     * report the throughput of this request
+     */
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    long getBytesReceived() {
+      return this.bytesReceived.get();
+    }
     
     @Override
     public boolean isSevereAlertProcessingEnabled() {
@@ -1309,6 +1347,10 @@ public class InitialImageOperation  {
         } else {
           isDone = true;
           ImageReplyMessage m = (ImageReplyMessage)msg;
+          if (m.getBytesRead() > 0) {
+            this.bytesReceived.addAndGet(m.getBytesRead());
+            region.getCachePerfStats().incGetInitialImageBytesReceived(m.getBytesRead());
+          }
           
           boolean isLast = true; // is last message for this member?
           if (m.entries != null) {
@@ -1594,6 +1636,12 @@ public class InitialImageOperation  {
     /* key list for unfinished operations */
     protected Set unfinishedKeys;
 
+    /**
+     * keys changed since the requester's version vector, with their latest
+     * versions, if the region's change log could tell
+     */
+    private transient Map<Object, VersionTag<?>> changesSinceRequester;
+
     /** The versions in which this message was modified */
     private static final Version[] dsfidVersions = null;
 
@@ -1609,6 +1657,16 @@ public class InitialImageOperation  {
     }
     
     public boolean goWithFullGII(DistributedRegion rgn, RegionVersionVector requesterRVV) {
+      return goWithFullGII(rgn, requesterRVV, false);
+    }
+
+    /**
+     * @param changeLogCoversGap true if the region's change log has every key
+     * changed since the requester's version vector, so tombstones that were
+     * garbage collected since then can be sent from the log
+     * @since 9.0
+     */
+    boolean goWithFullGII(DistributedRegion rgn, RegionVersionVector<?> requesterRVV, boolean changeLogCoversGap) {
       if (getSender().getVersionObject().compareTo(Version.GFE_80) < 0) {
         // pre-8.0 could not handle a delta-GII
         return true;
@@ -1621,6 +1679,13 @@ public class InitialImageOperation  {
         return true;
       }
       if (!rgn.getVersionVector().isRVVGCDominatedBy(requesterRVV)) {
+        if (changeLogCoversGap) {
+          if (logger.isDebugEnabled()) {
+            logger.debug("Region {}'s local RVVGC is not dominated by remote RVV={}, but its change log covers the gap, do delta GII",
+                rgn.getFullPath(), requesterRVV);
+          }
+          return false;
+        }
         if (logger.isDebugEnabled()) {
           logger.debug("Region {}'s local RVVGC is not dominated by remote RVV={}, do full GII", rgn.getFullPath(), requesterRVV);
         }
@@ -1685,9 +1750,6 @@ public class InitialImageOperation  {
           }
         }
 
-        final int numSeries = 1; // @todo ericz parallelize using series
-        final int seriesNum = 0;
-        
         // chunkEntries returns false if didn't finish
         if (isGiiDebugEnabled) {
           logger.trace(LogMarker.GII, "RequestImageMessage: Starting chunkEntries for {}", rgn.getFullPath());
@@ -1738,7 +1800,13 @@ public class InitialImageOperation  {
             }
             if (this.checkTombstoneVersions && this.versionVector != null && rgn.concurrencyChecksEnabled) {
               synchronized(rgn.getCache().getTombstoneService().blockGCLock) {
-              if (goWithFullGII(rgn, this.versionVector)) {
+              RegionChangeLog changeLog = rgn.getChangeLog();
+              if (changeLog != null && !this.versionVector.isForSynchronization()
+                  && !rgn.keyRequiresRegionContext()) {
+                this.changesSinceRequester = changeLog.getChangesMissingFrom(this.versionVector);
+              }
+              if (goWithFullGII(rgn, this.versionVector, this.changesSinceRequester != null)) {
+                this.changesSinceRequester = null;
                 if (isGiiDebugEnabled) {
                   logger.trace(LogMarker.GII, "have to do fullGII");
                 }
@@ -1754,44 +1822,54 @@ public class InitialImageOperation  {
               }
             }
             final RegionVersionHolder holderToSend = holderToSync;
-            boolean finished = chunkEntries(rgn, CHUNK_SIZE_IN_BYTES, !keysOnly, versionVector,
-                (HashSet)this.unfinishedKeys, flowControl, new ObjectIntProcedure() {
-              int msgNum = 0;
-
-              boolean last = false;
-              /**
-               * @param entList ArrayList of entries
-               * @param b positive if last chunk
-               * @return true to continue to next chunk
-               */
-              public boolean executeWith(Object entList, int b) {
-                if (rgn.getCache().isClosed()) {
-                  return false;
-                }
-                
-                if (this.last) {
-                  throw new InternalGemFireError(LocalizedStrings.InitialImageOperation_ALREADY_PROCESSED_LAST_CHUNK.toLocalizedString());
-                }
+            final int numSeries = getNumSeries(rgn, lclAbortTest);
+            final AtomicInteger seriesInProgress = new AtomicInteger(numSeries);
+            ObjectIntProcedure[] procs = new ObjectIntProcedure[numSeries];
+            for (int i = 0; i < numSeries; i++) {
+              final int seriesNum = i;
+              procs[i] = new ObjectIntProcedure() {
+                int msgNum = 0;
+
+                boolean last = false;
+                /**
+                 * @param entList ArrayList of entries
+                 * @param b positive if last chunk
+                 * @return true to continue to next chunk
+                 */
+                public boolean executeWith(Object entList, int b) {
+                  if (rgn.getCache().isClosed()) {
+                    return false;
+                  }
+                  
+                  if (this.last) {
+                    throw new InternalGemFireError(LocalizedStrings.InitialImageOperation_ALREADY_PROCESSED_LAST_CHUNK.toLocalizedString());
+                  }
 
-                List entries = (List)entList;
-                this.last = b > 0 && !lclAbortTest; // if abortTest, then never send last flag set to true
-                try {
-                  boolean abort = rgn.isDestroyed();
-                  if (!abort) {
-                    int fid = flowControl.getId();
-                    Map<VersionSource, Long> gcVersions = null;
-                    if(this.last && rgn.getVersionVector() != null) {
-                      gcVersions = rgn.getVersionVector().getMemberToGCVersion();
+                  List entries = (List)entList;
+                  this.last = b > 0 && !lclAbortTest; // if abortTest, then never send last flag set to true
+                  try {
+                    boolean abort = rgn.isDestroyed();
+                    if (!abort) {
+                      int fid = flowControl.getId();
+                      Map<VersionSource, Long> gcVersions = null;
+                      // the GC versions go with the last chunk of the last
+                      // series to finish packing
+                      if (this.last && seriesInProgress.decrementAndGet() == 0
+                          && rgn.getVersionVector() != null) {
+                        gcVersions = rgn.getVersionVector().getMemberToGCVersion();
+                      }
+                      replyWithData(dm, entries, seriesNum, msgNum++, numSeries, this.last, fid, versionVector!=null, holderToSend, gcVersions);
                     }
-                    replyWithData(dm, entries, seriesNum, msgNum++, numSeries, this.last, fid, versionVector!=null, holderToSend, gcVersions);
+                    return !abort;
+                  }
+                  catch (CancelException e) {
+                    return false;
                   }
-                  return !abort;
-                }
-                catch (CancelException e) {
-                  return false;
                 }
-              }
-            });
+              };
+            }
+            boolean finished = chunkEntries(rgn, CHUNK_SIZE_IN_BYTES, !keysOnly, versionVector,
+                (HashSet)this.unfinishedKeys, flowControl, procs);
 
 
             if (isGiiDebugEnabled) {
@@ -1883,17 +1961,156 @@ public class InitialImageOperation  {
 
 
     /**
-     * Serialize the entries into byte[] chunks, calling proc for each one. proc
+     * Returns the number of concurrent chunk streams to send the image of the
+     * given region with. Delta images, HA queues and small regions use a
+     * single stream.
+     * @since 9.0
+     */
+    int getNumSeries(DistributedRegion rgn, boolean lclAbortTest) {
+      if (CHUNK_STREAMS <= 1 || lclAbortTest || this.versionVector != null
+          || rgn instanceof HARegion) {
+        return 1;
+      }
+      // don't bother with streams that would not fill a chunk
+      int n = rgn.entries.size() / 1000;
+      return Math.max(1, Math.min(CHUNK_STREAMS, n));
+    }
+
+    /**
+     * Serialize the entries into byte[] chunks, calling a proc for each one.
+     * Each proc is a series of chunks packed by its own thread; the first
+     * series runs in the calling thread and the others in the waiting pool,
+     * all taking entries from one shared iterator. proc
      * args: the byte[] chunk and an int indicating whether it is the last chunk
-     * (positive means last chunk, zero otherwise). The return value of proc
+     * of its series (positive means last chunk, zero otherwise). The return value of proc
      * indicates whether to continue to the next chunk (true) or abort (false).
      * @param versionVector requester's region version vector
      * @param unfinishedKeys keys of unfinished operation (persistent region only)
      * @param flowControl 
+     * @param procs one proc for each series
      * @return true if finished all chunks, false if stopped early
      */
-    protected boolean chunkEntries(DistributedRegion rgn, int chunkSizeInBytes, boolean includeValues,
-        RegionVersionVector versionVector, HashSet unfinishedKeys, InitialImageFlowControl flowControl, ObjectIntProcedure proc) throws IOException
+    protected boolean chunkEntries(final DistributedRegion rgn, final int chunkSizeInBytes, final boolean includeValues,
+        final RegionVersionVector versionVector, final HashSet unfinishedKeys, final InitialImageFlowControl flowControl,
+        ObjectIntProcedure[] procs) throws IOException
+    {
+      if (internalDuringPackingImage != null && this.regionPath.endsWith(internalDuringPackingImage.getRegionName())) {
+        internalDuringPackingImage.run();
+      }
+      Iterator<?> it = null;
+      if (versionVector != null && this.changesSinceRequester != null) {
+        // deltaGII of only the keys the change log has
+        it = getChangedEntries(rgn, this.changesSinceRequester, unfinishedKeys).iterator();
+      } else if (versionVector != null) {
+        // deltaGII
+        it = rgn.entries.regionEntries().iterator();
+      } else {
+        it = rgn.getBestIterator(includeValues);
+      }
+      final EntrySource source = new EntrySource(it);
+      // generic arrays can not be created
+      @SuppressWarnings({"rawtypes", "unchecked"})
+      final Set<VersionSource>[] foundIds = new Set[procs.length];
+      final Throwable[] failures = new Throwable[procs.length];
+      final boolean[] sentLastChunk = new boolean[procs.length];
+      final CountDownLatch done = new CountDownLatch(procs.length - 1);
+      Executor executor = ((DistributionManager)rgn.getDistributionManager()).getWaitingThreadPool();
+      for (int i = 1; i < procs.length; i++) {
+        final int seriesNum = i;
+        final ObjectIntProcedure proc = procs[i];
+        foundIds[i] = new HashSet<VersionSource>();
+        executor.execute(new Runnable() {
+          public void run() {
+            try {
+              sentLastChunk[seriesNum] = chunkEntries(rgn, chunkSizeInBytes, includeValues,
+                  versionVector, unfinishedKeys, flowControl, source, foundIds[seriesNum], proc);
+            } catch (VirtualMachineError err) {
+              SystemFailure.initiateFailure(err);
+              // If this ever returns, rethrow the error. We're poisoned
+              // now, so don't let this thread continue.
+              throw err;
+            } catch (Throwable t) {
+              // Whenever you catch Error or Throwable, you must also
+              // catch VirtualMachineError (see above).  However, there is
+              // _still_ a possibility that you are dealing with a cascading
+              // error condition, so you also need to check to see if the JVM
+              // is still usable:
+              SystemFailure.checkFailure();
+              failures[seriesNum] = t;
+              source.abort();
+            } finally {
+              done.countDown();
+            }
+          }
+        });
+      }
+      foundIds[0] = new HashSet<VersionSource>();
+      try {
+        sentLastChunk[0] = chunkEntries(rgn, chunkSizeInBytes, includeValues,
+            versionVector, unfinishedKeys, flowControl, source, foundIds[0], procs[0]);
+      } finally {
+        if (!sentLastChunk[0]) {
+          // stop the other series
+          source.abort();
+        }
+        waitForSeries(rgn, done);
+      }
+
+      boolean finished = true;
+      for (int i = 0; i < procs.length; i++) {
+        Throwable t = failures[i];
+        if (t instanceof IOException) {
+          throw (IOException)t;
+        } else if (t instanceof RuntimeException) {
+          throw (RuntimeException)t;
+        } else if (t instanceof Error) {
+          throw (Error)t;
+        } else if (t != null) {
+          throw new InternalGemFireException(t);
+        }
+        finished &= sentLastChunk[i];
+        if (i > 0) {
+          foundIds[0].addAll(foundIds[i]);
+        }
+      }
+      if (foundIds[0].size() > 0) {
+        RegionVersionVector vv = rgn.getVersionVector(); 
+        if (vv != null) {
+          vv.removeOldMembers(foundIds[0]);
+        }
+      }
+      // return false if we were told to abort
+      return finished;
+    }
+
+    private void waitForSeries(DistributedRegion rgn, CountDownLatch done) {
+      boolean interrupted = Thread.interrupted();
+      try {
+        for (;;) {
+          try {
+            done.await();
+            break;
+          } catch (InterruptedException e) {
+            interrupted = true;
+            rgn.getCancelCriterion().checkCancelInProgress(e);
+          }
+        }
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    /**
+     * Packs the entries of one series into chunks until the shared source is
+     * exhausted, calling proc for each chunk.
+     * @param foundIds collects the version members of the packed entries
+     * @return true if the last chunk of this series was sent, false if stopped early
+     */
+    private boolean chunkEntries(DistributedRegion rgn, int chunkSizeInBytes, boolean includeValues,
+        RegionVersionVector versionVector, Set<?> unfinishedKeys, InitialImageFlowControl flowControl,
+        EntrySource source, Set<VersionSource> foundIds, ObjectIntProcedure proc) throws IOException
     {
       boolean keepGoing = true;
       boolean sentLastChunk = false;
@@ -1903,9 +2120,8 @@ public class InitialImageOperation  {
       }
 
       ByteArrayDataInput in = null;
-      DistributionManager dm = (DistributionManager) rgn.getDistributionManager();
 
-      List chunkEntries = null;
+      List<InitialImageOperation.Entry> chunkEntries = null;
       chunkEntries = new InitialImageVersionedEntryList(rgn.concurrencyChecksEnabled, MAX_ENTRIES_PER_CHUNK);
       final boolean keyRequiresRegionContext = rgn.keyRequiresRegionContext();
       DiskRegion dr = rgn.getDiskRegion();
@@ -1914,27 +2130,25 @@ public class InitialImageOperation  {
         in = new ByteArrayDataInput();
       }
       VersionSource myId = rgn.getVersionMember();
-      Set<VersionSource> foundIds = new HashSet<VersionSource>();
-      if (internalDuringPackingImage != null && this.regionPath.endsWith(internalDuringPackingImage.getRegionName())) {
-        internalDuringPackingImage.run();
-      }
       
       try {
-        Iterator it = null;
-        if (versionVector != null) {
-          // deltaGII
-          it = rgn.entries.regionEntries().iterator();
-        } else {
-          it = rgn.getBestIterator(includeValues);
-        }
+        Object next = source.next();
         do {
           flowControl.acquirePermit();
           int currentChunkSize = 0;
         
-          while (chunkEntries.size() < MAX_ENTRIES_PER_CHUNK
-              && currentChunkSize < chunkSizeInBytes
-              && it.hasNext()) {
-            RegionEntry mapEntry = (RegionEntry)it.next();
+          for (; next != null
+              && chunkEntries.size() < MAX_ENTRIES_PER_CHUNK
+              && currentChunkSize < chunkSizeInBytes;
+              next = source.next()) {
+            if (next instanceof InitialImageOperation.Entry) {
+              // a destroyed key from the change log
+              InitialImageOperation.Entry entry = (InitialImageOperation.Entry)next;
+              chunkEntries.add(entry);
+              currentChunkSize += entry.calcSerializedSize();
+              continue;
+            }
+            RegionEntry mapEntry = (RegionEntry)next;
             Object key = mapEntry.getKey();        
             if (rgn.checkEntryNotValid(mapEntry)) { // entry was just removed
               continue;
@@ -2015,19 +2229,16 @@ public class InitialImageOperation  {
           }
 
           // send 1 for last message if no more data
-          int lastMsg = it.hasNext() ? 0 : 1;
-          keepGoing = proc.executeWith(chunkEntries, lastMsg);
+          int lastMsg = next != null ? 0 : 1;
+          keepGoing = !source.isAborted() && proc.executeWith(chunkEntries, lastMsg);
           sentLastChunk = lastMsg == 1 && keepGoing;
           chunkEntries.clear();
 
           // if this region is destroyed while we are sending data, then abort.
-        } while (keepGoing && it.hasNext());
+        } while (keepGoing && next != null);
 
-        if (foundIds.size() > 0) {
-          RegionVersionVector vv = rgn.getVersionVector(); 
-          if (vv != null) {
-            vv.removeOldMembers(foundIds);
-          }
+        if (!keepGoing) {
+          source.abort();
         }
         // return false if we were told to abort
         return sentLastChunk;
@@ -2039,6 +2250,69 @@ public class InitialImageOperation  {
       }
     }
 
+    /**
+     * Returns the entries to send for a delta image made from the change log:
+     * the region entries of the changed and unfinished keys, and a tombstone
+     * for each changed key that no longer has one.
+     */
+    private List<Object> getChangedEntries(DistributedRegion rgn, Map<Object, VersionTag<?>> changes, Set<?> unfinishedKeys) {
+      List<Object> result = new ArrayList<Object>(changes.size());
+      for (Map.Entry<Object, VersionTag<?>> change: changes.entrySet()) {
+        RegionEntry re = rgn.entries.getEntry(change.getKey());
+        if (re != null) {
+          result.add(re);
+        } else {
+          InitialImageOperation.Entry entry = new InitialImageOperation.Entry();
+          entry.key = change.getKey();
+          entry.setVersionTag(change.getValue());
+          entry.setTombstone();
+          entry.setLastModified(rgn.getDistributionManager(), change.getValue().getVersionTimeStamp());
+          result.add(entry);
+        }
+      }
+      if (unfinishedKeys != null) {
+        for (Object key: unfinishedKeys) {
+          RegionEntry re = rgn.entries.getEntry(key);
+          if (re != null && !changes.containsKey(key)) {
+            result.add(re);
+          }
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Hands out the entries of a region iterator to the threads packing the
+     * series of an image, each entry to exactly one of them.
+     */
+    private static final class EntrySource {
+      private final Iterator<?> it;
+      private volatile boolean aborted;
+
+      EntrySource(Iterator<?> it) {
+        this.it = it;
+      }
+
+      /**
+       * Returns the next region entry, or image entry, or null if there are
+       * no more or we aborted
+       */
+      synchronized Object next() {
+        if (this.aborted || !this.it.hasNext()) {
+          return null;
+        }
+        return this.it.next();
+      }
+
+      void abort() {
+        this.aborted = true;
+      }
+
+      boolean isAborted() {
+        return this.aborted;
+      }
+    }
+
     private void replyNoData(DistributionManager dm, boolean isDeltaGII, Map<VersionSource, Long> gcVersions) {
       ImageReplyMessage.send(getSender(), this.processorId, null, dm, null, 0, 0, 1, true,0, isDeltaGII, null, gcVersions);
     }
@@ -318,6 +318,12 @@ public class LocalRegion extends AbstractRegion
    */
   private RegionVersionVector versionVector;
 
+  /**
+   * recent changes to this region for delta initial images, null if not kept
+   * @since 9.0
+   */
+  private volatile RegionChangeLog changeLog;
+
   private static final Pattern[] QUERY_PATTERNS = new Pattern[] {
       Pattern.compile("^\\(*select .*", Pattern.CASE_INSENSITIVE
           | Pattern.UNICODE_CASE | Pattern.DOTALL),
@@ -736,6 +742,23 @@ public class LocalRegion extends AbstractRegion
   public RegionVersionVector getVersionVector() {
     return this.versionVector;
   }
+
+  /** returns the log of recent changes to this region, or null if not kept */
+  RegionChangeLog getChangeLog() {
+    return this.changeLog;
+  }
+
+  /**
+   * Starts keeping a log of recent changes to this region, which image
+   * providers use to send delta images after tombstones have been collected.
+   * @since 9.0
+   */
+  void createChangeLog(int maxSize) {
+    RegionChangeLog log = new RegionChangeLog(maxSize, getVersionMember());
+    // publish before taking the floors so that no change is missed
+    this.changeLog = log;
+    log.reset(getVersionVector());
+  }
   
   /** returns object used to guard the size() operation during tombstone removal */
   public Object getSizeGuard() {
@@ -7838,7 +7861,12 @@ public class LocalRegion extends AbstractRegion
     if (re != null) {
       re.updateStatsForGet(hit, now);
       if (isEntryIdleExpiryPossible()) {
-        addExpiryTaskIfAbsent(re);
+        if (!EntryExpiryTask.lazyIdleExpiration) {
+          addExpiryTaskIfAbsent(re);
+        } else if (!this.entryExpiryTasks.containsKey(re)) {
+          // the task checks the last accessed time when it comes due
+          addExpiryTaskIfAbsent(re);
+        }
       }
     }
 
@@ -9809,6 +9837,11 @@ public class LocalRegion extends AbstractRegion
           myVector.recordVersion(tag.getMemberID(), tag); // clear() events always have the ID in the tag
         }
       }
+      RegionChangeLog log = this.changeLog;
+      if (log != null) {
+        // requesters that did not see this clear need a full image
+        log.reset(myVector);
+      }
     }
 
     //  Asif:Clear the expirational task for all the entries. It is possible that
@@ -11831,6 +11864,12 @@ public class LocalRegion extends AbstractRegion
       stats.incInt(getInitialImageKeysReceivedId, 1);
       this.cachePerfStats.incGetInitialImageKeysReceived();
     }
+
+    @Override
+    public void incGetInitialImageBytesReceived(long bytes) {
+      stats.incLong(getInitialImageBytesReceivedId, bytes);
+      this.cachePerfStats.incGetInitialImageBytesReceived(bytes);
+    }
     
     @Override
     public long startIndexUpdate() {
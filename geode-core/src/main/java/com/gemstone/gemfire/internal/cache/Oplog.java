@@ -34,10 +34,16 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
 import java.io.SyncFailedException;
+import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -128,7 +134,7 @@ import com.gemstone.gemfire.pdx.internal.PdxWriterImpl;
  * @since 5.1
  */
 
-public final class Oplog implements CompactableOplog, Flushable {
+public final class Oplog implements CompactableOplog, Flushable, OplogGroupCommitter.Syncable {
   private static final Logger logger = LogService.getLogger();
 
   /** Extension of the oplog file * */
@@ -1924,9 +1930,15 @@ public final class Oplog implements CompactableOplog, Flushable {
       int recordCount = 0;
       boolean foundDiskStoreRecord = false;
       FileInputStream fis = null;
+      MappedByteBuffer mapping = null;
       try {
-        fis = new FileInputStream(this.crf.f);
-        dis = new CountingDataInputStream(new BufferedInputStream(fis, 1024 * 1024), this.crf.f.length());
+        if (getParent().useMappedReads() && this.crf.f.length() <= Integer.MAX_VALUE) {
+          mapping = mapReadOnly(this.crf.f, this.crf.f.length());
+          dis = new CountingDataInputStream(new MappedInputStream(mapping), mapping.capacity());
+        } else {
+          fis = new FileInputStream(this.crf.f);
+          dis = new CountingDataInputStream(new BufferedInputStream(fis, 1024 * 1024), this.crf.f.length());
+        }
         boolean endOfLog = false;
         while (!endOfLog) {
           // long startPosition = byteCount;
@@ -2019,6 +2031,9 @@ public final class Oplog implements CompactableOplog, Flushable {
         if (fis != null) {
           fis.close();
         }
+        if (mapping != null) {
+          unmap(mapping);
+        }
       }
       if (!foundDiskStoreRecord && recordCount > 0) {
         throw new DiskAccessException("The oplog file \"" + this.crf.f + "\" does not belong to the init file \""
@@ -3327,6 +3342,7 @@ public final class Oplog implements CompactableOplog, Flushable {
   private void basicClose(boolean forceDelete) {
     flushAll();
     synchronized (this.lock/* crf */) {
+      releaseCrfMapping();
       unpreblow(this.crf, getMaxCrfSize());
       if (!this.crf.RAFClosed) {
         try {
@@ -3600,6 +3616,8 @@ public final class Oplog implements CompactableOplog, Flushable {
     DiskId id = entry.getDiskId();
     boolean useNextOplog = false;
     long startPosForSynchOp = -1;
+    final OplogGroupCommitter groupCommitter = async ? null : getParent().getGroupCommitter();
+    boolean needsGroupCommit = false;
     if (DiskStoreImpl.KRF_DEBUG) {
       // wait for cache close to create krf
       System.out.println("basicCreate KRF_DEBUG");
@@ -3666,7 +3684,8 @@ public final class Oplog implements CompactableOplog, Flushable {
         id.setOplogId(getOplogId());
         // do the io while holding lock so that switch can set doneAppending
         // Write the data to the opLog for the synch mode
-        startPosForSynchOp = writeOpLogBytes(this.crf, async, true);
+        startPosForSynchOp = writeOpLogBytes(this.crf, async, groupCommitter == null);
+        needsGroupCommit = groupCommitter != null;
         // if (this.crf.currSize != startPosForSynchOp) {
         // assert false;
         // }
@@ -3724,6 +3743,9 @@ public final class Oplog implements CompactableOplog, Flushable {
       Assert.assertTrue(this != getOplogSet().getChild());
       getOplogSet().getChild().basicCreate(dr, entry, value, userBits, async);
     } else {
+      if (needsGroupCommit) {
+        groupCommitter.commit(this);
+      }
       if (LocalRegion.ISSUE_CALLBACKS_TO_CACHE_OBSERVER) {
         CacheObserverHolder.getInstance().afterSettingOplogOffSet(startPosForSynchOp);
       }
@@ -4259,6 +4281,34 @@ public final class Oplog implements CompactableOplog, Flushable {
     return new File(this.diskFile.getPath() + KRF_FILE_EXT);
   }
 
+  /**
+   * Returns the drf file that recoverDrf will read or null if there is none.
+   */
+  File getDrfFileForRecovery() {
+    return this.drf.f;
+  }
+
+  /**
+   * Returns the files that recoverCrf will read: the krf if there is one,
+   * otherwise the crf. The crf is also returned if values are recovered
+   * synchronously since they will be read from it right after the krf.
+   */
+  List<File> getCrfFilesForRecovery(boolean recoverValuesSync) {
+    List<File> result = new ArrayList<File>(2);
+    if (this.crf.f == null) {
+      return result;
+    }
+    File krf = new File(this.crf.f.getPath().replaceFirst("\\" + CRF_FILE_EXT + "$", KRF_FILE_EXT));
+    boolean hasKrf = getParent().getDiskInitFile().hasKrf(this.oplogId) && krf.exists();
+    if (hasKrf) {
+      result.add(krf);
+    }
+    if (!hasKrf || recoverValuesSync) {
+      result.add(this.crf.f);
+    }
+    return result;
+  }
+
   public List<KRFEntry> getSortedLiveEntries(Collection<DiskRegionInfo> targetRegions) {
     int tlc = (int) this.totalLiveCount.get();
     if (tlc <= 0) {
@@ -4638,6 +4688,8 @@ public final class Oplog implements CompactableOplog, Flushable {
     long startPosForSynchOp = -1L;
     int adjustment = 0;
     Oplog emptyOplog = null;
+    final OplogGroupCommitter groupCommitter = async ? null : getParent().getGroupCommitter();
+    boolean needsGroupCommit = false;
     if (DiskStoreImpl.KRF_DEBUG) {
       // wait for cache close to create krf
       System.out.println("basicModify KRF_DEBUG");
@@ -4666,7 +4718,8 @@ public final class Oplog implements CompactableOplog, Flushable {
           long oldOplogId;
           // do the io while holding lock so that switch can set doneAppending
           // Write the data to the opLog for the synch mode
-          startPosForSynchOp = writeOpLogBytes(this.crf, async, true);
+          startPosForSynchOp = writeOpLogBytes(this.crf, async, groupCommitter == null);
+          needsGroupCommit = groupCommitter != null;
           this.crf.currSize = temp;
           startPosForSynchOp += getOpStateValueOffset();
           if (logger.isTraceEnabled(LogMarker.PERSIST_WRITES)) {
@@ -4740,6 +4793,9 @@ public final class Oplog implements CompactableOplog, Flushable {
       Assert.assertTrue(getOplogSet().getChild() != this);
       getOplogSet().getChild().basicModify(dr, entry, value, userBits, async, calledByCompactor);
     } else {
+      if (needsGroupCommit) {
+        groupCommitter.commit(this);
+      }
       if (LocalRegion.ISSUE_CALLBACKS_TO_CACHE_OBSERVER) {
         CacheObserverHolder.getInstance().afterSettingOplogOffSet(startPosForSynchOp);
       }
@@ -5069,6 +5125,8 @@ public final class Oplog implements CompactableOplog, Flushable {
     boolean useNextOplog = false;
     long startPosForSynchOp = -1;
     Oplog emptyOplog = null;
+    final OplogGroupCommitter groupCommitter = async ? null : getParent().getGroupCommitter();
+    boolean needsGroupCommit = false;
     if (DiskStoreImpl.KRF_DEBUG) {
       // wait for cache close to create krf
       System.out.println("basicRemove KRF_DEBUG");
@@ -5113,7 +5171,8 @@ public final class Oplog implements CompactableOplog, Flushable {
           // before we flush the crf.
           // However we can't have removes by async if we are doing a sync write
           // because we might be killed right after we do this write.
-          startPosForSynchOp = writeOpLogBytes(this.drf, async, true);
+          startPosForSynchOp = writeOpLogBytes(this.drf, async, groupCommitter == null);
+          needsGroupCommit = groupCommitter != null;
           setHasDeletes(true);
           if (logger.isTraceEnabled(LogMarker.PERSIST_WRITES)) {
             logger.debug("basicRemove: id=<{}> key=<{}> drId={} oplog#{}", abs(id.getKeyId()), entry.getKey(), dr.getId(),
@@ -5153,6 +5212,9 @@ public final class Oplog implements CompactableOplog, Flushable {
       Assert.assertTrue(getOplogSet().getChild() != this);
       getOplogSet().getChild().basicRemove(dr, entry, async, isClear);
     } else {
+      if (needsGroupCommit) {
+        groupCommitter.commit(this);
+      }
       if (LocalRegion.ISSUE_CALLBACKS_TO_CACHE_OBSERVER) {
         CacheObserverHolder.getInstance().afterSettingOplogOffSet(startPosForSynchOp);
       }
@@ -5271,6 +5333,14 @@ public final class Oplog implements CompactableOplog, Flushable {
     flushAll(skipDrf, true/* doSync */);
   }
 
+  /**
+   * Called by the leader of a group commit to write and force the records
+   * staged by the members of its group.
+   */
+  public void syncGroup() {
+    flushAll(false, true/* doSync */);
+  }
+
   public final void flushAll(boolean skipDrf, boolean doSync) {
     try {
       // if (!skipDrf) {
@@ -5369,6 +5439,141 @@ public final class Oplog implements CompactableOplog, Flushable {
 
   private volatile boolean beingRead;
 
+  /**
+   * A read only mapping of the crf that is used to read values once this oplog
+   * is no longer appended to. Only created if the disk store uses mapped reads.
+   * Guarded by {@link #lock} so that it can not be unmapped during a read.
+   */
+  private MappedByteBuffer crfMapping;
+
+  /**
+   * Returns the mapping of this oplog's crf, creating it if needed. Returns
+   * null if mapped reads are disabled or this oplog can not be mapped yet
+   * because it is still being appended to or has not yet been truncated to its
+   * actual size. Caller must hold {@link #lock}.
+   */
+  private MappedByteBuffer getCrfMapping() throws IOException {
+    MappedByteBuffer result = this.crfMapping;
+    if (result == null && getParent().useMappedReads() && this.doneAppending && this.crf.unpreblown && !this.closed
+        && this.crf.f != null && this.crf.bytesFlushed <= Integer.MAX_VALUE) {
+      result = mapReadOnly(this.crf.f, this.crf.bytesFlushed);
+      this.crfMapping = result;
+    }
+    return result;
+  }
+
+  /**
+   * Copies <code>length</code> bytes starting at <code>readPosition</code> from
+   * the crf mapping into <code>dst</code>. Caller must hold {@link #lock}.
+   */
+  private void readMapped(DiskRegionView dr, long readPosition, byte[] dst, int length) {
+    MappedByteBuffer mapping = this.crfMapping;
+    if ((readPosition + length) > mapping.capacity()) {
+      throw new DiskAccessException(LocalizedStrings.Oplog_TRIED_TO_SEEK_TO_0_BUT_THE_FILE_LENGTH_IS_1_OPLOG_FILE_OBJECT_USED_FOR_READING_2
+          .toLocalizedString(new Object[] { readPosition + length, mapping.capacity(), this.crf.f }), dr.getName());
+    } else if (readPosition < 0) {
+      throw new DiskAccessException(LocalizedStrings.Oplog_CANNOT_FIND_RECORD_0_WHEN_READING_FROM_1
+          .toLocalizedString(new Object[] { readPosition, this.diskFile.getPath() }), dr.getName());
+    }
+    mapping.position((int) readPosition);
+    mapping.get(dst, 0, length);
+    this.stats.incOplogReads();
+  }
+
+  /**
+   * Unmaps the crf if it was mapped. Caller must hold {@link #lock}.
+   */
+  private void releaseCrfMapping() {
+    MappedByteBuffer mapping = this.crfMapping;
+    if (mapping != null) {
+      this.crfMapping = null;
+      unmap(mapping);
+    }
+  }
+
+  /**
+   * Maps the first <code>length</code> bytes of <code>f</code> read only. The
+   * mapping stays valid after the file is closed.
+   */
+  private static MappedByteBuffer mapReadOnly(File f, long length) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(f, "r");
+    try {
+      return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Releases a mapping now instead of waiting for it to be garbage collected
+   * so that the space of a deleted oplog is given back right away. If the JVM
+   * does not let us do this then the mapping is left for the garbage
+   * collector.
+   */
+  private static void unmap(MappedByteBuffer mapping) {
+    try {
+      Method cleanerMethod = mapping.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(mapping);
+      if (cleaner != null) {
+        Method cleanMethod = cleaner.getClass().getMethod("clean");
+        cleanMethod.setAccessible(true);
+        cleanMethod.invoke(cleaner);
+      }
+    } catch (Exception ignore) {
+    }
+  }
+
+  /**
+   * An input stream used to recover an oplog from a mapping of its crf.
+   */
+  private static class MappedInputStream extends InputStream {
+    private final ByteBuffer bb;
+
+    MappedInputStream(ByteBuffer bb) {
+      this.bb = bb;
+    }
+
+    @Override
+    public int read() {
+      if (!this.bb.hasRemaining()) {
+        return -1;
+      }
+      return this.bb.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      int remaining = this.bb.remaining();
+      if (remaining == 0) {
+        return -1;
+      }
+      if (len > remaining) {
+        len = remaining;
+      }
+      this.bb.get(b, off, len);
+      return len;
+    }
+
+    @Override
+    public long skip(long n) {
+      if (n <= 0) {
+        return 0;
+      }
+      int skipped = (int) Math.min(n, this.bb.remaining());
+      this.bb.position(this.bb.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return this.bb.remaining();
+    }
+  }
+
   /**
    * If crfRAF has been closed then attempt to reopen the oplog for this read.
    * Verify that this only happens when test methods are invoked.
@@ -5407,6 +5612,21 @@ public final class Oplog implements CompactableOplog, Flushable {
              */(readPosition + valueLength) > this.crf.bytesFlushed && !this.closed) {
           flushAllNoSync(true); // fix for bug 41205
         }
+        if (getCrfMapping() != null) {
+          try {
+            byte[] valueBytes = new byte[valueLength];
+            readMapped(dr, readPosition, valueBytes, valueLength);
+            BytesAndBits bb = new BytesAndBits(valueBytes, userBits);
+            // also set the product version for an older product
+            final Version version = getProductVersionIfOld();
+            if (version != null) {
+              bb.setVersion(version);
+            }
+            return bb;
+          } finally {
+            this.beingRead = false;
+          }
+        }
         try {
           UninterruptibleRandomAccessFile myRAF = null;
           if (this.crf.RAFClosed) {
@@ -5588,6 +5808,15 @@ public final class Oplog implements CompactableOplog, Flushable {
                */(readPosition + valueLength) > this.crf.bytesFlushed && !this.closed) {
             flushAllNoSync(true); // fix for bug 41205
           }
+          if (getCrfMapping() != null) {
+            byte[] valueBytes = wrapper.getBytes();
+            if (valueBytes.length < valueLength) {
+              valueBytes = new byte[valueLength];
+            }
+            readMapped(dr, readPosition, valueBytes, valueLength);
+            wrapper.setData(valueBytes, userBits, valueLength, true);
+            return true;
+          }
           if (!reopenFileIfClosed()) {
             return false; // fix for bug 40648
           }
@@ -5705,6 +5934,9 @@ public final class Oplog implements CompactableOplog, Flushable {
   }
 
   public void deleteCRF() {
+    synchronized (this.lock/* crf */) {
+      releaseCrfMapping();
+    }
     oplogSet.crfDelete(this.oplogId);
     DiskStoreBackup inProgressBackup = getParent().getInProgressBackup();
     if (inProgressBackup == null || !inProgressBackup.deferCrfDelete(this)) {
@@ -6108,6 +6340,7 @@ public final class Oplog implements CompactableOplog, Flushable {
             }
             lastDe = de;
             didCompact = false;
+            int copiedBytes = 0;
             synchronized (de) { // fix for bug 41797
               DiskId did = de.getDiskId();
               assert did != null;
@@ -6132,6 +6365,7 @@ public final class Oplog implements CompactableOplog, Flushable {
                   getOplogSet().getChild().copyForwardModifyForCompact(dr, de, wrapper);
                   // the did's oplogId will now be set to the current active oplog
                   didCompact = true;
+                  copiedBytes = did.getValueLength();
                 }
               } // did
             } // de
@@ -6149,6 +6383,8 @@ public final class Oplog implements CompactableOplog, Flushable {
               if (!wrapper.isReusable()) {
                 wrapper = new BytesAndBitsForCompactor();
               }
+              // throttle now that we no longer hold the entry's locks
+              compactor.afterCopyForward(copiedBytes);
             }
           }
         }
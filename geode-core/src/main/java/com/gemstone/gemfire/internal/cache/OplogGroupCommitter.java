@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.gemstone.gemfire.cache.DiskAccessException;
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+
+/**
+ * Coalesces the write and force done by synchronous oplog operations.
+ * <p>
+ * A synchronous create, modify or remove stages its record in the oplog's
+ * write buffer while holding the oplog lock and then, after releasing that
+ * lock, calls {@link #commit}. The first thread to arrive becomes the leader
+ * of the current group: it waits until either {@link #getMaxGroupSize()}
+ * operations have joined the group or {@link #getMaxWaitNanos()} have passed,
+ * then closes the group and syncs every oplog that was written to by the group
+ * members with a single write and force. All members of the group are
+ * released together once the sync completes. Operations that arrive while a
+ * group is being synced form the next group.
+ *
+ * @since 9.0
+ */
+public class OplogGroupCommitter {
+
+  /**
+   * Implemented by the oplogs that can take part in a group commit.
+   */
+  public static interface Syncable {
+    /**
+     * Writes any staged records to disk and forces them to the device.
+     */
+    public void syncGroup();
+  }
+
+  private final int maxGroupSize;
+
+  private final long maxWaitNanos;
+
+  private final DiskStoreStats stats;
+
+  /** The group new operations join. Null if no operation is staged. */
+  private Group current;
+
+  /** True while a leader is syncing a closed group. */
+  private boolean syncInProgress;
+
+  public OplogGroupCommitter(int maxGroupSize, long maxWaitMicros, DiskStoreStats stats) {
+    this.maxGroupSize = Math.max(1, maxGroupSize);
+    this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, maxWaitMicros));
+    this.stats = stats;
+  }
+
+  public int getMaxGroupSize() {
+    return this.maxGroupSize;
+  }
+
+  public long getMaxWaitNanos() {
+    return this.maxWaitNanos;
+  }
+
+  /**
+   * Joins the current group and waits until the records staged by the caller
+   * into <code>oplog</code> have been synced. The caller must not hold the
+   * oplog lock.
+   *
+   * @throws RuntimeException
+   *           the exception, usually a DiskAccessException, thrown by the
+   *           leader while syncing the caller's group
+   * @throws DiskAccessException
+   *           if the leader failed with an Error while syncing the caller's
+   *           group; the leader itself rethrows the Error
+   */
+  public void commit(Syncable oplog) throws InterruptedException {
+    final long start = this.stats != null ? this.stats.startGroupCommit() : 0;
+    Group group;
+    boolean leader = false;
+    synchronized (this) {
+      group = this.current;
+      if (group == null) {
+        group = new Group();
+        this.current = group;
+      }
+      group.add(oplog);
+      if (group.size >= this.maxGroupSize) {
+        notifyAll();
+      }
+      while (!group.done) {
+        if (!this.syncInProgress && group == this.current) {
+          // we are the leader; give the group a chance to fill up
+          long remaining = this.maxWaitNanos - (System.nanoTime() - group.createTime);
+          if (group.size < this.maxGroupSize && remaining > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            continue;
+          }
+          this.current = null;
+          this.syncInProgress = true;
+          leader = true;
+          break;
+        }
+        wait();
+      }
+    }
+    if (leader) {
+      Throwable failure = null;
+      try {
+        for (Syncable s : group.oplogs) {
+          s.syncGroup();
+        }
+      } catch (Throwable t) {
+        failure = t;
+      } finally {
+        synchronized (this) {
+          group.failure = failure;
+          group.done = true;
+          this.syncInProgress = false;
+          notifyAll();
+        }
+      }
+      if (this.stats != null) {
+        this.stats.endGroupSync(group.size);
+      }
+    }
+    if (this.stats != null) {
+      this.stats.endGroupCommit(start);
+    }
+    if (group.failure instanceof RuntimeException) {
+      throw (RuntimeException)group.failure;
+    } else if (group.failure instanceof Error && leader) {
+      throw (Error)group.failure;
+    } else if (group.failure != null) {
+      // the records of this group may not be on disk
+      throw new DiskAccessException(LocalizedStrings.OplogGroupCommitter_FAILED_SYNCING_THE_GROUP_OF_0_OPERATIONS
+          .toLocalizedString(group.size), group.failure);
+    }
+  }
+
+  /**
+   * The operations released by a single sync.
+   */
+  private static class Group {
+    final long createTime = System.nanoTime();
+
+    /** The distinct oplogs written to by this group; usually just one */
+    final List<Syncable> oplogs = new ArrayList<Syncable>(2);
+
+    int size;
+
+    boolean done;
+
+    Throwable failure;
+
+    void add(Syncable oplog) {
+      this.size++;
+      if (!this.oplogs.contains(oplog)) {
+        this.oplogs.add(oplog);
+      }
+    }
+  }
+}
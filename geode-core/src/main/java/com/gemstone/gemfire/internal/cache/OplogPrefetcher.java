@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.internal.logging.LogService;
+
+/**
+ * Reads the oplog files that recovery is about to need on a bounded fork join
+ * pool so that several oplogs are read from disk at once.
+ * <p>
+ * Records must still be applied one oplog at a time in oplog id order so that
+ * later records win. This class lets the recovery thread do that while the
+ * pool brings the next few oplogs into the file system cache: after each
+ * oplog is recovered the caller invokes {@link #advance()} which keeps at most
+ * {@link #getParallelism()} oplogs ahead of the one being recovered. Reading
+ * too far ahead would just push the oplogs we are about to recover out of the
+ * cache again.
+ *
+ * @since 9.0
+ */
+public class OplogPrefetcher {
+  private static final Logger logger = LogService.getLogger();
+
+  private static final int READ_SIZE = 1024 * 1024;
+
+  private final ForkJoinPool pool;
+
+  private final int parallelism;
+
+  private final AtomicLong bytesPrefetched = new AtomicLong();
+
+  private List<List<File>> pending = new ArrayList<List<File>>();
+
+  /** index of the next oplog to recover */
+  private int current;
+
+  /** index of the next oplog to submit to the pool */
+  private int nextToSubmit;
+
+  public OplogPrefetcher(final String diskStoreName, int parallelism) {
+    this.parallelism = parallelism;
+    this.pool = new ForkJoinPool(parallelism, new ForkJoinWorkerThreadFactory() {
+      @Override
+      public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("Oplog Recovery Prefetcher for " + diskStoreName + " " + thread.getPoolIndex());
+        return thread;
+      }
+    }, null, false);
+  }
+
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  /**
+   * Returns the number of bytes read ahead of the recovery thread so far.
+   */
+  public long getBytesPrefetched() {
+    return this.bytesPrefetched.get();
+  }
+
+  /**
+   * Starts prefetching a new sequence of oplogs.
+   *
+   * @param filesPerOplog
+   *          for each oplog, in the order they will be recovered, the files
+   *          recovery will read from it
+   */
+  public synchronized void start(List<List<File>> filesPerOplog) {
+    this.pending = filesPerOplog;
+    this.current = 0;
+    this.nextToSubmit = 0;
+    submitAhead();
+  }
+
+  /**
+   * Called once the recovery thread has finished with the current oplog.
+   */
+  public synchronized void advance() {
+    this.current++;
+    submitAhead();
+  }
+
+  /**
+   * Stops the pool. Prefetches that have not started are discarded.
+   */
+  public void close() {
+    this.pool.shutdownNow();
+  }
+
+  private void submitAhead() {
+    int limit = Math.min(this.pending.size(), this.current + 1 + this.parallelism);
+    // never prefetch the oplog that is already being recovered
+    if (this.nextToSubmit <= this.current) {
+      this.nextToSubmit = this.current + 1;
+    }
+    while (this.nextToSubmit < limit) {
+      for (final File f : this.pending.get(this.nextToSubmit)) {
+        this.pool.execute(new Runnable() {
+          @Override
+          public void run() {
+            prefetch(f);
+          }
+        });
+      }
+      this.nextToSubmit++;
+    }
+  }
+
+  private void prefetch(File f) {
+    if (this.pool.isShutdown()) {
+      return;
+    }
+    byte[] buffer = new byte[READ_SIZE];
+    FileInputStream fis = null;
+    try {
+      fis = new FileInputStream(f);
+      int count;
+      while (!this.pool.isShutdown() && (count = fis.read(buffer)) > 0) {
+        this.bytesPrefetched.addAndGet(count);
+      }
+    } catch (IOException e) {
+      // recovery will report the problem when it reads the file
+      if (logger.isDebugEnabled()) {
+        logger.debug("Could not prefetch {}", f, e);
+      }
+    } finally {
+      if (fis != null) {
+        try {
+          fis.close();
+        } catch (IOException ignore) {
+        }
+      }
+    }
+  }
+}
@@ -1367,6 +1367,7 @@ class OverflowOplog implements CompactableOplog, Flushable {
         }
         lastDe = de;
         didCompact = false;
+        int copiedBytes = 0;
         synchronized (de) { // fix for bug 41797
         DiskId did = de.getDiskId();
         assert did != null;
@@ -1408,6 +1409,7 @@ class OverflowOplog implements CompactableOplog, Flushable {
             getOplogSet().copyForwardForOverflowCompact(de, valueBytes, length, userBits);
             // the did's oplogId will now be set to the current active oplog
             didCompact = true;
+            copiedBytes = length;
           }
         } // did
         } // de
@@ -1423,6 +1425,8 @@ class OverflowOplog implements CompactableOplog, Flushable {
           if (!wrapper.isReusable()) {
             wrapper = new BytesAndBitsForCompactor();
           }
+          // throttle now that we no longer hold the entry's locks
+          compactor.afterCopyForward(copiedBytes);
         }
       }
     
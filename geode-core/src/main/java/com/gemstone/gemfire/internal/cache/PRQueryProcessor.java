@@ -24,14 +24,17 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.Callable;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.Logger;
 
@@ -46,6 +49,7 @@ import com.gemstone.gemfire.cache.query.internal.CompiledSelect;
 import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
 import com.gemstone.gemfire.cache.query.internal.ExecutionContext;
 import com.gemstone.gemfire.cache.query.internal.IndexTrackingQueryObserver;
+import com.gemstone.gemfire.cache.query.internal.IndexTrackingQueryObserver.IndexInfo;
 import com.gemstone.gemfire.cache.query.internal.NWayMergeResults;
 import com.gemstone.gemfire.cache.query.internal.QueryExecutionContext;
 import com.gemstone.gemfire.cache.query.internal.QueryMonitor;
@@ -63,24 +67,35 @@ import com.gemstone.gemfire.internal.logging.LogService;
 
 /**
  * This class takes the responsibility of executing the query on a data store
- * for the buckets specified in bucketList. It contains a
- * <code>PRQueryExecutor</code> thread-pool executor that takes a
- * <code>Callable</code> task identified by <code>PartitionedRegion</code>,
- * queryString and bucketId.
+ * for the buckets specified in bucketList. The buckets are either queried by
+ * the calling thread or, when the query is to be executed with more than one
+ * thread, by <code>QueryTask</code>s run in the fork-join pool of
+ * <code>PRQueryExecutor</code>.
  * 
- * The QueryTasks add results directly to a results queue.
- * The BucketQueryResult is used not only to indicate completion, and holds an exception if there one occurred while
- * processing a query.
+ * Each QueryTask takes buckets from the list until none are left, so tasks
+ * that get cheap buckets query more of them. A QueryTask keeps the results of
+ * its buckets and, for ordered queries, merges them before returning, so the
+ * merge of the sorted bucket results is also done in parallel. A QueryTask
+ * holds an exception if one occurred while processing a query.
  *
  */
 public class PRQueryProcessor
 {
   private static final Logger logger = LogService.getLogger();
-  
-  final static int BUCKET_QUERY_TIMEOUT = 60;
+
+  /** The seconds the query tasks of one query are waited for */
+  final static int QUERY_TIMEOUT = 300;
   
   public final static int NUM_THREADS  = Integer.getInteger("gemfire.PRQueryProcessor.numThreads", 1).intValue();
 
+  /**
+   * The number of threads in the pool that queries asking for more than one
+   * thread are executed by. A query gets at most this many threads.
+   * @since 9.0
+   */
+  public final static int MAX_THREADS = Integer.getInteger("gemfire.PRQueryProcessor.maxThreads",
+      Runtime.getRuntime().availableProcessors()).intValue();
+
   /* For Test purpose */
   public static int TEST_NUM_THREADS = 0;
   
@@ -93,17 +108,18 @@ public class PRQueryProcessor
   private volatile ObjectType resultType = null; 
  
   private boolean isIndexUsedForLocalQuery = false;
+  private int parallelism = 1;
 //  private List _failedBuckets;
 
   public PRQueryProcessor(PartitionedRegionDataStore prDS,
       DefaultQuery query, Object[] parameters, List<Integer> buckets) {
     Assert.assertTrue(!buckets.isEmpty(), "bucket list can not be empty. ");
     this._prds = prDS;
+    this.pr = prDS.getPartitionedRegion();
     this._bucketsToQuery = buckets;
     ((GemFireCacheImpl)prDS.partitionedRegion.getCache()).getLocalQueryService();
     this.query = query;
     this.parameters = parameters;
-    PRQueryExecutor.initializeExecutorService();
   }
 
   public PRQueryProcessor(PartitionedRegion pr,
@@ -113,7 +129,6 @@ public class PRQueryProcessor
     this._bucketsToQuery = buckets;
     this.query = query;
     this.parameters = parameters;
-    PRQueryExecutor.initializeExecutorService();
   }
 
   private synchronized void incNumBucketsProcessed() {
@@ -139,90 +154,115 @@ public class PRQueryProcessor
       //((IndexTrackingQueryObserver)observer).setIndexInfo(resultCollector.getIndexInfoMap());
     //}
     
-    if (NUM_THREADS > 1 || this.TEST_NUM_THREADS > 1) {  
+    this.parallelism = computeParallelism();
+    if (this.parallelism > 1) {
       executeWithThreadPool(resultCollector);
     } else {
       executeSequentially(resultCollector, this._bucketsToQuery);
     }
     return this.resultType.isStructType();
   }
-  
+
+  /**
+   * Returns the number of tasks the query is executed with: the number
+   * asked for with a parallelism hint or else the configured number of
+   * threads, but no more than there are buckets.
+   */
+  private int computeParallelism() {
+    int numThreads = TEST_NUM_THREADS > 1 ? TEST_NUM_THREADS : NUM_THREADS;
+    CompiledSelect cs = this.query.getSimpleSelect();
+    if (cs != null && cs.getParallelismHint() > 0) {
+      numThreads = cs.getParallelismHint();
+    }
+    return Math.max(1, Math.min(numThreads, this._bucketsToQuery.size()));
+  }
+
+  /**
+   * Returns the number of threads the last call to executeQuery used.
+   * @since 9.0
+   */
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
   private void executeWithThreadPool(Collection<Collection> resultCollector)
     throws QueryException, InterruptedException, ForceReattemptException {
     if (Thread.interrupted()) throw new InterruptedException();
-      
-    java.util.List callableTasks = buildCallableTaskList(resultCollector);
-    ExecutorService execService = PRQueryExecutor.getExecutorService();
 
-    boolean reattemptNeeded = false;
-    ForceReattemptException fre = null;
-    
-    if (callableTasks != null && !callableTasks.isEmpty()) {
-      List futures = null;
-      try {
-        futures = execService.invokeAll(callableTasks, 300, TimeUnit.SECONDS);
-      }
-      catch (RejectedExecutionException rejectedExecutionEx) {
-        //this._prds.partitionedRegion.checkReadiness();
-        throw rejectedExecutionEx;
-      }
-      
-      if (futures != null) {
-        Iterator itr = futures.iterator();
-        while (itr.hasNext() && !execService.isShutdown() && !execService.isTerminated()) {
-          //this._prds.partitionedRegion.checkReadiness();
-          Future fut = (Future)itr.next();
-          QueryTask.BucketQueryResult bqr = null;
-          
-          try {
-            bqr = (QueryTask.BucketQueryResult)fut.get(BUCKET_QUERY_TIMEOUT, TimeUnit.SECONDS);
-            //if (retry.booleanValue()) {
-            //  reattemptNeeded = true;
-              //fre = (ForceReattemptException)bqr.getException();
-            //} else {
-              bqr.handleAndThrowException(); // handles an exception if there was one,
-              //  otherwise, the results have already been added to the resultQueue
-            //}
-            if (bqr.retry) {
-              reattemptNeeded = true;
-            }
-            
-          } catch (TimeoutException e) {
-            throw new InternalGemFireException(LocalizedStrings.PRQueryProcessor_TIMED_OUT_WHILE_EXECUTING_QUERY_TIME_EXCEEDED_0.toLocalizedString(
-                Integer.valueOf(BUCKET_QUERY_TIMEOUT)), e);
-          } catch (ExecutionException ee) {
-            Throwable cause = ee.getCause();
-            if (cause instanceof QueryException) {
-              throw (QueryException)cause;
-            }
-            else {
-              throw new InternalGemFireException(LocalizedStrings.PRQueryProcessor_GOT_UNEXPECTED_EXCEPTION_WHILE_EXECUTING_QUERY_ON_PARTITIONED_REGION_BUCKET.toLocalizedString(), 
-              cause);
-            }
-          }
-        }
-        
-        CompiledSelect cs = this.query.getSimpleSelect();
-       
-        if(cs != null && (cs.isOrderBy() || cs.isGroupBy())) {      
-          ExecutionContext context = new QueryExecutionContext(this.parameters, pr.getCache());
-          int limit = this.query.getLimit(parameters);
-          Collection mergedResults =coalesceOrderedResults(resultCollector, context, cs, limit);
-          resultCollector.clear();
-          resultCollector.add(mergedResults);
+    ForkJoinPool pool = PRQueryExecutor.getPool();
+    if (pool.isShutdown()) {
+      this.pr.checkReadiness();
+      throw new RejectedExecutionException("PR query thread pool is shut down");
+    }
+
+    CompiledSelect cs = this.query.getSimpleSelect();
+    int limit = this.query.getLimit(parameters);
+    Map<String, IndexInfo> callerIndexes = null;
+    QueryObserver observer = QueryObserverHolder.getInstance();
+    if (observer instanceof IndexTrackingQueryObserver) {
+      // Indexes are tracked per thread; the tasks add theirs to this map.
+      callerIndexes = new HashMap<String, IndexInfo>();
+      addUsedIndexes(((IndexTrackingQueryObserver)observer).getUsedIndexes(), callerIndexes);
+      ((IndexTrackingQueryObserver)observer).setIndexInfo(callerIndexes);
+    }
+
+    AtomicInteger nextBucket = new AtomicInteger();
+    AtomicInteger numResults = new AtomicInteger();
+    final List<QueryTask> tasks = new ArrayList<QueryTask>(this.parallelism);
+    for (int i = 0; i < this.parallelism; i++) {
+      tasks.add(new QueryTask(cs, limit, nextBucket, numResults, callerIndexes));
+    }
+    for (QueryTask task : tasks) {
+      pool.execute(task);
+    }
+    try {
+      long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(QUERY_TIMEOUT);
+      for (QueryTask task : tasks) {
+        try {
+          task.get(Math.max(0, end - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+          throw new InternalGemFireException(LocalizedStrings.PRQueryProcessor_TIMED_OUT_WHILE_EXECUTING_QUERY_TIME_EXCEEDED_0.toLocalizedString(
+              Integer.valueOf(QUERY_TIMEOUT)), e);
+        } catch (ExecutionException ee) {
+          throw new InternalGemFireException(LocalizedStrings.PRQueryProcessor_GOT_UNEXPECTED_EXCEPTION_WHILE_EXECUTING_QUERY_ON_PARTITIONED_REGION_BUCKET.toLocalizedString(),
+              ee.getCause());
         }
       }
+    } finally {
+      // stops the tasks that are still running from taking more buckets
+      for (QueryTask task : tasks) {
+        task.cancel(false);
+      }
     }
-    
-    if (execService == null || execService.isShutdown()
-        || execService.isTerminated()) {
-      this._prds.partitionedRegion.checkReadiness();
+
+    for (QueryTask task : tasks) {
+      task.handleAndThrowException();
     }
-    
-    if (reattemptNeeded) {
-      throw fre;
+    for (QueryTask task : tasks) {
+      resultCollector.addAll(task.results);
+    }
+
+    if (cs != null && cs.isOrderBy()) {
+      ExecutionContext context = new QueryExecutionContext(this.parameters, pr.getCache());
+      Collection<?> mergedResults = coalesceOrderedResults(resultCollector, context, cs, limit);
+      resultCollector.clear();
+      resultCollector.add(mergedResults);
+    }
+  }
+
+  /**
+   * Adds the indexes a query used, as tracked by the
+   * {@link IndexTrackingQueryObserver}, to the given map.
+   */
+  private static void addUsedIndexes(Map<?, ?> usedIndexes, Map<String, IndexInfo> indexes) {
+    for (Map.Entry<?, ?> entry : usedIndexes.entrySet()) {
+      IndexInfo info = indexes.get(entry.getKey());
+      if (info == null) {
+        indexes.put((String)entry.getKey(), (IndexInfo)entry.getValue());
+      } else {
+        info.merge((IndexInfo)entry.getValue());
+      }
     }
-    
   }
 
   /**
@@ -360,7 +400,7 @@ public class PRQueryProcessor
     }
   }
   
-  private Collection coalesceOrderedResults(Collection<Collection> results, 
+  private Collection<?> coalesceOrderedResults(Collection<?> results, 
       ExecutionContext context, CompiledSelect cs, int limit) {
     List<Collection> sortedResults = new ArrayList<Collection>(results.size());
     //TODO :Asif : Deal with UNDEFINED
@@ -376,7 +416,7 @@ public class PRQueryProcessor
   
   }
 
-  private void executeQueryOnBuckets(Collection<Collection> resultCollector,
+  private void executeQueryOnBuckets(Collection<? super SelectResults<?>> resultCollector,
       ExecutionContext context) throws ForceReattemptException,
       QueryInvocationTargetException, QueryException {
     // Check if QueryMonitor is enabled, if so add query to be monitored.
@@ -402,7 +442,7 @@ public class PRQueryProcessor
           resultCollector.add(Collections.singleton(results));
         } else {*/
           this.resultType = ((SelectResults)results).getCollectionType().getElementType(); 
-          resultCollector.add((SelectResults) results);
+          resultCollector.add((SelectResults<?>) results);
         //}
       }
       isIndexUsedForLocalQuery =((QueryExecutionContext)context).isIndexUsed();
@@ -428,16 +468,6 @@ public class PRQueryProcessor
     }
   }
 
-  private List buildCallableTaskList(Collection<Collection> resultsColl)
-  {
-    List callableTasks = new ArrayList();
-    for (Iterator itr = _bucketsToQuery.iterator(); itr.hasNext();) {
-      Integer bId = (Integer)itr.next();
-      callableTasks.add(new QueryTask(this.query, this.parameters, _prds, bId, resultsColl));
-    }
-    return callableTasks;
-  }
-  
   public boolean isIndexUsed() {
     return isIndexUsedForLocalQuery;
   }
@@ -453,47 +483,47 @@ public class PRQueryProcessor
   }
 
   /**
-   * A ThreadPool ( Fixed Size ) with an executor service to execute the query
-   * execution spread over buckets.
-   * 
-   * 
+   * A fork-join pool shared by the queries executed with more than one thread.
    */
   static class PRQueryExecutor {
 
-    private static ExecutorService execService = null;
+    private static ForkJoinPool pool = null;
 
     /**
-     * Closes the executor service. This is called from
+     * Closes the pool. This is called from
      * {@link PartitionedRegion#afterRegionsClosedByCacheClose(GemFireCacheImpl)}
      */
     static synchronized void shutdown() {
-      if (execService != null) {
-        execService.shutdown();
+      if (pool != null) {
+        pool.shutdown();
       }
     }
 
     static synchronized void shutdownNow() {
-      if (execService != null)
-        execService.shutdownNow();
+      if (pool != null)
+        pool.shutdownNow();
     }
 
-    static synchronized ExecutorService getExecutorService() {
-      if (execService == null) {
-        initializeExecutorService();
-      }
-      assert execService != null;
-      return execService;
+    static int getPoolSize() {
+      return Math.max(MAX_THREADS, Math.max(NUM_THREADS, TEST_NUM_THREADS));
     }
 
     /**
-     * Creates the Executor Service.
+     * Returns the pool, creating it if there is none or it was shut down.
      */
-    static synchronized void initializeExecutorService() {
-      if (execService == null || execService.isShutdown()
-          || execService.isTerminated()) {
-        int numThreads = (TEST_NUM_THREADS > 1 ? TEST_NUM_THREADS : NUM_THREADS);
-        execService = Executors.newFixedThreadPool(numThreads);
+    static synchronized ForkJoinPool getPool() {
+      if (pool == null || pool.isShutdown()) {
+        pool = new ForkJoinPool(getPoolSize(), new ForkJoinWorkerThreadFactory() {
+          private final AtomicInteger threadNum = new AtomicInteger();
+          public ForkJoinWorkerThread newThread(ForkJoinPool p) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("PRQueryProcessor Thread " + threadNum.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        }, null, false);
       }
+      return pool;
     }
   }
   
@@ -543,111 +573,107 @@ public class PRQueryProcessor
   }
   
   /**
-   * Implementation of call-able task to execute query on a bucket region. This
-   * task will be generated by the PRQueryProcessor.
-   * 
+   * Queries buckets taken from the bucket list until there are none left, or
+   * until enough results were found for a query with a limit and no order by.
+   * The results are kept in this task; for ordered queries the results of the
+   * buckets are merged into one sorted list.
    */
   @SuppressWarnings("synthetic-access")
-  private final class QueryTask implements Callable {
-    private final DefaultQuery query;
-    private final Object[] parameters;
-    private final PartitionedRegionDataStore _prDs;
-    private final Integer _bucketId;
-    private final Collection<Collection> resultColl;
-    
-    public QueryTask(DefaultQuery query, Object[] parameters, PartitionedRegionDataStore prDS, 
-        Integer bucketId, final Collection<Collection> rColl) {
-      this.query = query;
-      this._prDs = prDS;
-      this._bucketId = bucketId;
-      this.resultColl = rColl;
-      this.parameters = parameters;
+  private final class QueryTask extends RecursiveAction {
+    private static final long serialVersionUID = -4624867255102165451L;
+
+    private final CompiledSelect cs;
+    private final int limit;
+    private final AtomicInteger nextBucket;
+    private final AtomicInteger numResults;
+    private final Map<String, IndexInfo> callerIndexes;
+    // Taken from the thread executing the query, which may read pdx serialized
+    private final boolean pdxReadSerialized = DefaultQuery.getPdxReadSerialized();
+    final List<Collection<?>> results = new ArrayList<Collection<?>>();
+    private Exception exception = null;
+
+    QueryTask(CompiledSelect cs, int limit, AtomicInteger nextBucket,
+        AtomicInteger numResults, Map<String, IndexInfo> callerIndexes) {
+      this.cs = cs;
+      this.limit = limit;
+      this.nextBucket = nextBucket;
+      this.numResults = numResults;
+      this.callerIndexes = callerIndexes;
     }
-    
-    public Object call() throws Exception {
-      BucketQueryResult bukResult = new BucketQueryResult(this._bucketId);
-      boolean retry = false;
+
+    @Override
+    protected void compute() {
+      boolean isOrderBy = this.cs != null && this.cs.isOrderBy();
+      DefaultQuery.setPdxReadSerialized(this.pdxReadSerialized);
       try {
-        //Add indexInfo of this thread to result collector
-        QueryObserver observer = QueryObserverHolder.getInstance();
-        if (observer != null && observer instanceof IndexTrackingQueryObserver) {
-          //((IndexTrackingQueryObserver)observer).setIndexInfo(resultColl.getIndexInfoMap());
+        int bucketIndex;
+        while ((bucketIndex = this.nextBucket.getAndIncrement()) < _bucketsToQuery.size()) {
+          if (isCancelled()) {
+            break;
+          }
+          if (!isOrderBy && this.limit >= 0 && this.numResults.get() >= this.limit) {
+            break;
+          }
+          List<Integer> bucketList = Collections.singletonList(_bucketsToQuery.get(bucketIndex));
+          ExecutionContext context = new QueryExecutionContext(parameters, pr.getCache(), query);
+          context.setBucketList(bucketList);
+          int size = this.results.size();
+          executeQueryOnBuckets(this.results, context);
+          for (int i = size; i < this.results.size(); i++) {
+            this.numResults.addAndGet(this.results.get(i).size());
+          }
+        }
+        if (isOrderBy && this.results.size() > 1) {
+          ExecutionContext context = new QueryExecutionContext(parameters, pr.getCache());
+          List<Object> merged = new ArrayList<Object>();
+          for (Object o : coalesceOrderedResults(this.results, context, this.cs, this.limit)) {
+            merged.add(o);
+          }
+          this.results.clear();
+          this.results.add(merged);
         }
-        
-        final Integer bId = Integer.valueOf(this._bucketId);
-        List<Integer> bucketList = Collections.singletonList(bId);       
-        ExecutionContext context = new QueryExecutionContext(this.parameters, pr.getCache(), this.query);
-        context.setBucketList(bucketList);
-        executeQueryOnBuckets(this.resultColl, context);
-        //executeSequentially(this.resultColl, bucketList);
-        // success
-        //doBucketQuery(bId, this._prDs, this.query, this.parameters, this.resultColl);
       } catch (ForceReattemptException fre) {
-        bukResult.setException(fre);
+        this.exception = fre;
       } catch (QueryException e) {
-        bukResult.setException(e);
+        this.exception = e;
       } catch (CacheRuntimeException cre) {
-        bukResult.setException(cre);
+        this.exception = cre;
+      } catch (RuntimeException e) {
+        this.exception = new InternalGemFireException(LocalizedStrings.PRQueryProcessor_GOT_UNEXPECTED_EXCEPTION_WHILE_EXECUTING_QUERY_ON_PARTITIONED_REGION_BUCKET.toLocalizedString(),
+            e);
+      } finally {
+        DefaultQuery.setPdxReadSerialized(false);
+        addUsedIndexes();
       }
-      // Exception
-      return bukResult;
     }
-    
+
     /**
-      * Encapsulates the result for the query on the bucket.
-     * 
+     * Moves the indexes this thread used to the map of the thread executing
+     * the query, so that they show up in its query trace.
      */
-    private final class BucketQueryResult {
-      
-      private int _buk;
-      private Exception _ex = null;
-      public boolean retry = false;
-      
-      /**
-        * Constructor
-       * 
-       * @param bukId
-       */
-      public BucketQueryResult(int bukId) {
-        this._buk = bukId;
-      }
-      
-      public Exception getException()
-      {
-        return _ex;
+    private void addUsedIndexes() {
+      QueryObserver observer = QueryObserverHolder.getInstance();
+      if (this.callerIndexes == null || !(observer instanceof IndexTrackingQueryObserver)) {
+        return;
       }
-      
-      public boolean exceptionOccured()
-      {
-        return _ex != null;
+      IndexTrackingQueryObserver indexObserver = (IndexTrackingQueryObserver)observer;
+      synchronized (this.callerIndexes) {
+        PRQueryProcessor.addUsedIndexes(indexObserver.getUsedIndexes(), this.callerIndexes);
       }
-      
-      public void setException(Exception e)
-      {
-        this._ex = e;
-      }
-      
-      public Integer getBucketId()
-      {
-        return Integer.valueOf(this._buk);
-      }
-      
-      public boolean isReattemptNeeded() {
-        return this._ex instanceof ForceReattemptException;
-      }
-      
-      public void handleAndThrowException() throws QueryException
-      {
-        if (_ex != null) {
-          if (_ex instanceof QueryException) {
-            throw (QueryException)_ex;
-          }
-          else if (_ex instanceof CacheRuntimeException) {
-            throw (CacheRuntimeException)_ex;
-          }
+      indexObserver.setIndexInfo(null);
+    }
+
+    void handleAndThrowException() throws QueryException, ForceReattemptException {
+      if (this.exception != null) {
+        if (this.exception instanceof QueryException) {
+          throw (QueryException)this.exception;
+        } else if (this.exception instanceof ForceReattemptException) {
+          throw (ForceReattemptException)this.exception;
+        } else if (this.exception instanceof RuntimeException) {
+          throw (RuntimeException)this.exception;
         }
       }
-    }  
+    }
   }
 }
 
@@ -981,6 +981,7 @@ public class PartitionedRegionQueryEvaluator extends StreamingPartitionOperation
           queryTraceInfo.setNumResults(queryTraceInfo.calculateNumberOfResults(resultCollector));
           queryTraceInfo.setTimeInMillis((NanoTimer.getTime() - startTime) / 1.0e6f);
           queryTraceInfo.setSender(me);
+          queryTraceInfo.setParallelism(qp.getParallelism());
           //Due to the way trace info is populated, we will rely on the query execution logging
           //index usage for us.
           prQueryTraceInfoList.add(queryTraceInfo);        
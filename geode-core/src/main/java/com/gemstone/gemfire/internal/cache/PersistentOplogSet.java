@@ -451,45 +451,92 @@ public class PersistentOplogSet implements OplogSet {
     }
     if (oplogSet.size() > 0) {
       long startOpLogRecovery = System.currentTimeMillis();
-      // first figure out all entries that have been destroyed
-      boolean latestOplog = true;
-      for (Oplog oplog: oplogSet) {
-        byteCount += oplog.recoverDrf(deletedIds,
-                                      this.alreadyRecoveredOnce.get(),
-                                      latestOplog);
-        latestOplog = false;
-        if (!this.alreadyRecoveredOnce.get()) {
-          updateOplogEntryId(oplog.getMaxRecoveredOplogEntryId());
-        }
+      long startByteCount = byteCount;
+      long startEntryCount = parent.getStats().getRecoveredEntries();
+      int parallelism = parent.getRecoveryParallelism();
+      OplogPrefetcher prefetcher = null;
+      if (parallelism > 1 && oplogSet.size() > 1) {
+        prefetcher = new OplogPrefetcher(parent.getName(), parallelism);
       }
-      parent.incDeadRecordCount(deletedIds.size());
-      // now figure out live entries
-      latestOplog = true;
-      for (Oplog oplog: oplogSet) {
-        long startOpLogRead = parent.getStats().startOplogRead();
-        long bytesRead = oplog.recoverCrf(deletedIds,
-                                          // @todo make recoverValues per region
-                                          recoverValues(),
-                                          recoverValuesSync(),
-                                          this.alreadyRecoveredOnce.get(),
-                                          oplogsNeedingValueRecovery, 
-                                          latestOplog);
-        latestOplog = false;
-        if (!this.alreadyRecoveredOnce.get()) {
-          updateOplogEntryId(oplog.getMaxRecoveredOplogEntryId());
+      final int readThreads = prefetcher != null ? parallelism : 1;
+      try {
+        // first figure out all entries that have been destroyed
+        if (prefetcher != null) {
+          List<List<File>> drfs = new ArrayList<List<File>>(oplogSet.size());
+          for (Oplog oplog: oplogSet) {
+            List<File> files = new ArrayList<File>(1);
+            if (oplog.getDrfFileForRecovery() != null) {
+              files.add(oplog.getDrfFileForRecovery());
+            }
+            drfs.add(files);
+          }
+          prefetcher.start(drfs);
         }
-        byteCount += bytesRead;
-        parent.getStats().endOplogRead(startOpLogRead, bytesRead);
-        
-        //Callback to the disk regions to indicate the oplog is recovered
-        //Used for offline export
-        for (DiskRecoveryStore drs: this.currentRecoveryMap.values()) {
-          drs.getDiskRegionView().oplogRecovered(oplog.oplogId);
+        boolean latestOplog = true;
+        for (Oplog oplog: oplogSet) {
+          byteCount += oplog.recoverDrf(deletedIds,
+                                        this.alreadyRecoveredOnce.get(),
+                                        latestOplog);
+          latestOplog = false;
+          if (!this.alreadyRecoveredOnce.get()) {
+            updateOplogEntryId(oplog.getMaxRecoveredOplogEntryId());
+          }
+          if (prefetcher != null) {
+            prefetcher.advance();
+          }
+        }
+        parent.incDeadRecordCount(deletedIds.size());
+        // now figure out live entries
+        if (prefetcher != null) {
+          List<List<File>> crfs = new ArrayList<List<File>>(oplogSet.size());
+          for (Oplog oplog: oplogSet) {
+            crfs.add(oplog.getCrfFilesForRecovery(recoverValuesSync()));
+          }
+          prefetcher.start(crfs);
+        }
+        latestOplog = true;
+        for (Oplog oplog: oplogSet) {
+          long startOpLogRead = parent.getStats().startOplogRead();
+          long bytesRead = oplog.recoverCrf(deletedIds,
+                                            // @todo make recoverValues per region
+                                            recoverValues(),
+                                            recoverValuesSync(),
+                                            this.alreadyRecoveredOnce.get(),
+                                            oplogsNeedingValueRecovery, 
+                                            latestOplog);
+          latestOplog = false;
+          if (!this.alreadyRecoveredOnce.get()) {
+            updateOplogEntryId(oplog.getMaxRecoveredOplogEntryId());
+          }
+          byteCount += bytesRead;
+          parent.getStats().endOplogRead(startOpLogRead, bytesRead);
+          if (prefetcher != null) {
+            prefetcher.advance();
+          }
+          
+          //Callback to the disk regions to indicate the oplog is recovered
+          //Used for offline export
+          for (DiskRecoveryStore drs: this.currentRecoveryMap.values()) {
+            drs.getDiskRegionView().oplogRecovered(oplog.oplogId);
+          }
+        }
+      } finally {
+        if (prefetcher != null) {
+          prefetcher.close();
         }
       }
       long endOpLogRecovery = System.currentTimeMillis();
       long elapsed = endOpLogRecovery - startOpLogRecovery;
       logger.info(LocalizedMessage.create(LocalizedStrings.DiskRegion_OPLOG_LOAD_TIME, elapsed));
+      long bytesRecovered = byteCount - startByteCount;
+      long entriesRecovered = parent.getStats().getRecoveredEntries() - startEntryCount;
+      long elapsedForRate = Math.max(1, elapsed);
+      long bytesPerSecond = bytesRecovered * 1000 / elapsedForRate;
+      long entriesPerSecond = entriesRecovered * 1000 / elapsedForRate;
+      parent.getStats().setRecoveryThroughput(bytesPerSecond, entriesPerSecond);
+      logger.info(LocalizedMessage.create(LocalizedStrings.DiskStoreImpl_RECOVERED_0_BYTES_AND_1_ENTRIES_FROM_2_OPLOGS_OF_3_IN_4_MS,
+          new Object[] { bytesRecovered, entriesRecovered, oplogSet.size(), parent.getName(), elapsed, bytesPerSecond,
+              entriesPerSecond, readThreads }));
     }
     if (!parent.isOfflineCompacting()) {
       long startRegionInit = System.currentTimeMillis();
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.gemstone.gemfire.internal.cache.versions.RegionVersionVector;
+import com.gemstone.gemfire.internal.cache.versions.VersionSource;
+import com.gemstone.gemfire.internal.cache.versions.VersionTag;
+
+/**
+ * A bounded log of the latest version tag of the most recently changed keys
+ * of a persistent region. An image provider uses it to send a requester
+ * only the keys whose versions it is missing, even after the tombstones of
+ * destroyed entries have been garbage collected.
+ * <p>
+ * For each member the log keeps a floor version. Every change the member
+ * made above its floor is in the log. The floors start at the region's
+ * version vector when the log is reset, and they rise as the least recently
+ * changed keys are evicted. The log can give a delta to any requester that
+ * has seen every version up to the floors.
+ *
+ * @since 9.0
+ */
+final class RegionChangeLog {
+
+  private final int maxSize;
+
+  /** the ID used for versions generated by this member */
+  private final VersionSource<?> ownerId;
+
+  /** key to the latest version tag of the key, least recently changed first */
+  private final LinkedHashMap<Object, VersionTag<?>> changes;
+
+  /** member to floor version, null until the log is first reset */
+  private Map<VersionSource<?>, Long> floors;
+
+  RegionChangeLog(int maxSize, VersionSource<?> ownerId) {
+    this.maxSize = maxSize;
+    this.ownerId = ownerId;
+    this.changes = new LinkedHashMap<Object, VersionTag<?>>(16, 0.75f, true);
+  }
+
+  /**
+   * Records the version of a change applied to the given key.
+   */
+  synchronized void record(Object key, VersionTag<?> tag) {
+    this.changes.put(key, tag);
+    if (this.changes.size() > this.maxSize) {
+      Iterator<VersionTag<?>> it = this.changes.values().iterator();
+      VersionTag<?> evicted = it.next();
+      it.remove();
+      if (this.floors != null) {
+        VersionSource<?> member = getMemberID(evicted);
+        Long floor = this.floors.get(member);
+        if (floor == null || floor.longValue() < evicted.getRegionVersion()) {
+          this.floors.put(member, evicted.getRegionVersion());
+        }
+      }
+    }
+  }
+
+  /**
+   * Empties the log and sets the floors to the versions of the given vector.
+   * Called once changes are being recorded, so that a change is either in
+   * the log or below a floor.
+   */
+  synchronized void reset(RegionVersionVector<?> rvv) {
+    this.changes.clear();
+    this.floors = getVersions(rvv);
+  }
+
+  private static <T extends VersionSource<?>> Map<VersionSource<?>, Long> getVersions(
+      RegionVersionVector<T> rvv) {
+    Map<VersionSource<?>, Long> versions = new HashMap<VersionSource<?>, Long>();
+    for (T member: rvv.getMemberToVersion().keySet()) {
+      versions.put(member, rvv.getVersionForMember(member));
+    }
+    return versions;
+  }
+
+  /**
+   * Returns the keys, with their latest version tags, whose latest versions
+   * the given vector has not seen. Returns null if the log can not tell
+   * because the vector is missing versions at or below the floors.
+   */
+  synchronized Map<Object, VersionTag<?>> getChangesMissingFrom(RegionVersionVector<?> rvv) {
+    if (this.floors == null) {
+      return null;
+    }
+    return basicGetChangesMissingFrom(rvv);
+  }
+
+  private <T extends VersionSource<?>> Map<Object, VersionTag<?>> basicGetChangesMissingFrom(
+      RegionVersionVector<T> rvv) {
+    Map<T, Long> floorVersions = new HashMap<T, Long>();
+    for (Map.Entry<VersionSource<?>, Long> floor: this.floors.entrySet()) {
+      floorVersions.put(asMemberOf(rvv, floor.getKey()), floor.getValue());
+    }
+    if (!rvv.containsVersionsUpTo(floorVersions)) {
+      return null;
+    }
+    Map<Object, VersionTag<?>> result = new HashMap<Object, VersionTag<?>>();
+    for (Map.Entry<Object, VersionTag<?>> entry: this.changes.entrySet()) {
+      VersionTag<?> tag = entry.getValue();
+      if (!rvv.contains(asMemberOf(rvv, getMemberID(tag)), tag.getRegionVersion())) {
+        result.put(entry.getKey(), tag);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the given member as a member of the given vector. The members of
+   * the log come from the tags and vector of the same region, so they have
+   * the vector's member type.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T extends VersionSource<?>> T asMemberOf(RegionVersionVector<T> rvv,
+      VersionSource<?> member) {
+    return (T)member;
+  }
+
+  synchronized int size() {
+    return this.changes.size();
+  }
+
+  synchronized Long getFloor(VersionSource<?> member) {
+    return this.floors == null ? null : this.floors.get(member);
+  }
+
+  private VersionSource<?> getMemberID(VersionTag<?> tag) {
+    VersionSource<?> member = tag.getMemberID();
+    return member == null ? this.ownerId : member;
+  }
+}
@@ -50,6 +50,7 @@ import com.gemstone.gemfire.internal.cache.PartitionedRegion;
 import com.gemstone.gemfire.internal.cache.control.ResourceAdvisor.ResourceManagerProfile;
 import com.gemstone.gemfire.internal.cache.partitioned.LoadProbe;
 import com.gemstone.gemfire.internal.cache.partitioned.SizedBasedLoadProbe;
+import com.gemstone.gemfire.internal.cache.partitioned.rebalance.TransferRateLimiter;
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
 import com.gemstone.gemfire.internal.logging.LogService;
 import com.gemstone.gemfire.internal.logging.LoggingThreadGroup;
@@ -90,6 +91,9 @@ public class InternalResourceManager implements ResourceManager {
   private final ResourceManagerStats stats;
   private final ResourceAdvisor resourceAdvisor;
   private boolean closed = true;
+
+  /** the bandwidth budget shared by the rebalance operations of this member */
+  private final TransferRateLimiter transferRateLimiter = new TransferRateLimiter();
   
   private final Map<ResourceType, ResourceMonitor> resourceMonitors;
   
@@ -526,6 +530,15 @@ public class InternalResourceManager implements ResourceManager {
     return this.resourceAdvisor;
   }
 
+  /**
+   * Returns the limiter that paces the bucket transfers of the rebalance
+   * operations this member runs.
+   * @since 9.0
+   */
+  public TransferRateLimiter getTransferRateLimiter() {
+    return this.transferRateLimiter;
+  }
+
   public LoadProbe getLoadProbe() {
     return this.loadProbe;
   }
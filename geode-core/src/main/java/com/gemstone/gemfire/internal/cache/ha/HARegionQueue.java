@@ -21,6 +21,7 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
@@ -39,6 +40,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.logging.log4j.Logger;
@@ -109,8 +111,13 @@ import com.gemstone.gemfire.i18n.StringId;
  * This class has a field idsAvailable which is guraded by a
  * ReentrantReadWriteLock. The peek threads which do not modify the idsAvailable
  * LinkedhashSet take read lock , thereby increasing the concurrency of peek
- * operations. The threads like take, remove, QRM ,put& expiry take a write lock
+ * operations. The threads like take, remove, QRM & expiry take a write lock
  * while operating on the set. <BR>
+ * Put threads do not take the lock. They append the position of the new event
+ * to a lock free queue of published positions which is moved into
+ * idsAvailable, in order, by the next thread that operates on the set. Events
+ * removed together, as after a batch peek, are taken off the set under a
+ * single acquisition of the lock. <BR>
  * <B>This class is performant for multiple dispatchers that are trying to do
  * non blocking peek </B> <br>
  * For Blocking operations the object should be of type BlockingHARegionQueue.
@@ -188,7 +195,18 @@ public class HARegionQueue implements RegionQueue
   /**
    * Accesses to this set must be protected via the rwLock.
    */
-  protected LinkedHashSet idsAvailable;
+  protected LinkedHashSet<Long> idsAvailable;
+
+  /**
+   * Positions published by put threads which have not been moved to
+   * idsAvailable yet. Put threads append to it without taking the rwLock and
+   * it is drained into idsAvailable by the next thread which holds the write
+   * lock, so idsAvailable keeps the order in which the positions were
+   * published.
+   * 
+   * @since 9.0
+   */
+  private final ConcurrentLinkedQueue<Long> publishedIds = new ConcurrentLinkedQueue<Long>();
 
   /**
    * Map of HA queue region-name and value as a MapWrapper object (whose
@@ -226,7 +244,7 @@ public class HARegionQueue implements RegionQueue
    * a particular thread. When <code>remove()</code> will be called, these
    * events stored in thread-local will be destroyed.
    */
-  protected static final ThreadLocal peekedEventsContext = new ThreadLocal();
+  protected static final ThreadLocal<List<Long>> peekedEventsContext = new ThreadLocal<List<Long>>();
 
   /**
    * Thread which creates the <code>QueueRemovalMessage</code> and sends it to
@@ -377,7 +395,7 @@ public class HARegionQueue implements RegionQueue
 
     String processedRegionName = createRegionName(regionName);
     this.threadIdToSeqId = new MapWrapper();
-    this.idsAvailable = new LinkedHashSet();
+    this.idsAvailable = new LinkedHashSet<Long>();
     this.regionName = processedRegionName;
     setClientConflation(clientConflation);
     this.isPrimary = isPrimary;
@@ -1101,10 +1119,10 @@ public class HARegionQueue implements RegionQueue
   /**
    * This method adds the position of newly added object to the List of
    * available IDs so that it is avaialble for peek or take. This method is
-   * called from DispatchedAndCurrentEvents object. This method is invoked in a
-   * write lock for non blocking queue & in a reentrant lock in a blocking
-   * queue. In case of blokcing queue , this method also signals the waiting
-   * take & peek threads to awake.
+   * called from DispatchedAndCurrentEvents object. The position is appended to
+   * the published positions without taking any lock, it is moved to the
+   * idsAvailable set by {@link #drainPublishedIds()}. In case of blokcing
+   * queue , this method also signals the waiting take & peek threads to awake.
    * <p>author Asif
    * 
    * @param position
@@ -1113,12 +1131,45 @@ public class HARegionQueue implements RegionQueue
    */
   void publish(Long position) throws InterruptedException 
   {
+    this.publishedIds.add(position);
+    //Asif:Notify the wiating peek threads or take threads of blocking queue
+    //A void operation for the non blocking queue operations
+    notifyPeekAndTakeThreads();
+  }
+
+  /**
+   * Moves the positions published by put threads to the idsAvailable set.
+   * Caller must hold the write lock.
+   * 
+   * @since 9.0
+   */
+  void drainPublishedIds()
+  {
+    Long position;
+    while ((position = this.publishedIds.poll()) != null) {
+      this.idsAvailable.add(position);
+    }
+  }
+
+  /**
+   * Acquires the read lock once the published positions have been moved to
+   * the idsAvailable set, so that a reader sees every put which completed
+   * before it. Must not be called by a thread which already holds the read
+   * lock.
+   * 
+   * @since 9.0
+   */
+  void acquireReadLockAfterDraining()
+  {
+    if (this.publishedIds.isEmpty()) {
+      acquireReadLock();
+      return;
+    }
     acquireWriteLock();
     try {
-      this.idsAvailable.add(position);
-      //Asif:Notify the wiating peek threads or take threads of blocking queue
-      //A void operation for the non blocking queue operations
-      notifyPeekAndTakeThreads();
+      drainPublishedIds();
+      // downgrade to the read lock
+      acquireReadLock();
     }
     finally {
       releaseWriteLock();
@@ -1146,6 +1197,7 @@ public class HARegionQueue implements RegionQueue
     boolean removedOK = false;
     acquireWriteLock();
     try {
+      drainPublishedIds();
       removedOK = this.idsAvailable.remove(position);
       if (!removedOK) {
         removedOK = this.removeFromOtherLists(position);
@@ -1178,25 +1230,63 @@ public class HARegionQueue implements RegionQueue
     boolean removedOK = this.destroyFromAvailableIDs(position);
 
     if (removedOK) {
-      try {
-        this.destroyFromQueue(position);
+      this.destroyRemovedPositionFromQueue(position);
+    }
+    return removedOK;
+  }
+
+  /**
+   * Removes the given positions from the AvailableID Set. The write lock is
+   * acquired once for the whole batch.
+   * 
+   * @param positions
+   *          Long position counters of the entries to be removed
+   * @return the positions which were present in the Set and have been removed
+   * @throws InterruptedException
+   * @since 9.0
+   */
+  Set<Long> destroyFromAvailableIDs(Collection<Long> positions) throws InterruptedException
+  {
+    Set<Long> removed = new HashSet<Long>(positions.size());
+    acquireWriteLock();
+    try {
+      drainPublishedIds();
+      for (Long position : positions) {
+        if (this.idsAvailable.remove(position) || this.removeFromOtherLists(position)) {
+          removed.add(position);
+          this.incrementTakeSidePutPermits();
+        }
       }
-      catch (EntryNotFoundException enfe) {
-        //if (!this.region.isDestroyed()) {
-        //if (!HARegionQueue.this.destroyInProgress || !this.region.isDestroyed()) {
-        if(!HARegionQueue.this.destroyInProgress){
-          if(!this.region.isDestroyed()){
-            Assert
-            .assertTrue(
-                false,
-                "HARegionQueue::remove: The position "
-                    + position
-                    + "existed in availableIDs set but not in Region object is not expected");
-          }
+    }
+    finally {
+      releaseWriteLock();
+    }
+    return removed;
+  }
+
+  /**
+   * Destroys the entry at a position which has been removed from the
+   * AvailableID Set.
+   */
+  void destroyRemovedPositionFromQueue(Long position)
+  {
+    try {
+      this.destroyFromQueue(position);
+    }
+    catch (EntryNotFoundException enfe) {
+      //if (!this.region.isDestroyed()) {
+      //if (!HARegionQueue.this.destroyInProgress || !this.region.isDestroyed()) {
+      if(!HARegionQueue.this.destroyInProgress){
+        if(!this.region.isDestroyed()){
+          Assert
+          .assertTrue(
+              false,
+              "HARegionQueue::remove: The position "
+                  + position
+                  + "existed in availableIDs set but not in Region object is not expected");
         }
       }
     }
-    return removedOK;
   }
   
   /*
@@ -1243,6 +1333,7 @@ public class HARegionQueue implements RegionQueue
     Long next = null;
     acquireWriteLock();
     try {
+      drainPublishedIds();
       if (this.idsAvailable.isEmpty()) {
         if (waitForData()) {
           Iterator itr = this.idsAvailable.iterator();
@@ -1278,16 +1369,16 @@ public class HARegionQueue implements RegionQueue
   private Long getNextAvailableID() throws InterruptedException
   {
     Long next = null;
-    acquireReadLock();
+    acquireReadLockAfterDraining();
     try {
       if (this.idsAvailable.isEmpty()) {
         //Asif:Wait in case it is a blocking thread
         if (waitForData()) {
-          next = (Long)this.idsAvailable.iterator().next();
+          next = this.idsAvailable.iterator().next();
         }
       }
       else {
-        next = (Long)this.idsAvailable.iterator().next();
+        next = this.idsAvailable.iterator().next();
       }
     }
     finally {
@@ -1443,6 +1534,10 @@ public class HARegionQueue implements RegionQueue
       }
     }
 
+    // the events of every ThreadIdentifier are taken off the available IDs
+    // together so that the lock is acquired once for the batch
+    Map<DispatchedAndCurrentEvents, List<?>> eventsToRemove = new HashMap<DispatchedAndCurrentEvents, List<?>>();
+    List<Long> countersToRemove = new ArrayList<Long>(peekedIds.size());
     for (Iterator iter = groupedThreadIDs.entrySet().iterator(); iter.hasNext();) {
       Map.Entry element = (Map.Entry)iter.next();
       ThreadIdentifier tid = (ThreadIdentifier)element.getKey();
@@ -1451,13 +1546,11 @@ public class HARegionQueue implements RegionQueue
       DispatchedAndCurrentEvents dace = (DispatchedAndCurrentEvents)this.eventsMap
           .get(tid);
       if (dace != null && dace.lastDispatchedSequenceId < lastDispatchedId) {
-        try {
-          dace.setLastDispatchedIDAndRemoveEvents(removedEvents,
-              lastDispatchedId);
-        }
-        catch (CacheException e) {
-          // ignore and log
-          logger.error(LocalizedMessage.create(LocalizedStrings.HARegionQueue_EXCEPTION_OCCURED_WHILE_TRYING_TO_SET_THE_LAST_DISPATCHED_ID), e);
+        if (dace.setLastDispatchedID(lastDispatchedId)) {
+          eventsToRemove.put(dace, removedEvents);
+          for (Iterator<?> it = removedEvents.iterator(); it.hasNext();) {
+            countersToRemove.add(((RemovedEventInfo)it.next()).counter);
+          }
         }
       }
 
@@ -1466,6 +1559,18 @@ public class HARegionQueue implements RegionQueue
       //addDispatchedMessage(tid, lastDispatchedId);
     }
     groupedThreadIDs = null;
+    if (!countersToRemove.isEmpty()) {
+      Set<Long> removedCounters = destroyFromAvailableIDs(countersToRemove);
+      for (Map.Entry<DispatchedAndCurrentEvents, List<?>> entry : eventsToRemove.entrySet()) {
+        try {
+          entry.getKey().removeEvents(entry.getValue(), removedCounters);
+        }
+        catch (CacheException e) {
+          // ignore and log
+          logger.error(LocalizedMessage.create(LocalizedStrings.HARegionQueue_EXCEPTION_OCCURED_WHILE_TRYING_TO_SET_THE_LAST_DISPATCHED_ID), e);
+        }
+      }
+    }
     // removed the events from queue, now clear the peekedEventsContext
     
     setPeekedEvents();
@@ -1530,6 +1635,21 @@ public class HARegionQueue implements RegionQueue
     return peek(batchSize, -1);
   }
 
+  /**
+   * Peeks up to maxSize events that are already in the queue without waiting
+   * for more. The events are removed by a subsequent {@link #remove()} just as
+   * the ones returned by {@link #peek()} are, so a dispatcher can mix the two.
+   *
+   * @param maxSize the maximum number of events to peek
+   * @return the events peeked; empty if the queue is empty
+   * @since 9.0
+   */
+  public List<?> peekAvailable(int maxSize) throws InterruptedException
+  {
+    if (Thread.interrupted()) throw new InterruptedException();
+    return doReturn(0, maxSize);
+  }
+
   /**
    * Return a batch of minimum specified size
    * 
@@ -1537,7 +1657,7 @@ public class HARegionQueue implements RegionQueue
    * @return null if minimum was not present
    */
   private List doReturn(int minSize, int maxSize) {
-    acquireReadLock();
+    acquireReadLockAfterDraining();
     try {
       int numToReturn = this.idsAvailable.size();
       if (numToReturn < minSize) {
@@ -1858,7 +1978,7 @@ public class HARegionQueue implements RegionQueue
    */
   Set getAvalaibleIds()
   {
-    acquireReadLock();
+    acquireReadLockAfterDraining();
     try {
       return Collections.unmodifiableSet(this.idsAvailable);
     }
@@ -1925,7 +2045,7 @@ public class HARegionQueue implements RegionQueue
 
   public int size()
   {
-    acquireReadLock();
+    acquireReadLockAfterDraining();
     try {
       return this.idsAvailable.size();
     }
@@ -1998,7 +2118,7 @@ public class HARegionQueue implements RegionQueue
    * @return true if the queue is empty, false if not
    */
   public boolean isEmpty() {
-    acquireReadLock();
+    acquireReadLockAfterDraining();
     try {
       return internalIsEmpty();
     } finally {
@@ -2011,7 +2131,7 @@ public class HARegionQueue implements RegionQueue
    * overridden in the BlockingHARegionQueue class which acquires the lock on a
    * ReentrantLock instead of ReentrantReadWriteLock of this class. A write lock
    * is aquired by any thread which intends to modify the idsAvailable HashSet ,
-   * which can be either a put ,remove , take , QRM message or expiry thread
+   * which can be either a remove , take , QRM message or expiry thread
    *
    * All invocations of this method need to have {@link #releaseWriteLock()} in
    * a matching finally block.
@@ -2256,7 +2376,7 @@ public class HARegionQueue implements RegionQueue
   }
   
   public void closeClientCq(ClientProxyMembershipID clientId, InternalCqQuery cqToClose) {
-    acquireReadLock();
+    acquireReadLockAfterDraining();
     try {
       //Get all available Ids for the HA Region Queue
       Object[] availableIds = this.availableIDsArray();
@@ -2313,7 +2433,10 @@ public class HARegionQueue implements RegionQueue
    * enables the condition object of the ReentrantLock used to guard the
    * idsAvailable Set for notifying blocking peek & take operations. Previously
    * a separate Lock object was used by the BlockingQueue for wait notify. This
-   * class will be performant if there is a single peek thread.
+   * class will be performant if there is a single peek thread. Put threads
+   * only acquire the lock when a peek or take thread is waiting for data, and
+   * only the put thread which has run out of put permits synchronizes on the
+   * permitMon.
    * 
    *  
    */
@@ -2332,9 +2455,10 @@ public class HARegionQueue implements RegionQueue
     private int putPermits;
 
     /**
-     * Current take permits available
+     * Current take permits available. Take and remove threads add to it
+     * without a lock so that they do not contend with put threads.
      */
-    private int takeSidePutPermits = 0;
+    private final AtomicInteger takeSidePutPermits = new AtomicInteger();
 
     /**
      * Lock on which the put thread waits for permit & on which take/remove
@@ -2342,6 +2466,18 @@ public class HARegionQueue implements RegionQueue
      */
     private final Object permitMon = new Object();
 
+    /**
+     * True while a put thread holds the permitMon waiting for permits. Take
+     * and remove threads only notify the permitMon when it is set.
+     */
+    private volatile boolean putWaiting;
+
+    /**
+     * Number of peek & take threads waiting on the blockCond. Put threads only
+     * take the lock to signal the condition when it is non zero.
+     */
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+
     //Lock on which the take & remove threads block awaiting data from put
     // operations
     private final StoppableReentrantLock lock;
@@ -2421,42 +2557,50 @@ public class HARegionQueue implements RegionQueue
         synchronized (this.putGuard) {
           if (putPermits <= 0) {
             synchronized (this.permitMon) {
-              if (reconcilePutPermits() <= 0) {
-                if (region.getSystem().getConfig().getRemoveUnresponsiveClient()) {
-                  isClientSlowReciever = true;
-                } else {
-                  try {
-                    long logFrequency = CacheClientNotifier.DEFAULT_LOG_FREQUENCY;
-                    CacheClientNotifier ccn = CacheClientNotifier.getInstance();
-                    if (ccn != null) { // check needed for junit tests
-                      logFrequency = ccn.getLogFrequency();
-                    }
-                    if ((this.maxQueueSizeHitCount % logFrequency) == 0) {
-                      logger.warn(LocalizedMessage.create(LocalizedStrings.HARegionQueue_CLIENT_QUEUE_FOR_0_IS_FULL, new Object[] {region.getName()}));
-                      this.maxQueueSizeHitCount = 0;
-                    }
-                    ++this.maxQueueSizeHitCount;
+              // set before looking at the take side permits so that a
+              // take/remove thread adding to them will notify us
+              this.putWaiting = true;
+              try {
+                if (reconcilePutPermits() <= 0) {
+                  if (region.getSystem().getConfig().getRemoveUnresponsiveClient()) {
+                    isClientSlowReciever = true;
+                  } else {
+                    try {
+                      long logFrequency = CacheClientNotifier.DEFAULT_LOG_FREQUENCY;
+                      CacheClientNotifier ccn = CacheClientNotifier.getInstance();
+                      if (ccn != null) { // check needed for junit tests
+                        logFrequency = ccn.getLogFrequency();
+                      }
+                      if ((this.maxQueueSizeHitCount % logFrequency) == 0) {
+                        logger.warn(LocalizedMessage.create(LocalizedStrings.HARegionQueue_CLIENT_QUEUE_FOR_0_IS_FULL, new Object[] {region.getName()}));
+                        this.maxQueueSizeHitCount = 0;
+                      }
+                      ++this.maxQueueSizeHitCount;
 //                    for (;;) {
-                      this.region.checkReadiness(); // fix for bug 37581
-                      this.permitMon.wait(CacheClientNotifier.eventEnqueueWaitTime);
-                      this.region.checkReadiness(); // fix for bug 37581
-                      // Fix for #51400. Allow the queue to grow beyond its
-                      // capacity/maxQueueSize, if it is taking a long time to
-                      // drain the queue, either due to a slower client or the
-                      // deadlock scenario mentioned in the ticket.
-                      reconcilePutPermits();
+                        this.region.checkReadiness(); // fix for bug 37581
+                        this.permitMon.wait(CacheClientNotifier.eventEnqueueWaitTime);
+                        this.region.checkReadiness(); // fix for bug 37581
+                        // Fix for #51400. Allow the queue to grow beyond its
+                        // capacity/maxQueueSize, if it is taking a long time to
+                        // drain the queue, either due to a slower client or the
+                        // deadlock scenario mentioned in the ticket.
+                        reconcilePutPermits();
 //                    }
-                    if ((this.maxQueueSizeHitCount % logFrequency) == 1) {
-                      logger.info(LocalizedMessage.create(LocalizedStrings.HARegionQueue_RESUMING_WITH_PROCESSING_PUTS));
+                      if ((this.maxQueueSizeHitCount % logFrequency) == 1) {
+                        logger.info(LocalizedMessage.create(LocalizedStrings.HARegionQueue_RESUMING_WITH_PROCESSING_PUTS));
+                      }
+                    } catch (InterruptedException ex) {
+                      // TODO:Asif: The line below is meaningless. Comment it out
+                      // later
+                      this.permitMon.notify();
+                      throw ex;
                     }
-                  } catch (InterruptedException ex) {
-                    // TODO:Asif: The line below is meaningless. Comment it out
-                    // later
-                    this.permitMon.notify();
-                    throw ex;
                   }
                 }
               }
+              finally {
+                this.putWaiting = false;
+              }
             }  // synchronized (this.permitMon)
           }  // if (putPermits <= 0)
           --putPermits;
@@ -2474,8 +2618,7 @@ public class HARegionQueue implements RegionQueue
     private int reconcilePutPermits()
     {
 
-      putPermits += takeSidePutPermits;
-      takeSidePutPermits = 0;
+      putPermits += takeSidePutPermits.getAndSet(0);
       return putPermits;
     }
 
@@ -2495,9 +2638,7 @@ public class HARegionQueue implements RegionQueue
     @Override
     void incrementTakeSidePutPermitsWithoutNotify()
     {
-      synchronized (this.permitMon) {
-        ++this.takeSidePutPermits;
-      }
+      this.takeSidePutPermits.incrementAndGet();
     }
 
     /**
@@ -2513,10 +2654,12 @@ public class HARegionQueue implements RegionQueue
     void incrementTakeSidePutPermits()
     {
       if (this.haContainer instanceof HAContainerMap && isPrimary()) { // Fix for bug 39413
-      synchronized (this.permitMon) {
-        ++this.takeSidePutPermits;
-        this.permitMon.notify();
-      }
+        this.takeSidePutPermits.incrementAndGet();
+        if (this.putWaiting) {
+          synchronized (this.permitMon) {
+            this.permitMon.notify();
+          }
+        }
       }
     }
 
@@ -2542,15 +2685,23 @@ public class HARegionQueue implements RegionQueue
 
     /**
      * This method is called by the publish method when a valid Long position is
-     * added to the idsAvailable set. It should always be called after acquiring
-     * the ReentrantLock. It notifies the waiting peek & take threads.
+     * published. It acquires the ReentrantLock and notifies the waiting peek &
+     * take threads, if there are any.
      * 
      * <p>author Asif
      */
     @Override
     void notifyPeekAndTakeThreads()
     {
-      blockCond.signalAll();
+      if (this.waitingThreads.get() > 0) {
+        this.lock.lock();
+        try {
+          blockCond.signalAll();
+        }
+        finally {
+          this.lock.unlock();
+        }
+      }
     }
 
     /**
@@ -2569,8 +2720,14 @@ public class HARegionQueue implements RegionQueue
       while (this.internalIsEmpty()) {
         region.getCache().getCancelCriterion().checkCancelInProgress(null);
         boolean interrupted = Thread.currentThread().isInterrupted();
+        this.waitingThreads.incrementAndGet();
         try {
-           blockCond.await();
+          // a put which did not see this thread waiting has published its
+          // position before the drain
+          drainPublishedIds();
+          if (this.internalIsEmpty()) {
+            blockCond.await();
+          }
         }
         catch (InterruptedException ie) {
           interrupted = true;
@@ -2578,8 +2735,10 @@ public class HARegionQueue implements RegionQueue
           throw new TimeoutException(ie);
         }
         finally {
+          this.waitingThreads.decrementAndGet();
           if (interrupted) Thread.currentThread().interrupt();
         }
+        drainPublishedIds();
       }
       return true;
     }
@@ -2626,7 +2785,7 @@ public class HARegionQueue implements RegionQueue
 
   private static class DurableHARegionQueue extends BlockingHARegionQueue {
     
-    private LinkedHashSet durableIDsList = null;
+    private LinkedHashSet<Long> durableIDsList = null;
     LinkedList unremovedElements = null;
     HashMap currDurableMap = null;
     
@@ -2639,7 +2798,7 @@ public class HARegionQueue implements RegionQueue
       super(regionName, cache, hrqa, haContainer, clientProxyId, clientConflation, isPrimary);
 
       this.threadIdToSeqId.keepPrevAcks = true;
-      this.durableIDsList = new LinkedHashSet();
+      this.durableIDsList = new LinkedHashSet<Long>();
       this.ackedEvents = new HashMap();
       this.initialized.set(true);
       
@@ -2661,6 +2820,7 @@ public class HARegionQueue implements RegionQueue
       Long next = null;
       acquireWriteLock();
       try {
+        drainPublishedIds();
         if (this.idsAvailable.isEmpty()) {
           if (waitForData()) {
             Iterator itr = this.idsAvailable.iterator();
@@ -2692,6 +2852,44 @@ public class HARegionQueue implements RegionQueue
       }
     }
 
+    /**
+     * Takes the events off the available IDs the way {@link #peek()} does, so
+     * that they are removed once the client acknowledges them.
+     */
+    @Override
+    public List<?> peekAvailable(int maxSize) throws InterruptedException
+    {
+      if (Thread.interrupted()) throw new InterruptedException();
+      List<Object> batch = new ArrayList<Object>(maxSize);
+      List<Long> peekedEvents = HARegionQueue.peekedEventsContext.get();
+      if (peekedEvents == null) {
+        peekedEvents = new LinkedList<Long>();
+      }
+      acquireWriteLock();
+      try {
+        drainPublishedIds();
+        for (Iterator<Long> itr = this.idsAvailable.iterator(); itr.hasNext()
+            && batch.size() < maxSize;) {
+          Long next = itr.next();
+          itr.remove();
+          Object object = this.region.get(next);
+          if (object instanceof HAEventWrapper) {
+            object = this.haContainer.get(object);
+          }
+          if (object != null) {
+            batch.add(object);
+            peekedEvents.add(next);
+            this.durableIDsList.add(next);
+          }
+        }
+      }
+      finally {
+        releaseWriteLock();
+      }
+      HARegionQueue.peekedEventsContext.set(peekedEvents);
+      return batch;
+    }
+
     @Override
     protected boolean checkPrevAcks()
     {
@@ -2773,9 +2971,10 @@ protected boolean checkEventForRemoval(Long counter, ThreadIdentifier threadid,
           // either durableIDsList or idsAvailable.
           
           long start = System.currentTimeMillis();
+          drainPublishedIds();
           this.durableIDsList.addAll(this.idsAvailable);
           this.idsAvailable = this.durableIDsList;
-          this.durableIDsList = new LinkedHashSet();
+          this.durableIDsList = new LinkedHashSet<Long>();
           long end = System.currentTimeMillis();
           if ((end - start) > 3000) {
             logger.warn(LocalizedMessage.create(LocalizedStrings.HARegionQueue_DURABLE_CLIENT_QUEUE_INITIALIZATION_TOOK_0_MS, Long.toString(end - start)));
@@ -2822,7 +3021,7 @@ protected boolean checkEventForRemoval(Long counter, ThreadIdentifier threadid,
     @Override
     public int size()
     { 
-      acquireReadLock();
+      acquireReadLockAfterDraining();
       try {
         return this.idsAvailable.size() + this.durableIDsList.size();
       }
@@ -3556,43 +3755,55 @@ protected boolean checkEventForRemoval(Long counter, ThreadIdentifier threadid,
     }
 
     /**
-     * Invoked by the by the remove method . This method sets the LastDispatched
-     * sequence ID in the DACE & destroys all the sequence Ids which are less
-     * than the last dispatched sequence ID. The lock on the DACE is minimized
-     * by copying the Counters Set & then identifying the positions which need
-     * to be removed
+     * Invoked by the remove method. Sets the LastDispatched sequence ID in the
+     * DACE unless the current one is greater. The peeked events are then
+     * destroyed by {@link #removeEvents(List, Set)} once the remove method has
+     * taken the whole batch off the available IDs set.
      * 
-     * @param removedEventInfoList
-     *          List containing objects of RemovedEventInfo class representing
-     *          Events which have been peeked & are now candidate for removal.
-     *          It has to be guaranteed that the sequence IDs of all the other
-     *          counters is less than the last dispatched
-     * @param lastDispatchedSeqId
-     *          long indicating the last dispatched ID which gets set in a DACE
-     * @throws CacheException
-     * @throws InterruptedException
+     * @return false if the current last dispatched ID is greater than the
+     *         given one
+     * @since 9.0
      */
-    protected void setLastDispatchedIDAndRemoveEvents(List removedEventInfoList,
-        long lastDispatchedSeqId) throws CacheException, InterruptedException
+    protected boolean setLastDispatchedID(long lastDispatchedSeqId)
     {
-     
       synchronized (this) {
         if (this.lastDispatchedSequenceId > lastDispatchedSeqId) {
           // If the current last dispatched ID is greater than the new id ,
           // then do not set it
-          return;
+          return false;
         }
         this.lastDispatchedSequenceId = lastDispatchedSeqId;
-
+        return true;
       }
-      Iterator it = removedEventInfoList.iterator();
+    }
+
+    /**
+     * Destroys the peeked events whose positions have already been removed
+     * from the available IDs set and updates the counters set and the
+     * conflation map.
+     * 
+     * @param removedEventInfoList
+     *          List containing objects of RemovedEventInfo class representing
+     *          the Events to be removed
+     * @param removedCounters
+     *          the positions which were removed from the available IDs set;
+     *          the other events are counted as void removals. The positions
+     *          are taken out of this set as they are destroyed
+     * @since 9.0
+     */
+    protected void removeEvents(List<?> removedEventInfoList,
+        Set<Long> removedCounters) throws CacheException
+    {
+      Iterator<?> it = removedEventInfoList.iterator();
       while (it.hasNext()) {
         RemovedEventInfo info = (RemovedEventInfo)it.next();
         Long counter = info.counter;
         Object key = info.key;
         String r = info.regionName;
         Conflatable wrapper = (Conflatable)owningQueue.region.get(counter);
-        if (owningQueue.destroyFromAvailableIDsAndRegion(counter)) {
+        // a position peeked more than once is only destroyed once
+        if (removedCounters.remove(counter)) {
+          owningQueue.destroyRemovedPositionFromQueue(counter);
           if (key != null) {
             this.destroy(counter, key, r);
           }
@@ -3913,7 +4124,7 @@ protected boolean checkEventForRemoval(Long counter, ThreadIdentifier threadid,
   {
     try {
       Object[] wrapperArray = null;
-      acquireReadLock();
+      acquireReadLockAfterDraining();
       try {
         if (!(this.availableIDsSize() == 0)) {
           wrapperArray = this.availableIDsArray();
@@ -24,6 +24,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.logging.log4j.Logger;
@@ -54,6 +55,7 @@ import com.gemstone.gemfire.internal.cache.partitioned.rebalance.PartitionedRegi
 import com.gemstone.gemfire.internal.cache.partitioned.rebalance.PartitionedRegionLoadModel.AddressComparor;
 import com.gemstone.gemfire.internal.cache.partitioned.rebalance.RebalanceDirector;
 import com.gemstone.gemfire.internal.cache.partitioned.rebalance.SimulatedBucketOperator;
+import com.gemstone.gemfire.internal.cache.partitioned.rebalance.TransferRateLimiter;
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
 import com.gemstone.gemfire.internal.logging.LogService;
 import com.gemstone.gemfire.internal.logging.log4j.LocalizedMessage;
@@ -101,6 +103,9 @@ public class PartitionedRegionRebalanceOp {
   private volatile boolean membershipChange = false;
   
   private final RebalanceDirector director;
+
+  /** the operator that counts the transfers of a simulation */
+  private SimulatedBucketOperator simulatedOperator;
   
   /**
    * Create a rebalance operation for a single region.
@@ -192,7 +197,12 @@ public class PartitionedRegionRebalanceOp {
       GemFireCacheImpl cache = (GemFireCacheImpl) leaderRegion.getCache();
       Map<PartitionedRegion, InternalPRInfo> detailsMap = fetchDetails(cache);
       BucketOperatorWrapper serialOperator = getBucketOperator(detailsMap);
-      ParallelBucketOperator parallelOperator = new ParallelBucketOperator(MAX_PARALLEL_OPERATIONS, cache.getDistributionManager().getWaitingThreadPool(), serialOperator);
+      //the bandwidth budget is shared by all of the rebalance operations of
+      //this member, but a simulation transfers nothing and is not paced
+      TransferRateLimiter rateLimiter = resourceManager.getTransferRateLimiter();
+      ParallelBucketOperator parallelOperator = new ParallelBucketOperator(MAX_PARALLEL_OPERATIONS,
+          cache.getDistributionManager().getWaitingThreadPool(), serialOperator,
+          simulate ? new TransferRateLimiter(0) : rateLimiter);
       model = buildModel(parallelOperator, detailsMap, resourceManager);
       for(PartitionRebalanceDetailsImpl details : serialOperator.getDetailSet()) {
         details.setPartitionMemberDetailsBefore(model.getPartitionedMemberDetails(details.getRegionPath()));
@@ -233,10 +243,13 @@ public class PartitionedRegionRebalanceOp {
       
       debug("Rebalancing {} complete. Model:{}\n", leaderRegion, model);
       long end = System.nanoTime();
+      long predictedTime = simulate ? predictTime(rateLimiter) : 0;
       
       for(PartitionRebalanceDetailsImpl details : serialOperator.getDetailSet()) {
         if(!simulate) {
           details.setTime(end - start);
+        } else if(predictedTime > 0) {
+          details.setTime(predictedTime);
         }
         details.setPartitionMemberDetailsAfter(model.getPartitionedMemberDetails(details.getRegionPath()));
       }
@@ -270,6 +283,28 @@ public class PartitionedRegionRebalanceOp {
     }
   }
 
+  /**
+   * Predict how long the transfers of a simulated rebalance would take
+   * within the bandwidth budget.
+   * @return the predicted time in nanoseconds, or zero if there is no budget
+   * to predict with
+   */
+  private long predictTime(TransferRateLimiter rateLimiter) {
+    long predictedTime = this.simulatedOperator.getPredictedTime(rateLimiter);
+    if(rateLimiter.isLimited()) {
+      logger.info(LocalizedMessage.create(
+          LocalizedStrings.PartitionedRegionRebalanceOp_SIMULATED_REBALANCE_0_WOULD_TRANSFER_1_BUCKETS_2_BYTES_3_MS,
+          new Object[] {leaderRegion.getFullPath(), this.simulatedOperator.getBucketTransfers(),
+              this.simulatedOperator.getBytesTransferred(), TimeUnit.NANOSECONDS.toMillis(predictedTime),
+              rateLimiter.getBytesPerSecond()}));
+    } else {
+      debug("Simulated rebalance of {} would transfer {} buckets totalling {} bytes",
+          leaderRegion, this.simulatedOperator.getBucketTransfers(),
+          this.simulatedOperator.getBytesTransferred());
+    }
+    return predictedTime;
+  }
+
   /**
    * Set the list of colocated regions, and check to make sure that colocation 
    * is complete.
@@ -413,9 +448,13 @@ public class PartitionedRegionRebalanceOp {
     for (Map.Entry<PartitionedRegion, InternalPRInfo> entry: detailsMap.entrySet()) {
       rebalanceDetails.add(new PartitionRebalanceDetailsImpl(entry.getKey()));
     }
-    BucketOperator operator = simulate ? 
-        new SimulatedBucketOperator() 
-        : new BucketOperatorImpl(this);
+    BucketOperator operator;
+    if(simulate) {
+      this.simulatedOperator = new SimulatedBucketOperator();
+      operator = this.simulatedOperator;
+    } else {
+      operator = new BucketOperatorImpl(this);
+    }
     BucketOperatorWrapper wrapper = new BucketOperatorWrapper(
         operator, rebalanceDetails, stats, leaderRegion);
     return wrapper;
@@ -460,6 +499,9 @@ public class PartitionedRegionRebalanceOp {
     
     model = new PartitionedRegionLoadModel(operator, redundantCopies, 
         totalNumberOfBuckets, comparor, criticalMembers, leaderRegion);
+    //with a bandwidth budget, spend it on the moves that balance the most
+    //load per byte
+    model.setRankMovesByBytes(resourceManager.getTransferRateLimiter().isLimited());
 
     for (Map.Entry<PartitionedRegion, InternalPRInfo> entry : detailsMap.entrySet()) {
       PartitionedRegion region = entry.getKey();
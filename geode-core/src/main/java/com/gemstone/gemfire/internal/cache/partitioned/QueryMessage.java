@@ -220,6 +220,7 @@ public final class QueryMessage extends StreamingPartitionOperation.StreamingPar
         traceSize -= 1; // subtract the query trace info object
         queryTraceInfo.setTimeInMillis((NanoTimer.getTime() - traceStartTime) / 1.0e6f);
         queryTraceInfo.setNumResults(traceSize);
+        queryTraceInfo.setParallelism(qp.getParallelism());
         // created the indexes used string
         if (indexObserver instanceof IndexTrackingQueryObserver) {
           Map indexesUsed = ((IndexTrackingQueryObserver) indexObserver).getUsedIndexes();
@@ -65,6 +65,23 @@ public interface BucketOperator {
       InternalDistributedMember targetMember, int bucketId,
       Map<String, Long> colocatedRegionBytes);
 
+  /**
+   * Move a bucket from one member to another. This call may be asynchronous,
+   * it will notify the completion when the operation is done, in the same
+   * way as {@link #createRedundantBucket}.
+   * 
+   * @param sourceMember The member we want to move the bucket off of.
+   * @param targetMember The member we want to move the bucket too.
+   * @param bucketId the id of the bucket we want to move
+   * @param colocatedRegionBytes the size of the bucket in bytes
+   * @param completion a callback which will receive a notification on the
+   *          success or failure of the operation.
+   * @since 9.0
+   */
+  void moveBucket(InternalDistributedMember sourceMember,
+      InternalDistributedMember targetMember, int bucketId,
+      Map<String, Long> colocatedRegionBytes, Completion completion);
+
   /**
    * Move a primary from one node to another. This method will
    * not be called unless both nodes are hosting the bucket, and the source
@@ -79,8 +96,8 @@ public interface BucketOperator {
   
   /**
    * Wait for any pending asynchronous operations that this thread submitted
-   * earlier to complete. Currently only createRedundantBucket may be
-   * asynchronous.
+   * earlier to complete. Currently only createRedundantBucket and the
+   * moveBucket that takes a completion may be asynchronous.
    */
   public void waitForOperations();
   
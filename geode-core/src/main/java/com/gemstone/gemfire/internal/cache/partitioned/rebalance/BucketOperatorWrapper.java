@@ -88,6 +88,63 @@ public class BucketOperatorWrapper implements BucketOperator {
     return result;
   }
 
+  @Override
+  public void moveBucket(final InternalDistributedMember sourceMember,
+      final InternalDistributedMember targetMember, final int id,
+      final Map<String, Long> colocatedRegionBytes, final Completion completion) {
+
+    if (stats != null) {
+      stats.startBucketTransfer(regionCount);
+    }
+
+    final long start = System.nanoTime();
+    delegate.moveBucket(sourceMember, targetMember, id,
+        colocatedRegionBytes, new Completion() {
+
+      @Override
+      public void onSuccess() {
+        long totalBytes = 0;
+        long elapsed = System.nanoTime() - start;
+        if (logger.isDebugEnabled()) {
+          logger.debug("Rebalancing {} bucket {} moved from {} to {}", leaderRegion, id, sourceMember, targetMember);
+        }
+        for (PartitionRebalanceDetailsImpl details : detailSet) {
+          String regionPath = details.getRegionPath();
+          Long regionBytes = colocatedRegionBytes.get(regionPath);
+          if (regionBytes != null) {
+            // only increment the elapsed time for the leader region
+            details.incTransfers(regionBytes.longValue(), 
+                details.getRegion().equals(leaderRegion) ? elapsed : 0);
+            totalBytes += regionBytes.longValue();
+          }
+        }
+
+        if (stats != null) {
+          stats.endBucketTransfer(regionCount, true, totalBytes, elapsed);
+        }
+
+        //invoke onSuccess on the received completion callback
+        completion.onSuccess();
+      }
+
+      @Override
+      public void onFailure() {
+        long elapsed = System.nanoTime() - start;
+
+        if (logger.isDebugEnabled()) {
+          logger.debug("Rebalancing {} bucket {} moved failed from {} to {}", leaderRegion, id, sourceMember, targetMember);
+        }
+
+        if (stats != null) {
+          stats.endBucketTransfer(regionCount, false, 0, elapsed);
+        }
+
+        //invoke onFailure on the received completion callback
+        completion.onFailure();
+      }
+    });
+  }
+
   @Override
   public void createRedundantBucket(
       final InternalDistributedMember targetMember, final int i, 
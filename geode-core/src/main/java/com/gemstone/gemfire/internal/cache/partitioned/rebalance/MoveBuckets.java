@@ -39,13 +39,18 @@ public class MoveBuckets extends RebalanceDirectorAdapter {
 
   @Override
   public boolean nextStep() {
-    // TODO Auto-generated method stub
-    return moveBuckets();
+    if(moveBuckets()) {
+      return true;
+    } else {
+      // failed moves put buckets back, which may allow other moves
+      model.waitForOperations();
+      return moveBuckets();
+    }
   }
 
   /**
-   * Move a single bucket from one member to another.
-   * @return true if we could move the bucket
+   * Start moving a single bucket from one member to another.
+   * @return true if we found a bucket to move
    */
   private boolean moveBuckets() {
     Move bestMove = model.findBestBucketMove();
@@ -54,7 +59,7 @@ public class MoveBuckets extends RebalanceDirectorAdapter {
       return false;
     }
 
-    model.moveBucket(bestMove);
+    model.startBucketMove(bestMove);
     
     return true;
   }
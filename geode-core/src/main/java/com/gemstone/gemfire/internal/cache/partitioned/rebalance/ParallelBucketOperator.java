@@ -16,7 +16,11 @@
  */
 package com.gemstone.gemfire.internal.cache.partitioned.rebalance;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
@@ -52,6 +56,9 @@ public class ParallelBucketOperator implements BucketOperator {
   private final int maxParallelOperations;
   private final ConcurrentLinkedQueue<Completion> pendingSuccess = new ConcurrentLinkedQueue<BucketOperator.Completion>();
   private final ConcurrentLinkedQueue<Completion> pendingFailure = new ConcurrentLinkedQueue<BucketOperator.Completion>();
+  private final TransferRateLimiter rateLimiter;
+  /** source and target members of the bucket moves in progress */
+  private final Set<List<InternalDistributedMember>> busyPairs = new HashSet<List<InternalDistributedMember>>();
   
 
   /**
@@ -61,10 +68,25 @@ public class ParallelBucketOperator implements BucketOperator {
    * @param operator A bucket operator that is synchronous that will do the actual work of creating a bucket.
    */
   public ParallelBucketOperator(int maxParallelOperations, ExecutorService executor, BucketOperator operator) {
+    this(maxParallelOperations, executor, operator, new TransferRateLimiter(0));
+  }
+
+  /**
+   * Create a parallel bucket operator that keeps the bucket transfers within
+   * a bandwidth budget.
+   * @param maxParallelOperations The number of operations that can execute concurrently.
+   * @param executor the executor to submit tasks to.
+   * @param operator A bucket operator that is synchronous that will do the actual work.
+   * @param rateLimiter the bandwidth budget for creating and moving buckets
+   * @since 9.0
+   */
+  public ParallelBucketOperator(int maxParallelOperations, ExecutorService executor, BucketOperator operator,
+      TransferRateLimiter rateLimiter) {
     this.maxParallelOperations = maxParallelOperations;
     this.operationSemaphore = new Semaphore(maxParallelOperations);
     this.delegate = operator;
     this.executor = executor;
+    this.rateLimiter = rateLimiter;
   }
 
   /**
@@ -81,6 +103,7 @@ public class ParallelBucketOperator implements BucketOperator {
       final Completion completion) {
     drainCompletions();
     operationSemaphore.acquireUninterruptibly();
+    rateLimiter.acquire(getTotalBytes(colocatedRegionBytes));
     executor.execute(new Runnable() {
       @Override
       public void run() {
@@ -118,9 +141,88 @@ public class ParallelBucketOperator implements BucketOperator {
   public boolean moveBucket(InternalDistributedMember sourceMember,
       InternalDistributedMember targetMember, int bucketId,
       Map<String, Long> colocatedRegionBytes) {
+      rateLimiter.acquire(getTotalBytes(colocatedRegionBytes));
       return delegate.moveBucket(sourceMember, targetMember, bucketId, colocatedRegionBytes);
   }
 
+  /**
+   * Move a bucket asynchronously. Moves between different pairs of members
+   * run concurrently, up to maxParallelOperations, but a move between the
+   * same source and target as a move in progress blocks until that move is
+   * done. The {@link PartitionedRegionLoadModel} chooses moves between other
+   * members while a pair is busy, so the rebalance does not wait here. A move
+   * also blocks until the bandwidth budget allows it to start.
+   * 
+   * The completion will not be notified until the caller makes another call to
+   * createRedundantBucket or moveBucket, or waitForOperations.
+   */
+  @Override
+  public void moveBucket(final InternalDistributedMember sourceMember,
+      final InternalDistributedMember targetMember, final int bucketId,
+      final Map<String, Long> colocatedRegionBytes, final Completion completion) {
+    drainCompletions();
+    final List<InternalDistributedMember> pair = Arrays.asList(sourceMember, targetMember);
+    acquirePair(pair);
+    operationSemaphore.acquireUninterruptibly();
+    rateLimiter.acquire(getTotalBytes(colocatedRegionBytes));
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          delegate.moveBucket(sourceMember, targetMember, bucketId, colocatedRegionBytes, new Completion() {
+            @Override
+            public void onSuccess() {
+              pendingSuccess.add(completion);
+            }
+            
+            @Override
+            public void onFailure() {
+              pendingFailure.add(completion);
+            }
+          });
+        } catch(CancelException e) {
+          //ignore 
+        } catch(RegionDestroyedException e) {
+          //ignore
+        } finally {
+          operationSemaphore.release();
+          releasePair(pair);
+        }
+      }
+    });
+  }
+
+  private void acquirePair(List<InternalDistributedMember> pair) {
+    boolean interrupted = false;
+    synchronized(busyPairs) {
+      while(!busyPairs.add(pair)) {
+        try {
+          busyPairs.wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if(interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void releasePair(List<InternalDistributedMember> pair) {
+    synchronized(busyPairs) {
+      busyPairs.remove(pair);
+      busyPairs.notifyAll();
+    }
+  }
+
+  private static long getTotalBytes(Map<String, Long> colocatedRegionBytes) {
+    long bytes = 0;
+    for(Long regionBytes : colocatedRegionBytes.values()) {
+      bytes += regionBytes.longValue();
+    }
+    return bytes;
+  }
+
   @Override
   public boolean movePrimary(InternalDistributedMember source,
       InternalDistributedMember target, int bucketId) {
@@ -16,6 +16,7 @@
  */
 package com.gemstone.gemfire.internal.cache.partitioned.rebalance;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -128,6 +129,20 @@ public class PartitionedRegionLoadModel {
   private SortedSet<BucketRollup> overRedundancyBuckets= null;
   private final Collection<Move> attemptedPrimaryMoves = new HashSet<Move>();
   private final Collection<Move> attemptedBucketMoves = new HashSet<Move>();
+
+  /**
+   * A set of buckets with a move in progress, that should not be moved again
+   * until it is done
+   */
+  private final Set<Bucket> movingBuckets = new HashSet<Bucket>();
+
+  /**
+   * The source and target members of the bucket moves in progress. Only one
+   * move at a time runs between a pair of members, so the moves between a
+   * busy pair are put off until the pair is free and moves between other
+   * members are chosen instead.
+   */
+  private final Set<List<Member>> movingMemberPairs = new HashSet<List<Member>>();
   private final Collection<Move> attemptedBucketCreations = new HashSet<Move>();
   private final Collection<Move> attemptedBucketRemoves = new HashSet<Move>();
   
@@ -155,6 +170,12 @@ public class PartitionedRegionLoadModel {
 
   private final PartitionedRegion partitionedRegion;
 
+  /**
+   * true to choose bucket moves by the load they balance per byte
+   * transferred, rather than per unit of load
+   */
+  private boolean rankMovesByBytes;
+
   
   /**
    * Create a new model
@@ -772,25 +793,45 @@ public class PartitionedRegionLoadModel {
     return deviation * deviation;
   }
 
+  /**
+   * Rank bucket moves by the decrease in load variance per byte the move
+   * transfers, so that a bandwidth budget is spent on the moves that balance
+   * the most load. By default moves are ranked per unit of load moved.
+   * @since 9.0
+   */
+  public void setRankMovesByBytes(boolean rankMovesByBytes) {
+    this.rankMovesByBytes = rankMovesByBytes;
+  }
+
   public Move findBestBucketMove() {
     Move bestMove= null;
-    double bestImprovement = 0;
+    double bestRank = 0;
     for(Member source: this.members.values()) {
       for(Bucket bucket: source.getBuckets()) {
+        if(this.movingBuckets.contains(bucket)) {
+          continue;
+        }
         for(Member target: this.members.values()) {
           if(bucket.getMembersHosting().contains(target)) {
             continue;
           }
+          if(this.movingMemberPairs.contains(Arrays.asList(source, target))) {
+            continue;
+          }
           if(!target.willAcceptBucket(bucket, source, true).willAccept()) {
             continue;
           }
           double improvement = improvement(source.getTotalLoad(), source
               .getWeight(), target.getTotalLoad(), target.getWeight(), bucket.getLoad(),
               getAverageLoad());
-          if (improvement > bestImprovement && improvement > getMinImprovement()) {
+          double rank = improvement;
+          if(this.rankMovesByBytes && bucket.getBytes() > 0) {
+            rank = improvement * bucket.getLoad() / bucket.getBytes();
+          }
+          if (rank > bestRank && improvement > getMinImprovement()) {
             Move move = new Move(source, target, bucket);
             if(!this.attemptedBucketMoves.contains(move)) {
-              bestImprovement = improvement;
+              bestRank = rank;
               bestMove = move;
             }
           }
@@ -826,6 +867,68 @@ public class PartitionedRegionLoadModel {
     return successfulMove;
   }
 
+  /**
+   * Trigger a bucket move, potentially asynchronously.
+   * 
+   * The model is updated as if the move succeeded, and the changes are undone
+   * if it fails. Because the bucket operator is asynchronous, the bucket may
+   * not be moved immediately. Invoke {@link #waitForOperations()} to wait for
+   * those operations to actually complete. Until the move is done,
+   * {@link #findBestBucketMove()} does not choose another move between the
+   * same source and target.
+   * @since 9.0
+   */
+  public void startBucketMove(Move bestMove) {
+    final Member bestSource = bestMove.getSource();
+    final Member bestTarget = bestMove.getTarget();
+    final List<Member> memberPair = Arrays.asList(bestSource, bestTarget);
+    final BucketRollup bestBucket = (BucketRollup) bestMove.getBucket();
+    final boolean sourceWasPrimary = bestSource.equals(bestBucket.getPrimary());
+
+    Map<String, Long> colocatedRegionSizes = getColocatedRegionSizes(bestBucket);
+
+    boolean entryAdded  = this.attemptedBucketMoves.add(bestMove);
+    Assert
+    .assertTrue(entryAdded,
+        "PartitionedRegionLoadModel.moveBuckets - excluded set is not growing, so we probably would have an infinite loop here");
+
+    bestBucket.addMember(bestTarget);
+    if(sourceWasPrimary) {
+      bestBucket.setPrimary(bestTarget, bestBucket.getPrimaryLoad());
+    }
+    bestBucket.removeMember(bestSource);
+    this.movingBuckets.add(bestBucket);
+    this.movingMemberPairs.add(memberPair);
+
+    this.operator.moveBucket(bestSource.getDistributedMember(), bestTarget
+        .getDistributedMember(), bestBucket.getId(), colocatedRegionSizes, new BucketOperator.Completion() {
+      @Override
+      public void onSuccess() {
+        movingBuckets.remove(bestBucket);
+        movingMemberPairs.remove(memberPair);
+      }
+
+      @Override
+      public void onFailure() {
+        movingBuckets.remove(bestBucket);
+        movingMemberPairs.remove(memberPair);
+        //If the bucket move failed, we need to undo the changes
+        //we made to the model. The source still hosts the bucket, so it
+        //is put back without checking its memory. It may already be back
+        //if it was meanwhile the target of another operation on the bucket.
+        if(!bestBucket.addMember(bestSource)
+            && !bestBucket.getMembersHosting().contains(bestSource)) {
+          //leave the bucket on the target rather than on neither member
+          return;
+        }
+        if(sourceWasPrimary && bestTarget.equals(bestBucket.getPrimary())) {
+          bestBucket.setPrimary(bestSource, bestBucket.getPrimaryLoad());
+        }
+        bestBucket.removeMember(bestTarget);
+      }
+    });
+  }
+
   /**
    * Return a snapshot of what the partitioned member details look like.
    * @return a set of partitioned member details.
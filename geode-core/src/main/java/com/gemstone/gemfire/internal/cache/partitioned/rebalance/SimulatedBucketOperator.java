@@ -17,27 +17,47 @@
 package com.gemstone.gemfire.internal.cache.partitioned.rebalance;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.gemstone.gemfire.distributed.internal.membership.InternalDistributedMember;
 
 /**
  * A BucketOperator which does nothing. Used for simulations.
+ * 
+ * It counts the buckets and bytes that would be transferred, so that a
+ * simulation can predict how long the rebalance will take.
  *
  */
 public class SimulatedBucketOperator implements BucketOperator {
 
+  private final AtomicInteger bucketTransfers = new AtomicInteger();
+  private final AtomicLong bytesTransferred = new AtomicLong();
+
   public void createRedundantBucket(
       InternalDistributedMember targetMember, int i, Map<String, Long> colocatedRegionBytes, 
       BucketOperator.Completion completion) {
+    recordTransfer(colocatedRegionBytes);
     completion.onSuccess();
   }
   
   public boolean moveBucket(InternalDistributedMember source,
       InternalDistributedMember target, int id,
       Map<String, Long> colocatedRegionBytes) {
+    recordTransfer(colocatedRegionBytes);
     return true;
   }
 
+  public void moveBucket(InternalDistributedMember source,
+      InternalDistributedMember target, int id,
+      Map<String, Long> colocatedRegionBytes, BucketOperator.Completion completion) {
+    if (moveBucket(source, target, id, colocatedRegionBytes)) {
+      completion.onSuccess();
+    } else {
+      completion.onFailure();
+    }
+  }
+
   public boolean movePrimary(InternalDistributedMember source,
       InternalDistributedMember target, int bucketId) {
     return true;
@@ -51,4 +71,40 @@ public class SimulatedBucketOperator implements BucketOperator {
   @Override
   public void waitForOperations() {
   }
-}
\ No newline at end of file
+
+  private void recordTransfer(Map<String, Long> colocatedRegionBytes) {
+    long bytes = 0;
+    for (Long regionBytes : colocatedRegionBytes.values()) {
+      bytes += regionBytes.longValue();
+    }
+    this.bucketTransfers.incrementAndGet();
+    this.bytesTransferred.addAndGet(bytes);
+  }
+
+  /**
+   * @return the number of buckets that would have been created or moved
+   * @since 9.0
+   */
+  public int getBucketTransfers() {
+    return this.bucketTransfers.get();
+  }
+
+  /**
+   * @return the bytes that would have been sent to create or move buckets
+   * @since 9.0
+   */
+  public long getBytesTransferred() {
+    return this.bytesTransferred.get();
+  }
+
+  /**
+   * Predict how long the transfers would take within the given bandwidth
+   * budget.
+   * @return the predicted time in nanoseconds, or zero if the limiter has no
+   * budget to predict with
+   * @since 9.0
+   */
+  public long getPredictedTime(TransferRateLimiter limiter) {
+    return limiter.getTransferNanos(getBytesTransferred());
+  }
+}
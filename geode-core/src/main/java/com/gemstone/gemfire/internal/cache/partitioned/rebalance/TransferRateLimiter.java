@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.partitioned.rebalance;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces the bucket transfers started by the rebalance operations of a member
+ * so that on average they send no more than a budgeted number of bytes per
+ * second. Each transfer reserves its bytes before it starts, and waits until
+ * the transfers reserved before it have used up their share of the budget.
+ *
+ * @since 9.0
+ */
+public class TransferRateLimiter {
+
+  /**
+   * The rebalance bandwidth budget in megabytes per second. Zero or less
+   * means unlimited.
+   */
+  public static final String MAX_MB_PER_SEC_PROPERTY = "gemfire.rebalance.MAX_MB_PER_SEC";
+
+  private final long bytesPerSecond;
+
+  /** the time at which the budget is free for the next transfer */
+  private long nextFreeNanos;
+
+  /**
+   * Create a limiter with the budget of the {@link #MAX_MB_PER_SEC_PROPERTY}
+   * system property.
+   */
+  public TransferRateLimiter() {
+    this(Long.getLong(MAX_MB_PER_SEC_PROPERTY, 0) * 1024 * 1024);
+  }
+
+  /**
+   * @param bytesPerSecond the budget, zero or less for unlimited
+   */
+  public TransferRateLimiter(long bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  public boolean isLimited() {
+    return this.bytesPerSecond > 0;
+  }
+
+  public long getBytesPerSecond() {
+    return this.bytesPerSecond;
+  }
+
+  /**
+   * Wait until a transfer of the given number of bytes can start without
+   * exceeding the budget.
+   */
+  public void acquire(long bytes) {
+    if (!isLimited() || bytes <= 0) {
+      return;
+    }
+    long waitNanos;
+    synchronized (this) {
+      long now = System.nanoTime();
+      long start = Math.max(now, this.nextFreeNanos);
+      this.nextFreeNanos = start + getTransferNanos(bytes);
+      waitNanos = start - now;
+    }
+    if (waitNanos > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Returns how long it takes to transfer the given number of bytes within
+   * the budget, or zero if there is no budget.
+   */
+  public long getTransferNanos(long bytes) {
+    if (!isLimited()) {
+      return 0;
+    }
+    return (long)(bytes * (double)TimeUnit.SECONDS.toNanos(1) / this.bytesPerSecond);
+  }
+}
@@ -685,6 +685,13 @@ public class AcceptorImpl extends Acceptor implements Runnable
   @Deprecated
   private final static int DEPRECATED_SELECTOR_POOL_SIZE = Integer.getInteger("BridgeServer.SELECTOR_POOL_SIZE", 16).intValue();
   private final static int HANDSHAKE_POOL_SIZE = Integer.getInteger("BridgeServer.HANDSHAKE_POOL_SIZE", 4).intValue();
+  /**
+   * The largest request, in bytes, that the selector reads before handing its
+   * connection to a thread. Larger requests are handed over once their header
+   * has been read. 0 hands connections over as soon as they are readable.
+   * @since 9.0
+   */
+  final static int SELECTOR_READ_AHEAD_SIZE = Integer.getInteger("BridgeServer.SELECTOR_READ_AHEAD_SIZE", 64 * 1024).intValue();
 
   @Override
   public void start() throws IOException
@@ -926,6 +933,25 @@ public class AcceptorImpl extends Acceptor implements Runnable
           } else {
             if (tmpsk.isValid() && tmpsk.isReadable()) {
               //             logger.info("DEBUG detected read event on " + sc);
+              boolean requestRead;
+              try {
+                requestRead = sc.readRequestWithoutBlocking(SELECTOR_READ_AHEAD_SIZE);
+              } catch (IOException ex) {
+                // the connection has logged the failure
+                tmpsk.cancel();
+                this.tmpSel.selectNow(); // clear canceled key
+                this.selectorRegistrations.remove(sc);
+                registeredKeys--;
+                finishCon(sc);
+                continue;
+              }
+              if (!requestRead) {
+                // wait for the rest of the request
+                tmpsk.cancel();
+                this.tmpSel.selectNow(); // clear canceled key
+                sc.registerWithSelector2(this.selector);
+                continue;
+              }
               try {
                 tmpsk.cancel();
                 this.tmpSel.selectNow(); // clear canceled key
@@ -951,6 +977,7 @@ public class AcceptorImpl extends Acceptor implements Runnable
               }
               try {
                 AcceptorImpl.this.stats.incThreadQueueSize();
+                sc.setDispatchTime();
                 AcceptorImpl.this.pool.execute(sc);
               } catch (RejectedExecutionException rejected) {
                 finishCon(sc);
@@ -1108,6 +1135,22 @@ public class AcceptorImpl extends Acceptor implements Runnable
             try {
             if (key.isValid() && key.isReadable()) {
               // this is the only event we currently register for
+              boolean requestRead;
+              try {
+                requestRead = sc.readRequestWithoutBlocking(SELECTOR_READ_AHEAD_SIZE);
+              } catch (IOException ex) {
+                // the connection has logged the failure
+                key.cancel();
+                this.selectorRegistrations.remove(sc);
+                registeredKeys--;
+                cancelCount++;
+                finishCon(sc);
+                continue;
+              }
+              if (!requestRead) {
+                // stay registered until the rest of the request arrives
+                continue;
+              }
               try {
                 key.cancel();
                 this.selectorRegistrations.remove(sc);
@@ -1133,6 +1176,7 @@ public class AcceptorImpl extends Acceptor implements Runnable
               }
               try {
                 AcceptorImpl.this.stats.incThreadQueueSize();
+                sc.setDispatchTime();
                 AcceptorImpl.this.pool.execute(sc);
               } catch (RejectedExecutionException rejected) {
                 finishCon(sc);
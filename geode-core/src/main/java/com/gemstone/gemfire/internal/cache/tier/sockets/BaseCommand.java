@@ -355,6 +355,22 @@ public abstract class BaseCommand implements Command {
     servConn.setFlagProcessMessagesAsFalse();
   }
 
+  /**
+   * Logs an exception thrown while the selector was reading ahead a request
+   * from <code>servConn</code> the same way as if a thread had been reading
+   * it, and stops the connection from processing messages.
+   * @since 9.0
+   */
+  static void handleReadAheadException(ServerConnection servConn,
+      IOException e) {
+    if (e instanceof EOFException) {
+      handleEOFException(null, servConn, e);
+    }
+    else {
+      handleIOException(null, servConn, e);
+    }
+  }
+
   private static void handleInterruptedIOException(Message msg,
       ServerConnection servConn, Exception e) {
     CachedRegionHelper crHelper = servConn.getCachedRegionHelper();
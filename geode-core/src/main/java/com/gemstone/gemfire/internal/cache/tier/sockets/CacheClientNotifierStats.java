@@ -48,6 +48,10 @@ public class CacheClientNotifierStats {
   private static final String CQ_PROCESSING_TIME = "cqProcessingTime";
   private static final String COMPILED_QUERY_COUNT = "compiledQueryCount";
   private static final String COMPILED_QUERY_USED_COUNT = "compiledQueryUsedCount";
+  private static final String ENCODED_MESSAGES = "encodedMessages";
+  private static final String ENCODED_MESSAGE_BYTES = "encodedMessageBytes";
+  private static final String ENCODED_MESSAGES_SENT = "encodedMessagesSent";
+  private static final String ENCODED_MESSAGE_BYTES_SENT = "encodedMessageBytesSent";
   
   private static final int _eventsId;
   private static final int _eventProcessingTimeId;
@@ -69,6 +73,12 @@ public class CacheClientNotifierStats {
 
   private static final int _compiledQueryUsedCount;
 
+  // Shared encoding of client messages.
+  private static final int _encodedMessagesId;
+  private static final int _encodedMessageBytesId;
+  private static final int _encodedMessagesSentId;
+  private static final int _encodedMessageBytesSentId;
+
   static {
     String statName = "CacheClientNotifierStatistics";
 
@@ -136,6 +146,26 @@ public class CacheClientNotifierStats {
              "Number of times compiled queries are used.",
              "used"),
 
+            f.createLongCounter
+            (ENCODED_MESSAGES,
+             "Number of client messages encoded once to be sent to every client with the same version and subscription shape.",
+             "operations"),
+
+            f.createLongCounter
+            (ENCODED_MESSAGE_BYTES,
+             "Total number of bytes serialized when encoding shared client messages.",
+             "bytes"),
+
+            f.createLongCounter
+            (ENCODED_MESSAGES_SENT,
+             "Number of times a shared client message was sent to a client.",
+             "operations"),
+
+            f.createLongCounter
+            (ENCODED_MESSAGE_BYTES_SENT,
+             "Total number of bytes sent to clients from shared client messages.",
+             "bytes"),
+
        });
 
     // Initialize id fields
@@ -155,6 +185,10 @@ public class CacheClientNotifierStats {
     _cqProcessingTimeId = _type.nameToId(CQ_PROCESSING_TIME);
     _compiledQueryCount = _type.nameToId(COMPILED_QUERY_COUNT);
     _compiledQueryUsedCount = _type.nameToId(COMPILED_QUERY_USED_COUNT);
+    _encodedMessagesId = _type.nameToId(ENCODED_MESSAGES);
+    _encodedMessageBytesId = _type.nameToId(ENCODED_MESSAGE_BYTES);
+    _encodedMessagesSentId = _type.nameToId(ENCODED_MESSAGES_SENT);
+    _encodedMessageBytesSentId = _type.nameToId(ENCODED_MESSAGE_BYTES_SENT);
   }
 
   //////////////////////  Instance Fields  //////////////////////
@@ -291,4 +325,40 @@ public class CacheClientNotifierStats {
     return this._stats.getInt(_clientHealthMonitorUnRegisterId);
   }
 
+  /**
+   * Records that a client message of the given size was encoded to be
+   * shared by the clients it is sent to.
+   * @since 9.0
+   */
+  public void incEncodedMessages(int bytes) {
+    this._stats.incLong(_encodedMessagesId, 1);
+    this._stats.incLong(_encodedMessageBytesId, bytes);
+  }
+
+  /**
+   * Records that a shared client message of the given size was sent to a
+   * client.
+   * @since 9.0
+   */
+  public void incEncodedMessagesSent(int bytes) {
+    this._stats.incLong(_encodedMessagesSentId, 1);
+    this._stats.incLong(_encodedMessageBytesSentId, bytes);
+  }
+
+  public long getEncodedMessages() {
+    return this._stats.getLong(_encodedMessagesId);
+  }
+
+  public long getEncodedMessageBytes() {
+    return this._stats.getLong(_encodedMessageBytesId);
+  }
+
+  public long getEncodedMessagesSent() {
+    return this._stats.getLong(_encodedMessagesSentId);
+  }
+
+  public long getEncodedMessageBytesSent() {
+    return this._stats.getLong(_encodedMessageBytesSentId);
+  }
+
 }
@@ -18,11 +18,14 @@
 package com.gemstone.gemfire.internal.cache.tier.sockets;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -37,6 +40,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
@@ -200,6 +204,23 @@ public class CacheClientProxy implements ClientSession {
    */
   protected static final int MAXIMUM_SHUTDOWN_PEEKS = Integer.getInteger("gemfire.MAXIMUM_SHUTDOWN_PEEKS",50).intValue();
 
+  /**
+   * The maximum number of queued messages the dispatcher sends to a client
+   * with a single write. The default of 1 sends each message on its own.
+   *
+   * @since 9.0
+   */
+  protected static final int DISPATCH_BATCH_SIZE = Integer.getInteger("gemfire.CacheClientProxy.DISPATCH_BATCH_SIZE", 1).intValue();
+
+  /**
+   * The number of microseconds the dispatcher waits for more messages when
+   * it finds fewer than {@link #DISPATCH_BATCH_SIZE} queued. The default of
+   * 0 sends whatever is queued right away.
+   *
+   * @since 9.0
+   */
+  protected static final long DISPATCH_BATCH_LINGER_MICROS = Long.getLong("gemfire.CacheClientProxy.DISPATCH_BATCH_LINGER_MICROS", 0).longValue();
+
   /**
    * The number of milliseconds to wait for an offering to the message queue
    */
@@ -2339,6 +2360,18 @@ public class CacheClientProxy implements ClientSession {
     private final ReadWriteLock socketLock = new ReentrantReadWriteLock();
 
     private final Lock socketWriteLock = socketLock.writeLock();
+
+    /**
+     * Heap buffer the messages of a batch are encoded with. Only used by the
+     * dispatcher thread.
+     */
+    private ByteBuffer batchBuffer;
+
+    /**
+     * Holds the encoded messages of a batch until they are written. Only used
+     * by the dispatcher thread.
+     */
+    private ByteArrayOutputStream batchStream;
 //    /**
 //     * A boolean verifying whether a warning has already been issued if the
 //     * message queue has reached its capacity.
@@ -2598,6 +2631,26 @@ public class CacheClientProxy implements ClientSession {
             }
             waitForResumption();
           }
+          if (DISPATCH_BATCH_SIZE > 1) {
+            List<?> batch;
+            try {
+              batch = peekBatch();
+            }
+            catch (RegionDestroyedException skipped) {
+              break;
+            }
+            if (batch.size() > 0) {
+              getStatistics().setQueueSize(this._messageQueue.size());
+              if (isStopped()) {
+                break;
+              }
+              if (dispatchBatch(batch, batch.size() == DISPATCH_BATCH_SIZE)) {
+                this._messageQueue.remove();
+              }
+              continue;
+            }
+            // the queue is empty, wait for the next message below
+          }
           try {
             clientMessage = (ClientMessage)this._messageQueue.peek();
           }
@@ -2808,36 +2861,7 @@ public class CacheClientProxy implements ClientSession {
       if (logger.isTraceEnabled(LogMarker.BRIDGE_SERVER)) {
         logger.trace(LogMarker.BRIDGE_SERVER, "Dispatching {}", clientMessage);
       }
-      Message message = null;
-
-      // byte[] latestValue =
-      // this._eventConflator.getLatestValue(clientMessage);
-
-     if (clientMessage instanceof ClientUpdateMessage) {
-        byte[] latestValue = (byte[])((ClientUpdateMessage)clientMessage).getValue();
-        if (logger.isTraceEnabled()) {
-          StringBuilder msg = new StringBuilder(100);
-          msg.append(this).append(": Using latest value: ").append(Arrays.toString(latestValue));
-          if (((ClientUpdateMessage)clientMessage).valueIsObject()) {
-            if (latestValue != null) {
-              msg.append(" (").append(deserialize(latestValue)).append(")");
-            }
-            msg.append(" for ").append(clientMessage);
-          }
-          logger.trace(msg.toString());
-        }
-        
-        message = ((ClientUpdateMessageImpl)clientMessage).getMessage(getProxy(),
-            latestValue);
-        
-        if (AFTER_MESSAGE_CREATION_FLAG) {
-          ClientServerObserver bo = ClientServerObserverHolder.getInstance();
-          bo.afterMessageCreation(message);
-        }
-     }
-     else {
-       message = clientMessage.getMessage(getProxy(), true /* notify */);
-     }
+      Message message = createMessage(clientMessage);
 
       // //////////////////////////////
       // TEST CODE BEGIN (Throws exception to test closing proxy)
@@ -2883,6 +2907,141 @@ public class CacheClientProxy implements ClientSession {
      }
      return isDispatched;
     }
+
+    /**
+     * Creates the message to send to the client for the given client message
+     */
+    private Message createMessage(ClientMessage clientMessage)
+        throws IOException
+    {
+      Message message = null;
+
+      // byte[] latestValue =
+      // this._eventConflator.getLatestValue(clientMessage);
+
+     if (clientMessage instanceof ClientUpdateMessage) {
+        byte[] latestValue = (byte[])((ClientUpdateMessage)clientMessage).getValue();
+        if (logger.isTraceEnabled()) {
+          StringBuilder msg = new StringBuilder(100);
+          msg.append(this).append(": Using latest value: ").append(Arrays.toString(latestValue));
+          if (((ClientUpdateMessage)clientMessage).valueIsObject()) {
+            if (latestValue != null) {
+              msg.append(" (").append(deserialize(latestValue)).append(")");
+            }
+            msg.append(" for ").append(clientMessage);
+          }
+          logger.trace(msg.toString());
+        }
+        
+        message = ((ClientUpdateMessageImpl)clientMessage).getMessage(getProxy(),
+            latestValue);
+        
+        if (AFTER_MESSAGE_CREATION_FLAG) {
+          ClientServerObserver bo = ClientServerObserverHolder.getInstance();
+          bo.afterMessageCreation(message);
+        }
+     }
+     else {
+       message = clientMessage.getMessage(getProxy(), true /* notify */);
+     }
+     return message;
+    }
+
+    /**
+     * Sends a batch of messages to the client attached to this proxy with a
+     * single write. The messages are written one after the other in their
+     * usual framing, so the client reads and applies them in order just as
+     * if they had been sent one at a time.
+     *
+     * @param clientMessages
+     *          The <code>ClientMessage</code>s to send to the client
+     * @param full
+     *          Whether the batch has the configured maximum number of messages
+     *
+     * @return false if nothing was sent because the proxy is paused
+     * @throws IOException
+     * @since 9.0
+     */
+    protected boolean dispatchBatch(List<?> clientMessages, boolean full)
+        throws IOException
+    {
+      if (this._proxy.isPaused()) {
+        if (logger.isDebugEnabled()) {
+          logger.debug("Message Dispatcher of a Paused CCProxy is trying to dispatch a batch of messages");
+        }
+        return false;
+      }
+      final long start = getStatistics().startTime();
+      if (this.batchBuffer == null) {
+        this.batchBuffer = ByteBuffer.allocate(getCommBuffer().capacity());
+        this.batchStream = new ByteArrayOutputStream(this.batchBuffer.capacity());
+      }
+      this.batchStream.reset();
+      for (Iterator<?> itr = clientMessages.iterator(); itr.hasNext();) {
+        ClientMessage clientMessage = (ClientMessage)itr.next();
+        if (logger.isTraceEnabled(LogMarker.BRIDGE_SERVER)) {
+          logger.trace(LogMarker.BRIDGE_SERVER, "Dispatching {} in a batch", clientMessage);
+        }
+        Message message = createMessage(clientMessage);
+        if (message != null) {
+          message.writeWireBytes(this.batchStream, this.batchBuffer);
+        }
+      }
+      sendBatch();
+      getStatistics().endBatch(start, clientMessages.size(), full);
+      for (Iterator<?> itr = clientMessages.iterator(); itr.hasNext();) {
+        ClientMessage clientMessage = (ClientMessage)itr.next();
+        if (clientMessage instanceof ClientMarkerMessageImpl) {
+          getProxy().markerEnqueued = false;
+        }
+        this._messageQueue.getStatistics().incEventsDispatched();
+      }
+      if (logger.isTraceEnabled()) {
+        logger.trace("{}: Dispatched a batch of {} messages", this, clientMessages.size());
+      }
+      return true;
+    }
+
+    /**
+     * Peeks the next batch of messages to dispatch without blocking. If fewer
+     * than the maximum batch size are queued, first waits up to the configured
+     * linger time for more to arrive.
+     *
+     * @return the messages peeked; empty if the queue is empty
+     * @since 9.0
+     */
+    private List<?> peekBatch() throws InterruptedException
+    {
+      if (DISPATCH_BATCH_LINGER_MICROS > 0) {
+        int size = this._messageQueue.size();
+        if (size > 0 && size < DISPATCH_BATCH_SIZE) {
+          LockSupport.parkNanos(DISPATCH_BATCH_LINGER_MICROS * 1000L);
+        }
+      }
+      return this._messageQueue.peekAvailable(DISPATCH_BATCH_SIZE);
+    }
+
+    private void sendBatch() throws IOException {
+      this.socketWriteLock.lock();
+      try {
+        final Socket socket = getSocket();
+        final SocketChannel channel = socket.getChannel();
+        if (channel != null) {
+          final ByteBuffer bb = ByteBuffer.wrap(this.batchStream.toByteArray());
+          do {
+            channel.write(bb);
+          } while (bb.hasRemaining());
+        } else {
+          final OutputStream os = socket.getOutputStream();
+          this.batchStream.writeTo(os);
+          os.flush();
+        }
+        getStatistics().incSentBytes(this.batchStream.size());
+        getProxy().resetPingCounter();
+      } finally {
+        this.socketWriteLock.unlock();
+      }
+    }
     
     private void sendMessage(Message message) throws IOException {
       if (message == null) {
@@ -60,6 +60,14 @@ public class CacheClientProxyStats implements MessageStats {
   private static final String DELTA_FULL_MESSAGES_SENT = "deltaFullMessagesSent";
   /** Name of the CQ count statistic */
   private static final String CQ_COUNT = "cqCount";
+  /** Name of the batches dispatched statistic */
+  private static final String BATCHES_DISPATCHED = "batchesDispatched";
+  /** Name of the full batches dispatched statistic */
+  private static final String FULL_BATCHES_DISPATCHED = "fullBatchesDispatched";
+  /** Name of the batched messages dispatched statistic */
+  private static final String BATCHED_MESSAGES_DISPATCHED = "batchedMessagesDispatched";
+  /** Name of the batch dispatch time statistic */
+  private static final String BATCH_DISPATCH_TIME = "batchDispatchTime";
 
   /** Id of the messages received statistic */
   private static final int _messagesReceivedId;
@@ -83,6 +91,14 @@ public class CacheClientProxyStats implements MessageStats {
   private static final int _deltaFullMessagesSentId;
   /** Id of the CQ count statistic */
   private static final int _cqCountId;
+  /** Id of the batches dispatched statistic */
+  private static final int _batchesDispatchedId;
+  /** Id of the full batches dispatched statistic */
+  private static final int _fullBatchesDispatchedId;
+  /** Id of the batched messages dispatched statistic */
+  private static final int _batchedMessagesDispatchedId;
+  /** Id of the batch dispatch time statistic */
+  private static final int _batchDispatchTimeId;
   private final static int _sentBytesId;
 
   /**
@@ -152,6 +168,26 @@ public class CacheClientProxyStats implements MessageStats {
             f.createLongCounter("sentBytes",
                                 "Total number of bytes sent to client.",
                                 "bytes"),
+
+            f.createIntCounter
+              (BATCHES_DISPATCHED,
+               "Number of batches of client messages sent to the client with a single write.",
+               "operations"),
+
+            f.createIntCounter
+              (FULL_BATCHES_DISPATCHED,
+               "Number of batches dispatched that had the maximum number of messages.",
+               "operations"),
+
+            f.createIntCounter
+              (BATCHED_MESSAGES_DISPATCHED,
+               "Number of client messages sent to the client in batches.",
+               "operations"),
+
+            f.createLongCounter
+              (BATCH_DISPATCH_TIME,
+               "Total time spent building and sending batches of messages to the client.",
+               "nanoseconds"),
        });
 
     // Initialize id fields
@@ -167,6 +203,10 @@ public class CacheClientProxyStats implements MessageStats {
     _deltaFullMessagesSentId = _type.nameToId(DELTA_FULL_MESSAGES_SENT);
     _cqCountId = _type.nameToId(CQ_COUNT);
     _sentBytesId = _type.nameToId("sentBytes");
+    _batchesDispatchedId = _type.nameToId(BATCHES_DISPATCHED);
+    _fullBatchesDispatchedId = _type.nameToId(FULL_BATCHES_DISPATCHED);
+    _batchedMessagesDispatchedId = _type.nameToId(BATCHED_MESSAGES_DISPATCHED);
+    _batchDispatchTimeId = _type.nameToId(BATCH_DISPATCH_TIME);
   }
 
   //////////////////////  Instance Fields  //////////////////////
@@ -375,6 +415,61 @@ public class CacheClientProxyStats implements MessageStats {
     this._stats.incLong(_messageProcessingTimeId, elapsed);
   }
 
+  /**
+   * Increments the batch statistics and the "messagesProcessed" and
+   * "messageProcessingTime" stats for a batch of messages sent with a single
+   * write.
+   * @param start The start of the batch (which is decremented from the current
+   * time to determine the batch dispatch time).
+   * @param size The number of messages in the batch
+   * @param full Whether the batch had the maximum number of messages
+   * @since 9.0
+   */
+  public void endBatch(long start, int size, boolean full)
+  {
+    long elapsed = DistributionStats.getStatTime() - start;
+    this._stats.incInt(_batchesDispatchedId, 1);
+    if (full) {
+      this._stats.incInt(_fullBatchesDispatchedId, 1);
+    }
+    this._stats.incInt(_batchedMessagesDispatchedId, size);
+    this._stats.incLong(_batchDispatchTimeId, elapsed);
+    this._stats.incInt(_messagesProcessedId, size);
+    this._stats.incLong(_messageProcessingTimeId, elapsed);
+  }
+
+  /**
+   * Returns the current value of the "batchesDispatched" stat.
+   * @return the current value of the "batchesDispatched" stat
+   */
+  public int getBatchesDispatched() {
+    return this._stats.getInt(_batchesDispatchedId);
+  }
+
+  /**
+   * Returns the current value of the "fullBatchesDispatched" stat.
+   * @return the current value of the "fullBatchesDispatched" stat
+   */
+  public int getFullBatchesDispatched() {
+    return this._stats.getInt(_fullBatchesDispatchedId);
+  }
+
+  /**
+   * Returns the current value of the "batchedMessagesDispatched" stat.
+   * @return the current value of the "batchedMessagesDispatched" stat
+   */
+  public int getBatchedMessagesDispatched() {
+    return this._stats.getInt(_batchedMessagesDispatchedId);
+  }
+
+  /**
+   * Returns the current value of the "batchDispatchTime" stat.
+   * @return the current value of the "batchDispatchTime" stat
+   */
+  public long getBatchDispatchTime() {
+    return this._stats.getLong(_batchDispatchTimeId);
+  }
+
   /**
    * Increments the "deltaMessagesSent" stats.
    */
@@ -219,6 +219,9 @@ public class CacheServerStats implements MessageStats {
 
   int connectionsTimedOutId;
   int threadQueueSizeId;
+  int threadQueueDispatchesId;
+  int threadQueueDispatchTimeId;
+  int partialMessageReadsId;
   int acceptsInProgressId;
   int acceptThreadStartsId;
   int connectionThreadStartsId;
@@ -536,6 +539,15 @@ public class CacheServerStats implements MessageStats {
         f.createIntGauge("threadQueueSize",
                          "Current number of connections waiting for a thread to start processing their message.",
                          "connections"),
+        f.createIntCounter("threadQueueDispatches",
+                         "Total number of messages read by the selector that were handed to a thread for processing.",
+                         "messages"),
+        f.createLongCounter("threadQueueDispatchTime",
+                         "Total time messages read by the selector waited for a thread to start processing them.",
+                         "nanoseconds"),
+        f.createIntCounter("partialMessageReads",
+                         "Total number of times the selector read part of a message without needing a thread.",
+                         "reads"),
         f.createIntGauge("acceptsInProgress",
                          "Current number of server accepts that are attempting to do the initial handshake with the client.",
                          "accepts"),
@@ -705,6 +717,9 @@ public class CacheServerStats implements MessageStats {
     messageBytesBeingReceivedId = this.stats.nameToId("messageBytesBeingReceived");
     connectionsTimedOutId = this.stats.nameToId("connectionsTimedOut");
     threadQueueSizeId = this.stats.nameToId("threadQueueSize");
+    threadQueueDispatchesId = this.stats.nameToId("threadQueueDispatches");
+    threadQueueDispatchTimeId = this.stats.nameToId("threadQueueDispatchTime");
+    partialMessageReadsId = this.stats.nameToId("partialMessageReads");
     acceptsInProgressId = this.stats.nameToId("acceptsInProgress");
     acceptThreadStartsId = this.stats.nameToId("acceptThreadStarts");
     connectionThreadStartsId = this.stats.nameToId("connectionThreadStarts");
@@ -797,6 +812,25 @@ public class CacheServerStats implements MessageStats {
   public final void decThreadQueueSize() {
     this.stats.incInt(threadQueueSizeId, -1);
   }
+  public final int getThreadQueueSize() {
+    return this.stats.getInt(threadQueueSizeId);
+  }
+  /**
+   * @param start the nanoTime at which the message was completely read
+   */
+  public final void incThreadQueueDispatchTime(long start) {
+    this.stats.incLong(threadQueueDispatchTimeId, System.nanoTime() - start);
+    this.stats.incInt(threadQueueDispatchesId, 1);
+  }
+  public final int getThreadQueueDispatches() {
+    return this.stats.getInt(threadQueueDispatchesId);
+  }
+  public final void incPartialMessageReads() {
+    this.stats.incInt(partialMessageReadsId, 1);
+  }
+  public final int getPartialMessageReads() {
+    return this.stats.getInt(partialMessageReadsId);
+  }
 
   public final void incReadGetRequestTime(long delta)
   {
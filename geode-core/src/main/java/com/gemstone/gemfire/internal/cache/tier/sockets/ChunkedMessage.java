@@ -205,6 +205,7 @@ public class ChunkedMessage extends Message
           if (!MessageType.validate(type)) {
             throw new IOException(LocalizedStrings.ChunkedMessage_INVALID_MESSAGE_TYPE_0_WHILE_READING_HEADER.toLocalizedString(Integer.valueOf(type)));
           }
+          checkCorrelationId(txid);
 
           // Set the header and payload fields only after receiving all the
           // socket data, providing better message consistency in the face
@@ -343,6 +344,12 @@ public class ChunkedMessage extends Message
   protected int checkAndSetSecurityPart() {
     return (this.securePart != null) ? 1 : 0;
   }
+
+  @Override
+  protected int checkAndSetCorrelationPart() {
+    // chunk flags never announce a correlation part
+    return 0;
+  }
   
   @Override
   protected void packHeaderInfoForSending(int msgLen, boolean isSecurityHeader) {
@@ -370,6 +377,6 @@ public class ChunkedMessage extends Message
       cb.putInt(this.msgType);
       cb.putInt(this.numberOfParts); 
       
-      cb.putInt(this.transactionId);
+      cb.putInt(getTransactionIdForSending());
     }
 }
@@ -154,6 +154,27 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
 
   private VersionTag versionTag;
 
+  /**
+   * Set to true to build and serialize the message for each client even if
+   * other clients are sent the same bytes.
+   * @since 9.0
+   */
+  private static final boolean DISABLE_SHARED_ENCODING = Boolean.getBoolean("gemfire.CacheClientNotifier.DISABLE_SHARED_ENCODING");
+
+  // bits of the key of an encoded message
+  private static final int ENCODING_INTERESTED = 0x01;
+  private static final int ENCODING_INVALIDATE = 0x02;
+  private static final int ENCODING_DELTA = 0x04;
+  private static final int ENCODING_VERSION_SHIFT = 3;
+
+  /**
+   * The messages sent for this event that are shared by every client with
+   * the same version and the same kind of subscription; null until the
+   * first one is encoded.
+   * @since 9.0
+   */
+  private transient volatile ConcurrentHashMap<Integer, EncodedMessage> encodedMessages;
+
   /* added up all constants and form single value */
   private static final int CONSTANT_MEMORY_OVERHEAD;
 
@@ -409,7 +430,12 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
       }
     }
     if (clientVersion.compareTo(Version.GFE_70) >= 0) {
-      message = getGFE70Message(proxy, serializedValue, conflation, clientVersion);
+      final int encodingKey = getEncodingKey(proxy, conflation, clientVersion);
+      if (encodingKey >= 0) {
+        message = getEncodedGFE70Message(proxy, serializedValue, conflation, clientVersion, encodingKey);
+      } else {
+        message = getGFE70Message(proxy, serializedValue, conflation, clientVersion);
+      }
     } else if (clientVersion.compareTo(Version.GFE_65) >= 0) {
       message = getGFE65Message(proxy, serializedValue, conflation, clientVersion);
     } else if (clientVersion.compareTo(Version.GFE_61) >= 0) {
@@ -931,11 +957,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
             message.addStringPart(this._regionName);
             message.addStringOrObjPart(this._keyOfInterest);
 
-            if (this.deltaBytes != null
-                && !conflation
-                && !proxy.isMarkerEnqueued()
-                && !proxy.getRegionsWithEmptyDataPolicy()
-                    .containsKey(_regionName)) {
+            if (shouldSendDelta(proxy, conflation)) {
               message.addObjPart(Boolean.TRUE);
               message.addBytesPart(this.deltaBytes);
               proxy.getStatistics().incDeltaMessagesSent();
@@ -1045,6 +1067,79 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
   }
 
 
+  private boolean shouldSendDelta(CacheClientProxy proxy, boolean conflation) {
+    return this.deltaBytes != null
+        && !conflation
+        && !proxy.isMarkerEnqueued()
+        && !proxy.getRegionsWithEmptyDataPolicy().containsKey(_regionName);
+  }
+
+  /**
+   * Returns the key under which the message for the given client is shared
+   * with other clients, or -1 if it is not shared. The key captures
+   * everything that makes the message differ between clients: the client
+   * version, whether the client is interested in the key, whether it gets
+   * invalidates instead of values and whether it gets the delta. Messages
+   * for clients with CQs carry the client's CQ names so they are not shared.
+   */
+  private int getEncodingKey(CacheClientProxy proxy, boolean conflation, Version clientVersion) {
+    if (DISABLE_SHARED_ENCODING || CacheClientProxy.AFTER_MESSAGE_CREATION_FLAG) {
+      return -1;
+    }
+    final ClientProxyMembershipID proxyId = proxy.getProxyID();
+    if (this._hasCqs && getCqs(proxyId) != null) {
+      return -1;
+    }
+    if (this.encodedMessages == null && proxy._cacheClientNotifier.getClientProxies().size() < 2) {
+      // nobody to share with
+      return -1;
+    }
+    int key = clientVersion.ordinal() << ENCODING_VERSION_SHIFT;
+    if (isClientInterested(proxyId)) {
+      key |= ENCODING_INTERESTED;
+    }
+    if (isCreate() || isUpdate()) {
+      if (this._clientInterestListInv != null && this._clientInterestListInv.contains(proxyId)) {
+        key |= ENCODING_INVALIDATE;
+      } else if (isUpdate() && shouldSendDelta(proxy, conflation)) {
+        key |= ENCODING_DELTA;
+      }
+    }
+    return key;
+  }
+
+  /**
+   * Returns the message for the given client, encoding it if no client with
+   * the same key has been sent this event yet.
+   */
+  private Message getEncodedGFE70Message(CacheClientProxy proxy,
+      byte[] latestValue, boolean conflation, Version clientVersion, int key) throws IOException {
+    ConcurrentHashMap<Integer, EncodedMessage> encodings = this.encodedMessages;
+    if (encodings == null) {
+      synchronized (this) {
+        encodings = this.encodedMessages;
+        if (encodings == null) {
+          encodings = new ConcurrentHashMap<Integer, EncodedMessage>(4, 0.75f, 1);
+          this.encodedMessages = encodings;
+        }
+      }
+    }
+    final Integer mapKey = Integer.valueOf(key);
+    EncodedMessage encoded = encodings.get(mapKey);
+    if (encoded == null) {
+      // counts the delta message sent to this client
+      Message message = getGFE70Message(proxy, latestValue, conflation, clientVersion);
+      encoded = EncodedMessage.encode(message, proxy._cacheClientNotifier.getStats());
+      EncodedMessage existing = encodings.putIfAbsent(mapKey, encoded);
+      if (existing != null) {
+        encoded = existing;
+      }
+    } else if ((key & ENCODING_DELTA) != 0) {
+      proxy.getStatistics().incDeltaMessagesSent();
+    }
+    return encoded;
+  }
+
   /**
    * @return boolean true if the event is due to net load.
    */
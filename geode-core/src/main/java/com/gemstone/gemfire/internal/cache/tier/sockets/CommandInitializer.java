@@ -323,6 +323,11 @@ public class CommandInitializer {
       gfe90Commands.putAll(ALL_COMMANDS.get(Version.GFE_82));
       ALL_COMMANDS.put(Version.GFE_90, gfe90Commands);
     }
+    {
+      Map<Integer, Command> gfe9001Commands = new HashMap<Integer, Command>();
+      gfe9001Commands.putAll(ALL_COMMANDS.get(Version.GFE_90));
+      ALL_COMMANDS.put(Version.GFE_9001, gfe9001Commands);
+    }
   }
 
   public static Map<Integer,Command> getCommands(Version version) {
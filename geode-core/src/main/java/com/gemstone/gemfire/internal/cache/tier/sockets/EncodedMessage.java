@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.tier.sockets;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+
+/**
+ * A message whose wire form has already been encoded. The bytes are
+ * immutable so one instance can be sent to any number of clients without
+ * building and serializing its parts again.
+ *
+ * @since 9.0
+ */
+class EncodedMessage extends Message {
+
+  private static final int ENCODING_BUFFER_SIZE = 8 * 1024;
+
+  private static final ThreadLocal<ByteBuffer> encodingBuffer = new ThreadLocal<ByteBuffer>() {
+    @Override
+    protected ByteBuffer initialValue() {
+      return ByteBuffer.allocate(ENCODING_BUFFER_SIZE);
+    }
+  };
+
+  private final byte[] wireBytes;
+  private final CacheClientNotifierStats stats;
+
+  private EncodedMessage(Message msg, byte[] wireBytes, CacheClientNotifierStats stats) {
+    super(0, msg.version);
+    this.msgType = msg.msgType;
+    this.transactionId = msg.transactionId;
+    this.wireBytes = wireBytes;
+    this.stats = stats;
+  }
+
+  /**
+   * Encodes the given message, which is left unchanged.
+   * @param stats records the bytes encoded and sent; may be null
+   */
+  static EncodedMessage encode(Message msg, CacheClientNotifierStats stats) throws IOException {
+    final ByteBuffer buffer = encodingBuffer.get();
+    buffer.clear();
+    final byte[] bytes = msg.toWireBytes(buffer);
+    if (stats != null) {
+      stats.incEncodedMessages(bytes.length);
+    }
+    return new EncodedMessage(msg, bytes, stats);
+  }
+
+  byte[] getWireBytes() {
+    return this.wireBytes;
+  }
+
+  @Override
+  protected void sendBytes(boolean clearMessage) throws IOException {
+    if (this.socket == null && this.os == null) {
+      throw new IOException(LocalizedStrings.Message_DEAD_CONNECTION.toLocalizedString());
+    }
+    if (this.sockCh != null) {
+      final ByteBuffer bb = ByteBuffer.wrap(this.wireBytes);
+      do {
+        this.sockCh.write(bb);
+      } while (bb.hasRemaining());
+    } else {
+      this.os.write(this.wireBytes);
+      this.os.flush();
+    }
+    if (this.msgStats != null) {
+      this.msgStats.incSentBytes(this.wireBytes.length);
+    }
+    if (this.stats != null) {
+      this.stats.incEncodedMessagesSent(this.wireBytes.length);
+    }
+  }
+}
@@ -16,6 +16,7 @@
  */
 package com.gemstone.gemfire.internal.cache.tier.sockets;
 
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -106,6 +107,18 @@ public class Message  {
   protected SocketChannel sockCh = null;
   protected OutputStream os = null;
   protected InputStream is = null;
+  /**
+   * Bytes of the next incoming message that were already read off
+   * {@link #sockCh} by a selector thread; null if none.
+   */
+  private ByteBuffer prefetchedBytes = null;
+  /**
+   * The pool that payloads read off {@link #sockCh} come from; null if
+   * payloads are read into a byte[] per part.
+   */
+  private MessageBufferPool bufferPool = MessageBufferPool.getInstance();
+  /** The pooled buffer that the received parts are slices of; null if none. */
+  private ByteBuffer pooledPayload = null;
   protected boolean messageModified = true;
   /** is this message a retry of a previously sent message? */
   protected boolean isRetry;
@@ -121,6 +134,17 @@ public class Message  {
 
   protected Part securePart = null;
   private boolean isMetaRegion = false;
+  /**
+   * The correlation id sent with, or received with, this request;
+   * {@link #NO_CORRELATION_ID} if it has none.
+   */
+  private int correlationId = NO_CORRELATION_ID;
+  /**
+   * The transaction id that the header of this reply must carry;
+   * {@link #NO_CORRELATION_ID} if it is not checked.
+   */
+  private int expectedCorrelationId = NO_CORRELATION_ID;
+  private Part correlationPart = null;
 
 
   // These two statics are fields shoved into the flags byte for transmission.
@@ -131,6 +155,18 @@ public class Message  {
   
   public static final byte MESSAGE_IS_RETRY_MASK = (byte)0xFB;
 
+  /**
+   * Set on a request that carries a correlation id in a trailing part. The
+   * part is not counted in the number of parts and the server echoes the id
+   * in the transaction id of the reply. The bit is stripped out during
+   * deserialization.
+   * @since 9.0
+   */
+  public static final byte MESSAGE_HAS_CORRELATION_ID = (byte)0x08;
+
+  /** The correlation id of a message that does not have one. */
+  public static final int NO_CORRELATION_ID = 0;
+
   // Tentative workaround to avoid OOM stated in #46754.
   public static final ThreadLocal<Integer> messageType = new ThreadLocal<Integer>();
   
@@ -219,6 +255,35 @@ public class Message  {
   public void setIsRetry() {
     this.isRetry = true;
   }
+
+  /**
+   * Sets the id that this request is sent with so that its reply can be told
+   * apart from the replies to other requests in flight on the same
+   * connection. Pass {@link #NO_CORRELATION_ID} to send it without one.
+   * @since 9.0
+   */
+  public void setCorrelationId(int correlationId) {
+    this.messageModified = true;
+    this.correlationId = correlationId;
+  }
+
+  /**
+   * Returns the correlation id this request was received with or
+   * {@link #NO_CORRELATION_ID} if it had none.
+   * @since 9.0
+   */
+  public int getCorrelationId() {
+    return this.correlationId;
+  }
+
+  /**
+   * Makes the next read of this reply fail unless its header carries the
+   * given id.
+   * @since 9.0
+   */
+  public void setExpectedCorrelationId(int correlationId) {
+    this.expectedCorrelationId = correlationId;
+  }
   
   /**
    * This returns true if the message has been marked as having been previously
@@ -474,14 +539,42 @@ public class Message  {
     if (this.isRetry) {
       flagsByte |= MESSAGE_IS_RETRY;
     }
+    if (this.correlationId != NO_CORRELATION_ID) {
+      flagsByte |= MESSAGE_HAS_CORRELATION_ID;
+    }
     getCommBuffer()
       .putInt(this.msgType)
       .putInt(msgLen)
       .putInt(this.numberOfParts)
-      .putInt(this.transactionId)
+      .putInt(getTransactionIdForSending())
       .put(flagsByte);
   }
 
+  /**
+   * Returns the transaction id to put in the header. A reply to a request
+   * that had a correlation id carries that id instead.
+   */
+  protected int getTransactionIdForSending() {
+    if (this.sc != null) {
+      final Message request = this.sc.getRequestMessage();
+      if (request != null && request.getCorrelationId() != NO_CORRELATION_ID) {
+        return request.getCorrelationId();
+      }
+    }
+    return this.transactionId;
+  }
+
+  private Part getCorrelationPartForSending() {
+    if (this.correlationId == NO_CORRELATION_ID) {
+      return null;
+    }
+    if (this.correlationPart == null) {
+      this.correlationPart = new Part();
+    }
+    this.correlationPart.setInt(this.correlationId);
+    return this.correlationPart;
+  }
+
   protected Part getSecurityPart() {
     if (this.sc != null ) {
       //look types right put get etc
@@ -513,7 +606,7 @@ public class Message  {
       // Keep track of the fact that we are making progress.
       this.sc.updateProcessingMessage();
     }
-    if (this.socket != null) {
+    if (this.socket != null || this.os != null) {
       final ByteBuffer cb = getCommBuffer();
       if (cb == null) {
         throw new IOException("No buffer");
@@ -539,6 +632,12 @@ public class Message  {
           totalPartLen += securityPart.getLength();
           partsToTransmit++;
         }
+        final Part correlationPart = getCorrelationPartForSending();
+        if (correlationPart != null) {
+          headerLen += PART_HEADER_SIZE;
+          totalPartLen += correlationPart.getLength();
+          partsToTransmit++;
+        }
 
         if ( (headerLen + totalPartLen) > Integer.MAX_VALUE ) {
           throw new MessageTooLargeException("Message size (" + (headerLen + totalPartLen) 
@@ -555,7 +654,14 @@ public class Message  {
         cb.clear();
         packHeaderInfoForSending(msgLen, (securityPart != null));
         for (int i=0; i < partsToTransmit; i++) {
-          Part part = (i == this.numberOfParts) ? securityPart : partsList[i];
+          Part part;
+          if (i < this.numberOfParts) {
+            part = partsList[i];
+          } else if (i == this.numberOfParts && securityPart != null) {
+            part = securityPart;
+          } else {
+            part = correlationPart;
+          }
 
           if (cb.remaining() < PART_HEADER_SIZE) {
             flushBuffer();
@@ -566,6 +672,8 @@ public class Message  {
           cb.put(part.getTypeCode());
           if (partLen <= cb.remaining()) {
             part.writeTo(cb);
+          } else if (this.bufferPool != null && this.sockCh != null && writeGathering(part)) {
+            // already written
           } else {
             flushBuffer();
             if (this.sockCh != null) {
@@ -595,6 +703,39 @@ public class Message  {
     }
   }
 
+  /**
+   * Writes what is in the commBuffer followed by the given part with a single
+   * gathering write.
+   * @return false if the part could not be written without copying it
+   */
+  private boolean writeGathering(Part part) throws IOException {
+    final ByteBuffer cb = getCommBuffer();
+    cb.flip();
+    final ByteBuffer[] bufs = part.getBuffersForWrite(cb);
+    if (bufs == null) {
+      cb.position(cb.limit());
+      cb.limit(cb.capacity());
+      return false;
+    }
+    try {
+      long bytesToWrite = 0;
+      for (ByteBuffer bb : bufs) {
+        bytesToWrite += bb.remaining();
+      }
+      long bytesWritten = 0;
+      while (bytesWritten < bytesToWrite) {
+        bytesWritten += this.sockCh.write(bufs);
+      }
+      if (this.msgStats != null) {
+        this.msgStats.incSentBytes(bytesWritten);
+      }
+    } finally {
+      part.finishWrite();
+    }
+    cb.clear();
+    return true;
+  }
+
   protected void flushBuffer() throws IOException {
     final ByteBuffer cb = getCommBuffer();
     if (this.sockCh != null) {
@@ -611,6 +752,39 @@ public class Message  {
     cb.clear();
   }
 
+  /**
+   * Sets the bytes of the next message that have already been read off the
+   * channel. They are consumed before anything else is read from the channel.
+   * @since 9.0
+   */
+  void setPrefetchedBytes(ByteBuffer bb) {
+    this.prefetchedBytes = bb;
+  }
+
+  /**
+   * @param pool the pool to read payloads into; null to not pool them
+   * @since 9.0
+   */
+  void setBufferPool(MessageBufferPool pool) {
+    this.bufferPool = pool;
+  }
+
+  private int readChannel(ByteBuffer cb) throws IOException {
+    final ByteBuffer prefetched = this.prefetchedBytes;
+    if (prefetched == null) {
+      return this.sockCh.read(cb);
+    }
+    final int bytesRead = Math.min(prefetched.remaining(), cb.remaining());
+    final int limit = prefetched.limit();
+    prefetched.limit(prefetched.position() + bytesRead);
+    cb.put(prefetched);
+    prefetched.limit(limit);
+    if (!prefetched.hasRemaining()) {
+      this.prefetchedBytes = null;
+    }
+    return bytesRead;
+  }
+
   private void read()
   throws IOException {
     clearParts();
@@ -634,7 +808,7 @@ public class Message  {
     if (this.sockCh != null) {
       cb.limit(headerLength);
       do {
-        int bytesRead = this.sockCh.read(cb);
+        int bytesRead = readChannel(cb);
         //System.out.println("DEBUG: fetchHeader read " + bytesRead + " bytes commBuffer=" + cb);
         if (bytesRead == -1) {
           throw new EOFException(LocalizedStrings.Message_THE_CONNECTION_HAS_BEEN_RESET_WHILE_READING_THE_HEADER.toLocalizedString());
@@ -684,6 +858,8 @@ public class Message  {
     if (!MessageType.validate(type)) {
       throw new IOException(LocalizedStrings.Message_INVALID_MESSAGE_TYPE_0_WHILE_READING_HEADER.toLocalizedString(Integer.valueOf(type)));
     }
+    checkCorrelationId(txid);
+    this.correlationId = NO_CORRELATION_ID;
     int timeToWait = 0;
     if (this.sc != null) {
       // Keep track of the fact that a message is being processed.
@@ -778,7 +954,7 @@ public class Message  {
     this.payloadLength = len;
     // this.numberOfParts = numParts;  Already set in setPayloadFields via setNumberOfParts
     this.transactionId = txid;
-    this.flags = bits;
+    this.flags = (byte)(bits & ~MESSAGE_HAS_CORRELATION_ID);
     if (this.sc != null) {
       // Keep track of the fact that a message is being processed.
       this.sc.updateProcessingMessage();
@@ -813,6 +989,11 @@ public class Message  {
       throw new IOException(LocalizedStrings.Message_DEAD_CONNECTION.toLocalizedString());
     }    
     
+    if (this.bufferPool != null && this.sockCh != null && this.bufferPool.canPool(len)) {
+      readPooledPayloadFields(numParts, len);
+      return;
+    }
+
     final ByteBuffer cb = getCommBuffer();
     cb.clear();
     cb.flip();
@@ -820,9 +1001,10 @@ public class Message  {
     int readSecurePart = 0;
     //TODO:Hitesh look if securePart can be cached here
     readSecurePart = checkAndSetSecurityPart();
+    final int readCorrelationPart = checkAndSetCorrelationPart();
     
     int bytesRemaining = len;
-    for (int i = 0; ((i < numParts + readSecurePart) || ((readSecurePart == 1) && (cb
+    for (int i = 0; ((i < numParts + readSecurePart + readCorrelationPart) || ((readSecurePart == 1) && (cb
         .remaining() > 0))); i++) {
       int bytesReadThisTime = readPartChunk(bytesRemaining);
       bytesRemaining -= bytesReadThisTime;
@@ -832,9 +1014,12 @@ public class Message  {
       if(i < numParts) {
         part = this.partsList[i];
       }
-      else {
+      else if (i == numParts && readSecurePart == 1) {
         part = this.securePart;
       }
+      else {
+        part = this.correlationPart;
+      }
       
       int partLen = cb.getInt();
       byte partType = cb.get();
@@ -859,7 +1044,7 @@ public class Message  {
               bytesThisTime = cb.capacity();
             }
             cb.limit(bytesThisTime);
-            int res = this.sockCh.read(cb);
+            int res = readChannel(cb);
             if (res != -1) {
               cb.flip();
               bytesRemaining -= res;
@@ -896,6 +1081,69 @@ public class Message  {
       }
       part.init(partBytes, partType);
     }
+    if (readCorrelationPart == 1) {
+      this.correlationId = this.correlationPart.getInt();
+    }
+  }
+
+  /**
+   * Reads the whole payload straight off the channel into a pooled buffer
+   * and makes each part a slice of it.
+   */
+  private void readPooledPayloadFields(final int numParts, final int len)
+  throws IOException {
+    final ByteBuffer payload = this.bufferPool.acquire(len);
+    // a payload still held from an earlier read is left to the GC since
+    // its parts may still be in use
+    this.pooledPayload = payload;
+    while (payload.hasRemaining()) {
+      int res = readChannel(payload);
+      if (res == -1) {
+        throw new EOFException(LocalizedStrings.Message_THE_CONNECTION_HAS_BEEN_RESET_WHILE_READING_THE_PAYLOAD.toLocalizedString());
+      }
+      if (this.msgStats != null) {
+        this.msgStats.incReceivedBytes(res);
+      }
+      if (this.sc != null) {
+        // Keep track of the fact that we are making progress
+        this.sc.updateProcessingMessage();
+      }
+    }
+    payload.flip();
+
+    final int readSecurePart = checkAndSetSecurityPart();
+    final int readCorrelationPart = checkAndSetCorrelationPart();
+    for (int i = 0; i < numParts + readSecurePart + readCorrelationPart; i++) {
+      final Part part;
+      if (i < numParts) {
+        part = this.partsList[i];
+      } else if (i == numParts && readSecurePart == 1) {
+        part = this.securePart;
+      } else {
+        part = this.correlationPart;
+      }
+      if (payload.remaining() < PART_HEADER_SIZE) {
+        throw new IOException(LocalizedStrings.Message_PART_LENGTH_0_AND_NUMBER_OF_PARTS_1_INCONSISTENT.toLocalizedString(
+            new Object[] {Integer.valueOf(len), Integer.valueOf(numParts)}));
+      }
+      final int partLen = payload.getInt();
+      final byte partType = payload.get();
+      if (partLen < 0 || partLen > payload.remaining()) {
+        throw new IOException(LocalizedStrings.Message_PART_LENGTH_0_AND_NUMBER_OF_PARTS_1_INCONSISTENT.toLocalizedString(
+            new Object[] {Integer.valueOf(len), Integer.valueOf(numParts)}));
+      }
+      if (partLen > 0) {
+        final ByteBuffer slice = payload.slice();
+        slice.limit(partLen);
+        payload.position(payload.position() + partLen);
+        part.init(slice, partType);
+      } else {
+        part.init((byte[])null, partType);
+      }
+    }
+    if (readCorrelationPart == 1) {
+      this.correlationId = this.correlationPart.getInt();
+    }
   }
 
   protected int checkAndSetSecurityPart() {
@@ -909,6 +1157,31 @@ public class Message  {
     }
   }
 
+  /**
+   * Returns 1 if a correlation id part follows the other parts of the
+   * incoming message.
+   */
+  protected int checkAndSetCorrelationPart() {
+    if ((this.flags & MESSAGE_HAS_CORRELATION_ID) != 0) {
+      if (this.correlationPart == null) {
+        this.correlationPart = new Part();
+      }
+      return 1;
+    }
+    return 0;
+  }
+
+  /**
+   * Throws if the transaction id of an incoming reply is not the correlation
+   * id of the request it is expected to answer.
+   */
+  protected void checkCorrelationId(int txid) throws IOException {
+    if (this.expectedCorrelationId != NO_CORRELATION_ID && txid != this.expectedCorrelationId) {
+      throw new IOException("Received a reply with correlation id " + txid
+          + " while expecting the reply to " + this.expectedCorrelationId);
+    }
+  }
+
   /**
    * @param bytesRemaining the most bytes we can read
    * @return the number of bytes read into commBuffer
@@ -937,7 +1210,7 @@ public class Message  {
         cb.limit(cb.position()+bytesRemaining);
       }
       while (remaining > 0) {
-        int res = this.sockCh.read(cb);
+        int res = readChannel(cb);
         if (res != -1) {
           remaining -= res;
           bytesRead += res;
@@ -990,6 +1263,15 @@ public class Message  {
       partsList[i].clear();
     }
     this.currentPart=0;
+    final ByteBuffer payload = this.pooledPayload;
+    if (payload != null) {
+      this.pooledPayload = null;
+      if (this.securePart != null) {
+        // the secure part outlives the other parts so copy it out
+        this.securePart.getSerializedForm();
+      }
+      this.bufferPool.release(payload);
+    }
   }
 
   @Override
@@ -1045,10 +1327,39 @@ public class Message  {
     this.sockCh = null;
     this.is = null;
     this.os = null;
+    this.prefetchedBytes = null;
     this.cachedCommBuffer = null;
     this.msgStats = null;
   }
 
+  /**
+   * Returns the bytes that sending this message would write. The parts are
+   * not cleared and comms must not be set.
+   * @param heapBuffer the buffer to stage the header and small parts in
+   * @since 9.0
+   */
+  byte[] toWireBytes(ByteBuffer heapBuffer) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(heapBuffer.capacity());
+    writeWireBytes(out, heapBuffer);
+    return out.toByteArray();
+  }
+
+  /**
+   * Writes the bytes that sending this message would write to the given
+   * stream. The parts are not cleared and comms must not be set.
+   * @param heapBuffer the buffer to stage the header and small parts in
+   * @since 9.0
+   */
+  void writeWireBytes(OutputStream out, ByteBuffer heapBuffer) throws IOException {
+    this.os = out;
+    this.cachedCommBuffer = heapBuffer;
+    try {
+      sendBytes(false);
+    } finally {
+      unsetComms();
+    }
+  }
+
   /**
    * Sends this message to its receiver over its
    * setOutputStream?? output stream.
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.tier.sockets;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct byte buffers that {@link Message} reads payloads into
+ * when it is receiving from a socket channel. The parts of such a message
+ * are slices of the pooled buffer and the buffer is returned to the pool
+ * when the message's parts are cleared.
+ * <p>
+ * Buffers are pooled in power of two sizes. Payloads larger than
+ * {@link #MAX_BUFFER_SIZE} are not pooled and once the pool holds
+ * {@link #MAX_POOLED_MEMORY} bytes released buffers are left to the
+ * garbage collector.
+ *
+ * @since 9.0
+ */
+public class MessageBufferPool {
+
+  /**
+   * Set to true to have messages received on a socket channel use pooled
+   * buffers.
+   */
+  public static final boolean ENABLED = Boolean.getBoolean("gemfire.client.pooled-message-buffers");
+
+  /**
+   * The largest payload, in bytes, that is read into a pooled buffer.
+   */
+  public static final int MAX_BUFFER_SIZE = Integer.getInteger("gemfire.client.pooled-message-buffer-max-size", 1024 * 1024).intValue();
+
+  /**
+   * The most memory, in bytes, that the pool keeps in buffers that are not
+   * in use.
+   */
+  public static final long MAX_POOLED_MEMORY = Long.getLong("gemfire.client.pooled-message-buffer-memory", 64L * 1024 * 1024).longValue();
+
+  private static final int MIN_BUFFER_SIZE = 1024;
+
+  private static final MessageBufferPool instance = ENABLED ? new MessageBufferPool(MAX_BUFFER_SIZE, MAX_POOLED_MEMORY) : null;
+
+  private final int maxBufferSize;
+  private final long maxPooledMemory;
+  private final ConcurrentLinkedQueue<ByteBuffer>[] sizeClasses;
+  private final AtomicLong pooledMemory = new AtomicLong();
+
+  /**
+   * Returns the pool used by messages or null if pooling is disabled.
+   */
+  public static MessageBufferPool getInstance() {
+    return instance;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  MessageBufferPool(int maxBufferSize, long maxPooledMemory) {
+    this.maxBufferSize = Math.max(MIN_BUFFER_SIZE, maxBufferSize);
+    this.maxPooledMemory = maxPooledMemory;
+    this.sizeClasses = new ConcurrentLinkedQueue[sizeClass(this.maxBufferSize) + 1];
+    for (int i = 0; i < this.sizeClasses.length; i++) {
+      this.sizeClasses[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+    }
+  }
+
+  private static int sizeClass(int size) {
+    if (size <= MIN_BUFFER_SIZE) {
+      return 0;
+    }
+    return 32 - Integer.numberOfLeadingZeros(size - 1) - 10;
+  }
+
+  /**
+   * Returns true if a payload of the given size can come from this pool.
+   */
+  public boolean canPool(int size) {
+    return size <= this.maxBufferSize;
+  }
+
+  /**
+   * Returns a cleared buffer whose limit is <code>size</code>.
+   */
+  public ByteBuffer acquire(int size) {
+    final int sc = sizeClass(size);
+    ByteBuffer result = this.sizeClasses[sc].poll();
+    if (result != null) {
+      this.pooledMemory.addAndGet(-result.capacity());
+      result.clear();
+    } else {
+      result = ByteBuffer.allocateDirect(MIN_BUFFER_SIZE << sc);
+    }
+    result.limit(size);
+    return result;
+  }
+
+  /**
+   * Gives a buffer obtained from {@link #acquire(int)} back to this pool.
+   * The caller must not use the buffer, or any slice of it, afterwards.
+   */
+  public void release(ByteBuffer bb) {
+    final int capacity = bb.capacity();
+    if (this.pooledMemory.addAndGet(capacity) > this.maxPooledMemory) {
+      this.pooledMemory.addAndGet(-capacity);
+      return;
+    }
+    this.sizeClasses[sizeClass(capacity)].offer(bb);
+  }
+
+  /**
+   * Returns the number of bytes held in buffers that are not in use.
+   */
+  public long getPooledMemory() {
+    return this.pooledMemory.get();
+  }
+}
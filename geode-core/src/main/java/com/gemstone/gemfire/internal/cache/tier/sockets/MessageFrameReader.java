@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.tier.sockets;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import com.gemstone.gemfire.internal.cache.tier.MessageType;
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+
+/**
+ * Reads a framed {@link Message} off a non-blocking channel so that a
+ * selector thread can wait for a complete request before handing its
+ * connection to a worker thread.
+ * <p>
+ * An idle reader holds no buffer. Once the fixed length header has arrived
+ * the buffer is grown to hold the whole message, unless the message is
+ * larger than the prefetch limit in which case only the header is held and
+ * the worker reads the payload off the socket itself.
+ *
+ * @since 9.0
+ */
+class MessageFrameReader {
+
+  static final int HEADER_LENGTH = 17;
+
+  private final int maxPrefetchSize;
+
+  private ByteBuffer buffer;
+  private boolean headerRead;
+
+  MessageFrameReader(int maxPrefetchSize) {
+    this.maxPrefetchSize = maxPrefetchSize;
+  }
+
+  /**
+   * Reads whatever is available on the channel.
+   * @return true if {@link #takeFrame()} can be called
+   * @throws EOFException if the channel has been closed by the peer
+   */
+  boolean readFrom(ReadableByteChannel ch) throws IOException {
+    if (this.buffer == null) {
+      this.buffer = ByteBuffer.allocate(HEADER_LENGTH);
+      this.headerRead = false;
+    }
+    if (!this.headerRead) {
+      read(ch);
+      if (this.buffer.hasRemaining()) {
+        return false;
+      }
+      this.headerRead = true;
+      final int type = this.buffer.getInt(0);
+      final int len = this.buffer.getInt(4);
+      if (!MessageType.validate(type)) {
+        throw new IOException(LocalizedStrings.Message_INVALID_MESSAGE_TYPE_0_WHILE_READING_HEADER.toLocalizedString(Integer.valueOf(type)));
+      }
+      if (len < 0 || len > Message.MAX_MESSAGE_SIZE) {
+        throw new IOException("Message size (" + len
+            + ") exceeds gemfire.client.max-message-size setting (" + Message.MAX_MESSAGE_SIZE + ")");
+      }
+      if (len == 0 || HEADER_LENGTH + len > this.maxPrefetchSize) {
+        return true;
+      }
+      ByteBuffer frame = ByteBuffer.allocate(HEADER_LENGTH + len);
+      this.buffer.flip();
+      frame.put(this.buffer);
+      this.buffer = frame;
+    }
+    read(ch);
+    return !this.buffer.hasRemaining();
+  }
+
+  private void read(ReadableByteChannel ch) throws IOException {
+    while (this.buffer.hasRemaining()) {
+      int bytesRead = ch.read(this.buffer);
+      if (bytesRead == -1) {
+        throw new EOFException(LocalizedStrings.Message_THE_CONNECTION_HAS_BEEN_RESET_WHILE_READING_THE_HEADER.toLocalizedString());
+      }
+      if (bytesRead == 0) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Returns the bytes read so far, ready to be read by a {@link Message},
+   * and resets this reader for the next message.
+   */
+  ByteBuffer takeFrame() {
+    ByteBuffer result = this.buffer;
+    this.buffer = null;
+    this.headerRead = false;
+    result.flip();
+    return result;
+  }
+}
@@ -48,7 +48,8 @@ public class Part {
 
   /** The payload of this part.
    * Could be null, a byte[] or a HeapDataOutputStream on the send side.
-   * Could be null, or a byte[] on the receiver side.
+   * Could be null, a byte[] or a slice of a pooled ByteBuffer on the
+   * receiver side.
    */
   private Object part;
 
@@ -65,6 +66,21 @@ public class Part {
     this.typeCode = tc;
   }
 
+  /**
+   * Makes this part refer to a slice of a pooled buffer. The slice is only
+   * valid until the message that read it clears its parts so it is copied to
+   * a byte[] before being handed out.
+   * @since 9.0
+   */
+  void init(ByteBuffer v, byte tc) {
+    if (tc == EMPTY_BYTEARRAY_CODE) {
+      this.part = EMPTY_BYTE_ARRAY;
+    }
+    else {
+      this.part = v;
+    }
+    this.typeCode = tc;
+  }
 
   public void clear() {
     this.part = null;
@@ -81,6 +97,12 @@ public class Part {
         return true;
       }
     }
+    if (isObject() && this.part instanceof ByteBuffer) {
+      ByteBuffer bb = (ByteBuffer)this.part;
+      if (bb.remaining() == 1 && bb.get(bb.position()) == DSCODE.NULL) {
+        return true;
+      }
+    }
     return false;
   }
   public boolean isObject() {
@@ -144,6 +166,8 @@ public class Part {
       return ((byte[])this.part).length;
     } else if (this.part instanceof StoredObject) {
       return ((StoredObject) this.part).getDataSize();
+    } else if (this.part instanceof ByteBuffer) {
+      return ((ByteBuffer) this.part).remaining();
     } else {
       return ((HeapDataOutputStream)this.part).size();
     }
@@ -156,7 +180,7 @@ public class Part {
       Assert.assertTrue(false, "expected String part to be of type BYTE, part ="
           + this.toString());
     }
-    return CacheServerHelper.fromUTF((byte[])this.part);
+    return CacheServerHelper.fromUTF(getSerializedForm());
   }
   
   public int getInt() {
@@ -169,6 +193,10 @@ public class Part {
           "expected int length to be 4 but it was " + getLength()
           + "; part = " + this.toString());
     }
+    if (this.part instanceof ByteBuffer) {
+      ByteBuffer bb = (ByteBuffer)this.part;
+      return bb.getInt(bb.position());
+    }
     byte[] bytes = getSerializedForm();
     return decodeInt(bytes, 0);
   }
@@ -226,6 +254,10 @@ public class Part {
           "expected long length to be 8 but it was " + getLength()
           + "; part = " + this.toString());
     }
+    if (this.part instanceof ByteBuffer) {
+      ByteBuffer bb = (ByteBuffer)this.part;
+      return bb.getLong(bb.position());
+    }
     byte[] bytes = getSerializedForm();
     return ((((long)bytes[0]) << 56) & 0xFF00000000000000l) |
            ((((long)bytes[1]) << 48) & 0x00FF000000000000l) |
@@ -243,21 +275,31 @@ public class Part {
       return null;
     } else if (this.part instanceof byte[]) {
       return (byte[])this.part;
+    } else if (this.part instanceof ByteBuffer) {
+      // copy out of the pooled buffer since the caller may keep the bytes
+      ByteBuffer bb = ((ByteBuffer)this.part).duplicate();
+      byte[] bytes = new byte[bb.remaining()];
+      bb.get(bytes);
+      this.part = bytes;
+      return bytes;
     } else {
       return null; // should not be called on sender side?
     }
   }
   public Object getObject(boolean unzip) throws IOException, ClassNotFoundException {
     if (isBytes()) {
+      if (this.part instanceof ByteBuffer) {
+        return getSerializedForm();
+      }
       return this.part;
     }
     else {
       if (this.version != null) {
-        return CacheServerHelper.deserialize((byte[])this.part, this.version,
+        return CacheServerHelper.deserialize(getSerializedForm(), this.version,
             unzip);
       }
       else {
-        return CacheServerHelper.deserialize((byte[])this.part, unzip);
+        return CacheServerHelper.deserialize(getSerializedForm(), unzip);
       }
     }
   }
@@ -285,6 +327,8 @@ public class Part {
       if (this.part instanceof byte[]) {
         byte[] bytes = (byte[])this.part;
         out.write(bytes, 0, bytes.length);
+      } else if (this.part instanceof ByteBuffer) {
+        HeapDataOutputStream.writeByteBufferToStream(out, buf, ((ByteBuffer)this.part).duplicate());
       } else if (this.part instanceof StoredObject) {
         StoredObject so = (StoredObject) this.part;
         ByteBuffer sobb = so.createDirectByteBuffer();
@@ -318,6 +362,8 @@ public class Part {
     if (getLength() > 0) {
       if (this.part instanceof byte[]) {
         buf.put((byte[])this.part);
+      } else if (this.part instanceof ByteBuffer) {
+        buf.put(((ByteBuffer)this.part).duplicate());
       } else if (this.part instanceof StoredObject) {
         StoredObject c = (StoredObject) this.part;
         ByteBuffer bb = c.createDirectByteBuffer();
@@ -368,6 +414,11 @@ public class Part {
           }
           buf.clear();
         }
+      } else if (this.part instanceof ByteBuffer) {
+        ByteBuffer bb = ((ByteBuffer)this.part).duplicate();
+        while (bb.remaining() > 0) {
+          sc.write(bb);
+        }
       } else if (this.part instanceof StoredObject) {
         // instead of copying the StoredObject to buf try to create a direct ByteBuffer and
         // just write it directly to the socket channel.
@@ -407,6 +458,47 @@ public class Part {
     }
   }
   
+  /**
+   * Returns buffers holding the contents of this part, preceded by
+   * <code>first</code>, so that they can be written to a channel with a
+   * single gathering write. Returns null if the contents would have to be
+   * copied into a buffer first.
+   * The caller must call {@link #finishWrite()} once the buffers are written.
+   * @since 9.0
+   */
+  final ByteBuffer[] getBuffersForWrite(ByteBuffer first) {
+    if (this.part instanceof byte[]) {
+      return new ByteBuffer[] {first, ByteBuffer.wrap((byte[])this.part)};
+    } else if (this.part instanceof ByteBuffer) {
+      return new ByteBuffer[] {first, ((ByteBuffer)this.part).duplicate()};
+    } else if (this.part instanceof StoredObject) {
+      ByteBuffer bb = ((StoredObject)this.part).createDirectByteBuffer();
+      if (bb == null) {
+        return null;
+      }
+      return new ByteBuffer[] {first, bb};
+    } else if (this.part instanceof HeapDataOutputStream) {
+      HeapDataOutputStream hdos = (HeapDataOutputStream)this.part;
+      hdos.finishWriting();
+      ByteBuffer[] result = new ByteBuffer[hdos.getByteBufferCount() + 1];
+      result[0] = first;
+      hdos.fillByteBufferArray(result, 1);
+      return result;
+    }
+    return null;
+  }
+
+  /**
+   * Restores this part after the buffers from
+   * {@link #getBuffersForWrite(ByteBuffer)} have been written.
+   * @since 9.0
+   */
+  final void finishWrite() {
+    if (this.part instanceof HeapDataOutputStream) {
+      ((HeapDataOutputStream)this.part).rewind();
+    }
+  }
+
   static private String typeCodeToString(byte c) {
     switch (c) {
     case BYTE_CODE:
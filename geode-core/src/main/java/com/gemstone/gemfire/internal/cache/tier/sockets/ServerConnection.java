@@ -148,6 +148,15 @@ public class ServerConnection implements Runnable {
   // IMPORTANT: if new messages are added change setHandshake to initialize them
   // to the correct Version for serializing to the client
   private Message requestMsg = new Message(2, Version.CURRENT);
+  /**
+   * Reads the next request for the selector; null until the first request
+   * after the handshake.
+   */
+  private MessageFrameReader frameReader;
+  /**
+   * The nanoTime at which the selector handed this connection to a thread.
+   */
+  private long dispatchTime;
   private Message replyMsg = new Message(1, Version.CURRENT);
   private Message responseMsg = new Message(1, Version.CURRENT);
   private Message errorMsg = new Message(1, Version.CURRENT);
@@ -1136,6 +1145,7 @@ public class ServerConnection implements Runnable {
       boolean finishedMsg = false;
       try {
         this.stats.decThreadQueueSize();
+        this.stats.incThreadQueueDispatchTime(this.dispatchTime);
         if (!isTerminated()) {
           Message.setTLCommBuffer(getAcceptor().takeCommBuffer());
           doOneMessage();
@@ -1215,6 +1225,43 @@ public class ServerConnection implements Runnable {
   public SelectableChannel getSelectableChannel() {
     return this.theSocket.getChannel();
   }
+  /**
+   * Called by the selector thread when our channel is readable. Reads as much
+   * of the next request as is available without blocking so that a thread is
+   * only used once the request has arrived.
+   * @param readAheadSize the largest request to buffer; 0 to not read ahead
+   * @return true if this connection should now be handed to a thread
+   * @throws IOException if the read failed; it has already been logged and
+   * the caller must close this connection
+   * @since 9.0
+   */
+  boolean readRequestWithoutBlocking(int readAheadSize) throws IOException {
+    if (this.doHandshake || readAheadSize <= 0) {
+      return true;
+    }
+    if (this.frameReader == null) {
+      this.frameReader = new MessageFrameReader(readAheadSize);
+    }
+    try {
+      if (!this.frameReader.readFrom(this.theSocket.getChannel())) {
+        this.stats.incPartialMessageReads();
+        return false;
+      }
+    }
+    catch (IOException e) {
+      this.frameReader = null;
+      BaseCommand.handleReadAheadException(this, e);
+      throw e;
+    }
+    this.requestMsg.setPrefetchedBytes(this.frameReader.takeFrame());
+    return true;
+  }
+  /**
+   * Records that the selector is handing this connection to a thread.
+   */
+  void setDispatchTime() {
+    this.dispatchTime = System.nanoTime();
+  }
   public void registerWithSelector2(Selector s) throws IOException {
     /*this.sKey = */getSelectableChannel().register(s, SelectionKey.OP_READ, this);
   }
@@ -961,6 +961,20 @@ public abstract class RegionVersionVector<T extends VersionSource<?>> implements
     return isDominatedByRemote;
   }
   
+  /**
+   * Test to see if this vector has seen every version of the given members
+   * up to and including the given region versions.
+   * @since 9.0
+   */
+  public boolean containsVersionsUpTo(Map<T, Long> memberToVersion) {
+    for (Map.Entry<T, Long> entry: memberToVersion.entrySet()) {
+      if (!isGCVersionDominatedByHolder(entry.getValue(), getHolderForMember(entry.getKey()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * wait for this vector to dominate the given vector.  This means that
    * the receiver has seen all version changes that the given vector has seen.
@@ -3713,8 +3713,8 @@ public class LocalizedStrings {
   public static final StringId ParallelGatewaySender_0_CAN_NOT_BE_USED_WITH_REPLICATED_REGION_1 = new StringId(5717,"Parallel gateway sender {0} can not be used with replicated region {1}");
 
   public static final StringId GemFireCacheImpl_REST_SERVER_ON_PORT_0_IS_SHUTTING_DOWN = new StringId(6500, "Rest Server on port {0} is shutting down");
-  public static final StringId PartitionedRegion_QUERY_TRACE_LOCAL_NODE_LOG = new StringId(6501, "  Local {0} took {1}ms and returned {2} results; {3}");
-  public static final StringId PartitionedRegion_QUERY_TRACE_REMOTE_NODE_LOG = new StringId(6502, "  Remote {0} took {1}ms and returned {2} results; {3}");
+  public static final StringId PartitionedRegion_QUERY_TRACE_LOCAL_NODE_LOG = new StringId(6501, "  Local {0} took {1}ms with {4} threads and returned {2} results; {3}");
+  public static final StringId PartitionedRegion_QUERY_TRACE_REMOTE_NODE_LOG = new StringId(6502, "  Remote {0} took {1}ms with {4} threads and returned {2} results; {3}");
   public static final StringId PartitionedRegion_QUERY_TRACE_LOG = new StringId(6503, "Trace Info for Query: {0}");
 
   public static final StringId Region_RemoveAll_Applied_PartialKeys_At_Server_0 = new StringId(6504, "Region {0} removeAll at server applied partial keys due to exception.");
@@ -3763,6 +3763,14 @@ public class LocalizedStrings {
 
   public static final StringId LuceneXmlParser_CLASS_0_IS_NOT_AN_INSTANCE_OF_ANALYZER = new StringId(6623, "Class \"{0}\" is not an instance of Analyzer.");
 
+  public static final StringId DiskStoreImpl_RECOVERED_0_BYTES_AND_1_ENTRIES_FROM_2_OPLOGS_OF_3_IN_4_MS = new StringId(6624, "Recovered {0} bytes and {1} entries from {2} oplogs of disk store {3} in {4} ms ({5} bytes/sec, {6} entries/sec) using {7} recovery read threads");
+
+  public static final StringId PartitionedRegionRebalanceOp_SIMULATED_REBALANCE_0_WOULD_TRANSFER_1_BUCKETS_2_BYTES_3_MS = new StringId(6625, "Simulated rebalance of {0} would transfer {1} buckets totalling {2} bytes, taking about {3} ms within the bandwidth budget of {4} bytes/sec");
+
+  public static final StringId NearCacheInterestListener_COULD_NOT_REGISTER_INTEREST_IN_KEY_0_OF_NEAR_CACHE_1 = new StringId(6626, "Could not register interest in key {0} of near cache {1}. The entry is destroyed locally instead of being cached.");
+
+  public static final StringId OplogGroupCommitter_FAILED_SYNCING_THE_GROUP_OF_0_OPERATIONS = new StringId(6627, "Failed syncing the oplogs written to by a group of {0} operations");
+
   /** Testing strings, messageId 90000-99999 **/
   
   /** These are simple messages for testing, translated with Babelfish. **/
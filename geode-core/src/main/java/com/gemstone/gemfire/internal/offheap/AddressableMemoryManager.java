@@ -50,6 +50,10 @@ public class AddressableMemoryManager {
   }
   
   public static long allocate(int size) {
+    return allocate((long) size);
+  }
+
+  public static long allocate(long size) {
     if (unsafe == null) {
       throw new OutOfMemoryError("Off-heap memory is not available because: " + reason);
     }
@@ -49,6 +49,23 @@ public class FreeListManager {
   final private AtomicReferenceArray<OffHeapStoredObjectAddressStack> tinyFreeLists = new AtomicReferenceArray<OffHeapStoredObjectAddressStack>(TINY_FREE_LIST_COUNT);
   // hugeChunkSet is sorted by chunk size in ascending order. It will only contain chunks larger than MAX_TINY.
   private final ConcurrentSkipListSet<OffHeapStoredObject> hugeChunkSet = new ConcurrentSkipListSet<OffHeapStoredObject>();
+  /**
+   * Lock-free stacks kept in front of the tinyFreeLists. Null if
+   * FREE_LIST_CACHE_STRIPES is 0 or the slabs can not be cached.
+   */
+  private final TinyFreeListCache tinyCache;
+  /**
+   * Free chunks the background defragmenter has taken out of the free lists
+   * but not yet coalesced. Guarded by this.
+   */
+  private OffHeapStoredObjectAddressStack backgroundChunks = new OffHeapStoredObjectAddressStack();
+  /** The number of chunks in backgroundChunks. Guarded by this. */
+  private int backgroundChunkCount;
+  /**
+   * The free list the background defragmenter drains next. The tiny free lists
+   * come first followed by the huge chunks. Guarded by this.
+   */
+  private int backgroundCursor;
   private final AtomicLong allocatedSize = new AtomicLong(0L);
 
   private int getNearestTinyMultiple(int size) {
@@ -112,6 +129,9 @@ public class FreeListManager {
         tinyFree += cl.computeTotalSize();
       }
     }
+    if (this.tinyCache != null) {
+      tinyFree += this.tinyCache.computeTotalSize();
+    }
     return tinyFree;
   }
   long getFreeHugeMemory() {
@@ -130,8 +150,21 @@ public class FreeListManager {
   private final MemoryAllocatorImpl ma;
 
   public FreeListManager(MemoryAllocatorImpl ma, final Slab[] slabs) {
+    this(ma, slabs, FREE_LIST_CACHE_STRIPES);
+  }
+
+  /**
+   * @param cacheStripes the number of lock-free stripes kept in front of each
+   * tiny free list; 0 to not use them
+   */
+  public FreeListManager(MemoryAllocatorImpl ma, final Slab[] slabs, int cacheStripes) {
     this.ma = ma;
     this.slabs = slabs;
+    if (cacheStripes > 0 && TinyFreeListCache.canCache(slabs)) {
+      this.tinyCache = new TinyFreeListCache(TINY_FREE_LIST_COUNT, cacheStripes, FREE_LIST_CACHE_SIZE);
+    } else {
+      this.tinyCache = null;
+    }
     long total = 0;
     Fragment[] tmp = new Fragment[slabs.length];
     for (int i=0; i < slabs.length; i++) {
@@ -258,6 +291,9 @@ public class FreeListManager {
         cl.logSizes(lw, "Free tiny of size ");
       }
     }
+    if (this.tinyCache != null) {
+      lw.info("Free tiny chunks cached in front of the free lists use " + this.tinyCache.computeTotalSize() + " bytes.");
+    }
   }
   private void logFragmentState(Logger lw) {
     for (Fragment f: this.fragmentList) {
@@ -301,6 +337,21 @@ public class FreeListManager {
     verifyHugeMultiple(HUGE_MULTIPLE);
   }
   public final static int MAX_TINY = TINY_MULTIPLE*TINY_FREE_LIST_COUNT;
+  /**
+   * Number of lock-free stripes kept in front of each tiny free list.
+   * Each thread allocates from and frees to the stripe picked by its id and only
+   * goes to the synchronized free list, in batches, when its stripe is empty or full.
+   * If 0, the default, tiny chunks are allocated from and freed to the free lists directly.
+   */
+  public final static int FREE_LIST_CACHE_STRIPES = Integer.getInteger("gemfire.OFF_HEAP_FREE_LIST_CACHE_STRIPES", 0);
+  /**
+   * Number of free chunks a single stripe may hold before all of them are returned to the free list.
+   */
+  public final static int FREE_LIST_CACHE_SIZE = Integer.getInteger("gemfire.OFF_HEAP_FREE_LIST_CACHE_SIZE", 32);
+  /**
+   * Number of free chunks moved from a free list to an empty stripe at once.
+   */
+  public final static int FREE_LIST_CACHE_BATCH = Integer.getInteger("gemfire.OFF_HEAP_FREE_LIST_CACHE_BATCH", 16);
   /**
    * Defragments memory and returns true if enough memory to allocate chunkSize
    * is freed. Otherwise returns false;
@@ -444,6 +495,143 @@ public class FreeListManager {
    */
   protected void afterDefragmentationCountFetched() {
   }
+
+  /**
+   * Returns the percentage of free memory that is in free lists instead of in
+   * fragments. Memory in a free list can only be reused by an allocation of
+   * about the same size as the chunk that was freed.
+   */
+  int getFreeListFragmentation() {
+    final long freeMemory = getFreeMemory();
+    if (freeMemory <= 0) {
+      return 0;
+    }
+    final long inFreeLists = freeMemory - getFreeFragmentMemory();
+    if (inFreeLists <= 0) {
+      return 0;
+    }
+    return (int) (inFreeLists * 100 / freeMemory);
+  }
+
+  /**
+   * Moves the chunks in the tiny cache to their free lists, where a
+   * background defragmentation finds them.
+   */
+  void flushTinyCache() {
+    if (this.tinyCache == null) {
+      return;
+    }
+    for (int i = 0; i < this.tinyFreeLists.length(); i++) {
+      long head = this.tinyCache.detachAll(i);
+      if (head != 0L) {
+        getTinyFreeList(i).offerChain(head);
+      }
+    }
+  }
+
+  /**
+   * Runs one time slice of a background defragmentation by moving up to
+   * maxChunks chunks from the free lists to the chunks held for coalescing.
+   * Allocations are not blocked but will not find the held chunks; a
+   * foreground defragmentation takes them back.
+   * @return true if every free list has been drained, or maxHeldChunks
+   * are held, and finishBackgroundDefragmentation should now be called.
+   */
+  synchronized boolean backgroundDefragmentationSlice(int maxChunks, int maxHeldChunks) {
+    int moved = 0;
+    while (moved < maxChunks) {
+      final int max = Math.min(maxChunks - moved, maxHeldChunks - this.backgroundChunkCount);
+      if (max <= 0) {
+        return true;
+      }
+      int count = 0;
+      if (this.backgroundCursor < this.tinyFreeLists.length()) {
+        OffHeapStoredObjectAddressStack clq = this.tinyFreeLists.get(this.backgroundCursor);
+        long head = clq == null ? 0L : clq.pollBatch(max);
+        if (head != 0L) {
+          for (long addr = head; addr != 0L; addr = OffHeapStoredObject.getNext(addr)) {
+            count++;
+          }
+          this.backgroundChunks.offerChain(head);
+        }
+      } else {
+        OffHeapStoredObject c;
+        while (count < max && (c = this.hugeChunkSet.pollFirst()) != null) {
+          this.backgroundChunks.offer(c.getAddress());
+          count++;
+        }
+      }
+      if (count == 0) {
+        this.backgroundCursor++;
+        if (this.backgroundCursor > this.tinyFreeLists.length()) {
+          return true;
+        }
+      }
+      this.backgroundChunkCount += count;
+      moved += count;
+    }
+    return false;
+  }
+
+  /**
+   * Ends a background defragmentation by coalescing the held chunks.
+   * Each run of adjacent chunks becomes a new fragment and every other
+   * chunk is put back on its free list.
+   * @return the number of chunks that were coalesced into fragments
+   */
+  synchronized int finishBackgroundDefragmentation() {
+    this.backgroundCursor = 0;
+    if (this.backgroundChunkCount == 0) {
+      return 0;
+    }
+    long[] sorted = new long[this.backgroundChunkCount];
+    int sortedSize = 0;
+    long addr = this.backgroundChunks.poll();
+    while (addr != 0L) {
+      sorted[sortedSize++] = addr;
+      addr = this.backgroundChunks.poll();
+    }
+    this.backgroundChunkCount = 0;
+    Arrays.sort(sorted, 0, sortedSize);
+    int coalesced = 0;
+    ArrayList<Fragment> tmp = new ArrayList<Fragment>();
+    int i = 0;
+    while (i < sortedSize) {
+      final long runAddr = sorted[i];
+      long runSize = OffHeapStoredObject.getSize(runAddr);
+      int j = i+1;
+      while (j < sortedSize && runAddr + runSize == sorted[j]
+          && runSize + OffHeapStoredObject.getSize(sorted[j]) <= Integer.MAX_VALUE) {
+        runSize += OffHeapStoredObject.getSize(sorted[j]);
+        j++;
+      }
+      if (j - i > 1) {
+        tmp.add(createFragment(runAddr, (int) runSize));
+        coalesced += j - i;
+      } else {
+        free(runAddr, false);
+      }
+      i = j;
+    }
+    if (!tmp.isEmpty()) {
+      if (this.validateMemoryWithFill) {
+        for (Fragment f: tmp) {
+          f.fill();
+        }
+      }
+      this.fragmentList.addAll(tmp);
+      // Signal any waiters that new fragments are available.
+      this.defragmentationCount.incrementAndGet();
+      int largestFragment = 0;
+      for (Fragment f: this.fragmentList) {
+        largestFragment = Math.max(largestFragment, f.freeSpace());
+      }
+      this.ma.getStats().setLargestFragment(largestFragment);
+      this.ma.getStats().setFragments(this.fragmentList.size());
+      this.ma.getStats().setFragmentation(getFragmentation());
+    }
+    return coalesced;
+  }
   
   static void verifyOffHeapAlignment(int tinyMultiple) {
     if (tinyMultiple <= 0 || (tinyMultiple & 3) != 0) {
@@ -497,6 +685,18 @@ public class FreeListManager {
     collectFreeFragmentChunks(l);
     collectFreeHugeChunks(l);
     collectFreeTinyChunks(l);
+    if (this.tinyCache != null) {
+      this.tinyCache.collect(l);
+    }
+    collectBackgroundChunks(l);
+  }
+  private void collectBackgroundChunks(List<OffHeapStoredObjectAddressStack> l) {
+    this.backgroundCursor = 0;
+    if (this.backgroundChunkCount > 0) {
+      l.add(this.backgroundChunks);
+      this.backgroundChunks = new OffHeapStoredObjectAddressStack();
+      this.backgroundChunkCount = 0;
+    }
   }
   List<Fragment> getFragmentList() {
     return this.fragmentList;
@@ -603,7 +803,55 @@ public class FreeListManager {
     return (int) ((((long)value + (multiple-1)) / multiple) * multiple);
   }
   private OffHeapStoredObject allocateTiny(int size, boolean useFragments) {
-    return basicAllocate(getNearestTinyMultiple(size), TINY_MULTIPLE, 0, this.tinyFreeLists, useFragments);
+    final int idx = getNearestTinyMultiple(size);
+    if (this.tinyCache != null) {
+      OffHeapStoredObject result = allocateFromTinyCache(idx);
+      if (result != null) {
+        return result;
+      }
+    }
+    return basicAllocate(idx, TINY_MULTIPLE, 0, this.tinyFreeLists, useFragments);
+  }
+  /**
+   * Pops a chunk from the caller's stripe of the tiny cache. If the stripe is empty
+   * it is refilled with a batch of chunks from the free list.
+   * Returns null if both are empty.
+   */
+  private OffHeapStoredObject allocateFromTinyCache(int idx) {
+    final OffHeapMemoryStats stats = this.ma.getStats();
+    long memAddr = this.tinyCache.poll(idx, stats);
+    if (memAddr != 0L) {
+      stats.incFreeListCacheHits();
+    } else {
+      stats.incFreeListCacheMisses();
+      OffHeapStoredObjectAddressStack clq = this.tinyFreeLists.get(idx);
+      if (clq == null) {
+        return null;
+      }
+      memAddr = clq.pollBatch(FREE_LIST_CACHE_BATCH);
+      if (memAddr == 0L) {
+        return null;
+      }
+      long first = OffHeapStoredObject.getNext(memAddr);
+      if (first != 0L) {
+        long last = first;
+        int count = 1;
+        long next = OffHeapStoredObject.getNext(last);
+        while (next != 0L) {
+          last = next;
+          count++;
+          next = OffHeapStoredObject.getNext(last);
+        }
+        long overflow = this.tinyCache.offerChain(idx, first, last, count, stats);
+        if (overflow != 0L) {
+          clq.offerChain(overflow);
+        }
+      }
+    }
+    OffHeapStoredObject result = new OffHeapStoredObject(memAddr);
+    checkDataIntegrity(result);
+    result.readyForAllocation();
+    return result;
   }
   private OffHeapStoredObject basicAllocate(int idx, int multiple, int offset, AtomicReferenceArray<OffHeapStoredObjectAddressStack> freeLists, boolean useFragments) {
     OffHeapStoredObjectAddressStack clq = freeLists.get(idx);
@@ -694,7 +942,26 @@ public class FreeListManager {
     }
   }
   private void freeTiny(long addr, int cSize) {
-    basicFree(addr, getNearestTinyMultiple(cSize), this.tinyFreeLists);
+    final int idx = getNearestTinyMultiple(cSize);
+    if (this.tinyCache != null) {
+      long overflow = this.tinyCache.offer(idx, addr, this.ma.getStats());
+      if (overflow != 0L) {
+        // the stripe is full so return all of it to the free list at once
+        getTinyFreeList(idx).offerChain(overflow);
+      }
+      return;
+    }
+    basicFree(addr, idx, this.tinyFreeLists);
+  }
+  private OffHeapStoredObjectAddressStack getTinyFreeList(int idx) {
+    OffHeapStoredObjectAddressStack clq = this.tinyFreeLists.get(idx);
+    if (clq == null) {
+      clq = createFreeListForEmptySlot(this.tinyFreeLists, idx);
+      if (!this.tinyFreeLists.compareAndSet(idx, null, clq)) {
+        clq = this.tinyFreeLists.get(idx);
+      }
+    }
+    return clq;
   }
   private void basicFree(long addr, int idx, AtomicReferenceArray<OffHeapStoredObjectAddressStack> freeLists) {
     OffHeapStoredObjectAddressStack clq = freeLists.get(idx);
@@ -764,6 +1031,16 @@ public class FreeListManager {
         addr = OffHeapStoredObject.getNext(addr);
       }
     }
+    if (this.tinyCache != null) {
+      ArrayList<Long> cached = new ArrayList<Long>();
+      for (int i = 0; i < this.tinyFreeLists.length(); i++) {
+        cached.clear();
+        this.tinyCache.getChunkAddresses(i, cached);
+        for (Long addr : cached) {
+          value.add(new MemoryBlockNode(sma, new TinyMemoryBlock(addr, i)));
+        }
+      }
+    }
     return value;
   }
   List<MemoryBlock> getAllocatedBlocks() {
@@ -70,6 +70,9 @@ public class MemoryAllocatorImpl implements MemoryAllocator {
 
   private MemoryInspector memoryInspector;
 
+  /** Null unless the background defragmenter is enabled */
+  private final OffHeapDefragmenter defragmenter;
+
   private volatile MemoryUsageListener[] memoryUsageListeners = new MemoryUsageListener[0];
   
   private static MemoryAllocatorImpl singleton = null;
@@ -95,6 +98,11 @@ public class MemoryAllocatorImpl implements MemoryAllocator {
     });
   }
 
+  public static MemoryAllocator create(OutOfOffHeapMemoryListener ooohml, OffHeapMemoryStats stats, int slabCount, 
+      long offHeapMemorySize, long maxSlabSize, SlabFactory slabFactory) {
+    return create(ooohml, stats, slabCount, offHeapMemorySize, maxSlabSize, null, slabFactory);
+  }
+
   private static MemoryAllocatorImpl create(OutOfOffHeapMemoryListener ooohml, OffHeapMemoryStats stats, int slabCount, 
       long offHeapMemorySize, long maxSlabSize, Slab[] slabs, 
       SlabFactory slabFactory) {
@@ -110,7 +118,7 @@ public class MemoryAllocatorImpl implements MemoryAllocator {
       if (slabs == null) {
         // allocate memory chunks
         logger.info("Allocating {} bytes of off-heap memory. The maximum size of a single off-heap object is {} bytes.", offHeapMemorySize, maxSlabSize);
-        slabs = new SlabImpl[slabCount];
+        slabs = new Slab[slabCount];
         long uncreatedMemory = offHeapMemorySize;
         for (int i=0; i < slabCount; i++) {
           try {
@@ -206,6 +214,12 @@ public class MemoryAllocatorImpl implements MemoryAllocator {
     
     this.freeList = new FreeListManager(this, slabs);
     this.memoryInspector = new MemoryInspectorImpl(this.freeList);
+    if (OffHeapDefragmenter.isEnabled()) {
+      this.defragmenter = new OffHeapDefragmenter(this);
+      this.defragmenter.start();
+    } else {
+      this.defragmenter = null;
+    }
 
     this.stats.incMaxMemory(this.freeList.getTotalMemory());
     this.stats.incFreeMemory(this.freeList.getTotalMemory());
@@ -368,6 +382,9 @@ public class MemoryAllocatorImpl implements MemoryAllocator {
   private void realClose() {
     // Removing this memory immediately can lead to a SEGV. See 47885.
     if (setClosed()) {
+      if (this.defragmenter != null) {
+        this.defragmenter.stop();
+      }
       this.freeList.freeSlabs();
       this.stats.close();
       singleton = null;
@@ -17,6 +17,7 @@
 package com.gemstone.gemfire.internal.offheap;
 
 import java.util.List;
+import java.util.SortedMap;
 
 /**
  * Provides for inspection of meta-data for off-heap memory blocks.
@@ -39,4 +40,12 @@ public interface MemoryInspector {
   
   public MemoryBlock getBlockAfter(MemoryBlock block);
 
+  /**
+   * Returns the number of free blocks, both unused fragments and chunks in
+   * free lists, grouped by size. Each key is a power of two and its value is
+   * the number of free blocks whose size is at least the key but less than
+   * twice the key.
+   */
+  public SortedMap<Integer, Integer> getFragmentationHistogram();
+
 }
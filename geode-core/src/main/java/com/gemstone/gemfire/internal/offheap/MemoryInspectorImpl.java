@@ -18,6 +18,8 @@ package com.gemstone.gemfire.internal.offheap;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Implementation of MemoryInspector that provides for inspection of meta-data
@@ -92,6 +94,20 @@ public class MemoryInspectorImpl implements MemoryInspector {
     }
   }
 
+  @Override
+  public SortedMap<Integer, Integer> getFragmentationHistogram() {
+    final SortedMap<Integer, Integer> result = new TreeMap<Integer, Integer>();
+    for (MemoryBlock block : getOrderedBlocks()) {
+      if (block.getState() == MemoryBlock.State.ALLOCATED || block.getBlockSize() <= 0) {
+        continue;
+      }
+      final Integer bucket = Integer.highestOneBit(block.getBlockSize());
+      final Integer count = result.get(bucket);
+      result.put(bucket, count == null ? 1 : count + 1);
+    }
+    return result;
+  }
+
   private List<MemoryBlock> getOrderedBlocks() {
     return this.freeList.getOrderedBlocks();
   }
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.offheap;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.internal.logging.LogService;
+import com.gemstone.gemfire.internal.logging.LoggingThreadGroup;
+
+/**
+ * Coalesces free off-heap chunks into fragments in the background so that
+ * allocations are less likely to need a foreground defragmentation.
+ * <p>
+ * Every {@link #BACKGROUND_DEFRAGMENTATION_INTERVAL} milliseconds the
+ * defragmenter checks what percentage of free memory sits in free lists
+ * instead of fragments. At or above {@link #BACKGROUND_DEFRAGMENTATION_THRESHOLD}
+ * it drains the free lists in slices of at most
+ * {@link #BACKGROUND_DEFRAGMENTATION_SLICE_CHUNKS} chunks, yielding between
+ * slices, and then turns each run of adjacent free chunks into a fragment.
+ * Allocations never wait on a slice. A pass that coalesces nothing doubles
+ * the time until the next check, up to 64 intervals.
+ *
+ * @since 9.0
+ */
+public class OffHeapDefragmenter {
+
+  private static final Logger logger = LogService.getLogger();
+
+  /**
+   * The percentage of free memory in free lists at which a background
+   * defragmentation is started. 0, the default, disables the defragmenter.
+   */
+  public static final int BACKGROUND_DEFRAGMENTATION_THRESHOLD = Integer.getInteger("gemfire.OFF_HEAP_BACKGROUND_DEFRAGMENTATION_THRESHOLD", 0);
+
+  /**
+   * Milliseconds between checks of the free list fragmentation.
+   */
+  public static final long BACKGROUND_DEFRAGMENTATION_INTERVAL = Long.getLong("gemfire.OFF_HEAP_BACKGROUND_DEFRAGMENTATION_INTERVAL", 1000);
+
+  /**
+   * The number of free chunks drained in one time slice.
+   */
+  public static final int BACKGROUND_DEFRAGMENTATION_SLICE_CHUNKS = Integer.getInteger("gemfire.OFF_HEAP_BACKGROUND_DEFRAGMENTATION_SLICE_CHUNKS", 1024);
+
+  /**
+   * The number of free chunks a single pass may hold before coalescing them.
+   */
+  public static final int BACKGROUND_DEFRAGMENTATION_MAX_CHUNKS = Integer.getInteger("gemfire.OFF_HEAP_BACKGROUND_DEFRAGMENTATION_MAX_CHUNKS", 1024 * 1024);
+
+  private static final int MAX_BACKOFF = 64;
+
+  private final MemoryAllocatorImpl ma;
+  private final int threshold;
+  private final long intervalMillis;
+  private final int sliceChunks;
+  private final int maxHeldChunks;
+
+  private volatile boolean stopped;
+  private Thread thread;
+
+  public OffHeapDefragmenter(MemoryAllocatorImpl ma) {
+    this(ma, BACKGROUND_DEFRAGMENTATION_THRESHOLD, BACKGROUND_DEFRAGMENTATION_INTERVAL,
+        BACKGROUND_DEFRAGMENTATION_SLICE_CHUNKS, BACKGROUND_DEFRAGMENTATION_MAX_CHUNKS);
+  }
+
+  OffHeapDefragmenter(MemoryAllocatorImpl ma, int threshold, long intervalMillis, int sliceChunks, int maxHeldChunks) {
+    this.ma = ma;
+    this.threshold = threshold;
+    this.intervalMillis = Math.max(1, intervalMillis);
+    this.sliceChunks = Math.max(1, sliceChunks);
+    this.maxHeldChunks = Math.max(1, maxHeldChunks);
+  }
+
+  public static boolean isEnabled() {
+    return BACKGROUND_DEFRAGMENTATION_THRESHOLD > 0;
+  }
+
+  public synchronized void start() {
+    if (this.thread != null) {
+      return;
+    }
+    final ThreadGroup group = LoggingThreadGroup.createThreadGroup("Off-Heap Defragmenter Thread Group", logger);
+    this.thread = new Thread(group, new Runnable() {
+      @Override
+      public void run() {
+        runLoop();
+      }
+    }, "OffHeapDefragmenter");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  public void stop() {
+    final Thread t;
+    synchronized (this) {
+      this.stopped = true;
+      t = this.thread;
+      this.thread = null;
+    }
+    if (t != null) {
+      t.interrupt();
+      try {
+        t.join(5000);
+      } catch (InterruptedException ignore) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void runLoop() {
+    int backoff = 1;
+    while (!this.stopped) {
+      try {
+        Thread.sleep(this.intervalMillis * backoff);
+      } catch (InterruptedException ignore) {
+        break;
+      }
+      try {
+        int coalesced = defragmentIfNeeded();
+        if (coalesced == 0) {
+          backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        } else if (coalesced > 0) {
+          backoff = 1;
+        }
+      } catch (RuntimeException e) {
+        logger.warn("Background off-heap defragmentation failed", e);
+      }
+    }
+  }
+
+  /**
+   * Runs a background defragmentation if the free list fragmentation is at
+   * or above the threshold.
+   * @return the number of chunks coalesced or -1 if nothing was done
+   */
+  int defragmentIfNeeded() {
+    if (this.ma.getFreeListManager().getFreeListFragmentation() < this.threshold) {
+      return -1;
+    }
+    return defragment();
+  }
+
+  /**
+   * Runs a complete background defragmentation.
+   * @return the number of chunks coalesced into fragments
+   */
+  int defragment() {
+    final FreeListManager freeList = this.ma.getFreeListManager();
+    // the chunks cached in front of the free lists are free too
+    freeList.flushTinyCache();
+    boolean drained;
+    do {
+      final OffHeapMemoryStats stats = this.ma.getStats();
+      final long start = stats.startBackgroundDefragmentationSlice();
+      try {
+        drained = freeList.backgroundDefragmentationSlice(this.sliceChunks, this.maxHeldChunks);
+      } finally {
+        stats.endBackgroundDefragmentationSlice(start);
+      }
+      if (!drained) {
+        Thread.yield();
+      }
+    } while (!drained && !this.stopped);
+    // Always finish, even when stopping, so that no chunks are left held.
+    final OffHeapMemoryStats stats = this.ma.getStats();
+    final long start = stats.startBackgroundDefragmentationSlice();
+    final int coalesced;
+    try {
+      coalesced = freeList.finishBackgroundDefragmentation();
+    } finally {
+      stats.endBackgroundDefragmentationSlice(start);
+    }
+    stats.endBackgroundDefragmentation(coalesced);
+    return coalesced;
+  }
+}
@@ -35,6 +35,16 @@ public interface OffHeapMemoryStats {
   public long startDefragmentation();
   public void endDefragmentation(long start);
   public void setFragmentation(int value);
+  public void incFreeListCacheHits();
+  public void incFreeListCacheMisses();
+  public void incFreeListContention(int value);
+  public long startBackgroundDefragmentationSlice();
+  public void endBackgroundDefragmentationSlice(long start);
+  public void endBackgroundDefragmentation(int coalescedChunks);
+  public void setHugePageSize(long value);
+  public void incHugePageSlabs();
+  public void setNumaNodes(int value);
+  public void setNumaPolicy(int value);
   
   public long getFreeMemory();
   public long getMaxMemory();
@@ -46,6 +56,17 @@ public interface OffHeapMemoryStats {
   public int getLargestFragment();
   public int getFragmentation();
   public long getDefragmentationTime();
+  public long getFreeListCacheHits();
+  public long getFreeListCacheMisses();
+  public long getFreeListContention();
+  public int getBackgroundDefragmentations();
+  public long getBackgroundDefragmentationChunks();
+  public long getBackgroundDefragmentationSlices();
+  public long getBackgroundDefragmentationPauseTime();
+  public long getHugePageSize();
+  public int getHugePageSlabs();
+  public int getNumaNodes();
+  public int getNumaPolicy();
   
   public Statistics getStats();
   public void close();
@@ -0,0 +1,357 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.offheap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.internal.OSProcess;
+import com.gemstone.gemfire.internal.logging.LogService;
+
+/**
+ * The SlabFactory used for off-heap storage. It can back slabs with huge pages
+ * and control how their pages are spread across NUMA nodes.
+ * <p>
+ * gemfire.OFF_HEAP_HUGE_PAGES selects how slabs are backed:
+ * <ul>
+ * <li>none (the default) uses {@link SlabImpl}.
+ * <li>transparent aligns each slab to the huge page size so that the kernel
+ * can back it with transparent huge pages. Java can not call madvise so this
+ * only has an effect if /sys/kernel/mm/transparent_hugepage/enabled is
+ * "always".
+ * <li>hugetlbfs maps a file created in gemfire.OFF_HEAP_HUGE_PAGE_DIR, which
+ * must be a hugetlbfs mount. If the mapping fails the slab is allocated
+ * normally.
+ * </ul>
+ * gemfire.OFF_HEAP_NUMA_POLICY selects where the pages of a slab are placed.
+ * Java can not bind memory to a node, so placement relies on the kernel's
+ * first-touch policy by writing to every page when the slab is created:
+ * <ul>
+ * <li>default does not touch the pages. Each page is placed when it is first
+ * used.
+ * <li>local touches the pages from the creating thread, placing the slab on
+ * its node.
+ * <li>interleave touches the pages from one thread per available processor,
+ * each taking every Nth huge page sized block. The scheduler spreads those
+ * threads across the nodes, so the blocks end up spread across them too.
+ * </ul>
+ *
+ * @since 9.0
+ */
+public class OffHeapSlabFactory implements SlabFactory {
+
+  private static final Logger logger = LogService.getLogger();
+
+  public static final String HUGE_PAGES_PROPERTY = "gemfire.OFF_HEAP_HUGE_PAGES";
+  public static final String HUGE_PAGE_SIZE_PROPERTY = "gemfire.OFF_HEAP_HUGE_PAGE_SIZE";
+  public static final String HUGE_PAGE_DIR_PROPERTY = "gemfire.OFF_HEAP_HUGE_PAGE_DIR";
+  public static final String NUMA_POLICY_PROPERTY = "gemfire.OFF_HEAP_NUMA_POLICY";
+
+  private static final String DEFAULT_HUGE_PAGE_SIZE = "2m";
+  private static final String DEFAULT_HUGE_PAGE_DIR = "/dev/hugepages";
+  private static final String THP_ENABLED_FILE = "/sys/kernel/mm/transparent_hugepage/enabled";
+  private static final String NUMA_NODE_DIR = "/sys/devices/system/node";
+
+  public enum HugePages {
+    NONE, TRANSPARENT, HUGETLBFS
+  }
+
+  /**
+   * The ordinal of a policy is the value of the numaPolicy statistic.
+   */
+  public enum NumaPolicy {
+    DEFAULT, LOCAL, INTERLEAVE
+  }
+
+  private final HugePages hugePages;
+  private final long hugePageSize;
+  private final File hugePageDir;
+  private final NumaPolicy numaPolicy;
+  private final OffHeapMemoryStats stats;
+  private final boolean transparentHugePagesAlways;
+  private final AtomicInteger mappedSlabCount = new AtomicInteger();
+
+  public OffHeapSlabFactory(OffHeapMemoryStats stats) {
+    this(parseHugePages(System.getProperty(HUGE_PAGES_PROPERTY)),
+        OffHeapStorage.parseOffHeapMemorySize(System.getProperty(HUGE_PAGE_SIZE_PROPERTY, DEFAULT_HUGE_PAGE_SIZE)),
+        new File(System.getProperty(HUGE_PAGE_DIR_PROPERTY, DEFAULT_HUGE_PAGE_DIR)),
+        parseNumaPolicy(System.getProperty(NUMA_POLICY_PROPERTY)), stats);
+  }
+
+  OffHeapSlabFactory(HugePages hugePages, long hugePageSize, File hugePageDir, NumaPolicy numaPolicy,
+      OffHeapMemoryStats stats) {
+    if (hugePageSize <= 0 || Long.bitCount(hugePageSize) != 1) {
+      throw new IllegalArgumentException(HUGE_PAGE_SIZE_PROPERTY + " must be a power of 2 but it was " + hugePageSize);
+    }
+    this.hugePages = hugePages;
+    this.hugePageSize = hugePageSize;
+    this.hugePageDir = hugePageDir;
+    this.numaPolicy = numaPolicy;
+    this.stats = stats;
+    this.transparentHugePagesAlways = hugePages == HugePages.TRANSPARENT && readFirstLine(THP_ENABLED_FILE).contains("[always]");
+    if (hugePages == HugePages.TRANSPARENT && !this.transparentHugePagesAlways) {
+      logger.warn("{} is transparent but {} is not \"always\" so off-heap memory may not use huge pages.",
+          HUGE_PAGES_PROPERTY, THP_ENABLED_FILE);
+    }
+    stats.setNumaNodes(getNumaNodeCount());
+    stats.setNumaPolicy(numaPolicy.ordinal());
+  }
+
+  static HugePages parseHugePages(String value) {
+    if (value == null || value.isEmpty()) {
+      return HugePages.NONE;
+    }
+    try {
+      return HugePages.valueOf(value.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(HUGE_PAGES_PROPERTY + " must be none, transparent or hugetlbfs but it was " + value);
+    }
+  }
+
+  static NumaPolicy parseNumaPolicy(String value) {
+    if (value == null || value.isEmpty()) {
+      return NumaPolicy.DEFAULT;
+    }
+    try {
+      return NumaPolicy.valueOf(value.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(NUMA_POLICY_PROPERTY + " must be default, local or interleave but it was " + value);
+    }
+  }
+
+  /**
+   * Returns the number of NUMA nodes of this machine or 1 if it can not be
+   * determined.
+   */
+  static int getNumaNodeCount() {
+    File[] nodes = new File(NUMA_NODE_DIR).listFiles();
+    int result = 0;
+    if (nodes != null) {
+      for (File node : nodes) {
+        if (node.getName().matches("node[0-9]+")) {
+          result++;
+        }
+      }
+    }
+    return Math.max(1, result);
+  }
+
+  private static String readFirstLine(String fileName) {
+    try {
+      List<String> lines = Files.readAllLines(new File(fileName).toPath());
+      return lines.isEmpty() ? "" : lines.get(0);
+    } catch (IOException | RuntimeException ignore) {
+      return "";
+    }
+  }
+
+  @Override
+  public Slab create(int size) {
+    Slab result;
+    boolean onHugePages = false;
+    switch (this.hugePages) {
+    case HUGETLBFS:
+      result = createMappedSlab(size);
+      if (result != null) {
+        onHugePages = true;
+      } else {
+        result = new SlabImpl(size);
+      }
+      break;
+    case TRANSPARENT:
+      result = new AlignedSlab(size, this.hugePageSize);
+      onHugePages = this.transparentHugePagesAlways;
+      break;
+    default:
+      result = new SlabImpl(size);
+      break;
+    }
+    touchPages(result);
+    if (onHugePages) {
+      this.stats.setHugePageSize(this.hugePageSize);
+      this.stats.incHugePageSlabs();
+    }
+    return result;
+  }
+
+  private Slab createMappedSlab(int size) {
+    File file = new File(this.hugePageDir, "gemfire-offheap-" + OSProcess.getId() + "-" + this.mappedSlabCount.incrementAndGet());
+    try {
+      return new MappedSlab(file, size, this.hugePageSize);
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Could not map off-heap memory in {} so normal pages will be used: {}", this.hugePageDir, e.toString());
+      return null;
+    }
+  }
+
+  /**
+   * Writes to each page of the slab as configured by the NUMA policy.
+   */
+  private void touchPages(final Slab slab) {
+    if (this.numaPolicy == NumaPolicy.DEFAULT) {
+      return;
+    }
+    // A huge page can only be on one node so blocks are at least that big.
+    final long blockSize = this.hugePageSize;
+    final int threadCount = this.numaPolicy == NumaPolicy.INTERLEAVE ? Runtime.getRuntime().availableProcessors() : 1;
+    if (threadCount <= 1) {
+      touchPages(slab, blockSize, 0, 1);
+      return;
+    }
+    List<Thread> threads = new ArrayList<Thread>(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      final int first = i;
+      Thread t = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          touchPages(slab, blockSize, first, threadCount);
+        }
+      }, "OffHeapSlabToucher" + i);
+      t.setDaemon(true);
+      threads.add(t);
+      t.start();
+    }
+    boolean interrupted = false;
+    for (Thread t : threads) {
+      while (true) {
+        try {
+          t.join();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Writes one byte in every page of blocks first, first+stride, first+2*stride...
+   */
+  static void touchPages(Slab slab, long blockSize, int first, int stride) {
+    final long pageSize = Math.min(blockSize, 4096);
+    final long start = slab.getMemoryAddress();
+    final long end = start + slab.getSize();
+    for (long block = start + first * blockSize; block < end; block += stride * blockSize) {
+      final long blockEnd = Math.min(block + blockSize, end);
+      for (long addr = block; addr < blockEnd; addr += pageSize) {
+        AddressableMemoryManager.writeByte(addr, (byte) 0);
+      }
+    }
+  }
+
+  /**
+   * A slab whose address is aligned to a huge page boundary.
+   */
+  static class AlignedSlab extends SlabImpl {
+    private final long allocatedAddress;
+
+    AlignedSlab(int size, long alignment) {
+      this(AddressableMemoryManager.allocate(size + alignment - 1), size, alignment);
+    }
+
+    private AlignedSlab(long allocatedAddress, int size, long alignment) {
+      super(align(allocatedAddress, alignment), size);
+      this.allocatedAddress = allocatedAddress;
+    }
+
+    static long align(long addr, long alignment) {
+      return (addr + alignment - 1) & -alignment;
+    }
+
+    @Override
+    public void free() {
+      AddressableMemoryManager.free(this.allocatedAddress);
+    }
+  }
+
+  /**
+   * A slab that is a shared mapping of a file, usually on hugetlbfs. The file
+   * is deleted once it is mapped so nothing is left behind if the JVM dies.
+   */
+  static class MappedSlab implements Slab {
+    private final MappedByteBuffer mapping;
+    private final long address;
+    private final int size;
+
+    MappedSlab(File file, int size, long pageSize) throws IOException {
+      // hugetlbfs requires the mapping to be a multiple of the page size
+      final long mappedSize = ((size + pageSize - 1) / pageSize) * pageSize;
+      if (mappedSize > Integer.MAX_VALUE) {
+        throw new IOException("Can not map " + mappedSize + " bytes");
+      }
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.setLength(mappedSize);
+        this.mapping = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mappedSize);
+      } finally {
+        file.delete();
+      }
+      this.address = AddressableMemoryManager.getDirectByteBufferAddress(this.mapping);
+      if (this.address == 0L) {
+        unmap(this.mapping);
+        throw new IOException("Could not get the address of the mapping of " + file);
+      }
+      this.size = size;
+    }
+
+    @Override
+    public long getMemoryAddress() {
+      return this.address;
+    }
+
+    @Override
+    public int getSize() {
+      return this.size;
+    }
+
+    @Override
+    public void free() {
+      unmap(this.mapping);
+    }
+
+    private static void unmap(MappedByteBuffer mapping) {
+      try {
+        Method cleanerMethod = mapping.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(mapping);
+        if (cleaner != null) {
+          Method cleanMethod = cleaner.getClass().getMethod("clean");
+          cleanMethod.setAccessible(true);
+          cleanMethod.invoke(cleaner);
+        }
+      } catch (Exception ignore) {
+      }
+    }
+
+    @Override
+    public String toString() {
+      return getClass().getSimpleName() + "{MemoryAddress=" + this.address + ", Size=" + this.size + "}";
+    }
+  }
+}
@@ -59,6 +59,17 @@ public class OffHeapStorage implements OffHeapMemoryStats {
   private static final int largestFragmentId;
   private static final int defragmentationTimeId;
   private static final int fragmentationId;
+  private static final int freeListCacheHitsId;
+  private static final int freeListCacheMissesId;
+  private static final int freeListContentionId;
+  private static final int backgroundDefragmentationsId;
+  private static final int backgroundDefragmentationChunksId;
+  private static final int backgroundDefragmentationSlicesId;
+  private static final int backgroundDefragmentationPauseTimeId;
+  private static final int hugePageSizeId;
+  private static final int hugePageSlabsId;
+  private static final int numaNodesId;
+  private static final int numaPolicyId;
   // NOTE!!!! When adding new stats make sure and update the initialize method on this class
   
   // creates and registers the statistics type
@@ -75,6 +86,17 @@ public class OffHeapStorage implements OffHeapMemoryStats {
     final String objectsDesc = "The number of objects stored in off-heap memory.";
     final String readsDesc = "The total number of reads of off-heap memory. Only reads of a full object increment this statistic. If only a part of the object is read this statistic is not incremented.";
     final String maxMemoryDesc = "The maximum amount of off-heap memory, in bytes. This is the amount of memory allocated at startup and does not change.";
+    final String freeListCacheHitsDesc = "The total number of tiny allocations satisfied by the lock-free stripes in front of the tiny free lists.";
+    final String freeListCacheMissesDesc = "The total number of tiny allocations that found their lock-free stripe empty and had to go to the tiny free list.";
+    final String freeListContentionDesc = "The total number of times a lock-free free list stripe had to be retried because another thread changed it concurrently.";
+    final String backgroundDefragmentationsDesc = "The total number of passes the background defragmenter has completed over the off-heap free lists.";
+    final String backgroundDefragmentationChunksDesc = "The total number of free chunks the background defragmenter has coalesced into fragments.";
+    final String backgroundDefragmentationSlicesDesc = "The total number of time slices the background defragmenter has run.";
+    final String backgroundDefragmentationPauseTimeDesc = "The total time the background defragmenter has held the free list manager while running its time slices.";
+    final String hugePageSizeDesc = "The size, in bytes, of the huge pages backing off-heap slabs. Zero if no slab uses huge pages.";
+    final String hugePageSlabsDesc = "The number of off-heap slabs backed by huge pages.";
+    final String numaNodesDesc = "The number of NUMA nodes of this machine.";
+    final String numaPolicyDesc = "How the pages of off-heap slabs were placed on NUMA nodes when they were created. 0 is default (when first used), 1 is local to the creating thread and 2 is interleaved across nodes.";
 
     final String usedMemory = "usedMemory";
     final String defragmentations = "defragmentations";
@@ -86,6 +108,17 @@ public class OffHeapStorage implements OffHeapMemoryStats {
     final String objects = "objects";
     final String reads = "reads";
     final String maxMemory = "maxMemory";
+    final String freeListCacheHits = "freeListCacheHits";
+    final String freeListCacheMisses = "freeListCacheMisses";
+    final String freeListContention = "freeListContention";
+    final String backgroundDefragmentations = "backgroundDefragmentations";
+    final String backgroundDefragmentationChunks = "backgroundDefragmentationChunks";
+    final String backgroundDefragmentationSlices = "backgroundDefragmentationSlices";
+    final String backgroundDefragmentationPauseTime = "backgroundDefragmentationPauseTime";
+    final String hugePageSize = "hugePageSize";
+    final String hugePageSlabs = "hugePageSlabs";
+    final String numaNodes = "numaNodes";
+    final String numaPolicy = "numaPolicy";
     
     statsType = f.createType(
         statsTypeName,
@@ -101,6 +134,17 @@ public class OffHeapStorage implements OffHeapMemoryStats {
             f.createIntGauge(objects, objectsDesc, "objects"),
             f.createLongCounter(reads, readsDesc, "operations"),
             f.createLongGauge(maxMemory, maxMemoryDesc, "bytes"),
+            f.createLongCounter(freeListCacheHits, freeListCacheHitsDesc, "operations"),
+            f.createLongCounter(freeListCacheMisses, freeListCacheMissesDesc, "operations"),
+            f.createLongCounter(freeListContention, freeListContentionDesc, "operations"),
+            f.createIntCounter(backgroundDefragmentations, backgroundDefragmentationsDesc, "defragmentations"),
+            f.createLongCounter(backgroundDefragmentationChunks, backgroundDefragmentationChunksDesc, "chunks"),
+            f.createLongCounter(backgroundDefragmentationSlices, backgroundDefragmentationSlicesDesc, "operations"),
+            f.createLongCounter(backgroundDefragmentationPauseTime, backgroundDefragmentationPauseTimeDesc, "nanoseconds", false),
+            f.createLongGauge(hugePageSize, hugePageSizeDesc, "bytes"),
+            f.createIntGauge(hugePageSlabs, hugePageSlabsDesc, "slabs"),
+            f.createIntGauge(numaNodes, numaNodesDesc, "nodes"),
+            f.createIntGauge(numaPolicy, numaPolicyDesc, "policy"),
         }
     );
     
@@ -114,6 +158,17 @@ public class OffHeapStorage implements OffHeapMemoryStats {
     objectsId = statsType.nameToId(objects);
     readsId = statsType.nameToId(reads);
     maxMemoryId = statsType.nameToId(maxMemory);
+    freeListCacheHitsId = statsType.nameToId(freeListCacheHits);
+    freeListCacheMissesId = statsType.nameToId(freeListCacheMisses);
+    freeListContentionId = statsType.nameToId(freeListContention);
+    backgroundDefragmentationsId = statsType.nameToId(backgroundDefragmentations);
+    backgroundDefragmentationChunksId = statsType.nameToId(backgroundDefragmentationChunks);
+    backgroundDefragmentationSlicesId = statsType.nameToId(backgroundDefragmentationSlices);
+    backgroundDefragmentationPauseTimeId = statsType.nameToId(backgroundDefragmentationPauseTime);
+    hugePageSizeId = statsType.nameToId(hugePageSize);
+    hugePageSlabsId = statsType.nameToId(hugePageSlabs);
+    numaNodesId = statsType.nameToId(numaNodes);
+    numaPolicyId = statsType.nameToId(numaPolicy);
   }
 
   public static long parseOffHeapMemorySize(String value) {
@@ -197,7 +252,7 @@ public class OffHeapStorage implements OffHeapMemoryStats {
 
     final int slabCount = calcSlabCount(maxSlabSize, offHeapMemorySize);
 
-    return MemoryAllocatorImpl.create(ooohml, stats, slabCount, offHeapMemorySize, maxSlabSize);
+    return MemoryAllocatorImpl.create(ooohml, stats, slabCount, offHeapMemorySize, maxSlabSize, new OffHeapSlabFactory(stats));
   }
   
   private static final long MAX_SLAB_SIZE = Integer.MAX_VALUE;
@@ -336,6 +391,115 @@ public class OffHeapStorage implements OffHeapMemoryStats {
     return this.stats.getInt(fragmentationId);
   }
   
+  @Override
+  public void incFreeListCacheHits() {
+    this.stats.incLong(freeListCacheHitsId, 1);
+  }
+
+  @Override
+  public long getFreeListCacheHits() {
+    return this.stats.getLong(freeListCacheHitsId);
+  }
+
+  @Override
+  public void incFreeListCacheMisses() {
+    this.stats.incLong(freeListCacheMissesId, 1);
+  }
+
+  @Override
+  public long getFreeListCacheMisses() {
+    return this.stats.getLong(freeListCacheMissesId);
+  }
+
+  @Override
+  public void incFreeListContention(int value) {
+    this.stats.incLong(freeListContentionId, value);
+  }
+
+  @Override
+  public long getFreeListContention() {
+    return this.stats.getLong(freeListContentionId);
+  }
+
+  @Override
+  public long startBackgroundDefragmentationSlice() {
+    return DistributionStats.getStatTime();
+  }
+
+  @Override
+  public void endBackgroundDefragmentationSlice(long start) {
+    this.stats.incLong(backgroundDefragmentationSlicesId, 1);
+    if (DistributionStats.enableClockStats) {
+      this.stats.incLong(backgroundDefragmentationPauseTimeId, DistributionStats.getStatTime()-start);
+    }
+  }
+
+  @Override
+  public void endBackgroundDefragmentation(int coalescedChunks) {
+    this.stats.incInt(backgroundDefragmentationsId, 1);
+    this.stats.incLong(backgroundDefragmentationChunksId, coalescedChunks);
+  }
+
+  @Override
+  public int getBackgroundDefragmentations() {
+    return this.stats.getInt(backgroundDefragmentationsId);
+  }
+
+  @Override
+  public long getBackgroundDefragmentationChunks() {
+    return this.stats.getLong(backgroundDefragmentationChunksId);
+  }
+
+  @Override
+  public long getBackgroundDefragmentationSlices() {
+    return this.stats.getLong(backgroundDefragmentationSlicesId);
+  }
+
+  @Override
+  public long getBackgroundDefragmentationPauseTime() {
+    return this.stats.getLong(backgroundDefragmentationPauseTimeId);
+  }
+
+  @Override
+  public void setHugePageSize(long value) {
+    this.stats.setLong(hugePageSizeId, value);
+  }
+
+  @Override
+  public long getHugePageSize() {
+    return this.stats.getLong(hugePageSizeId);
+  }
+
+  @Override
+  public void incHugePageSlabs() {
+    this.stats.incInt(hugePageSlabsId, 1);
+  }
+
+  @Override
+  public int getHugePageSlabs() {
+    return this.stats.getInt(hugePageSlabsId);
+  }
+
+  @Override
+  public void setNumaNodes(int value) {
+    this.stats.setInt(numaNodesId, value);
+  }
+
+  @Override
+  public int getNumaNodes() {
+    return this.stats.getInt(numaNodesId);
+  }
+
+  @Override
+  public void setNumaPolicy(int value) {
+    this.stats.setInt(numaPolicyId, value);
+  }
+
+  @Override
+  public int getNumaPolicy() {
+    return this.stats.getInt(numaPolicyId);
+  }
+  
   public Statistics getStats() {
     return this.stats;
   }
@@ -357,6 +521,17 @@ public class OffHeapStorage implements OffHeapMemoryStats {
     setLargestFragment(oldStats.getLargestFragment());
     setDefragmentationTime(oldStats.getDefragmentationTime());
     setFragmentation(oldStats.getFragmentation());
+    this.stats.setLong(freeListCacheHitsId, oldStats.getFreeListCacheHits());
+    this.stats.setLong(freeListCacheMissesId, oldStats.getFreeListCacheMisses());
+    this.stats.setLong(freeListContentionId, oldStats.getFreeListContention());
+    this.stats.setInt(backgroundDefragmentationsId, oldStats.getBackgroundDefragmentations());
+    this.stats.setLong(backgroundDefragmentationChunksId, oldStats.getBackgroundDefragmentationChunks());
+    this.stats.setLong(backgroundDefragmentationSlicesId, oldStats.getBackgroundDefragmentationSlices());
+    this.stats.setLong(backgroundDefragmentationPauseTimeId, oldStats.getBackgroundDefragmentationPauseTime());
+    setHugePageSize(oldStats.getHugePageSize());
+    this.stats.setInt(hugePageSlabsId, oldStats.getHugePageSlabs());
+    setNumaNodes(oldStats.getNumaNodes());
+    setNumaPolicy(oldStats.getNumaPolicy());
     
     oldStats.close();
   }
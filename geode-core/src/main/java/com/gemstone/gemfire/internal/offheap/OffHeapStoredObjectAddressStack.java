@@ -56,6 +56,51 @@ public class OffHeapStoredObjectAddressStack {
     }
     return result;
   }
+  /**
+   * Pushes a chain of addresses, linked through their next fields and ending
+   * with 0, using a single synchronization. The caller must own every
+   * address in the chain.
+   */
+  public void offerChain(long head) {
+    assert head != 0;
+    MemoryAllocatorImpl.validateAddress(head);
+    long tail = head;
+    long next = OffHeapStoredObject.getNext(tail);
+    while (next != 0L) {
+      tail = next;
+      next = OffHeapStoredObject.getNext(tail);
+    }
+    synchronized (this) {
+      OffHeapStoredObject.setNext(tail, this.topAddr);
+      this.topAddr = head;
+    }
+  }
+  /**
+   * Removes up to <code>max</code> addresses from this stack using a single
+   * synchronization. The removed addresses stay linked through their next
+   * fields and the last one has a next of 0.
+   * The caller owns all the removed addresses after this call.
+   * @return the address of the first one removed or 0 if this stack was empty
+   */
+  public long pollBatch(int max) {
+    long result;
+    synchronized (this) {
+      result = this.topAddr;
+      if (result != 0L) {
+        long last = result;
+        for (int i=1; i < max; i++) {
+          long next = OffHeapStoredObject.getNext(last);
+          if (next == 0L) {
+            break;
+          }
+          last = next;
+        }
+        this.topAddr = OffHeapStoredObject.getNext(last);
+        OffHeapStoredObject.setNext(last, 0L);
+      }
+    }
+    return result;
+  }
   /**
    * Returns the address of the "top" item in this stack.
    */
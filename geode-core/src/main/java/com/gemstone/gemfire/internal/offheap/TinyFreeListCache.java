@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.offheap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Striped, lock-free stacks of free tiny chunks that the FreeListManager
+ * keeps in front of its tiny free lists.
+ * <p>
+ * Each tiny size class has a small number of stripes and a thread always uses
+ * the stripe picked by its thread id, so threads running on different cores
+ * rarely touch the same stripe. Each stripe is a Treiber stack linked through
+ * the same "next" field that {@link OffHeapStoredObjectAddressStack} uses.
+ * To avoid the ABA problem the head of a stripe packs a version tag next to
+ * the address of its top chunk. Chunk addresses are 8 byte aligned so the
+ * head stores <code>addr >>> 3</code> in its low {@link #ADDRESS_BITS} bits
+ * and the tag in the remaining high bits. This only works for addresses below
+ * {@link #MAX_ADDRESS} which is checked when the cache is created.
+ * <p>
+ * A stripe holds at most {@link #getMaxStripeSize()} chunks. The stripe that
+ * goes over that limit is detached as a whole and handed back to the caller
+ * so that it can be returned to the shared free list in one batch.
+ *
+ * @since 9.0
+ */
+public class TinyFreeListCache {
+
+  /** The number of bits of a head that hold the shifted chunk address */
+  static final int ADDRESS_BITS = 44;
+
+  /** Addresses, exclusive, that can be stored in a head */
+  public static final long MAX_ADDRESS = 1L << (ADDRESS_BITS + 3);
+
+  private static final long ADDRESS_MASK = (1L << ADDRESS_BITS) - 1;
+
+  private static final long TAG_INCREMENT = 1L << ADDRESS_BITS;
+
+  /**
+   * Each stripe uses a 64 byte cache line of the AtomicLongArray: the head
+   * followed by the approximate number of chunks in the stripe.
+   */
+  private static final int STRIDE = 8;
+
+  private static final int COUNT_OFFSET = 1;
+
+  private final int stripeMask;
+
+  private final int maxStripeSize;
+
+  /** Stripes for each tiny size class; created on the first free of that class */
+  private final AtomicReferenceArray<AtomicLongArray> sizeClasses;
+
+  /**
+   * @param stripes
+   *          the number of stripes per size class; rounded up to a power of 2
+   * @param maxStripeSize
+   *          the number of chunks a stripe may hold before it is flushed
+   */
+  public TinyFreeListCache(int sizeClassCount, int stripes, int maxStripeSize) {
+    int n = 1;
+    while (n < stripes) {
+      n <<= 1;
+    }
+    this.stripeMask = n - 1;
+    this.maxStripeSize = Math.max(1, maxStripeSize);
+    this.sizeClasses = new AtomicReferenceArray<AtomicLongArray>(sizeClassCount);
+  }
+
+  /**
+   * Returns true if every address in the given slabs can be stored in a head.
+   */
+  public static boolean canCache(Slab[] slabs) {
+    for (Slab slab : slabs) {
+      long addr = slab.getMemoryAddress();
+      if (addr <= 0 || addr + slab.getSize() > MAX_ADDRESS) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int getStripeCount() {
+    return this.stripeMask + 1;
+  }
+
+  public int getMaxStripeSize() {
+    return this.maxStripeSize;
+  }
+
+  private int getStripeIndex() {
+    return ((int) Thread.currentThread().getId() & this.stripeMask) * STRIDE;
+  }
+
+  private AtomicLongArray getStripes(int sizeClass) {
+    AtomicLongArray result = this.sizeClasses.get(sizeClass);
+    if (result == null) {
+      result = new AtomicLongArray((this.stripeMask + 1) * STRIDE);
+      if (!this.sizeClasses.compareAndSet(sizeClass, null, result)) {
+        result = this.sizeClasses.get(sizeClass);
+      }
+    }
+    return result;
+  }
+
+  private static long getAddress(long head) {
+    return (head & ADDRESS_MASK) << 3;
+  }
+
+  private static long newHead(long oldHead, long addr) {
+    return ((oldHead + TAG_INCREMENT) & ~ADDRESS_MASK) | ((addr >>> 3) & ADDRESS_MASK);
+  }
+
+  /**
+   * Pops a chunk of the given size class from the caller's stripe.
+   *
+   * @return the address of the chunk or 0 if the stripe is empty
+   */
+  public long poll(int sizeClass, OffHeapMemoryStats stats) {
+    AtomicLongArray stripes = this.sizeClasses.get(sizeClass);
+    if (stripes == null) {
+      return 0L;
+    }
+    final int idx = getStripeIndex();
+    int retries = 0;
+    try {
+      for (;;) {
+        long head = stripes.get(idx);
+        long addr = getAddress(head);
+        if (addr == 0L) {
+          return 0L;
+        }
+        // If another thread pops addr before our CAS this may read memory
+        // that is now in use but the CAS will then fail because the tag changed.
+        long next = OffHeapStoredObject.getNext(addr);
+        if (stripes.compareAndSet(idx, head, newHead(head, next))) {
+          stripes.decrementAndGet(idx + COUNT_OFFSET);
+          return addr;
+        }
+        retries++;
+      }
+    } finally {
+      if (retries > 0) {
+        stats.incFreeListContention(retries);
+      }
+    }
+  }
+
+  /**
+   * Pushes a free chunk of the given size class onto the caller's stripe.
+   *
+   * @return 0 or, if the stripe became too large, the head of the chain of
+   *         chunks detached from it that the caller now owns
+   */
+  public long offer(int sizeClass, long addr, OffHeapMemoryStats stats) {
+    return offerChain(sizeClass, addr, addr, 1, stats);
+  }
+
+  /**
+   * Pushes a chain of free chunks of the given size class, linked through
+   * their next fields, onto the caller's stripe.
+   *
+   * @return 0 or, if the stripe became too large, the head of the chain of
+   *         chunks detached from it that the caller now owns
+   */
+  public long offerChain(int sizeClass, long first, long last, int count, OffHeapMemoryStats stats) {
+    AtomicLongArray stripes = getStripes(sizeClass);
+    final int idx = getStripeIndex();
+    int retries = 0;
+    for (;;) {
+      long head = stripes.get(idx);
+      OffHeapStoredObject.setNext(last, getAddress(head));
+      if (stripes.compareAndSet(idx, head, newHead(head, first))) {
+        break;
+      }
+      retries++;
+    }
+    if (retries > 0) {
+      stats.incFreeListContention(retries);
+    }
+    if (stripes.addAndGet(idx + COUNT_OFFSET, count) > this.maxStripeSize) {
+      return detach(stripes, idx);
+    }
+    return 0L;
+  }
+
+  /**
+   * Atomically removes all the chunks of a stripe.
+   *
+   * @return the head of the detached chain, or 0 if the stripe was empty
+   */
+  private static long detach(AtomicLongArray stripes, int idx) {
+    long head;
+    do {
+      head = stripes.get(idx);
+      if (getAddress(head) == 0L) {
+        return 0L;
+      }
+    } while (!stripes.compareAndSet(idx, head, newHead(head, 0L)));
+    long result = getAddress(head);
+    int count = 0;
+    for (long addr = result; addr != 0L; addr = OffHeapStoredObject.getNext(addr)) {
+      count++;
+    }
+    stripes.addAndGet(idx + COUNT_OFFSET, -count);
+    return result;
+  }
+
+  /**
+   * Removes every chunk from the cache and adds each detached stripe to
+   * <code>l</code>. Used by defragmentation.
+   */
+  void collect(List<OffHeapStoredObjectAddressStack> l) {
+    for (int i = 0; i < this.sizeClasses.length(); i++) {
+      AtomicLongArray stripes = this.sizeClasses.get(i);
+      if (stripes == null) {
+        continue;
+      }
+      for (int idx = 0; idx < stripes.length(); idx += STRIDE) {
+        long head = detach(stripes, idx);
+        if (head != 0L) {
+          l.add(new OffHeapStoredObjectAddressStack(head));
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes every chunk of the given size class from the cache.
+   *
+   * @return the head of a chain of the removed chunks, or 0 if there were none
+   */
+  long detachAll(int sizeClass) {
+    AtomicLongArray stripes = this.sizeClasses.get(sizeClass);
+    if (stripes == null) {
+      return 0L;
+    }
+    long result = 0L;
+    for (int idx = 0; idx < stripes.length(); idx += STRIDE) {
+      long head = detach(stripes, idx);
+      if (head != 0L) {
+        long tail = head;
+        for (long next = OffHeapStoredObject.getNext(tail); next != 0L; next = OffHeapStoredObject.getNext(tail)) {
+          tail = next;
+        }
+        OffHeapStoredObject.setNext(tail, result);
+        result = head;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds the address of every chunk of the given size class to
+   * <code>result</code>. A stripe that is modified while it is being walked is
+   * walked again.
+   */
+  void getChunkAddresses(int sizeClass, List<Long> result) {
+    AtomicLongArray stripes = this.sizeClasses.get(sizeClass);
+    if (stripes == null) {
+      return;
+    }
+    for (int idx = 0; idx < stripes.length(); idx += STRIDE) {
+      int start = result.size();
+      boolean concurrentModDetected;
+      do {
+        concurrentModDetected = false;
+        long head = stripes.get(idx);
+        long addr = getAddress(head);
+        while (addr != 0L) {
+          result.add(addr);
+          addr = OffHeapStoredObject.getNext(addr);
+          if (stripes.get(idx) != head) {
+            // Someone added or removed from the stripe so addr
+            // may no longer be free. Start again at the new head.
+            concurrentModDetected = true;
+            result.subList(start, result.size()).clear();
+            break;
+          }
+        }
+      } while (concurrentModDetected);
+    }
+  }
+
+  /**
+   * Returns the total size of the chunks in the cache.
+   */
+  long computeTotalSize() {
+    long result = 0;
+    ArrayList<Long> addrs = new ArrayList<Long>();
+    for (int i = 0; i < this.sizeClasses.length(); i++) {
+      addrs.clear();
+      getChunkAddresses(i, addrs);
+      for (Long addr : addrs) {
+        result += OffHeapStoredObject.getSize(addr);
+      }
+    }
+    return result;
+  }
+}
@@ -87,6 +87,16 @@ public class CopyOnWriteHashMap<K,V> extends AbstractMap<K, V> implements Concur
   }
 
 
+  /**
+   * Returns the unmodifiable map currently backing this map. Every change
+   * replaces it, so it can be read without ever seeing a change.
+   * @since 9.0
+   */
+  public Map<K,V> getSnapshot() {
+    return map;
+  }
+
+
   @Override
   public Set<java.util.Map.Entry<K, V>> entrySet() {
     return map.entrySet();
@@ -151,6 +151,45 @@ public interface DiskStoreMXBean {
    */
   public int getTotalRecoveriesInProgress();
 
+  /**
+   * Returns the number of compactions currently in progress on this
+   * DiskStore. A single compaction may compact several op-logs concurrently.
+   *
+   * @since 9.0
+   */
+  public int getTotalCompactionsInProgress();
+
+  /**
+   * Returns the number of bytes of live entries that compactions have copied
+   * forward to the active op-log.
+   *
+   * @since 9.0
+   */
+  public long getTotalCompactedBytes();
+
+  /**
+   * Returns the number of op-logs a single compaction compacts concurrently.
+   *
+   * @since 9.0
+   */
+  public int getCompactionThreads();
+
+  /**
+   * Returns the number of bytes per second that compactions may copy forward,
+   * or 0 if compaction is not rate limited.
+   *
+   * @since 9.0
+   */
+  public long getCompactionMaxBytesPerSecond();
+
+  /**
+   * Returns whether a compaction is currently paused, either to let
+   * foreground writes catch up or to stay within its rate limit.
+   *
+   * @since 9.0
+   */
+  public boolean isCompactionThrottled();
+
   /**
    * Requests the DiskStore to start writing to a new op-log. The old oplog will
    * be asynchronously compressed if compaction is set to true. The new op-log will
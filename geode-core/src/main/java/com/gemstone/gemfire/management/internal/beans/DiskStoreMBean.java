@@ -124,6 +124,31 @@ public class DiskStoreMBean extends NotificationBroadcasterSupport implements
     return bridge.getTotalRecoveriesInProgress();
   }
 
+  @Override
+  public int getTotalCompactionsInProgress() {
+    return bridge.getTotalCompactionsInProgress();
+  }
+
+  @Override
+  public long getTotalCompactedBytes() {
+    return bridge.getTotalCompactedBytes();
+  }
+
+  @Override
+  public int getCompactionThreads() {
+    return bridge.getCompactionThreads();
+  }
+
+  @Override
+  public long getCompactionMaxBytesPerSecond() {
+    return bridge.getCompactionMaxBytesPerSecond();
+  }
+
+  @Override
+  public boolean isCompactionThrottled() {
+    return bridge.isCompactionThrottled();
+  }
+
   @Override
   public int getWriteBufferSize() {
     return bridge.getWriteBufferSize();
@@ -19,6 +19,7 @@ package com.gemstone.gemfire.management.internal.beans;
 import java.io.File;
 
 import com.gemstone.gemfire.cache.DiskStore;
+import com.gemstone.gemfire.internal.cache.CompactionThrottle;
 import com.gemstone.gemfire.internal.cache.DirectoryHolder;
 import com.gemstone.gemfire.internal.cache.DiskStoreImpl;
 import com.gemstone.gemfire.internal.cache.DiskStoreStats;
@@ -261,6 +262,28 @@ public class DiskStoreMBeanBridge {
   public int getTotalRecoveriesInProgress() {
     return getDiskStoreStatistic(StatsKey.RECOVERIES_IN_PROGRESS).intValue();
   }
+
+  public int getTotalCompactionsInProgress() {
+    return getDiskStoreStatistic(StatsKey.COMPACTIONS_IN_PROGRESS).intValue();
+  }
+
+  public long getTotalCompactedBytes() {
+    return getDiskStoreStatistic(StatsKey.COMPACTED_BYTES).longValue();
+  }
+
+  public int getCompactionThreads() {
+    return diskStore.getCompactionThreads();
+  }
+
+  public long getCompactionMaxBytesPerSecond() {
+    CompactionThrottle throttle = diskStore.getCompactionThrottle();
+    return throttle != null ? throttle.getMaxBytesPerSecond() : 0;
+  }
+
+  public boolean isCompactionThrottled() {
+    CompactionThrottle throttle = diskStore.getCompactionThrottle();
+    return throttle != null && throttle.isThrottled();
+  }
    
   public Number getDiskStoreStatistic(String statName) {
     if(diskStoreStats != null){
@@ -183,6 +183,10 @@ public class StatsKey {
   public static final String DISK_QUEUE_SIZE = "queueSize";
   
   public static final String RECOVERIES_IN_PROGRESS = "recoveriesInProgress";
+
+  public static final String COMPACTIONS_IN_PROGRESS = "compactsInProgress";
+
+  public static final String COMPACTED_BYTES = "compactedBytes";
   
   public static final String DISK_SPACE = "diskSpace";
   
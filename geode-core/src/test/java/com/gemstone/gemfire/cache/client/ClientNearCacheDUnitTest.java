@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.client;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.DataPolicy;
+import com.gemstone.gemfire.cache.EvictionAction;
+import com.gemstone.gemfire.cache.EvictionAttributes;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionFactory;
+import com.gemstone.gemfire.cache.server.CacheServer;
+import com.gemstone.gemfire.internal.AvailablePortHelper;
+import com.gemstone.gemfire.test.dunit.DistributedTestCase;
+import com.gemstone.gemfire.test.dunit.Host;
+import com.gemstone.gemfire.test.dunit.IgnoredException;
+import com.gemstone.gemfire.test.dunit.SerializableRunnable;
+import com.gemstone.gemfire.test.dunit.VM;
+import com.gemstone.gemfire.test.dunit.Wait;
+import com.gemstone.gemfire.test.dunit.WaitCriterion;
+
+/**
+ * Tests that a near cache client region only holds interest in the keys it
+ * has cached and that server side updates invalidate its entries.
+ *
+ * @since 9.0
+ */
+public class ClientNearCacheDUnitTest extends DistributedTestCase {
+
+  private static final String REGION_NAME = "NearCache";
+
+  private int serverPort;
+
+  private VM serverVm;
+
+  private static ClientCache clientCache;
+
+  public ClientNearCacheDUnitTest(String testName) {
+    super(testName);
+  }
+
+  @Override
+  public final void postSetUp() throws Exception {
+    disconnectAllFromDS();
+    IgnoredException.addIgnoredException("java.net.ConnectException");
+    this.serverVm = Host.getHost(0).getVM(0);
+    this.serverPort = AvailablePortHelper.getRandomAvailableTCPPort();
+    final int port = this.serverPort;
+    this.serverVm.invoke(new SerializableRunnable("start server") {
+      @Override
+      public void run() {
+        Cache cache = new CacheFactory().set("mcast-port", "0").create();
+        RegionFactory<String, String> regionFactory = cache.createRegionFactory();
+        regionFactory.setDataPolicy(DataPolicy.REPLICATE);
+        Region<String, String> region = regionFactory.create(REGION_NAME);
+        for (int i = 0; i < 3; i++) {
+          region.put("key" + i, "value" + i);
+        }
+        CacheServer cacheServer = cache.addCacheServer();
+        cacheServer.setPort(port);
+        try {
+          cacheServer.start();
+        }
+        catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+  }
+
+  @Override
+  public final void preTearDown() throws Exception {
+    if (clientCache != null) {
+      clientCache.close();
+      clientCache = null;
+    }
+    this.serverVm.invoke(new SerializableRunnable("stop server") {
+      @Override
+      public void run() {
+        CacheFactory.getAnyInstance().close();
+      }
+    });
+  }
+
+  private Region<String, String> createNearCache(EvictionAttributes evictionAttributes) {
+    clientCache = new ClientCacheFactory().set("mcast-port", "0").create();
+    Pool pool = PoolManager.createFactory()
+        .setSubscriptionEnabled(true)
+        .addServer("localhost", this.serverPort)
+        .create("nearCachePool");
+    ClientRegionFactory<String, String> regionFactory = clientCache
+        .createClientRegionFactory(ClientRegionShortcut.PROXY);
+    regionFactory.setPoolName(pool.getName());
+    regionFactory.setNearCache(true);
+    if (evictionAttributes != null) {
+      regionFactory.setEvictionAttributes(evictionAttributes);
+    }
+    return regionFactory.create(REGION_NAME);
+  }
+
+  private void serverPut(final String key, final String value) {
+    this.serverVm.invoke(new SerializableRunnable("put " + key) {
+      @Override
+      public void run() {
+        CacheFactory.getAnyInstance().getRegion(REGION_NAME).put(key, value);
+      }
+    });
+  }
+
+  public void testServerUpdateInvalidatesNearCachedEntry() {
+    final Region<String, String> region = createNearCache(null);
+
+    assertEquals("value0", region.get("key0"));
+    assertTrue(region.containsValueForKey("key0"));
+    // only the key that was read is of interest to this client
+    assertEquals(new HashSet<Object>(Arrays.asList("key0")),
+        new HashSet<Object>(region.getInterestList()));
+
+    serverPut("key0", "newValue0");
+    Wait.waitForCriterion(new WaitCriterion() {
+      @Override
+      public boolean done() {
+        return !region.containsValueForKey("key0");
+      }
+      @Override
+      public String description() {
+        return "key0 was not invalidated in the near cache";
+      }
+    }, 30000, 100, true);
+    assertEquals("newValue0", region.get("key0"));
+
+    // keys that were never read are not sent to this client
+    serverPut("key1", "newValue1");
+    assertFalse(region.containsKey("key1"));
+  }
+
+  public void testEvictedKeyDropsInterest() {
+    final Region<String, String> region = createNearCache(
+        EvictionAttributes.createLRUEntryAttributes(1, EvictionAction.LOCAL_DESTROY));
+
+    assertEquals("value0", region.get("key0"));
+    assertEquals("value1", region.get("key1"));
+
+    // reading key1 evicted key0, so its interest is dropped
+    assertFalse(region.containsKey("key0"));
+    assertEquals(new HashSet<Object>(Arrays.asList("key1")),
+        new HashSet<Object>(region.getInterestList()));
+  }
+}
@@ -176,7 +176,71 @@ public class ClientRegionFactoryJUnitTest {
     assertEquals(Scope.LOCAL, ra.getScope());
     assertEquals("DEFAULT", ra.getPoolName());
   }
-  
+
+  @Test
+  public void testNearCache() throws Exception {
+    ClientCache c = new ClientCacheFactory().create();
+    ClientRegionFactory factory = c.createClientRegionFactory(PROXY);
+    factory.setNearCache(true);
+    r1 = factory.create(this.r1Name);
+    RegionAttributes ra = r1.getAttributes();
+    assertEquals(DataPolicy.NORMAL, ra.getDataPolicy());
+    assertEquals(Scope.LOCAL, ra.getScope());
+    assertEquals("DEFAULT", ra.getPoolName());
+    assertEquals(EvictionAttributes.createLRUEntryAttributes(), ra.getEvictionAttributes());
+  }
+
+  @Test
+  public void testNearCacheKeepsEvictionAttributes() throws Exception {
+    ClientCache c = new ClientCacheFactory().create();
+    ClientRegionFactory factory = c.createClientRegionFactory(CACHING_PROXY);
+    factory.setEvictionAttributes(EvictionAttributes.createLRUMemoryAttributes(10));
+    factory.setNearCache(true);
+    r1 = factory.create(this.r1Name);
+    RegionAttributes ra = r1.getAttributes();
+    assertEquals(DataPolicy.NORMAL, ra.getDataPolicy());
+    assertEquals(EvictionAttributes.createLRUMemoryAttributes(10), ra.getEvictionAttributes());
+  }
+
+  @Test
+  public void testNearCacheLeavesFactoryAttributes() throws Exception {
+    ClientCache c = new ClientCacheFactory().create();
+    ClientRegionFactory factory = c.createClientRegionFactory(PROXY);
+    factory.setNearCache(true);
+    r1 = factory.create(this.r1Name);
+    assertEquals(DataPolicy.NORMAL, r1.getAttributes().getDataPolicy());
+
+    factory.setNearCache(false);
+    r2 = factory.create(this.r2Name);
+    RegionAttributes ra = r2.getAttributes();
+    assertEquals(DataPolicy.EMPTY, ra.getDataPolicy());
+    assertTrue(ra.getEvictionAttributes().getAlgorithm().isNone());
+  }
+
+  @Test
+  public void testNearCacheProxyTakesEviction() throws Exception {
+    ClientCache c = new ClientCacheFactory().create();
+    ClientRegionFactory factory = c.createClientRegionFactory(PROXY);
+    factory.setNearCache(true);
+    factory.setEvictionAttributes(EvictionAttributes.createLRUEntryAttributes(10, EvictionAction.LOCAL_DESTROY));
+    r1 = factory.create(this.r1Name);
+    RegionAttributes ra = r1.getAttributes();
+    assertEquals(DataPolicy.NORMAL, ra.getDataPolicy());
+    assertEquals(10, ra.getEvictionAttributes().getMaximum());
+  }
+
+  @Test
+  public void testNearCacheNeedsPool() throws Exception {
+    ClientCache c = new ClientCacheFactory().create();
+    ClientRegionFactory factory = c.createClientRegionFactory(LOCAL);
+    factory.setNearCache(true);
+    try {
+      r1 = factory.create(this.r1Name);
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+    }
+  }
+
   @Test
   public void testCACHING_PROXY() throws Exception {
     ClientCache c = new ClientCacheFactory().create();
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.client.internal;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.distributed.internal.ServerLocation;
+import com.gemstone.gemfire.internal.cache.BucketServerLocation66;
+import com.gemstone.gemfire.internal.cache.CachePerfStats;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.PartitionedRegionHelper;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class ClientMetadataServiceJUnitTest {
+
+  private static final int TOTAL_BUCKETS = 10;
+
+  private ClientMetadataService cms;
+  private LocalRegion region;
+  private ClientPartitionAdvisor advisor;
+
+  @Before
+  public void setUp() {
+    this.cms = new ClientMetadataService(mock(Cache.class));
+    this.region = mock(LocalRegion.class);
+    when(this.region.getFullPath()).thenReturn("/region");
+    this.advisor = new ClientPartitionAdvisor(TOTAL_BUCKETS, null, null, null);
+    this.cms.getClientPRMetadata_TEST_ONLY().put("/region", this.advisor);
+  }
+
+  private void addPrimary(int bucketId, int port) {
+    List<BucketServerLocation66> locations = new ArrayList<BucketServerLocation66>();
+    locations.add(new BucketServerLocation66(bucketId, port, "localhost", true, (byte)1, new String[0]));
+    this.advisor.updateBucketServerLocations(bucketId, locations, this.cms);
+  }
+
+  @Test
+  public void testBulkOpGroupsKeysWhenSomePrimariesAreUnknown() {
+    // only the even buckets have a known primary, on two servers
+    for (int bucketId = 0; bucketId < TOTAL_BUCKETS; bucketId += 2) {
+      addPrimary(bucketId, bucketId % 4 == 0 ? 40001 : 40002);
+    }
+    ServerLocation server1 = new ServerLocation("localhost", 40001);
+    ServerLocation server2 = new ServerLocation("localhost", 40002);
+    List<Object> keys = new ArrayList<Object>();
+    for (int i = 0; i < 100; i++) {
+      keys.add(Integer.valueOf(i));
+    }
+
+    @SuppressWarnings("rawtypes")
+    Map<ServerLocation, HashSet> serverToKeys = this.cms.getServerToFilterMapForBulkOp(keys, this.region);
+
+    assertNotNull(serverToKeys);
+    assertEquals(new HashSet<ServerLocation>(Arrays.asList(server1, server2)), serverToKeys.keySet());
+    ServerLocation fallback = null;
+    for (Object key : keys) {
+      int bucketId = PartitionedRegionHelper.getHashKey(key, TOTAL_BUCKETS);
+      ServerLocation server = serverOf(serverToKeys, key);
+      if (bucketId % 2 == 0) {
+        // sent straight to the primary
+        assertEquals(bucketId % 4 == 0 ? server1 : server2, server);
+      } else {
+        // every key without a known primary goes to the same fallback server
+        if (fallback == null) {
+          fallback = server;
+        }
+        assertEquals(fallback, server);
+      }
+    }
+    assertNotNull(fallback);
+    int groupedKeys = 0;
+    for (Set<?> serverKeys : serverToKeys.values()) {
+      groupedKeys += serverKeys.size();
+    }
+    assertEquals(keys.size(), groupedKeys);
+  }
+
+  @Test
+  public void testBulkOpWithoutKnownServers() {
+    CachePerfStats stats = mock(CachePerfStats.class);
+    when(this.region.getCachePerfStats()).thenReturn(stats);
+
+    assertNull(this.cms.getServerToFilterMapForBulkOp(Collections.singleton("key"), this.region));
+    // the caller sends the whole operation to one server while the metadata is fetched
+    verify(stats).incNonSingleHopsCount();
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static ServerLocation serverOf(Map<ServerLocation, HashSet> serverToKeys, Object key) {
+    ServerLocation result = null;
+    for (Map.Entry<ServerLocation, HashSet> entry : serverToKeys.entrySet()) {
+      if (entry.getValue().contains(key)) {
+        assertNull("key " + key + " sent to more than one server", result);
+        result = entry.getKey();
+      }
+    }
+    assertNotNull("key " + key + " not sent to any server", result);
+    return result;
+  }
+}
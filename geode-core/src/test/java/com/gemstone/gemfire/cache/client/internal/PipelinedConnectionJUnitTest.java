@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.client.internal;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.distributed.internal.ServerLocation;
+import com.gemstone.gemfire.distributed.internal.membership.InternalDistributedMember;
+import com.gemstone.gemfire.internal.Version;
+import com.gemstone.gemfire.internal.cache.tier.MessageType;
+import com.gemstone.gemfire.internal.cache.tier.sockets.Message;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class PipelinedConnectionJUnitTest {
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final ByteArrayOutputStream requests = new ByteArrayOutputStream();
+
+  @After
+  public void tearDown() {
+    this.executor.shutdownNow();
+  }
+
+  private static class TestOp extends AbstractOp {
+    TestOp(String key) {
+      super(MessageType.REQUEST, 1);
+      getMessage().addStringPart(key);
+    }
+    @Override
+    protected Object processResponse(Message msg) throws Exception {
+      return msg.getPart(0).getString();
+    }
+    @Override
+    protected boolean isErrorResponse(int msgType) {
+      return false;
+    }
+    @Override
+    protected long startAttempt(ConnectionStats stats) {
+      return 0;
+    }
+    @Override
+    protected void endSendAttempt(ConnectionStats stats, long start) {
+    }
+    @Override
+    protected void endAttempt(ConnectionStats stats, long start) {
+    }
+  }
+
+  private static byte[] replies(int... correlationIds) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    for (int id : correlationIds) {
+      Message reply = new Message(1, Version.CURRENT);
+      reply.setComms(mock(Socket.class), null, os, ByteBuffer.allocate(1000), null);
+      reply.setMessageType(MessageType.RESPONSE);
+      reply.setTransactionId(id);
+      reply.addStringPart("value" + id);
+      reply.send();
+    }
+    return os.toByteArray();
+  }
+
+  private PipelinedConnection createPipeline(byte[] replies) throws Exception {
+    Connection cnx = mock(Connection.class);
+    Socket socket = mock(Socket.class);
+    Endpoint endpoint = mock(Endpoint.class);
+    when(cnx.getSocket()).thenReturn(socket);
+    when(cnx.getInputStream()).thenReturn(new ByteArrayInputStream(replies));
+    when(cnx.getOutputStream()).thenReturn(this.requests);
+    when(cnx.getCommBuffer()).thenReturn(ByteBuffer.allocate(1000));
+    when(cnx.getEndpoint()).thenReturn(endpoint);
+    when(cnx.getServer()).thenReturn(new ServerLocation("localhost", 40404));
+    return new PipelinedConnection(cnx, 2);
+  }
+
+  @Test
+  public void repliesAreReadInTheOrderTheRequestsWereSent() throws Exception {
+    final PipelinedConnection pipeline = createPipeline(replies(1, 2));
+    final TestOp first = new TestOp("first");
+    final TestOp second = new TestOp("second");
+    assertTrue(pipeline.reserve());
+    assertTrue(pipeline.reserve());
+    assertFalse(pipeline.reserve());
+
+    final PipelinedConnection.Ticket firstTicket = pipeline.send(first);
+    final PipelinedConnection.Ticket secondTicket = pipeline.send(second);
+    Future<Object> secondReply = this.executor.submit(
+        () -> second.processResponse(pipeline.receive(secondTicket, second.createResponseMessage())));
+    try {
+      secondReply.get(200, TimeUnit.MILLISECONDS);
+      fail("the second reply was read before the first");
+    } catch (TimeoutException expected) {
+    }
+
+    assertEquals("value1", first.processResponse(pipeline.receive(firstTicket, first.createResponseMessage())));
+    assertEquals("value2", secondReply.get(10, TimeUnit.SECONDS));
+    assertFalse(pipeline.hasFailed());
+
+    ByteArrayInputStream sent = new ByteArrayInputStream(this.requests.toByteArray());
+    for (int id = 1; id <= 2; id++) {
+      Message request = new Message(1, Version.CURRENT);
+      request.setComms(mock(Socket.class), sent, null, ByteBuffer.allocate(1000), null);
+      request.recv();
+      assertEquals(id, request.getCorrelationId());
+    }
+    // the ops' messages are left as they were
+    assertEquals(Message.NO_CORRELATION_ID, first.getMessage().getCorrelationId());
+  }
+
+  @Test
+  public void unexpectedReplyFailsEveryOpInFlight() throws Exception {
+    final PipelinedConnection pipeline = createPipeline(replies(2, 1));
+    final TestOp first = new TestOp("first");
+    final TestOp second = new TestOp("second");
+    final PipelinedConnection.Ticket firstTicket = pipeline.send(first);
+    final PipelinedConnection.Ticket secondTicket = pipeline.send(second);
+
+    try {
+      pipeline.receive(firstTicket, first.createResponseMessage());
+      fail("expected an exception but none was thrown");
+    } catch (IOException expected) {
+    }
+    assertTrue(pipeline.hasFailed());
+    try {
+      pipeline.receive(secondTicket, second.createResponseMessage());
+      fail("expected an exception but none was thrown");
+    } catch (IOException expected) {
+    }
+    assertFalse(pipeline.reserve());
+  }
+
+  private static Connection connectionTo(Version serverVersion) throws Exception {
+    Connection cnx = mock(Connection.class);
+    Endpoint endpoint = mock(Endpoint.class);
+    when(endpoint.getMemberId()).thenReturn(
+        new InternalDistributedMember("localhost", 40404, serverVersion));
+    when(cnx.getEndpoint()).thenReturn(endpoint);
+    when(cnx.getServer()).thenReturn(new ServerLocation("localhost", 40404));
+    return cnx;
+  }
+
+  @Test
+  public void onlyServersThatEchoCorrelationIdsArePipelined() throws Exception {
+    assertFalse(PipelinedConnection.isSupportedBy(connectionTo(Version.GFE_90)));
+    assertTrue(PipelinedConnection.isSupportedBy(connectionTo(Version.GFE_9001)));
+    assertTrue(PipelinedConnection.isSupportedBy(connectionTo(Version.CURRENT)));
+  }
+
+  @Test
+  public void attemptPipelinedReturnsTheProcessedReply() throws Exception {
+    PipelinedConnection pipeline = createPipeline(replies(1));
+    assertEquals("value1", new TestOp("key").attemptPipelined(pipeline));
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Iterator;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.DataSerializer;
+import com.gemstone.gemfire.cache.query.Struct;
+import com.gemstone.gemfire.cache.query.internal.types.ObjectTypeImpl;
+import com.gemstone.gemfire.cache.query.internal.types.StructTypeImpl;
+import com.gemstone.gemfire.cache.query.types.ObjectType;
+import com.gemstone.gemfire.cache.query.types.StructType;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class ColumnarStructBagJUnitTest {
+
+  private static StructTypeImpl type(Class... classes) {
+    String[] names = new String[classes.length];
+    ObjectType[] types = new ObjectType[classes.length];
+    for (int i = 0; i < classes.length; i++) {
+      names[i] = "field" + i;
+      types[i] = new ObjectTypeImpl(classes[i]);
+    }
+    return new StructTypeImpl(names, types);
+  }
+
+  private static ColumnarStructBag bag() {
+    return new ColumnarStructBag(type(int.class, Long.class, double.class,
+        String.class, Object.class), null);
+  }
+
+  private static Object[] row(int i) {
+    return new Object[] { i, (long) i * 10, i / 2.0, "s" + (i % 3), new Integer(i) };
+  }
+
+  @Test
+  public void testHasSpecializedColumns() {
+    assertTrue(ColumnarStructBag.hasSpecializedColumns(type(Object.class, int.class)));
+    assertTrue(ColumnarStructBag.hasSpecializedColumns(type(String.class)));
+    assertFalse(ColumnarStructBag.hasSpecializedColumns(type(Object.class, Short.class)));
+  }
+
+  @Test
+  public void testAddAndIterate() {
+    ColumnarStructBag bag = bag();
+    for (int i = 0; i < 100; i++) {
+      assertEquals(1, bag.addAndGetOccurence(row(i)));
+    }
+    assertEquals(100, bag.size());
+    int i = 0;
+    for (Iterator itr = bag.iterator(); itr.hasNext(); i++) {
+      Struct s = (Struct) itr.next();
+      assertArrayEquals(row(i), s.getFieldValues());
+      assertEquals(bag.getCollectionType().getElementType(), s.getStructType());
+    }
+    assertEquals(100, i);
+    i = 0;
+    for (Iterator itr = bag.fieldValuesIterator(); itr.hasNext(); i++) {
+      assertArrayEquals(row(i), (Object[]) itr.next());
+    }
+    assertEquals(StructBag.class, bag.getCollectionType().resolveClass());
+  }
+
+  @Test
+  public void testUnexpectedValuesAreKept() {
+    ColumnarStructBag bag = bag();
+    bag.addFieldValues(row(1));
+    Object[] nulls = new Object[] { null, null, null, null, null };
+    Object[] others = new Object[] { "a", 1, 2L, 3, "b" };
+    bag.addFieldValues(nulls);
+    bag.addFieldValues(others);
+    bag.addFieldValues(row(2));
+    Iterator itr = bag.fieldValuesIterator();
+    assertArrayEquals(row(1), (Object[]) itr.next());
+    assertArrayEquals(nulls, (Object[]) itr.next());
+    assertArrayEquals(others, (Object[]) itr.next());
+    assertArrayEquals(row(2), (Object[]) itr.next());
+    assertFalse(itr.hasNext());
+  }
+
+  @Test
+  public void testManyDistinctStrings() {
+    ColumnarStructBag bag = new ColumnarStructBag(type(String.class), null);
+    for (int i = 0; i < 5000; i++) {
+      bag.addFieldValues(new Object[] { "s" + i });
+    }
+    int i = 0;
+    for (Iterator itr = bag.fieldValuesIterator(); itr.hasNext(); i++) {
+      assertEquals("s" + i, ((Object[]) itr.next())[0]);
+    }
+    assertEquals(5000, i);
+  }
+
+  @Test
+  public void testContainsOccurrencesAndRemove() {
+    ColumnarStructBag bag = bag();
+    StructTypeImpl type = (StructTypeImpl) bag.getCollectionType().getElementType();
+    bag.addFieldValues(row(1));
+    bag.addFieldValues(row(2));
+    bag.addFieldValues(row(1));
+    assertTrue(bag.contains(new StructImpl(type, row(1))));
+    assertFalse(bag.contains(new StructImpl(type, row(3))));
+    assertFalse(bag.containsFieldValues(new Object[] { 1 }));
+    assertEquals(2, bag.occurrences(new StructImpl(type, row(1))));
+    assertEquals(0, bag.occurrences(new StructImpl(type, row(3))));
+
+    assertTrue(bag.remove(new StructImpl(type, row(1))));
+    assertEquals(2, bag.size());
+    assertEquals(1, bag.occurrences(new StructImpl(type, row(1))));
+    assertFalse(bag.removeFieldValues(row(3)));
+
+    Iterator itr = bag.iterator();
+    itr.next();
+    itr.remove();
+    assertEquals(1, bag.size());
+    assertArrayEquals(row(1), (Object[]) bag.fieldValuesIterator().next());
+
+    bag.clear();
+    assertEquals(0, bag.size());
+    assertTrue(bag.isEmpty());
+    bag.addFieldValues(row(4));
+    assertArrayEquals(row(4), (Object[]) bag.fieldValuesIterator().next());
+  }
+
+  @Test
+  public void testLimit() {
+    ColumnarStructBag bag = bag();
+    for (int i = 0; i < 10; i++) {
+      bag.addFieldValues(row(i));
+    }
+    bag.applyLimit(4);
+    assertEquals(4, bag.size());
+    int i = 0;
+    for (Iterator itr = bag.fieldValuesIterator(); itr.hasNext(); i++) {
+      assertArrayEquals(row(i), (Object[]) itr.next());
+    }
+    assertEquals(4, i);
+    try {
+      bag.addFieldValues(row(10));
+      fail("expected UnsupportedOperationException");
+    } catch (UnsupportedOperationException expected) {
+    }
+  }
+
+  @Test
+  public void testEqualsStructBagAndAsSet() {
+    ColumnarStructBag bag = bag();
+    StructBag structBag = new StructBag((StructType) bag.getCollectionType().getElementType(), null);
+    for (int i = 0; i < 10; i++) {
+      bag.addFieldValues(row(i % 5));
+      structBag.addFieldValues(row(i % 5));
+    }
+    assertEquals(structBag, bag);
+    assertEquals(5, bag.asSet().size());
+  }
+
+  @Test
+  public void testEqualsStructBagAfterChanges() {
+    ColumnarStructBag bag = bag();
+    StructBag structBag = new StructBag((StructType) bag.getCollectionType().getElementType(), null);
+    for (int i = 0; i < 10; i++) {
+      bag.addFieldValues(row(i % 5));
+      structBag.addFieldValues(row(i % 5));
+    }
+    assertEquals(structBag, bag);
+    assertEquals(structBag.hashCode(), bag.hashCode());
+    bag.addFieldValues(row(7));
+    assertFalse(structBag.equals(bag));
+    structBag.addFieldValues(row(7));
+    assertEquals(structBag, bag);
+    assertEquals(structBag.hashCode(), bag.hashCode());
+    bag.removeFieldValues(row(2));
+    structBag.removeFieldValues(row(2));
+    assertEquals(structBag, bag);
+    assertEquals(structBag.hashCode(), bag.hashCode());
+    bag.applyLimit(3);
+    assertEquals(3, bag.size());
+    assertEquals(3, bag.mapSize());
+  }
+
+  @Test
+  public void testSerializedAsStructBag() throws Exception {
+    ColumnarStructBag bag = bag();
+    for (int i = 0; i < 10; i++) {
+      bag.addFieldValues(row(i % 5));
+    }
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataSerializer.writeObject(bag, new DataOutputStream(baos));
+    Object result = DataSerializer.readObject(new DataInputStream(
+        new ByteArrayInputStream(baos.toByteArray())));
+    assertEquals(StructBag.class, result.getClass());
+    StructBag structBag = (StructBag) result;
+    assertEquals(10, structBag.size());
+    assertEquals(2, structBag.occurrences(new StructImpl(
+        (StructTypeImpl) structBag.getCollectionType().getElementType(), row(3))));
+  }
+
+  @Test
+  public void testFromData() throws Exception {
+    ColumnarStructBag bag = bag();
+    for (int i = 0; i < 10; i++) {
+      bag.addFieldValues(row(i % 5));
+    }
+    bag.setModifiable(false);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    bag.toData(new DataOutputStream(baos));
+    ColumnarStructBag result = new ColumnarStructBag();
+    result.fromData(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+    assertEquals(bag.getCollectionType(), result.getCollectionType());
+    assertEquals(10, result.size());
+    assertFalse(result.isModifiable());
+    assertEquals(bag, result);
+    StructTypeImpl type = (StructTypeImpl) result.getCollectionType().getElementType();
+    assertEquals(2, result.occurrences(new StructImpl(type, row(3))));
+  }
+}
@@ -418,6 +418,15 @@ public class QueryObserverCallbackJUnitTest{
     public void orderByColumnsEqual() {
       
     }
+
+    public void queryPlanCacheHit(String queryString) {
+    }
+
+    public void queryPlanCacheMiss(String queryString) {
+    }
+
+    public void bestFilterSelected(Filter filter, int sizeEstimate) {
+    }
     
   }
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.query.CacheUtils;
+import com.gemstone.gemfire.cache.query.Index;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.cache.query.data.Portfolio;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+@Category(IntegrationTest.class)
+public class QueryPlanCacheJUnitTest {
+
+  private Region region;
+  private QueryService qs;
+  private PlanObserver observer;
+  private QueryObserver oldObserver;
+
+  @Before
+  public void setUp() throws Exception {
+    CacheUtils.startCache();
+    DefaultQuery.clearPlanCache();
+    region = CacheUtils.createRegion("portfolio", Portfolio.class);
+    for (int i = 0; i < 1000; i++) {
+      region.put("" + i, new Portfolio(i));
+    }
+    qs = CacheUtils.getQueryService();
+    observer = new PlanObserver();
+    oldObserver = QueryObserverHolder.setInstance(observer);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    QueryObserverHolder.setInstance(oldObserver);
+    DefaultQueryService.COST_BASED_INDEX_SELECTION = true;
+    DefaultQuery.clearPlanCache();
+    CacheUtils.closeCache();
+  }
+
+  @Test
+  public void testNormalizeQueryString() {
+    assertEquals("select * from /r where s = 'a  b'",
+        DefaultQuery.normalizeQueryString("  select *\n\tfrom /r  where s = 'a  b' "));
+    assertEquals("select \"my  field\" from /r",
+        DefaultQuery.normalizeQueryString("select   \"my  field\"  from /r"));
+    assertEquals("select * from /r where s = 'it''s  x'",
+        DefaultQuery.normalizeQueryString("select * from /r where s = 'it''s  x'"));
+    String withComment = "select * from /r -- all\n where ID = 1";
+    assertSame(withComment, DefaultQuery.normalizeQueryString(withComment));
+  }
+
+  @Test
+  public void testSameQueryStringSharesCompiledQuery() {
+    DefaultQuery q1 = (DefaultQuery)qs.newQuery("select * from /portfolio where ID < 10");
+    DefaultQuery q2 = (DefaultQuery)qs.newQuery("select *  from /portfolio\n where ID < 10");
+    DefaultQuery q3 = (DefaultQuery)qs.newQuery("select * from /portfolio where ID < 11");
+    assertEquals(2, observer.misses);
+    assertEquals(1, observer.hits);
+    assertSame(q1.getSimpleSelect(), q2.getSimpleSelect());
+    assertNotSame(q1.getSimpleSelect(), q3.getSimpleSelect());
+  }
+
+  @Test
+  public void testOrderByIsNotCached() {
+    qs.newQuery("select distinct * from /portfolio p order by p.ID");
+    qs.newQuery("select distinct * from /portfolio p order by p.ID");
+    assertEquals(2, observer.misses);
+    assertEquals(0, observer.hits);
+  }
+
+  @Test
+  public void testCountWithSharedCompiledQuery() throws Exception {
+    String queryString = "select count(*) from /portfolio where status = 'active'";
+    SelectResults r1 = (SelectResults)qs.newQuery(queryString).execute();
+    SelectResults r2 = (SelectResults)qs.newQuery(queryString).execute();
+    assertEquals(1, observer.hits);
+    assertEquals(500, r1.iterator().next());
+    assertEquals(500, r2.iterator().next());
+  }
+
+  @Test
+  public void testCostBasedIndexSelection() throws Exception {
+    qs.createIndex("statusIndex", "status", "/portfolio");
+    qs.createIndex("idIndex", "ID", "/portfolio");
+    String queryString = "select * from /portfolio where status = 'active' and ID < 10";
+
+    SelectResults results = (SelectResults)qs.newQuery(queryString).execute();
+    assertEquals(5, results.size());
+    assertEquals(1, observer.filters.size());
+    assertEquals("idIndex", observer.indexes.get(0).getName());
+
+    // the equality condition was preferred regardless of its size
+    DefaultQueryService.COST_BASED_INDEX_SELECTION = false;
+    observer.indexes.clear();
+    results = (SelectResults)qs.newQuery(queryString).execute();
+    assertEquals(5, results.size());
+    assertEquals("statusIndex", observer.indexes.get(0).getName());
+  }
+
+  private static class PlanObserver extends QueryObserverAdapter {
+    int hits;
+    int misses;
+    List<Filter> filters = new ArrayList<Filter>();
+    List<Index> indexes = new ArrayList<Index>();
+
+    @Override
+    public void queryPlanCacheHit(String queryString) {
+      hits++;
+    }
+
+    @Override
+    public void queryPlanCacheMiss(String queryString) {
+      misses++;
+    }
+
+    @Override
+    public void bestFilterSelected(Filter filter, int sizeEstimate) {
+      filters.add(filter);
+    }
+
+    @Override
+    public void beforeIndexLookup(Index index, int oper, Object key) {
+      indexes.add(index);
+    }
+  }
+}
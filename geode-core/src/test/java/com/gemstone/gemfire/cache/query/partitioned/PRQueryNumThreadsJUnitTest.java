@@ -149,6 +149,42 @@ public class PRQueryNumThreadsJUnitTest
     }
   }
 
+  @Test
+  public void testParallelismHint() throws Exception
+  {
+    Region region = PartitionedRegionTestHelper.createPartitionedRegion(
+        regionName, "100", 0);
+    PortfolioData[] portfolios = new PortfolioData[100];
+    for (int j = 0; j < 100; j++) {
+      portfolios[j] = new PortfolioData(j);
+    }
+    try {
+      populateData(region, portfolios);
+
+      String queryString = "<trace> <hint 'parallelism=4'> select * from /" + region.getName() + " p where p.ID < 50";
+      Query query = region.getCache().getQueryService().newQuery(queryString);
+      SelectResults sr = (SelectResults)query.execute();
+      Assert.assertTrue(sr.size() == 50);
+
+      queryString = "<hint 'parallelism=4'> select distinct p.ID from /" + region.getName()
+          + " p where p.ID >= 10 order by p.ID desc limit 20";
+      query = region.getCache().getQueryService().newQuery(queryString);
+      sr = (SelectResults)query.execute();
+      Assert.assertTrue(sr.size() == 20);
+      int expected = 99;
+      for (Object r : sr.asList()) {
+        Assert.assertTrue(((Integer)r).intValue() == expected--);
+      }
+
+      queryString = "<hint 'parallelism=4'> select * from /" + region.getName() + " p limit 7";
+      query = region.getCache().getQueryService().newQuery(queryString);
+      sr = (SelectResults)query.execute();
+      Assert.assertTrue(sr.size() == 7);
+    } finally {
+      region.close();
+    }
+  }
+
   /**
    * Populates the region with the Objects stores in the data Object array.
    * 
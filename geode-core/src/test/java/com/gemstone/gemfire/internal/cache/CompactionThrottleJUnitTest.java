@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+/**
+ * Tests {@link CompactionThrottle}
+ */
+@Category(UnitTest.class)
+public class CompactionThrottleJUnitTest {
+
+  private final AtomicInteger pendingWrites = new AtomicInteger();
+
+  private final CompactionThrottle.ForegroundLoad load = new CompactionThrottle.ForegroundLoad() {
+    @Override
+    public int getPendingWrites() {
+      return pendingWrites.get();
+    }
+  };
+
+  @Test
+  public void testUnlimitedDoesNotWait() throws Exception {
+    CompactionThrottle throttle = new CompactionThrottle(0, 0, 0, this.load, null);
+    long start = System.nanoTime();
+    for (int i = 0; i < 1000; i++) {
+      throttle.acquire(1024 * 1024);
+    }
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    assertFalse(throttle.isThrottled());
+  }
+
+  @Test
+  public void testRateIsLimited() throws Exception {
+    // 100 KB/s; copying 50 KB after the first 10 KB must take about half a second
+    CompactionThrottle throttle = new CompactionThrottle(100 * 1024, 0, 0, this.load, null);
+    throttle.acquire(10 * 1024);
+    long start = System.nanoTime();
+    for (int i = 0; i < 5; i++) {
+      throttle.acquire(10 * 1024);
+    }
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 400);
+  }
+
+  @Test
+  public void testYieldsWhileForegroundIsBusy() throws Exception {
+    CompactionThrottle throttle = new CompactionThrottle(0, 10, TimeUnit.SECONDS.toMillis(60), this.load, null);
+    this.pendingWrites.set(10);
+    Thread releaser = new Thread() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(200);
+        } catch (InterruptedException ignore) {
+        }
+        pendingWrites.set(9);
+      }
+    };
+    long start = System.nanoTime();
+    releaser.start();
+    throttle.acquire(1);
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    releaser.join();
+    assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 150);
+    assertFalse(throttle.isThrottled());
+  }
+
+  @Test
+  public void testYieldIsBounded() throws Exception {
+    CompactionThrottle throttle = new CompactionThrottle(0, 1, 100, this.load, null);
+    this.pendingWrites.set(1000);
+    long start = System.nanoTime();
+    throttle.acquire(1);
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 100 && elapsedMillis < 30000);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.DataPolicy;
+import com.gemstone.gemfire.cache.EvictionAction;
+import com.gemstone.gemfire.cache.EvictionAttributes;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests faulting in and recovering values with gemfire.disk.MMAP_READS set so
+ * that crf files are read through a memory mapping.
+ */
+@Category(IntegrationTest.class)
+public class DiskStoreMappedReadsJUnitTest extends DiskRegionTestingBase {
+
+  private static final String MMAP_READS = "gemfire.disk.MMAP_READS";
+
+  private static final int ENTRIES = 3000;
+
+  @Override
+  @Before
+  public void setUp() throws Exception {
+    System.setProperty(MMAP_READS, "true");
+    super.setUp();
+  }
+
+  @Override
+  @After
+  public void tearDown() throws Exception {
+    try {
+      super.tearDown();
+    } finally {
+      System.clearProperty(MMAP_READS);
+    }
+  }
+
+  @Test
+  public void testFaultInFromMappedOplogs() {
+    Region region = createRegion();
+    putEntries(region);
+    // make sure the oplog being written to is also done appending
+    ((LocalRegion) region).getDiskStore().forceRoll();
+    assertTrue(((LocalRegion) region).getDiskStore().useMappedReads());
+    checkEntries(region);
+    // read them again now that the crfs have been mapped
+    checkEntries(region);
+  }
+
+  @Test
+  public void testRecoveryFromMappedCrf() {
+    Region region = createRegion();
+    putEntries(region);
+    cache.close();
+    cache = createCache();
+    region = createRegion();
+    assertEquals(ENTRIES, region.size());
+    checkEntries(region);
+  }
+
+  private Region createRegion() {
+    if (cache.findDiskStore("store") == null) {
+      cache.createDiskStoreFactory().setMaxOplogSize(1).setDiskDirs(dirs).create("store");
+    }
+    return cache.createRegionFactory().setDiskStoreName("store").setDataPolicy(DataPolicy.PERSISTENT_REPLICATE)
+        .setEvictionAttributes(EvictionAttributes.createLRUEntryAttributes(10, EvictionAction.OVERFLOW_TO_DISK))
+        .create("regionName");
+  }
+
+  private static byte[] valueFor(int i) {
+    byte[] value = new byte[1024];
+    Arrays.fill(value, (byte) i);
+    return value;
+  }
+
+  private void putEntries(Region region) {
+    for (int i = 0; i < ENTRIES; i++) {
+      region.put(i, valueFor(i));
+    }
+  }
+
+  private void checkEntries(Region region) {
+    for (int i = 0; i < ENTRIES; i++) {
+      assertArrayEquals("Failed on entry " + i, valueFor(i), (byte[]) region.get(i));
+    }
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.ExpirationAttributes;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class ExpirationTimerWheelJUnitTest {
+
+  private ExpirationTimerWheel wheel = new ExpirationTimerWheel(1, new DummyCachePerfStats());
+
+  @After
+  public void tearDown() {
+    wheel.cancel();
+  }
+
+  @Test
+  public void testTasksRunWhenDue() throws Exception {
+    Random random = new Random();
+    int count = 300;
+    CountDownLatch latch = new CountDownLatch(count);
+    List<TestTask> tasks = new ArrayList<TestTask>();
+    for (int i = 0; i < count; i++) {
+      // spans the first two levels of the wheel with 1 ms ticks
+      TestTask task = new TestTask(latch, random.nextInt(i % 3 == 0 ? 60 : 400));
+      tasks.add(task);
+      wheel.schedule(task, task.delayMillis);
+    }
+    assertTrue(latch.await(30, TimeUnit.SECONDS));
+    for (TestTask task : tasks) {
+      assertEquals(1, task.runs);
+      assertTrue(task + " ran early",
+          task.ranNanos - task.scheduledNanos >= TimeUnit.MILLISECONDS.toNanos(task.delayMillis));
+    }
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    CountDownLatch latch = new CountDownLatch(50);
+    List<TestTask> tasks = new ArrayList<TestTask>();
+    for (int i = 0; i < 100; i++) {
+      TestTask task = new TestTask(latch, i % 2 == 0 ? 50 : 100);
+      tasks.add(task);
+      wheel.schedule(task, task.delayMillis);
+    }
+    assertEquals(100, wheel.size());
+    for (int i = 0; i < 100; i += 2) {
+      assertTrue(tasks.get(i).cancel());
+      assertFalse(tasks.get(i).cancel());
+    }
+    assertEquals(50, wheel.size());
+    assertTrue(latch.await(30, TimeUnit.SECONDS));
+    Thread.sleep(100);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i % 2, tasks.get(i).runs);
+    }
+    assertFalse(tasks.get(1).cancel());
+  }
+
+  @Test
+  public void testReschedule() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    TestTask task = new TestTask(latch, 5);
+    task.reschedules = 3;
+    wheel.schedule(task, task.delayMillis);
+    assertTrue(latch.await(30, TimeUnit.SECONDS));
+    assertEquals(4, task.runs);
+
+    // a task cancelled while it runs is not rescheduled
+    latch = new CountDownLatch(1);
+    task = new TestTask(latch, 5);
+    task.reschedules = 1;
+    task.cancelWhileRunning = true;
+    wheel.schedule(task, task.delayMillis);
+    assertTrue(latch.await(30, TimeUnit.SECONDS));
+    assertEquals(1, task.runs);
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testFarDeadline() {
+    TestTask task = new TestTask(new CountDownLatch(1), Long.MAX_VALUE);
+    wheel.schedule(task, task.delayMillis);
+    assertEquals(1, wheel.size());
+    assertEquals(ExpirationTimerWheel.LEVELS - 1, task.wheelLevel);
+    assertTrue(task.cancel());
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testScheduleOnlyOnce() {
+    TestTask task = new TestTask(new CountDownLatch(1), 10000);
+    wheel.schedule(task, task.delayMillis);
+    try {
+      wheel.schedule(task, task.delayMillis);
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+    }
+
+    TestTask cancelled = new TestTask(new CountDownLatch(1), 0);
+    assertFalse(cancelled.cancel());
+    try {
+      wheel.schedule(cancelled, 0);
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+    }
+
+    wheel.cancel();
+    assertEquals(0, wheel.size());
+    try {
+      wheel.schedule(new TestTask(new CountDownLatch(1), 0), 0);
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  private static class TestTask extends ExpiryTask {
+    final CountDownLatch latch;
+    final long delayMillis;
+    final long scheduledNanos = System.nanoTime();
+    volatile long ranNanos;
+    volatile int runs;
+    int reschedules;
+    boolean cancelWhileRunning;
+
+    TestTask(CountDownLatch latch, long delayMillis) {
+      super(null);
+      this.latch = latch;
+      this.delayMillis = delayMillis;
+    }
+
+    @Override
+    protected void runInThreadPool() {
+      this.ranNanos = System.nanoTime();
+      this.runs++;
+      if (this.cancelWhileRunning) {
+        assertFalse(cancel());
+      }
+      if (this.reschedules-- > 0 && this.wheel.reschedule(this, this.delayMillis)) {
+        return;
+      }
+      this.latch.countDown();
+    }
+
+    @Override
+    protected ExpirationAttributes getIdleAttributes() {
+      return null;
+    }
+
+    @Override
+    protected ExpirationAttributes getTTLAttributes() {
+      return null;
+    }
+
+    @Override
+    protected void basicPerformTimeout(boolean isPending) {
+    }
+
+    @Override
+    protected void reschedule() {
+    }
+
+    @Override
+    protected long getLastModifiedTime() {
+      return 0;
+    }
+
+    @Override
+    protected long getLastAccessedTime() {
+      return 0;
+    }
+
+    @Override
+    protected boolean invalidate() {
+      return false;
+    }
+
+    @Override
+    protected boolean destroy(boolean isPending) {
+      return false;
+    }
+
+    @Override
+    protected boolean localInvalidate() {
+      return false;
+    }
+
+    @Override
+    protected boolean localDestroy() {
+      return false;
+    }
+
+    @Override
+    protected void addExpiryTask() {
+    }
+
+    @Override
+    public boolean isPending() {
+      return false;
+    }
+
+    @Override
+    public Object getKey() {
+      return null;
+    }
+
+    @Override
+    public String toString() {
+      return "TestTask[delay=" + this.delayMillis + "]";
+    }
+  }
+}
@@ -115,6 +115,8 @@ public class GIIDeltaDUnitTest extends CacheTestCase {
     changeUnfinishedOperationLimit(R, 10000);
     changeForceFullGII(R, false, false);
     changeForceFullGII(P, false, false);
+    changeChangeLogSize(P, 0);
+    changeChangeLogSize(R, 0);
     P = null;
     R = null;
   }
@@ -798,6 +800,48 @@ public class GIIDeltaDUnitTest extends CacheTestCase {
     verifyDeltaSizeFromStats(R, 2, 0);
   }
 
+  /**
+   * vm0 and vm1 are peers, each holds a DR with a change log.
+   * Let provider to have higher RVVGC than requester's RVV, as in
+   * testFullGIITriggeredByHigherRVVGC. The change log still has the
+   * destroyed key2, so it should be deltaGII that sends the tombstone.
+   */
+  public void testDeltaGIIFromChangeLogAfterTombstoneGC() throws Throwable {
+    Host host = Host.getHost(0);
+    changeChangeLogSize(host.getVM(0), 100);
+    changeChangeLogSize(host.getVM(1), 100);
+    prepareForEachTest();
+    final DiskStoreID memberP = getMemberID(P);
+
+    prepareCommonTestData(3);
+    waitForToVerifyRVV(P, memberP, 3, null, 0); // P's rvv=p3, gc=0
+    waitForToVerifyRVV(R, memberP, 3, null, 0); // R's rvv=p3, gc=0
+    closeCache(R);
+
+    // p4-6 only apply at P
+    doOneDestroy(P, 4, "key2");
+    doOnePut(P, 5, "key1");
+    doOnePut(P, 6, "key3");
+    forceGC(P, 2);
+    waitForToVerifyRVV(P, memberP, 6, null, 4); // P's rvv=p6, gc=4
+    verifyTombstoneExist(P, "key2", false, false);
+
+    createDistributedRegion(R);
+    waitForToVerifyRVV(R, memberP, 6, null, 4); // R's rvv=p6, gc=4
+    RegionVersionVector p_rvv = getRVV(P);
+    RegionVersionVector r_rvv = getRVV(R);
+    assertSameRVV(p_rvv, r_rvv);
+
+    // the delta has key1, key3 and the tombstone of key2 from the change log
+    verifyDeltaSizeFromStats(R, 3, 1);
+    waitToVerifyKey(R, "key1", generateValue(P));
+    R.invoke(new SerializableRunnable() {
+      public void run() {
+        assertFalse(getCache().getRegion(REGION_NAME).containsKey("key2"));
+      }
+    });
+  }
+
   /**
    * Let R4, R5 unfinish, but R5 is the last operation from R. So P's RVV is 
    * still P:x,R3, without exception list. But actually R4, R5 are unfinished ops by 
@@ -2098,6 +2142,15 @@ public class GIIDeltaDUnitTest extends CacheTestCase {
     vm.invoke(change);
   }
 
+  protected void changeChangeLogSize(VM vm, final int value) {
+    SerializableRunnable change = new SerializableRunnable() {
+      public void run() {
+        InitialImageOperation.CHANGE_LOG_SIZE = value;
+      }
+    };
+    vm.invoke(change);
+  }
+
   protected void removeSystemPropertiesInVM(VM vm, final String prop) {
     SerializableRunnable change = new SerializableRunnable() {
       public void run() {
@@ -16,6 +16,8 @@
  */
 package com.gemstone.gemfire.internal.cache;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -50,6 +52,7 @@ public class GIIFlowControlDUnitTest extends CacheTestCase {
   private static int origChunkSize = InitialImageOperation.CHUNK_SIZE_IN_BYTES;
   private static int origNumChunks = InitialImageOperation.CHUNK_PERMITS;
   protected static FlowControlObserver observer;
+  protected static SeriesObserver seriesObserver;
   /**
    * @param name
    */
@@ -88,6 +91,44 @@ public class GIIFlowControlDUnitTest extends CacheTestCase {
     
   }
   
+  public void testParallelChunkStreams() throws Throwable {
+    Host host = Host.getHost(0);
+    VM vm0 = host.getVM(0);
+    VM vm1 = host.getVM(1);
+    Invoke.invokeInEveryVM(new SerializableRunnable("set chunk size") {
+      public void run() {
+        InitialImageOperation.CHUNK_SIZE_IN_BYTES = 10;
+        InitialImageOperation.CHUNK_PERMITS = 2;
+      }
+    });
+
+    vm1.invoke(new SerializableRunnable("Add series observer") {
+      
+      public void run() {
+        seriesObserver = new SeriesObserver();
+        DistributionMessageObserver.setInstance(seriesObserver);
+      }
+    });
+    createRegion(vm0);
+    
+    createData(vm0, 0, 5000, "1234567890");
+    
+    createRegion(vm1);
+
+    vm1.invoke(new SerializableRunnable("Check series and stats") {
+      
+      public void run() {
+        DistributionMessageObserver.setInstance(null);
+        assertEquals(InitialImageOperation.CHUNK_STREAMS, seriesObserver.series.size());
+        LocalRegion region = (LocalRegion)getCache().getRegion(REGION_NAME);
+        assertEquals(5000, region.size());
+        assertTrue(region.getCachePerfStats().getGetInitialImageBytesReceived() > 5000 * 10);
+      }
+    });
+    checkData(vm1, 0, 5000, "1234567890");
+    closeCache(vm0);
+  }
+  
   public void testFlowControlHappening() throws Throwable {
     Host host = Host.getHost(0);
     VM vm0 = host.getVM(0);
@@ -451,4 +492,16 @@ public class GIIFlowControlDUnitTest extends CacheTestCase {
     
     
   }
+
+  private static class SeriesObserver extends DistributionMessageObserver {
+    Set<Integer> series = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void beforeProcessMessage(DistributionManager dm,
+        DistributionMessage message) {
+      if (message instanceof ImageReplyMessage) {
+        series.add(((ImageReplyMessage)message).seriesNum);
+      }
+    }
+  }
 }
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.ExpirationAction;
+import com.gemstone.gemfire.cache.ExpirationAttributes;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.internal.cache.ExpiryTask.ExpiryTaskListener;
+import com.gemstone.gemfire.test.dunit.Wait;
+import com.gemstone.gemfire.test.dunit.WaitCriterion;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests that with lazy idle expiration reads keep an entry alive by putting
+ * its expiry task back on the timer wheel instead of replacing it.
+ *
+ * @since 9.0
+ */
+@Category(IntegrationTest.class)
+public class LazyIdleExpirationJUnitTest {
+
+  private static final int IDLE_TIMEOUT_MS = 500;
+
+  private Cache cache;
+
+  private boolean lazyIdleExpiration;
+
+  @Before
+  public void setUp() {
+    this.lazyIdleExpiration = EntryExpiryTask.lazyIdleExpiration;
+    EntryExpiryTask.lazyIdleExpiration = true;
+    System.setProperty(LocalRegion.EXPIRY_MS_PROPERTY, "true");
+    Properties props = new Properties();
+    props.setProperty("mcast-port", "0");
+    props.setProperty("locators", "");
+    this.cache = new CacheFactory(props).create();
+  }
+
+  @After
+  public void tearDown() {
+    ExpiryTask.expiryTaskListener = null;
+    EntryExpiryTask.lazyIdleExpiration = this.lazyIdleExpiration;
+    System.clearProperty(LocalRegion.EXPIRY_MS_PROPERTY);
+    if (this.cache != null) {
+      this.cache.close();
+    }
+  }
+
+  @Test
+  public void testReadsRearmTheSameTaskUntilTheyStop() throws Exception {
+    final Region<String, String> region = this.cache
+        .<String, String>createRegionFactory(RegionShortcut.LOCAL)
+        .setStatisticsEnabled(true)
+        .setEntryIdleTimeout(new ExpirationAttributes(IDLE_TIMEOUT_MS, ExpirationAction.DESTROY))
+        .create("lazyIdle");
+    region.put("key", "value");
+    final EntryExpiryTask task = ((LocalRegion)region).getEntryExpiryTask("key");
+    assertNotNull(task);
+    final AtomicInteger rearms = new AtomicInteger();
+    ExpiryTask.expiryTaskListener = new ExpiryTaskListener() {
+      @Override
+      public void afterReschedule(ExpiryTask et) {
+        if (et == task) {
+          rearms.incrementAndGet();
+        }
+      }
+      @Override
+      public void afterTaskRan(ExpiryTask et) {
+      }
+      @Override
+      public void afterExpire(ExpiryTask et) {
+      }
+    };
+
+    // read for several idle timeouts
+    long end = System.currentTimeMillis() + 4 * IDLE_TIMEOUT_MS;
+    while (System.currentTimeMillis() < end) {
+      assertEquals("value", region.get("key"));
+      assertSame(task, ((LocalRegion)region).getEntryExpiryTask("key"));
+      Thread.sleep(IDLE_TIMEOUT_MS / 10);
+    }
+    // the task came due while the entry was being read and was put back
+    // on the wheel
+    assertTrue("task was not rearmed", rearms.get() > 0);
+
+    Wait.waitForCriterion(new WaitCriterion() {
+      @Override
+      public boolean done() {
+        return !region.containsKey("key");
+      }
+      @Override
+      public String description() {
+        return "entry did not expire once it was no longer read";
+      }
+    }, 30000, 50, true);
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.DiskAccessException;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+/**
+ * Tests {@link OplogGroupCommitter}
+ */
+@Category(UnitTest.class)
+public class OplogGroupCommitterJUnitTest {
+
+  private final ExecutorService pool = Executors.newFixedThreadPool(16);
+
+  @After
+  public void tearDown() {
+    this.pool.shutdownNow();
+  }
+
+  @Test
+  public void testSingleCommitSyncsOnce() throws Exception {
+    CountingSyncable oplog = new CountingSyncable();
+    OplogGroupCommitter committer = new OplogGroupCommitter(8, 0, null);
+    committer.commit(oplog);
+    committer.commit(oplog);
+    assertEquals(2, oplog.syncs.get());
+  }
+
+  @Test
+  public void testConcurrentCommitsAreGrouped() throws Exception {
+    final int threads = 16;
+    final int opsPerThread = 50;
+    final CountingSyncable oplog = new CountingSyncable(1);
+    final OplogGroupCommitter committer = new OplogGroupCommitter(threads, TimeUnit.MILLISECONDS.toMicros(5), null);
+    final CountDownLatch start = new CountDownLatch(1);
+    Future<?>[] futures = new Future<?>[threads];
+    for (int i = 0; i < threads; i++) {
+      futures[i] = this.pool.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          start.await();
+          for (int j = 0; j < opsPerThread; j++) {
+            committer.commit(oplog);
+          }
+          return null;
+        }
+      });
+    }
+    start.countDown();
+    for (Future<?> f : futures) {
+      f.get(60, TimeUnit.SECONDS);
+    }
+    int syncs = oplog.syncs.get();
+    assertTrue("expected fewer syncs than commits but was " + syncs, syncs < threads * opsPerThread);
+  }
+
+  @Test
+  public void testFullGroupDoesNotWaitForTimeout() throws Exception {
+    final CountingSyncable oplog = new CountingSyncable();
+    final OplogGroupCommitter committer = new OplogGroupCommitter(2, TimeUnit.SECONDS.toMicros(60), null);
+    Future<?> first = this.pool.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        committer.commit(oplog);
+        return null;
+      }
+    });
+    committer.commit(oplog);
+    first.get(30, TimeUnit.SECONDS);
+    assertEquals(1, oplog.syncs.get());
+  }
+
+  @Test
+  public void testSyncFailureIsThrownToGroupMembers() throws Exception {
+    OplogGroupCommitter committer = new OplogGroupCommitter(1, 0, null);
+    OplogGroupCommitter.Syncable failing = new OplogGroupCommitter.Syncable() {
+      @Override
+      public void syncGroup() {
+        throw new DiskAccessException("expected", (String) null);
+      }
+    };
+    try {
+      committer.commit(failing);
+      fail("expected DiskAccessException");
+    } catch (DiskAccessException expected) {
+    }
+    // the committer must still be usable after a failed sync
+    CountingSyncable oplog = new CountingSyncable();
+    committer.commit(oplog);
+    assertEquals(1, oplog.syncs.get());
+  }
+
+  @Test
+  public void testSyncErrorFailsGroupMembers() throws Exception {
+    final OplogGroupCommitter committer = new OplogGroupCommitter(2, TimeUnit.SECONDS.toMicros(60), null);
+    final OplogGroupCommitter.Syncable failing = new OplogGroupCommitter.Syncable() {
+      @Override
+      public void syncGroup() {
+        throw new ExpectedError();
+      }
+    };
+    Callable<Throwable> commit = new Callable<Throwable>() {
+      @Override
+      public Throwable call() throws Exception {
+        try {
+          committer.commit(failing);
+          return null;
+        } catch (Throwable t) {
+          return t;
+        }
+      }
+    };
+    Future<Throwable> first = this.pool.submit(commit);
+    Future<Throwable> second = this.pool.submit(commit);
+    Throwable[] failures = {first.get(30, TimeUnit.SECONDS), second.get(30, TimeUnit.SECONDS)};
+    int errors = 0;
+    for (Throwable t : failures) {
+      if (t instanceof ExpectedError) {
+        // the leader
+        errors++;
+      } else {
+        // no member may return as if its record had been synced
+        assertTrue("unexpected " + t, t instanceof DiskAccessException);
+        assertTrue(t.getCause() instanceof ExpectedError);
+      }
+    }
+    assertEquals(1, errors);
+  }
+
+  private static class ExpectedError extends Error {
+    private static final long serialVersionUID = 1L;
+  }
+
+  private static class CountingSyncable implements OplogGroupCommitter.Syncable {
+    final AtomicInteger syncs = new AtomicInteger();
+
+    private final long sleepMillis;
+
+    CountingSyncable() {
+      this(0);
+    }
+
+    CountingSyncable(long sleepMillis) {
+      this.sleepMillis = sleepMillis;
+    }
+
+    @Override
+    public void syncGroup() {
+      this.syncs.incrementAndGet();
+      if (this.sleepMillis > 0) {
+        try {
+          Thread.sleep(this.sleepMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+import com.jayway.awaitility.Awaitility;
+
+/**
+ * Tests {@link OplogPrefetcher}
+ */
+@Category(UnitTest.class)
+public class OplogPrefetcherJUnitTest {
+
+  private static final int FILE_SIZE = 64 * 1024;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private OplogPrefetcher prefetcher;
+
+  @After
+  public void tearDown() {
+    if (this.prefetcher != null) {
+      this.prefetcher.close();
+    }
+  }
+
+  @Test
+  public void testPrefetchStaysWithinWindow() throws Exception {
+    List<List<File>> oplogs = createOplogFiles(5);
+    this.prefetcher = new OplogPrefetcher("testStore", 2);
+    this.prefetcher.start(oplogs);
+
+    // the oplog being recovered is not prefetched, the next two are
+    awaitBytesPrefetched(2 * FILE_SIZE);
+    Thread.sleep(100);
+    assertEquals(2 * FILE_SIZE, this.prefetcher.getBytesPrefetched());
+
+    this.prefetcher.advance();
+    awaitBytesPrefetched(3 * FILE_SIZE);
+
+    this.prefetcher.advance();
+    this.prefetcher.advance();
+    this.prefetcher.advance();
+    awaitBytesPrefetched(4 * FILE_SIZE);
+    Thread.sleep(100);
+    assertEquals(4 * FILE_SIZE, this.prefetcher.getBytesPrefetched());
+  }
+
+  @Test
+  public void testMissingFileIsIgnored() throws Exception {
+    List<List<File>> oplogs = createOplogFiles(2);
+    oplogs.add(Collections.singletonList(new File(this.temporaryFolder.getRoot(), "missing.crf")));
+    this.prefetcher = new OplogPrefetcher("testStore", 4);
+    this.prefetcher.start(oplogs);
+    awaitBytesPrefetched(FILE_SIZE);
+  }
+
+  private void awaitBytesPrefetched(final long expected) {
+    Awaitility.await().atMost(30, TimeUnit.SECONDS).until(() -> this.prefetcher.getBytesPrefetched() == expected);
+  }
+
+  private List<List<File>> createOplogFiles(int count) throws IOException {
+    List<List<File>> result = new ArrayList<List<File>>();
+    for (int i = 0; i < count; i++) {
+      File f = this.temporaryFolder.newFile("oplog_" + i + ".crf");
+      FileOutputStream fos = new FileOutputStream(f);
+      try {
+        fos.write(new byte[FILE_SIZE]);
+      } finally {
+        fos.close();
+      }
+      result.add(Collections.singletonList(f));
+    }
+    return result;
+  }
+}
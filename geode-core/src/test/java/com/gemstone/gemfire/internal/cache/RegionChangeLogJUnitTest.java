@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.internal.cache.persistence.DiskStoreID;
+import com.gemstone.gemfire.internal.cache.versions.DiskRegionVersionVector;
+import com.gemstone.gemfire.internal.cache.versions.VersionTag;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class RegionChangeLogJUnitTest {
+
+  private final DiskStoreID ownerId = new DiskStoreID(0, 0);
+  private final DiskStoreID id1 = new DiskStoreID(0, 1);
+  private final DiskStoreID id2 = new DiskStoreID(1, 0);
+
+  @Test
+  public void testChangesMissingFrom() {
+    DiskRegionVersionVector providerRVV = new DiskRegionVersionVector(ownerId);
+    RegionChangeLog log = new RegionChangeLog(3, ownerId);
+    assertNull(log.getChangesMissingFrom(new DiskRegionVersionVector(id2)));
+
+    log.reset(providerRVV);
+    for (int i = 1; i <= 5; i++) {
+      providerRVV.recordVersion(id1, i);
+      log.record("key" + i, createTag(id1, i));
+    }
+    // key1 and key2 were evicted
+    assertEquals(3, log.size());
+    assertEquals(Long.valueOf(2), log.getFloor(id1));
+
+    DiskRegionVersionVector requesterRVV = new DiskRegionVersionVector(id2);
+    requesterRVV.recordVersion(id1, 1);
+    assertNull(log.getChangesMissingFrom(requesterRVV));
+
+    requesterRVV.recordVersion(id1, 2);
+    Map<Object, VersionTag<?>> changes = log.getChangesMissingFrom(requesterRVV);
+    assertEquals(3, changes.size());
+    assertEquals(3, changes.get("key3").getRegionVersion());
+
+    requesterRVV.recordVersion(id1, 3);
+    requesterRVV.recordVersion(id1, 5);
+    changes = log.getChangesMissingFrom(requesterRVV);
+    assertEquals(1, changes.size());
+    assertTrue(changes.containsKey("key4"));
+  }
+
+  @Test
+  public void testReset() {
+    DiskRegionVersionVector providerRVV = new DiskRegionVersionVector(ownerId);
+    RegionChangeLog log = new RegionChangeLog(10, ownerId);
+    log.reset(providerRVV);
+    for (int i = 1; i <= 5; i++) {
+      providerRVV.recordVersion(id1, i);
+      log.record("key" + i, createTag(id1, i));
+    }
+    // a key changed again keeps only its latest version
+    providerRVV.recordVersion(id1, 6);
+    log.record("key1", createTag(id1, 6));
+    assertEquals(5, log.size());
+
+    log.reset(providerRVV);
+    assertEquals(0, log.size());
+    assertEquals(Long.valueOf(6), log.getFloor(id1));
+
+    DiskRegionVersionVector requesterRVV = new DiskRegionVersionVector(id2);
+    for (int i = 1; i <= 5; i++) {
+      requesterRVV.recordVersion(id1, i);
+    }
+    assertNull(log.getChangesMissingFrom(requesterRVV));
+    requesterRVV.recordVersion(id1, 6);
+    assertTrue(log.getChangesMissingFrom(requesterRVV).isEmpty());
+  }
+
+  private VersionTag createTag(DiskStoreID member, long regionVersion) {
+    VersionTag tag = VersionTag.create(member);
+    tag.setRegionVersion(regionVersion);
+    return tag;
+  }
+}
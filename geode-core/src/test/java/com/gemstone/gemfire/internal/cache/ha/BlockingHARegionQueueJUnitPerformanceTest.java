@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.ha;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.internal.cache.EventID;
+import com.gemstone.gemfire.test.dunit.ThreadUtils;
+import com.gemstone.gemfire.test.junit.categories.PerformanceTest;
+
+/**
+ * Measures the rate at which several threads can put events into a client
+ * subscription queue while a dispatcher thread peeks and removes batches.
+ */
+@Category(PerformanceTest.class)
+public class BlockingHARegionQueueJUnitPerformanceTest {
+
+  private static final int PUT_THREADS = 8;
+  private static final int PUTS_PER_THREAD = 100000;
+  private static final int BATCH_SIZE = 100;
+
+  private Cache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    this.cache = new CacheFactory().set("mcast-port", "0").set("log-level", "warning").create();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.cache.close();
+  }
+
+  @Test
+  public void testPutAndBatchDispatchPerformance() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      HARegionQueueAttributes attrs = new HARegionQueueAttributes();
+      attrs.setBlockingQueueCapacity(PUT_THREADS * PUTS_PER_THREAD);
+      final HARegionQueue queue = HARegionQueue.getHARegionQueueInstance("queue" + i, this.cache,
+          attrs, HARegionQueue.BLOCKING_HA_QUEUE, false);
+      queue.setPrimary(true);
+      final CountDownLatch start = new CountDownLatch(1);
+      final int total = PUT_THREADS * PUTS_PER_THREAD;
+
+      Thread[] putters = new Thread[PUT_THREADS];
+      for (int t = 0; t < PUT_THREADS; t++) {
+        final int threadId = t + 1;
+        putters[t] = new Thread(new Runnable() {
+          public void run() {
+            try {
+              start.await();
+              for (int j = 1; j <= PUTS_PER_THREAD; j++) {
+                queue.put(new ConflatableObject("key" + (j % 1000), "value",
+                    new EventID(new byte[] { 1 }, threadId, j), false, "region"));
+              }
+            } catch (Exception e) {
+              throw new RuntimeException(e);
+            }
+          }
+        });
+        putters[t].start();
+      }
+
+      long begin = System.nanoTime();
+      start.countDown();
+      int dispatched = 0;
+      long putElapsed = 0;
+      while (dispatched < total) {
+        List batch = queue.peek(BATCH_SIZE, 10);
+        queue.remove();
+        dispatched += batch.size();
+        if (putElapsed == 0 && !isAnyAlive(putters)) {
+          putElapsed = System.nanoTime() - begin;
+        }
+      }
+      long elapsed = System.nanoTime() - begin;
+      for (Thread putter : putters) {
+        ThreadUtils.join(putter, 30 * 1000);
+      }
+      if (putElapsed == 0) {
+        putElapsed = elapsed;
+      }
+      assertEquals(0, queue.size());
+
+      System.out.println((1000000000.0 * total / putElapsed) + " puts / sec, "
+          + (1000000000.0 * dispatched / elapsed) + " dispatched / sec");
+      queue.destroy();
+    }
+  }
+
+  private static boolean isAnyAlive(Thread[] threads) {
+    for (Thread thread : threads) {
+      if (thread.isAlive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
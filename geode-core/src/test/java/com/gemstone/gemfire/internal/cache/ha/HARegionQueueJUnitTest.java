@@ -2141,4 +2141,114 @@ public class HARegionQueueJUnitTest
       Assert.assertEquals("messageSyncInterval not updated.",
           updatedMessageSyncInterval, HARegionQueue.getMessageSyncInterval());
   }
+
+  /**
+   * Puts from several threads while a dispatcher peeks and removes batches.
+   * Every event must be dispatched exactly once, in the order it was put by
+   * its thread, and the queue must be empty at the end.
+   */
+  @Test
+  public void testBatchPeekAndRemoveWithConcurrentPuts() throws Exception
+  {
+    final HARegionQueue regionqueue = createHARegionQueue("testBatchPeekAndRemoveWithConcurrentPuts");
+    final int numThreads = 4;
+    final int numPuts = 1000;
+    Thread[] putters = new Thread[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      final int threadId = i + 1;
+      putters[i] = new Thread(new Runnable() {
+        public void run() {
+          try {
+            for (int j = 1; j <= numPuts; j++) {
+              regionqueue.put(new ConflatableObject("key" + threadId + "-" + j, "value",
+                  new EventID(new byte[] { 1 }, threadId, j), false, "testing"));
+            }
+          }
+          catch (Exception e) {
+            encounteredException = true;
+          }
+        }
+      });
+      putters[i].start();
+    }
+    long[] lastSequenceIds = new long[numThreads + 1];
+    int dispatched = 0;
+    long giveUpTime = System.currentTimeMillis() + 60000;
+    while (dispatched < numThreads * numPuts && System.currentTimeMillis() < giveUpTime) {
+      List batch = regionqueue.peek(50, 10);
+      for (Iterator it = batch.iterator(); it.hasNext();) {
+        EventID id = ((Conflatable)it.next()).getEventId();
+        int threadId = (int)id.getThreadID();
+        assertEquals(lastSequenceIds[threadId] + 1, id.getSequenceID());
+        lastSequenceIds[threadId] = id.getSequenceID();
+      }
+      regionqueue.remove();
+      dispatched += batch.size();
+    }
+    for (int i = 0; i < numThreads; i++) {
+      ThreadUtils.join(putters[i], 30 * 1000);
+    }
+    assertFalse(encounteredException);
+    assertEquals(numThreads * numPuts, dispatched);
+    assertEquals(0, regionqueue.size());
+    assertTrue(regionqueue.isEmpty());
+    assertEquals(numThreads * numPuts, regionqueue.getStatistics().getEventsRemoved());
+  }
+
+  /**
+   * peekAvailable() on a non durable queue peeks from the head without
+   * waiting and remove() takes the peeked events off the queue.
+   */
+  @Test
+  public void testPeekAvailable() throws Exception
+  {
+    HARegionQueue regionqueue = HARegionQueue.getHARegionQueueInstance(
+        "testPeekAvailable", cache, HARegionQueue.BLOCKING_HA_QUEUE, false);
+    assertEquals(0, regionqueue.peekAvailable(4).size());
+    regionqueue.remove();
+    for (int i = 1; i <= 6; i++) {
+      regionqueue.put(new ConflatableObject("key" + i, "value", new EventID(
+          new byte[] { 1 }, 1, i), false, "testing"));
+    }
+    List batch = regionqueue.peekAvailable(4);
+    assertEquals(4, batch.size());
+    assertEquals(1, ((Conflatable)batch.get(0)).getEventId().getSequenceID());
+    assertEquals(4, ((Conflatable)batch.get(3)).getEventId().getSequenceID());
+    regionqueue.remove();
+    assertEquals(2, regionqueue.size());
+    batch = regionqueue.peekAvailable(4);
+    assertEquals(2, batch.size());
+    assertEquals(5, ((Conflatable)batch.get(0)).getEventId().getSequenceID());
+    regionqueue.remove();
+    assertTrue(regionqueue.isEmpty());
+  }
+
+  /**
+   * peekAvailable() on a durable queue takes the events off the available IDs
+   * like peek() does, so successive calls return the following events and
+   * nothing is removed until the client acknowledges it.
+   */
+  @Test
+  public void testPeekAvailableOnDurableQueue() throws Exception
+  {
+    HARegionQueue regionqueue = HARegionQueue.getHARegionQueueInstance(
+        "testPeekAvailableOnDurableQueue", cache,
+        HARegionQueue.BLOCKING_HA_QUEUE, true);
+    for (int i = 1; i <= 10; i++) {
+      regionqueue.put(new ConflatableObject("key" + i, "value", new EventID(
+          new byte[] { 1 }, 1, i), false, "testing"));
+    }
+    List batch = regionqueue.peekAvailable(4);
+    assertEquals(4, batch.size());
+    assertEquals(1, ((Conflatable)batch.get(0)).getEventId().getSequenceID());
+    regionqueue.remove();
+    batch = regionqueue.peekAvailable(4);
+    assertEquals(4, batch.size());
+    assertEquals(5, ((Conflatable)batch.get(0)).getEventId().getSequenceID());
+    assertEquals(9, ((Conflatable)regionqueue.peek()).getEventId().getSequenceID());
+    assertEquals(1, regionqueue.peekAvailable(4).size());
+    assertEquals(0, regionqueue.peekAvailable(4).size());
+    regionqueue.remove();
+    assertEquals(10, regionqueue.size());
+  }
 }
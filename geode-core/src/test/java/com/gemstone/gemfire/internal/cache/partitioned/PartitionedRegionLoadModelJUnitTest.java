@@ -844,6 +844,144 @@ public class PartitionedRegionLoadModelJUnitTest {
     assertEquals(expectedMoves, bucketOperator.bucketMoves);
   }
   
+  /**
+   * Test that with moves ranked by bytes, the buckets that balance the
+   * same load with fewer bytes are moved.
+   */
+  @Test
+  public void testMoveBucketsRankedByBytes() throws Exception {
+    PartitionedRegionLoadModel model = new PartitionedRegionLoadModel(bucketOperator ,0, 4, getAddressComparor(false), Collections.<InternalDistributedMember>emptySet(), null);
+    model.setRankMovesByBytes(true);
+    InternalDistributedMember member1 = new InternalDistributedMember(InetAddress.getByName("127.0.0.1"), 1);
+    InternalDistributedMember member2 = new InternalDistributedMember(InetAddress.getByName("127.0.0.1"), 2);
+    //Create some imbalanced nodes, with buckets of the same load but different sizes
+    PartitionMemberInfoImpl details1 = buildDetails(member1, 500, 500, new long[] {1,1,1,1}, new long[] {1,1,1,1}, new long[] {40,10,40,10});
+    PartitionMemberInfoImpl details2 = buildDetails(member2, 500, 500, new long[] {0,0,0,0}, new long[] {0,0,0,0}, new long[] {0,0,0,0});
+    model.addRegion("a", Arrays.asList(details1, details2), new FakeOfflineDetails(), true);
+
+    assertEquals(2, doMoves(new CompositeDirector(false, false, true, false), model));
+    assertEquals(2, bucketOperator.bucketMoves.size());
+
+    //the two small buckets should have moved to member2
+    for(PartitionMemberInfo details : model.getPartitionedMemberDetails("a")) {
+      if(details.getDistributedMember().equals(member2)) {
+        assertEquals(20, details.getSize());
+      } else {
+        assertEquals(80, details.getSize());
+      }
+    }
+  }
+  
+  /**
+   * Test that a bucket move that fails asynchronously is undone in the model,
+   * and that the bucket is then moved to another member.
+   */
+  @Test
+  public void testMoveBucketsWithAsyncFailures() throws Exception {
+    InternalDistributedMember member1 = new InternalDistributedMember(InetAddress.getByName("127.0.0.1"), 1);
+    InternalDistributedMember member2 = new InternalDistributedMember(InetAddress.getByName("127.0.0.1"), 2);
+    InternalDistributedMember member3 = new InternalDistributedMember(InetAddress.getByName("127.0.0.1"), 3);
+
+    BucketOperatorWithFailures operator = new BucketOperatorWithFailures();
+    operator.addBadMember(member2);
+    bucketOperator = operator;
+    PartitionedRegionLoadModel model = new PartitionedRegionLoadModel(
+        bucketOperator, 0, 6, getAddressComparor(false),
+        Collections.<InternalDistributedMember>emptySet(), null);
+    PartitionMemberInfoImpl details1 = buildDetails(member1, 500, 500, new long[] {1,1,1,1,1,1}, new long[] {1,1,1,1,1,1});
+    PartitionMemberInfoImpl details2 = buildDetails(member2, 500, 500, new long[] {0,0,0,0,0,0}, new long[] {0,0,0,0,0,0});
+    PartitionMemberInfoImpl details3 = buildDetails(member3, 500, 500, new long[] {0,0,0,0,0,0}, new long[] {0,0,0,0,0,0});
+    model.addRegion("a", Arrays.asList(details1, details2, details3), new FakeOfflineDetails(), true);
+
+    //the model moves a bucket to member2, and while that move is in
+    //progress it moves buckets to member3 rather than wait for it
+    assertEquals(3, doMoves(new CompositeDirector(false, false, true, false), model));
+    assertEquals(1, operator.pendingFailures.size());
+    assertEquals(1, getBucketCount(model, member2));
+
+    for(Completion completion: operator.pendingFailures) {
+      completion.onFailure();
+    }
+    operator.pendingFailures.clear();
+
+    //the failed moves are undone, so the buckets are back on member1
+    assertEquals(4, getBucketCount(model, member1));
+    assertEquals(0, getBucketCount(model, member2));
+    assertEquals(2, getBucketCount(model, member3));
+
+    //the buckets are now moved to member3, and the moves of other buckets
+    //to member2 fail as well
+    doMoves(new CompositeDirector(false, false, true, false), model);
+    while(!operator.pendingFailures.isEmpty()) {
+      for(Completion completion: operator.pendingFailures) {
+        completion.onFailure();
+      }
+      operator.pendingFailures.clear();
+      doMoves(new CompositeDirector(false, false, true, false), model);
+    }
+    assertEquals(3, getBucketCount(model, member1));
+    assertEquals(0, getBucketCount(model, member2));
+    assertEquals(3, getBucketCount(model, member3));
+
+    List<Move> expectedMoves = new ArrayList<Move>();
+    expectedMoves.add(new Move(member1, member3));
+    expectedMoves.add(new Move(member1, member3));
+    expectedMoves.add(new Move(member1, member3));
+    assertEquals(expectedMoves, bucketOperator.bucketMoves);
+  }
+
+  /**
+   * Test that while a move between two members is in progress, the model
+   * moves buckets between other members instead of waiting for that move.
+   */
+  @Test
+  public void testMoveBucketsSkipsBusyMemberPairs() throws Exception {
+    InternalDistributedMember member1 = new InternalDistributedMember(InetAddress.getByName("127.0.0.1"), 1);
+    InternalDistributedMember member2 = new InternalDistributedMember(InetAddress.getByName("127.0.0.1"), 2);
+    InternalDistributedMember member3 = new InternalDistributedMember(InetAddress.getByName("127.0.0.1"), 3);
+
+    BucketOperatorWithPendingMoves operator = new BucketOperatorWithPendingMoves();
+    bucketOperator = operator;
+    PartitionedRegionLoadModel model = new PartitionedRegionLoadModel(
+        bucketOperator, 0, 8, getAddressComparor(false),
+        Collections.<InternalDistributedMember>emptySet(), null);
+    PartitionMemberInfoImpl details1 = buildDetails(member1, 500, 500, new long[] {1,1,1,1,1,1,0,0}, new long[] {1,1,1,1,1,1,0,0});
+    PartitionMemberInfoImpl details2 = buildDetails(member2, 500, 500, new long[] {0,0,0,0,0,0,0,0}, new long[] {0,0,0,0,0,0,0,0});
+    PartitionMemberInfoImpl details3 = buildDetails(member3, 500, 500, new long[] {0,0,0,0,0,0,1,1}, new long[] {0,0,0,0,0,0,1,1});
+    model.addRegion("a", Arrays.asList(details1, details2, details3), new FakeOfflineDetails(), true);
+
+    //member1 to member2 is the best move each time, but after the first one
+    //the moves that do not wait for it are chosen
+    assertEquals(3, doMoves(new CompositeDirector(false, false, true, false), model));
+    List<Move> expectedMoves = new ArrayList<Move>();
+    expectedMoves.add(new Move(member1, member2));
+    expectedMoves.add(new Move(member1, member3));
+    expectedMoves.add(new Move(member3, member2));
+    assertEquals(expectedMoves, bucketOperator.bucketMoves);
+
+    for(Completion completion: operator.pendingSuccesses) {
+      completion.onSuccess();
+    }
+    operator.pendingSuccesses.clear();
+
+    //once the moves are done the deferred move is made
+    doMoves(new CompositeDirector(false, false, true, false), model);
+    expectedMoves.add(new Move(member1, member2));
+    assertEquals(expectedMoves, bucketOperator.bucketMoves);
+    assertEquals(3, getBucketCount(model, member1));
+    assertEquals(3, getBucketCount(model, member2));
+    assertEquals(2, getBucketCount(model, member3));
+  }
+
+  private static int getBucketCount(PartitionedRegionLoadModel model, InternalDistributedMember member) {
+    for(PartitionMemberInfo details : model.getPartitionedMemberDetails("a")) {
+      if(details.getDistributedMember().equals(member)) {
+        return details.getBucketCount();
+      }
+    }
+    throw new IllegalStateException("No details for " + member);
+  }
+
   /**
    * Test to move buckets with redundancy.
    * Makes sure that buckets and primaries are balanced
@@ -1226,6 +1364,10 @@ public class PartitionedRegionLoadModelJUnitTest {
   }
   
   private PartitionMemberInfoImpl buildDetails(InternalDistributedMember id, float weight, long localMaxMemory, long[] loads, long[] primaryLoads) {
+    return buildDetails(id, weight, localMaxMemory, loads, primaryLoads, loads);
+  }
+
+  private PartitionMemberInfoImpl buildDetails(InternalDistributedMember id, float weight, long localMaxMemory, long[] loads, long[] primaryLoads, long[] sizes) {
     PRLoad load1 = new PRLoad(loads.length, weight);
     int size = 0;
     int primaryCount = 0;
@@ -1233,7 +1375,7 @@ public class PartitionedRegionLoadModelJUnitTest {
     long[] bucketSizes = new long[loads.length];
     for(int i = 0; i < loads.length; i++) {
       load1.addBucket(i, loads[i], primaryLoads[i]);
-      bucketSizes[i] = loads[i];
+      bucketSizes[i] = sizes[i];
       size+= bucketSizes[i];
       if(loads[i] != 0) {
         bucketCount++;
@@ -1498,8 +1640,32 @@ public class PartitionedRegionLoadModelJUnitTest {
         pendingSuccesses.add(completion);
       }
     }
+
+    @Override
+    public void moveBucket(InternalDistributedMember source,
+        InternalDistributedMember target, int id,
+        Map<String, Long> colocatedRegionBytes, Completion completion) {
+      if(badMembers.contains(target)) {
+        pendingFailures.add(completion);
+      } else {
+        super.moveBucket(source, target, id, colocatedRegionBytes, completion);
+      }
+    }
   }
   
+  private static class BucketOperatorWithPendingMoves extends MyBucketOperator {
+
+    private List<Completion> pendingSuccesses = new ArrayList<Completion>();
+
+    @Override
+    public void moveBucket(InternalDistributedMember source,
+        InternalDistributedMember target, int id,
+        Map<String, Long> colocatedRegionBytes, Completion completion) {
+      moveBucket(source, target, id, colocatedRegionBytes);
+      pendingSuccesses.add(completion);
+    }
+  }
+
   private enum MoveType {
     CREATE,
     MOVE_PRIMARY,
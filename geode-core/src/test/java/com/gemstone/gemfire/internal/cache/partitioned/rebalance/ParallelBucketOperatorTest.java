@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.partitioned.rebalance;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.distributed.internal.membership.InternalDistributedMember;
+import com.gemstone.gemfire.internal.cache.partitioned.rebalance.BucketOperator.Completion;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class ParallelBucketOperatorTest {
+
+  private ExecutorService executor;
+  private SlowBucketOperator delegate;
+  private InternalDistributedMember member1, member2, member3;
+  private Map<String, Long> colocatedRegionBytes = Collections.singletonMap("region", 100 * 1024L);
+
+  @Before
+  public void setup() throws Exception {
+    executor = Executors.newCachedThreadPool();
+    delegate = new SlowBucketOperator();
+    member1 = new InternalDistributedMember(InetAddress.getByName("127.0.0.1"), 1);
+    member2 = new InternalDistributedMember(InetAddress.getByName("127.0.0.1"), 2);
+    member3 = new InternalDistributedMember(InetAddress.getByName("127.0.0.1"), 3);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testMovesBetweenDifferentPairsRunConcurrently() {
+    ParallelBucketOperator operator = new ParallelBucketOperator(8, executor, delegate);
+    CountingCompletion completion = new CountingCompletion();
+    for (int i = 0; i < 6; i++) {
+      operator.moveBucket(i % 2 == 0 ? member1 : member2, member3, i, colocatedRegionBytes, completion);
+    }
+    operator.waitForOperations();
+
+    assertEquals(6, completion.successes.get());
+    assertEquals(6, delegate.getBucketTransfers());
+    // the two pairs moved concurrently, but only one bucket at a time each
+    assertEquals(2, delegate.maxConcurrentMoves.get());
+    assertEquals(1, delegate.maxConcurrentMovesPerPair.get());
+  }
+
+  @Test
+  public void testTransfersWithinBudget() {
+    // 100 KB per transfer at 1 MB per second
+    TransferRateLimiter limiter = new TransferRateLimiter(1024 * 1024);
+    ParallelBucketOperator operator = new ParallelBucketOperator(8, executor, delegate, limiter);
+    CountingCompletion completion = new CountingCompletion();
+    long start = System.nanoTime();
+    for (int i = 0; i < 6; i++) {
+      operator.createRedundantBucket(member1, i, colocatedRegionBytes, completion);
+    }
+    operator.waitForOperations();
+    long elapsed = System.nanoTime() - start;
+
+    assertEquals(6, completion.successes.get());
+    // the first transfer starts right away, each of the others waits its turn
+    assertTrue("transfers took " + elapsed + " ns",
+        elapsed >= limiter.getTransferNanos(5 * 100 * 1024L));
+  }
+
+  @Test
+  public void testSimulatedTransfersPredictTime() {
+    SimulatedBucketOperator simulated = new SimulatedBucketOperator();
+    CountingCompletion completion = new CountingCompletion();
+    simulated.createRedundantBucket(member1, 0, colocatedRegionBytes, completion);
+    simulated.moveBucket(member1, member2, 1, colocatedRegionBytes, completion);
+    assertTrue(simulated.moveBucket(member1, member2, 2, colocatedRegionBytes));
+
+    assertEquals(2, completion.successes.get());
+    assertEquals(3, simulated.getBucketTransfers());
+    assertEquals(300 * 1024L, simulated.getBytesTransferred());
+    assertEquals(TimeUnit.SECONDS.toNanos(3),
+        simulated.getPredictedTime(new TransferRateLimiter(100 * 1024)));
+    assertEquals(0, simulated.getPredictedTime(new TransferRateLimiter(0)));
+  }
+
+  private static class CountingCompletion implements Completion {
+    final AtomicInteger successes = new AtomicInteger();
+    final AtomicInteger failures = new AtomicInteger();
+
+    @Override
+    public void onSuccess() {
+      successes.incrementAndGet();
+    }
+
+    @Override
+    public void onFailure() {
+      failures.incrementAndGet();
+    }
+  }
+
+  private static class SlowBucketOperator extends SimulatedBucketOperator {
+    final AtomicInteger concurrentMoves = new AtomicInteger();
+    final AtomicInteger maxConcurrentMoves = new AtomicInteger();
+    final AtomicInteger maxConcurrentMovesPerPair = new AtomicInteger();
+    final Map<List<InternalDistributedMember>, AtomicInteger> movesPerPair =
+        new ConcurrentHashMap<List<InternalDistributedMember>, AtomicInteger>();
+
+    @Override
+    public boolean moveBucket(InternalDistributedMember source,
+        InternalDistributedMember target, int id,
+        Map<String, Long> colocatedRegionBytes) {
+      List<InternalDistributedMember> pair = Arrays.asList(source, target);
+      movesPerPair.putIfAbsent(pair, new AtomicInteger());
+      AtomicInteger pairMoves = movesPerPair.get(pair);
+      updateMax(maxConcurrentMoves, concurrentMoves.incrementAndGet());
+      updateMax(maxConcurrentMovesPerPair, pairMoves.incrementAndGet());
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        pairMoves.decrementAndGet();
+        concurrentMoves.decrementAndGet();
+      }
+      return super.moveBucket(source, target, id, colocatedRegionBytes);
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+      int current;
+      while ((current = max.get()) < value && !max.compareAndSet(current, value)) {
+      }
+    }
+  }
+}
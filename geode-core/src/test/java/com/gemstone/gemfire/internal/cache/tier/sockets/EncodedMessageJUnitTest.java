@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.tier.sockets;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.internal.Version;
+import com.gemstone.gemfire.internal.cache.tier.MessageType;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class EncodedMessageJUnitTest {
+
+  private final CacheClientNotifierStats stats = mock(CacheClientNotifierStats.class);
+
+  private Message createMessage() {
+    byte[] value = new byte[20000];
+    Arrays.fill(value, (byte) 9);
+    Message msg = new Message(3, Version.CURRENT);
+    msg.setMessageType(MessageType.LOCAL_UPDATE);
+    msg.setTransactionId(0);
+    msg.addStringPart("/region");
+    msg.addStringPart("key");
+    msg.addRawPart(value, true);
+    return msg;
+  }
+
+  private byte[] send(Message msg, MessageStats msgStats) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    msg.setComms(mock(Socket.class), null, os, ByteBuffer.allocate(1000), msgStats);
+    msg.send();
+    return os.toByteArray();
+  }
+
+  @Test
+  public void everySendWritesWhatTheMessageWouldHaveWritten() throws Exception {
+    Message msg = createMessage();
+    EncodedMessage encoded = EncodedMessage.encode(msg, this.stats);
+    byte[] expected = send(msg, null);
+
+    assertEquals(expected.length, encoded.getWireBytes().length);
+    assertEquals(MessageType.LOCAL_UPDATE, encoded.getMessageType());
+    MessageStats msgStats = mock(MessageStats.class);
+    assertArrayEquals(expected, send(encoded, msgStats));
+    assertArrayEquals(expected, send(encoded, msgStats));
+
+    verify(this.stats).incEncodedMessages(expected.length);
+    verify(this.stats, times(2)).incEncodedMessagesSent(expected.length);
+    verify(msgStats, times(2)).incSentBytes(expected.length);
+  }
+
+  @Test
+  public void encodingLeavesTheMessageIntact() throws Exception {
+    Message msg = createMessage();
+    byte[] first = EncodedMessage.encode(msg, null).getWireBytes();
+    assertEquals(3, msg.getNumberOfParts());
+    assertNull(msg.getCommBuffer());
+    assertArrayEquals(first, EncodedMessage.encode(msg, null).getWireBytes());
+  }
+}
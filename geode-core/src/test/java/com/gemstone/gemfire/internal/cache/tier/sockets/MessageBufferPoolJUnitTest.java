@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.tier.sockets;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.internal.Version;
+import com.gemstone.gemfire.internal.cache.tier.MessageType;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class MessageBufferPoolJUnitTest {
+
+  private final MessageBufferPool pool = new MessageBufferPool(64 * 1024, 1024 * 1024);
+
+  private Message createMessage(byte[] value) {
+    Message msg = new Message(3, Version.CURRENT);
+    msg.setMessageType(MessageType.PUT);
+    msg.setTransactionId(42);
+    msg.addStringPart("key");
+    msg.addIntPart(7);
+    msg.addBytesPart(value);
+    return msg;
+  }
+
+  private byte[] streamBytes(Message msg) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    msg.setComms(mock(Socket.class), null, os, ByteBuffer.allocate(1000), null);
+    msg.send(false);
+    return os.toByteArray();
+  }
+
+  private SocketChannel readingChannel(final ByteBuffer in) throws IOException {
+    SocketChannel channel = mock(SocketChannel.class);
+    when(channel.read(any(ByteBuffer.class))).thenAnswer(invocation -> {
+      ByteBuffer dst = (ByteBuffer) invocation.getArguments()[0];
+      if (!in.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(dst.remaining(), in.remaining());
+      ByteBuffer src = in.duplicate();
+      src.limit(src.position() + n);
+      dst.put(src);
+      in.position(in.position() + n);
+      return n;
+    });
+    return channel;
+  }
+
+  @Test
+  public void buffersAreReusedBySizeClass() {
+    ByteBuffer bb = this.pool.acquire(1500);
+    assertTrue(bb.isDirect());
+    assertEquals(2048, bb.capacity());
+    assertEquals(1500, bb.limit());
+    this.pool.release(bb);
+    assertEquals(2048, this.pool.getPooledMemory());
+    assertSame(bb, this.pool.acquire(2000));
+    assertEquals(0, this.pool.getPooledMemory());
+    assertNotSame(bb, this.pool.acquire(100));
+  }
+
+  @Test
+  public void poolNeverHoldsMoreThanItsLimit() {
+    MessageBufferPool small = new MessageBufferPool(4096, 4096);
+    ByteBuffer first = small.acquire(4096);
+    ByteBuffer second = small.acquire(4096);
+    small.release(first);
+    small.release(second);
+    assertEquals(4096, small.getPooledMemory());
+    assertFalse(small.canPool(4097));
+  }
+
+  @Test
+  public void receivedPartsAreSlicesOfAPooledBuffer() throws Exception {
+    byte[] value = new byte[5000];
+    Arrays.fill(value, (byte) 3);
+    ByteBuffer frame = ByteBuffer.wrap(streamBytes(createMessage(value)));
+    SocketChannel channel = readingChannel(frame);
+    Socket socket = mock(Socket.class);
+    when(socket.getChannel()).thenReturn(channel);
+
+    Message msg = new Message(3, Version.CURRENT);
+    msg.setBufferPool(this.pool);
+    msg.setComms(socket, ByteBuffer.allocate(1000), null);
+    msg.recv();
+
+    assertEquals(MessageType.PUT, msg.getMessageType());
+    assertEquals(42, msg.getTransactionId());
+    assertEquals("key", msg.getPart(0).getString());
+    assertEquals(7, msg.getPart(1).getInt());
+    byte[] received = msg.getPart(2).getSerializedForm();
+    assertArrayEquals(value, received);
+    assertEquals(0, this.pool.getPooledMemory());
+
+    msg.clear();
+    assertEquals(8192, this.pool.getPooledMemory());
+    // bytes handed out before the clear are copies
+    assertArrayEquals(value, received);
+  }
+
+  @Test
+  public void gatheringWriteSendsTheSameBytes() throws Exception {
+    byte[] value = new byte[5000];
+    Arrays.fill(value, (byte) 5);
+    byte[] expected = streamBytes(createMessage(value));
+
+    final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    SocketChannel channel = mock(SocketChannel.class);
+    when(channel.write(any(ByteBuffer.class))).thenAnswer(invocation -> {
+      ByteBuffer src = (ByteBuffer) invocation.getArguments()[0];
+      int n = src.remaining();
+      while (src.hasRemaining()) {
+        written.write(src.get());
+      }
+      return n;
+    });
+    when(channel.write(any(ByteBuffer[].class), anyInt(), anyInt())).thenAnswer(invocation -> {
+      ByteBuffer[] srcs = (ByteBuffer[]) invocation.getArguments()[0];
+      // write at most 700 bytes at a time to exercise partial writes
+      long n = 0;
+      for (ByteBuffer src : srcs) {
+        while (src.hasRemaining() && n < 700) {
+          written.write(src.get());
+          n++;
+        }
+      }
+      return n;
+    });
+    Socket socket = mock(Socket.class);
+    when(socket.getChannel()).thenReturn(channel);
+
+    Message msg = createMessage(value);
+    msg.setBufferPool(this.pool);
+    msg.setComms(socket, ByteBuffer.allocate(1000), null);
+    msg.send(false);
+
+    assertArrayEquals(expected, written.toByteArray());
+    verify(channel, atLeastOnce()).write(any(ByteBuffer[].class), anyInt(), anyInt());
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.tier.sockets;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SocketChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.internal.Version;
+import com.gemstone.gemfire.internal.cache.tier.MessageType;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class MessageFrameReaderJUnitTest {
+
+  private Pipe pipe;
+
+  @Before
+  public void setUp() throws Exception {
+    pipe = Pipe.open();
+    pipe.source().configureBlocking(false);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    pipe.sink().close();
+    pipe.source().close();
+  }
+
+  private byte[] createFrame(String value) throws IOException {
+    Socket socket = mock(Socket.class);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    Message msg = new Message(2, Version.CURRENT);
+    msg.setComms(socket, null, os, ByteBuffer.allocate(1000), null);
+    msg.setMessageType(MessageType.PUT);
+    msg.setTransactionId(42);
+    msg.addStringPart(value);
+    msg.addIntPart(7);
+    msg.send();
+    return os.toByteArray();
+  }
+
+  private void write(byte[] bytes, int off, int len) throws IOException {
+    ByteBuffer bb = ByteBuffer.wrap(bytes, off, len);
+    while (bb.hasRemaining()) {
+      pipe.sink().write(bb);
+    }
+  }
+
+  @Test
+  public void frameIsOnlyCompleteOnceAllBytesHaveArrived() throws Exception {
+    byte[] frame = createFrame("hello");
+    MessageFrameReader reader = new MessageFrameReader(1024);
+
+    assertFalse(reader.readFrom(pipe.source()));
+    write(frame, 0, 10);
+    assertFalse(reader.readFrom(pipe.source()));
+    write(frame, 10, MessageFrameReader.HEADER_LENGTH);
+    assertFalse(reader.readFrom(pipe.source()));
+    write(frame, 10 + MessageFrameReader.HEADER_LENGTH, frame.length - 10 - MessageFrameReader.HEADER_LENGTH);
+    assertTrue(reader.readFrom(pipe.source()));
+
+    ByteBuffer bb = reader.takeFrame();
+    assertEquals(frame.length, bb.remaining());
+    byte[] read = new byte[bb.remaining()];
+    bb.get(read);
+    assertArrayEquals(frame, read);
+  }
+
+  @Test
+  public void largeFrameIsHandedOverAfterTheHeader() throws Exception {
+    byte[] frame = createFrame("hello");
+    MessageFrameReader reader = new MessageFrameReader(MessageFrameReader.HEADER_LENGTH + 1);
+    write(frame, 0, frame.length);
+
+    assertTrue(reader.readFrom(pipe.source()));
+    assertEquals(MessageFrameReader.HEADER_LENGTH, reader.takeFrame().remaining());
+  }
+
+  @Test(expected = IOException.class)
+  public void invalidMessageTypeIsRejected() throws Exception {
+    byte[] frame = createFrame("hello");
+    frame[3] = (byte) 0xff;
+    write(frame, 0, frame.length);
+    new MessageFrameReader(1024).readFrom(pipe.source());
+  }
+
+  @Test(expected = EOFException.class)
+  public void closedChannelThrowsEOF() throws Exception {
+    byte[] frame = createFrame("hello");
+    write(frame, 0, 5);
+    pipe.sink().close();
+    new MessageFrameReader(1024).readFrom(pipe.source());
+  }
+
+  @Test
+  public void messageReadsPrefetchedBytesBeforeItsChannel() throws Exception {
+    byte[] frame = createFrame("hello");
+    int prefetched = MessageFrameReader.HEADER_LENGTH + 3;
+    final ByteBuffer rest = ByteBuffer.wrap(frame, prefetched, frame.length - prefetched);
+    SocketChannel channel = mock(SocketChannel.class);
+    when(channel.read(any(ByteBuffer.class))).thenAnswer(invocation -> {
+      ByteBuffer dst = (ByteBuffer) invocation.getArguments()[0];
+      int n = Math.min(dst.remaining(), rest.remaining());
+      for (int i = 0; i < n; i++) {
+        dst.put(rest.get());
+      }
+      return n == 0 ? -1 : n;
+    });
+    Socket socket = mock(Socket.class);
+    when(socket.getChannel()).thenReturn(channel);
+
+    Message msg = new Message(2, Version.CURRENT);
+    msg.setComms(socket, ByteBuffer.allocate(1000), null);
+    msg.setPrefetchedBytes(ByteBuffer.wrap(frame, 0, prefetched));
+    msg.recv();
+
+    assertEquals(MessageType.PUT, msg.getMessageType());
+    assertEquals(42, msg.getTransactionId());
+    assertEquals("hello", msg.getPart(0).getString());
+    assertEquals(7, msg.getPart(1).getInt());
+    assertFalse(rest.hasRemaining());
+  }
+}
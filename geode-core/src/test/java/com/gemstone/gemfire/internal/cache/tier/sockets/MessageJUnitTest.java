@@ -19,6 +19,9 @@ package com.gemstone.gemfire.internal.cache.tier.sockets;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 
@@ -27,6 +30,7 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import com.gemstone.gemfire.internal.Version;
+import com.gemstone.gemfire.internal.cache.tier.MessageType;
 import com.gemstone.gemfire.test.junit.categories.UnitTest;
 
 @Category(UnitTest.class)
@@ -102,6 +106,69 @@ public class MessageJUnitTest {
     }
   }
 
+  private byte[] sendToBytes(Message msg) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    msg.setComms(mock(Socket.class), null, os, ByteBuffer.allocate(1000), null);
+    msg.send(false);
+    return os.toByteArray();
+  }
+
+  private Message receiveFromBytes(Message msg, byte[] bytes) throws IOException {
+    msg.setComms(mock(Socket.class), new ByteArrayInputStream(bytes), null, ByteBuffer.allocate(1000), null);
+    msg.recv();
+    return msg;
+  }
+
+  private Message createRequest(int correlationId) {
+    Message request = new Message(2, Version.CURRENT);
+    request.setMessageType(MessageType.REQUEST);
+    request.setTransactionId(3);
+    request.addStringPart("region");
+    request.addStringPart("key");
+    request.setCorrelationId(correlationId);
+    return request;
+  }
+
+  @Test
+  public void correlationIdIsSentAfterTheParts() throws Exception {
+    Message received = receiveFromBytes(new Message(2, Version.CURRENT), sendToBytes(createRequest(7)));
+    assertEquals(7, received.getCorrelationId());
+    assertEquals(2, received.getNumberOfParts());
+    assertEquals("key", received.getPart(1).getString());
+    assertEquals(3, received.getTransactionId());
+
+    // a reused message forgets the id of the previous request
+    receiveFromBytes(received, sendToBytes(createRequest(Message.NO_CORRELATION_ID)));
+    assertEquals(Message.NO_CORRELATION_ID, received.getCorrelationId());
+  }
+
+  @Test
+  public void replyCarriesTheCorrelationIdOfItsRequest() throws Exception {
+    Message request = receiveFromBytes(new Message(2, Version.CURRENT), sendToBytes(createRequest(7)));
+    when(mockServerConnection.getRequestMessage()).thenReturn(request);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    when(mockSocket.getOutputStream()).thenReturn(os);
+    Message reply = new Message(1, Version.CURRENT);
+    reply.setComms(mockServerConnection, mockSocket, ByteBuffer.allocate(1000), null);
+    reply.setMessageType(MessageType.RESPONSE);
+    reply.setTransactionId(request.getTransactionId());
+    reply.addStringPart("value");
+    reply.send();
+
+    Message received = new Message(1, Version.CURRENT);
+    received.setExpectedCorrelationId(7);
+    receiveFromBytes(received, os.toByteArray());
+    assertEquals(7, received.getTransactionId());
+    assertEquals("value", received.getPart(0).getString());
+
+    received.setExpectedCorrelationId(8);
+    try {
+      receiveFromBytes(received, os.toByteArray());
+      fail("expected an exception but none was thrown");
+    } catch (IOException expected) {
+    }
+  }
+
   // TODO many more tests are needed
 
 }
@@ -40,6 +40,7 @@ public class FreeListManagerTest {
   private final MemoryAllocatorImpl ma = mock(MemoryAllocatorImpl.class);
   private final OffHeapMemoryStats stats = mock(OffHeapMemoryStats.class);
   private TestableFreeListManager freeListManager;
+  private FreeListManager cachingFreeListManager;
 
   @Before
   public void setUp() throws Exception {
@@ -51,6 +52,9 @@ public class FreeListManagerTest {
     if (this.freeListManager != null) {
       this.freeListManager.freeSlabs();
     }
+    if (this.cachingFreeListManager != null) {
+      this.cachingFreeListManager.freeSlabs();
+    }
   }
   
   private static TestableFreeListManager createFreeListManager(MemoryAllocatorImpl ma, Slab[] slabs) {
@@ -194,6 +198,93 @@ public class FreeListManagerTest {
     assertThat(this.freeListManager.getFreeTinyMemory()).isEqualTo(computeExpectedSize(dataSize)+computeExpectedSize(dataSize2));
   }
    
+  private void setUpCachingSingleSlabManager() {
+    Slab slab = new SlabImpl(DEFAULT_SLAB_SIZE);
+    this.freeListManager = null;
+    this.cachingFreeListManager = new FreeListManager(ma, new Slab[] {slab}, 2);
+  }
+
+  @Test
+  public void allocateTinyChunkFromCacheReusesFreedChunk() {
+    setUpCachingSingleSlabManager();
+    int dataSize = 10;
+
+    OffHeapStoredObject c = this.cachingFreeListManager.allocate(dataSize);
+    long addr = c.getAddress();
+    OffHeapStoredObject.release(addr, this.cachingFreeListManager);
+    c = this.cachingFreeListManager.allocate(dataSize);
+
+    assertThat(c.getAddress()).isEqualTo(addr);
+    validateChunkSizes(c, dataSize);
+    verify(this.stats, times(1)).incFreeListCacheHits();
+  }
+
+  @Test
+  public void freeTinyMemoryIncludesCachedChunks() {
+    setUpCachingSingleSlabManager();
+    int dataSize = 10;
+
+    OffHeapStoredObject c = this.cachingFreeListManager.allocate(dataSize);
+    OffHeapStoredObject.release(c.getAddress(), this.cachingFreeListManager);
+
+    assertThat(this.cachingFreeListManager.getFreeTinyMemory()).isEqualTo(computeExpectedSize(dataSize));
+  }
+
+  @Test
+  public void fullCacheStripeIsReturnedToFreeList() {
+    setUpCachingSingleSlabManager();
+    int dataSize = 10;
+    List<OffHeapStoredObject> chunks = new ArrayList<OffHeapStoredObject>();
+    for (int i = 0; i <= FreeListManager.FREE_LIST_CACHE_SIZE; i++) {
+      chunks.add(this.cachingFreeListManager.allocate(dataSize));
+    }
+    for (OffHeapStoredObject c : chunks) {
+      OffHeapStoredObject.release(c.getAddress(), this.cachingFreeListManager);
+    }
+
+    assertThat(this.cachingFreeListManager.getFreeTinyMemory()).isEqualTo(chunks.size() * computeExpectedSize(dataSize));
+    for (int i = 0; i < chunks.size(); i++) {
+      validateChunkSizes(this.cachingFreeListManager.allocate(dataSize), dataSize);
+    }
+    assertThat(this.cachingFreeListManager.getFreeTinyMemory()).isZero();
+  }
+
+  @Test
+  public void defragmentCollectsCachedChunks() {
+    setUpCachingSingleSlabManager();
+    Fragment originalFragment = this.cachingFreeListManager.getFragmentList().get(0);
+    OffHeapStoredObject c = this.cachingFreeListManager.allocate(16);
+    OffHeapStoredObject.release(c.getAddress(), this.cachingFreeListManager);
+
+    assertThat(this.cachingFreeListManager.defragment(DEFAULT_SLAB_SIZE)).isTrue();
+    assertThat(this.cachingFreeListManager.getFragmentList()).hasSize(1);
+    assertThat(this.cachingFreeListManager.getFragmentList().get(0).getSize()).isEqualTo(originalFragment.getSize());
+    assertThat(this.cachingFreeListManager.getFreeTinyMemory()).isZero();
+  }
+   
+  @Test
+  public void backgroundDefragmentationCoalescesCachedChunks() {
+    setUpCachingSingleSlabManager();
+    int dataSize = 16;
+    List<OffHeapStoredObject> chunks = new ArrayList<OffHeapStoredObject>();
+    for (int i = 0; i < 4; i++) {
+      chunks.add(this.cachingFreeListManager.allocate(dataSize));
+    }
+    // keeps the freed chunks from being next to the rest of the slab
+    this.cachingFreeListManager.allocate(dataSize);
+    for (OffHeapStoredObject c : chunks) {
+      OffHeapStoredObject.release(c.getAddress(), this.cachingFreeListManager);
+    }
+    long freeTiny = this.cachingFreeListManager.getFreeTinyMemory();
+    assertThat(freeTiny).isEqualTo(chunks.size() * computeExpectedSize(dataSize));
+
+    this.cachingFreeListManager.flushTinyCache();
+    assertThat(this.cachingFreeListManager.getFreeTinyMemory()).isEqualTo(freeTiny);
+    assertThat(this.cachingFreeListManager.backgroundDefragmentationSlice(100, 100)).isTrue();
+    assertThat(this.cachingFreeListManager.finishBackgroundDefragmentation()).isEqualTo(chunks.size());
+    assertThat(this.cachingFreeListManager.getFreeTinyMemory()).isZero();
+  }
+
   @Test
   public void freeHugeMemoryDefault() {
     setUpSingleSlabManager();
@@ -21,6 +21,7 @@ import static org.mockito.Mockito.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SortedMap;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -130,6 +131,30 @@ public class MemoryInspectorImplJUnitTest {
     assertNull(inspector.getBlockAfter(fakeSnapshot.get(1)));
   }
 
+  @Test
+  public void getFragmentationHistogramCountsFreeBlocksBySize() {
+    List<MemoryBlock> memoryBlocks = new ArrayList<>();
+    memoryBlocks.add(mockBlock(MemoryBlock.State.DEALLOCATED, 16));
+    memoryBlocks.add(mockBlock(MemoryBlock.State.DEALLOCATED, 24));
+    memoryBlocks.add(mockBlock(MemoryBlock.State.ALLOCATED, 16));
+    memoryBlocks.add(mockBlock(MemoryBlock.State.UNUSED, 1024));
+    memoryBlocks.add(mockBlock(MemoryBlock.State.UNUSED, 0));
+    when(this.freeList.getOrderedBlocks()).thenReturn(memoryBlocks);
+
+    SortedMap<Integer, Integer> histogram = inspector.getFragmentationHistogram();
+
+    assertEquals(2, histogram.size());
+    assertEquals(Integer.valueOf(2), histogram.get(16));
+    assertEquals(Integer.valueOf(1), histogram.get(1024));
+  }
+
+  private MemoryBlock mockBlock(MemoryBlock.State state, int size) {
+    MemoryBlock block = mock(MemoryBlock.class);
+    when(block.getState()).thenReturn(state);
+    when(block.getBlockSize()).thenReturn(size);
+    return block;
+  }
+
   private List<MemoryBlock> setupFakeSnapshot() {
     MemoryBlock mock1 = mock(MemoryBlock.class);
     MemoryBlock mock2 = mock(MemoryBlock.class);
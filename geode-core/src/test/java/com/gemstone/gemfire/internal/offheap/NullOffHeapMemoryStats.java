@@ -91,6 +91,81 @@ public class NullOffHeapMemoryStats implements OffHeapMemoryStats {
     return 0;
   }
   @Override
+  public void incFreeListCacheHits() {
+  }
+  @Override
+  public long getFreeListCacheHits() {
+    return 0;
+  }
+  @Override
+  public void incFreeListCacheMisses() {
+  }
+  @Override
+  public long getFreeListCacheMisses() {
+    return 0;
+  }
+  @Override
+  public void incFreeListContention(int value) {
+  }
+  @Override
+  public long getFreeListContention() {
+    return 0;
+  }
+  @Override
+  public long startBackgroundDefragmentationSlice() {
+    return 0;
+  }
+  @Override
+  public void endBackgroundDefragmentationSlice(long start) {
+  }
+  @Override
+  public void endBackgroundDefragmentation(int coalescedChunks) {
+  }
+  @Override
+  public int getBackgroundDefragmentations() {
+    return 0;
+  }
+  @Override
+  public long getBackgroundDefragmentationChunks() {
+    return 0;
+  }
+  @Override
+  public long getBackgroundDefragmentationSlices() {
+    return 0;
+  }
+  @Override
+  public long getBackgroundDefragmentationPauseTime() {
+    return 0;
+  }
+  @Override
+  public void setHugePageSize(long value) {
+  }
+  @Override
+  public long getHugePageSize() {
+    return 0;
+  }
+  @Override
+  public void incHugePageSlabs() {
+  }
+  @Override
+  public int getHugePageSlabs() {
+    return 0;
+  }
+  @Override
+  public void setNumaNodes(int value) {
+  }
+  @Override
+  public int getNumaNodes() {
+    return 0;
+  }
+  @Override
+  public void setNumaPolicy(int value) {
+  }
+  @Override
+  public int getNumaPolicy() {
+    return 0;
+  }
+  @Override
   public Statistics getStats() {
     return null;
   }
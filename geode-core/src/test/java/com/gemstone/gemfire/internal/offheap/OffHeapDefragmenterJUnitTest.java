@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.offheap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class OffHeapDefragmenterJUnitTest {
+
+  private static final int SLAB_SIZE = 16 * 1024;
+  private static final int OBJECT_SIZE = 64;
+  private static final int OBJECT_COUNT = 100;
+
+  private MemoryAllocatorImpl ma;
+  private FreeListManager freeList;
+
+  @Before
+  public void setUp() {
+    this.ma = MemoryAllocatorImpl.createForUnitTest(new NullOutOfOffHeapMemoryListener(), new NullOffHeapMemoryStats(),
+        new SlabImpl[] {new SlabImpl(SLAB_SIZE)});
+    this.freeList = this.ma.getFreeListManager();
+  }
+
+  @After
+  public void tearDown() {
+    MemoryAllocatorImpl.freeOffHeapMemory();
+  }
+
+  private List<StoredObject> allocateObjects() {
+    List<StoredObject> result = new ArrayList<StoredObject>();
+    for (int i = 0; i < OBJECT_COUNT; i++) {
+      result.add(this.ma.allocate(OBJECT_SIZE));
+    }
+    // keep the unused part of the slab from being next to the freed chunks
+    this.ma.allocate(OBJECT_SIZE);
+    return result;
+  }
+
+  @Test
+  public void adjacentFreeChunksAreCoalescedIntoOneFragment() {
+    List<StoredObject> objects = allocateObjects();
+    for (StoredObject so : objects) {
+      so.release();
+    }
+    long freeTiny = this.freeList.getFreeTinyMemory();
+    int fragments = this.freeList.getFragmentList().size();
+    assertThat(freeTiny).isGreaterThan(0);
+
+    OffHeapDefragmenter defragmenter = new OffHeapDefragmenter(this.ma, 1, 1000, 7, 1000);
+    assertThat(defragmenter.defragmentIfNeeded()).isEqualTo(OBJECT_COUNT);
+
+    assertThat(this.freeList.getFreeTinyMemory()).isZero();
+    assertThat(this.freeList.getFragmentList()).hasSize(fragments + 1);
+    assertThat(this.freeList.getFragmentList().get(fragments).getSize()).isEqualTo((int) freeTiny);
+    assertThat(this.freeList.getFreeListFragmentation()).isZero();
+  }
+
+  @Test
+  public void chunksThatAreNotAdjacentGoBackToTheirFreeLists() {
+    List<StoredObject> objects = allocateObjects();
+    for (int i = 0; i < objects.size(); i += 2) {
+      objects.get(i).release();
+    }
+    long freeTiny = this.freeList.getFreeTinyMemory();
+    int fragments = this.freeList.getFragmentList().size();
+
+    OffHeapDefragmenter defragmenter = new OffHeapDefragmenter(this.ma, 1, 1000, 7, 1000);
+    assertThat(defragmenter.defragment()).isZero();
+
+    assertThat(this.freeList.getFreeTinyMemory()).isEqualTo(freeTiny);
+    assertThat(this.freeList.getFragmentList()).hasSize(fragments);
+  }
+
+  @Test
+  public void nothingIsDoneBelowTheThreshold() {
+    List<StoredObject> objects = allocateObjects();
+    objects.get(0).release();
+    long freeTiny = this.freeList.getFreeTinyMemory();
+
+    OffHeapDefragmenter defragmenter = new OffHeapDefragmenter(this.ma, 50, 1000, 7, 1000);
+    assertThat(defragmenter.defragmentIfNeeded()).isEqualTo(-1);
+    assertThat(this.freeList.getFreeTinyMemory()).isEqualTo(freeTiny);
+  }
+
+  @Test
+  public void foregroundDefragmentationReclaimsHeldChunks() {
+    List<StoredObject> objects = allocateObjects();
+    for (StoredObject so : objects) {
+      so.release();
+    }
+    // hold some of the freed chunks as if a background pass was interrupted
+    assertThat(this.freeList.backgroundDefragmentationSlice(10, 1000)).isFalse();
+
+    assertThat(this.freeList.defragment(SLAB_SIZE)).isFalse();
+    assertThat(this.freeList.finishBackgroundDefragmentation()).isZero();
+
+    long fragmentFree = 0;
+    for (Fragment f : this.freeList.getFragmentList()) {
+      fragmentFree += f.freeSpace();
+    }
+    assertThat(fragmentFree).isEqualTo(this.freeList.getFreeMemory());
+  }
+}
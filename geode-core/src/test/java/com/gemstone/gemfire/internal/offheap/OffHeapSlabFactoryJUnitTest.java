@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.offheap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import com.gemstone.gemfire.internal.offheap.OffHeapSlabFactory.HugePages;
+import com.gemstone.gemfire.internal.offheap.OffHeapSlabFactory.NumaPolicy;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class OffHeapSlabFactoryJUnitTest {
+
+  private static final int PAGE_SIZE = 64 * 1024;
+  private static final int SLAB_SIZE = 1024 * 1024 + 100;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final OffHeapMemoryStats stats = mock(OffHeapMemoryStats.class);
+  private Slab slab;
+
+  @After
+  public void tearDown() {
+    if (this.slab != null) {
+      this.slab.free();
+    }
+  }
+
+  private void assertSlabIsUsable() {
+    assertThat(this.slab.getSize()).isEqualTo(SLAB_SIZE);
+    long last = this.slab.getMemoryAddress() + SLAB_SIZE - 8;
+    AddressableMemoryManager.writeLong(this.slab.getMemoryAddress(), 1L);
+    AddressableMemoryManager.writeLong(last, 2L);
+    assertThat(AddressableMemoryManager.readLong(this.slab.getMemoryAddress())).isEqualTo(1L);
+    assertThat(AddressableMemoryManager.readLong(last)).isEqualTo(2L);
+  }
+
+  @Test
+  public void defaultsCreateSlabImpl() {
+    OffHeapSlabFactory factory = new OffHeapSlabFactory(HugePages.NONE, PAGE_SIZE, null, NumaPolicy.DEFAULT, this.stats);
+    this.slab = factory.create(SLAB_SIZE);
+
+    assertThat(this.slab.getClass()).isEqualTo(SlabImpl.class);
+    assertSlabIsUsable();
+    verify(this.stats).setNumaPolicy(NumaPolicy.DEFAULT.ordinal());
+    verify(this.stats).setNumaNodes(anyInt());
+    verify(this.stats, never()).incHugePageSlabs();
+  }
+
+  @Test
+  public void transparentHugePagesAlignSlabs() {
+    OffHeapSlabFactory factory = new OffHeapSlabFactory(HugePages.TRANSPARENT, PAGE_SIZE, null, NumaPolicy.LOCAL, this.stats);
+    this.slab = factory.create(SLAB_SIZE);
+
+    assertThat(this.slab.getMemoryAddress() % PAGE_SIZE).isZero();
+    assertSlabIsUsable();
+  }
+
+  @Test
+  public void hugetlbfsMapsAFileThatIsDeleted() throws Exception {
+    File dir = this.temporaryFolder.newFolder();
+    OffHeapSlabFactory factory = new OffHeapSlabFactory(HugePages.HUGETLBFS, PAGE_SIZE, dir, NumaPolicy.INTERLEAVE, this.stats);
+    this.slab = factory.create(SLAB_SIZE);
+
+    assertThat(this.slab).isInstanceOf(OffHeapSlabFactory.MappedSlab.class);
+    assertThat(dir.list()).isEmpty();
+    assertSlabIsUsable();
+    verify(this.stats).setHugePageSize(PAGE_SIZE);
+    verify(this.stats).incHugePageSlabs();
+  }
+
+  @Test
+  public void hugetlbfsFallsBackToNormalPages() {
+    File dir = new File(this.temporaryFolder.getRoot(), "missing");
+    OffHeapSlabFactory factory = new OffHeapSlabFactory(HugePages.HUGETLBFS, PAGE_SIZE, dir, NumaPolicy.DEFAULT, this.stats);
+    this.slab = factory.create(SLAB_SIZE);
+
+    assertThat(this.slab.getClass()).isEqualTo(SlabImpl.class);
+    assertSlabIsUsable();
+    verify(this.stats, never()).incHugePageSlabs();
+  }
+
+  @Test
+  public void touchPagesOnlyTouchesItsBlocks() {
+    this.slab = new SlabImpl(4 * PAGE_SIZE);
+    AddressableMemoryManager.fill(this.slab.getMemoryAddress(), this.slab.getSize(), (byte) 1);
+
+    OffHeapSlabFactory.touchPages(this.slab, PAGE_SIZE, 1, 2);
+
+    for (int block = 0; block < 4; block++) {
+      byte expected = (byte) (block % 2 == 1 ? 0 : 1);
+      assertThat(AddressableMemoryManager.readByte(this.slab.getMemoryAddress() + block * PAGE_SIZE)).isEqualTo(expected);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void hugePageSizeMustBeAPowerOfTwo() {
+    new OffHeapSlabFactory(HugePages.TRANSPARENT, 3 * 1024 * 1024, null, NumaPolicy.DEFAULT, this.stats);
+  }
+
+  @Test
+  public void parsesProperties() {
+    assertThat(OffHeapSlabFactory.parseHugePages(null)).isEqualTo(HugePages.NONE);
+    assertThat(OffHeapSlabFactory.parseHugePages("hugetlbfs")).isEqualTo(HugePages.HUGETLBFS);
+    assertThat(OffHeapSlabFactory.parseNumaPolicy("")).isEqualTo(NumaPolicy.DEFAULT);
+    assertThat(OffHeapSlabFactory.parseNumaPolicy("Interleave")).isEqualTo(NumaPolicy.INTERLEAVE);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownNumaPolicyIsRejected() {
+    OffHeapSlabFactory.parseNumaPolicy("bind");
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.offheap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class TinyFreeListCacheJUnitTest {
+
+  private static final int CHUNK_SIZE = 64;
+  private static final int CHUNK_COUNT = 256;
+
+  private final OffHeapMemoryStats stats = new NullOffHeapMemoryStats();
+  private SlabImpl slab;
+  private long[] chunks;
+
+  @Before
+  public void setUp() {
+    this.slab = new SlabImpl(CHUNK_SIZE * CHUNK_COUNT);
+    this.chunks = new long[CHUNK_COUNT];
+    for (int i = 0; i < CHUNK_COUNT; i++) {
+      this.chunks[i] = this.slab.getMemoryAddress() + i * CHUNK_SIZE;
+      OffHeapStoredObject.setSize(this.chunks[i], CHUNK_SIZE);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    this.slab.free();
+  }
+
+  @Test
+  public void slabCanBeCached() {
+    assertThat(TinyFreeListCache.canCache(new Slab[] {this.slab})).isTrue();
+  }
+
+  @Test
+  public void stripeCountIsRoundedUpToPowerOfTwo() {
+    assertThat(new TinyFreeListCache(4, 3, 8).getStripeCount()).isEqualTo(4);
+    assertThat(new TinyFreeListCache(4, 1, 8).getStripeCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void emptyCachePollReturnsZero() {
+    TinyFreeListCache cache = new TinyFreeListCache(4, 2, 8);
+    assertThat(cache.poll(0, this.stats)).isZero();
+    assertThat(cache.computeTotalSize()).isZero();
+  }
+
+  @Test
+  public void offeredChunksArePolledLastInFirstOut() {
+    TinyFreeListCache cache = new TinyFreeListCache(4, 2, 8);
+    assertThat(cache.offer(1, this.chunks[0], this.stats)).isZero();
+    assertThat(cache.offer(1, this.chunks[1], this.stats)).isZero();
+    assertThat(cache.computeTotalSize()).isEqualTo(2 * CHUNK_SIZE);
+    assertThat(cache.poll(0, this.stats)).isZero();
+    assertThat(cache.poll(1, this.stats)).isEqualTo(this.chunks[1]);
+    assertThat(cache.poll(1, this.stats)).isEqualTo(this.chunks[0]);
+    assertThat(cache.poll(1, this.stats)).isZero();
+  }
+
+  @Test
+  public void fullStripeIsDetachedAsOneChain() {
+    TinyFreeListCache cache = new TinyFreeListCache(4, 1, 4);
+    for (int i = 0; i < 4; i++) {
+      assertThat(cache.offer(2, this.chunks[i], this.stats)).isZero();
+    }
+    long head = cache.offer(2, this.chunks[4], this.stats);
+    assertThat(head).isEqualTo(this.chunks[4]);
+    int count = 0;
+    for (long addr = head; addr != 0L; addr = OffHeapStoredObject.getNext(addr)) {
+      count++;
+    }
+    assertThat(count).isEqualTo(5);
+    assertThat(cache.poll(2, this.stats)).isZero();
+    // the stripe's count was reset so it can fill up again
+    assertThat(cache.offer(2, this.chunks[5], this.stats)).isZero();
+  }
+
+  @Test
+  public void offerChainPushesAllChunks() {
+    TinyFreeListCache cache = new TinyFreeListCache(4, 1, 8);
+    OffHeapStoredObject.setNext(this.chunks[0], this.chunks[1]);
+    OffHeapStoredObject.setNext(this.chunks[1], this.chunks[2]);
+    assertThat(cache.offerChain(0, this.chunks[0], this.chunks[2], 3, this.stats)).isZero();
+    List<Long> addrs = new ArrayList<Long>();
+    cache.getChunkAddresses(0, addrs);
+    assertThat(addrs).containsExactly(this.chunks[0], this.chunks[1], this.chunks[2]);
+  }
+
+  @Test
+  public void collectEmptiesCache() {
+    TinyFreeListCache cache = new TinyFreeListCache(4, 2, 8);
+    cache.offer(0, this.chunks[0], this.stats);
+    cache.offer(3, this.chunks[1], this.stats);
+    List<OffHeapStoredObjectAddressStack> collected = new ArrayList<OffHeapStoredObjectAddressStack>();
+    cache.collect(collected);
+    assertThat(collected).hasSize(2);
+    assertThat(cache.computeTotalSize()).isZero();
+    assertThat(cache.poll(0, this.stats)).isZero();
+    assertThat(cache.poll(3, this.stats)).isZero();
+  }
+
+  @Test
+  public void concurrentPollAndOfferNeverLoseOrDuplicateChunks() throws Exception {
+    // a single stripe so that every thread contends on the same head
+    final TinyFreeListCache cache = new TinyFreeListCache(1, 1, CHUNK_COUNT * 2);
+    for (long addr : this.chunks) {
+      assertThat(cache.offer(0, addr, this.stats)).isZero();
+    }
+    final int threads = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(pool.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            start.await();
+            for (int i = 0; i < 20000; i++) {
+              long addr = cache.poll(0, stats);
+              if (addr != 0L) {
+                cache.offer(0, addr, stats);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      start.countDown();
+      for (Future<Void> f : futures) {
+        f.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    Set<Long> remaining = new HashSet<Long>();
+    long addr;
+    while ((addr = cache.poll(0, this.stats)) != 0L) {
+      assertThat(remaining.add(addr)).isTrue();
+    }
+    assertThat(remaining).hasSize(CHUNK_COUNT);
+  }
+}
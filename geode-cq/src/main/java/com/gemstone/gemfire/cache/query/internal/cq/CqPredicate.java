@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.cq;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.internal.CompiledComparison;
+import com.gemstone.gemfire.cache.query.internal.CompiledID;
+import com.gemstone.gemfire.cache.query.internal.CompiledIteratorDef;
+import com.gemstone.gemfire.cache.query.internal.CompiledJunction;
+import com.gemstone.gemfire.cache.query.internal.CompiledPath;
+import com.gemstone.gemfire.cache.query.internal.CompiledSelect;
+import com.gemstone.gemfire.cache.query.internal.CompiledValue;
+import com.gemstone.gemfire.cache.query.internal.PathUtils;
+import com.gemstone.gemfire.cache.query.internal.parse.OQLLexerTokenTypes;
+import com.gemstone.gemfire.pdx.internal.PdxString;
+
+/**
+ * The simple comparisons of a CQ where clause, pulled out of the compiled
+ * query once when the CQ is registered. Each comparison is of the form
+ * <code>attribute op literal</code> and all of them are ANDed together, so if
+ * any one of them is false for a value the whole CQ query is false for it and
+ * the query does not have to be executed on that value.
+ * <p>
+ * A comparison that can not be decided here (the attribute is missing, null,
+ * UNDEFINED or not of the literal's type) is treated as a possible match and
+ * the query is executed as before.
+ *
+ * @since 9.0
+ */
+public class CqPredicate implements OQLLexerTokenTypes {
+
+  private final Term[] terms;
+
+  private CqPredicate(List<Term> terms) {
+    this.terms = terms.toArray(new Term[terms.size()]);
+  }
+
+  /**
+   * Returns the predicate for the given CQ select or null if its where clause
+   * has no comparison this class can decide.
+   */
+  public static CqPredicate create(CompiledSelect select) {
+    CompiledValue where = select.getWhereClause();
+    if (where == null || select.getIterators().size() != 1) {
+      return null;
+    }
+    String iterName = ((CompiledIteratorDef)select.getIterators().get(0)).getName();
+    List<Term> terms = new ArrayList<Term>();
+    addTerms(where, iterName, terms);
+    if (terms.isEmpty()) {
+      return null;
+    }
+    return new CqPredicate(terms);
+  }
+
+  private static void addTerms(CompiledValue cv, String iterName, List<Term> terms) {
+    if (cv.getType() == CompiledValue.JUNCTION) {
+      CompiledJunction junction = (CompiledJunction)cv;
+      if (junction.getOperator() == LITERAL_and) {
+        for (Object operand : junction.getChildren()) {
+          addTerms((CompiledValue)operand, iterName, terms);
+        }
+      }
+    } else if (cv.getType() == CompiledValue.COMPARISON) {
+      Term term = createTerm((CompiledComparison)cv, iterName);
+      if (term != null) {
+        terms.add(term);
+      }
+    }
+  }
+
+  private static Term createTerm(CompiledComparison comparison, String iterName) {
+    List<?> children = comparison.getChildren();
+    CompiledValue left = (CompiledValue)children.get(0);
+    CompiledValue right = (CompiledValue)children.get(1);
+    int operator = comparison.getOperator();
+    if (left.getType() == CompiledValue.LITERAL) {
+      CompiledValue tmp = left;
+      left = right;
+      right = tmp;
+      operator = reflectOperator(operator);
+    }
+    if (right.getType() != CompiledValue.LITERAL) {
+      return null;
+    }
+    Object literal;
+    try {
+      literal = right.evaluate(null);
+    } catch (Exception e) {
+      return null;
+    }
+    if (!isSupportedLiteral(literal, operator)) {
+      return null;
+    }
+    List<String> path = getPath(left, iterName);
+    if (path == null) {
+      return null;
+    }
+    return new Term(path.toArray(new String[path.size()]), operator, literal);
+  }
+
+  /**
+   * Returns the attribute names leading from the iterator to the given value,
+   * an empty list for the iterator itself, or null for anything else.
+   */
+  private static List<String> getPath(CompiledValue cv, String iterName) {
+    LinkedList<String> path = new LinkedList<String>();
+    while (cv.getType() == CompiledValue.PATH) {
+      CompiledPath p = (CompiledPath)cv;
+      path.addFirst(p.getTailID());
+      cv = p.getReceiver();
+    }
+    if (cv.getType() != OQLLexerTokenTypes.Identifier) {
+      return null;
+    }
+    String id = ((CompiledID)cv).getId();
+    if (!id.equals(iterName)) {
+      // Implicit attribute on the only iterator.
+      path.addFirst(id);
+    }
+    return path;
+  }
+
+  private static boolean isSupportedLiteral(Object literal, int operator) {
+    if (literal instanceof Boolean) {
+      return operator == TOK_EQ || operator == TOK_NE;
+    }
+    // Floating point and decimal values are left to the query engine, which
+    // compares them with its own numeric promotion rules.
+    return literal instanceof String || literal instanceof Integer
+        || literal instanceof Long || literal instanceof Short
+        || literal instanceof Byte || literal instanceof Character;
+  }
+
+  private static int reflectOperator(int operator) {
+    switch (operator) {
+      case TOK_LT: return TOK_GT;
+      case TOK_LE: return TOK_GE;
+      case TOK_GT: return TOK_LT;
+      case TOK_GE: return TOK_LE;
+      default: return operator;
+    }
+  }
+
+  /**
+   * Returns false if the CQ query can not be true for the given value.
+   *
+   * @param value
+   *          the entry value the CQ query would be executed on
+   * @param attributes
+   *          attribute values already read from this value, keyed by their
+   *          dotted path; shared by all CQs processing the same value
+   */
+  public boolean mayMatch(Object value, Map<String, Object> attributes) {
+    for (int i = 0; i < this.terms.length; i++) {
+      if (!this.terms[i].mayMatch(value, attributes)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the number of comparisons in this predicate. */
+  public int getTermCount() {
+    return this.terms.length;
+  }
+
+  /**
+   * Returns the comparison a {@link CqPredicateIndex} files this predicate
+   * under: the first equality, else the first range comparison, or null if
+   * there is neither.
+   */
+  Term getIndexTerm() {
+    Term rangeTerm = null;
+    for (int i = 0; i < this.terms.length; i++) {
+      Term term = this.terms[i];
+      if (term.operator == TOK_EQ) {
+        return term;
+      }
+      if (rangeTerm == null && term.operator != TOK_NE) {
+        rangeTerm = term;
+      }
+    }
+    return rangeTerm;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int compare(Object literal, Object attr) {
+    return ((Comparable<Object>)literal).compareTo(attr);
+  }
+
+  static class Term {
+    private final String[] path;
+    private final String key;
+    private final int operator;
+    private final Object literal;
+
+    Term(String[] path, int operator, Object literal) {
+      this.path = path;
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < path.length; i++) {
+        if (i > 0) {
+          sb.append('.');
+        }
+        sb.append(path[i]);
+      }
+      this.key = sb.toString();
+      this.operator = operator;
+      this.literal = literal;
+    }
+
+    /** Returns the dotted path of the attribute compared. */
+    String getKey() {
+      return this.key;
+    }
+
+    int getOperator() {
+      return this.operator;
+    }
+
+    Object getLiteral() {
+      return this.literal;
+    }
+
+    /**
+     * Returns the attribute compared by this term, read from the value once
+     * and then taken from the shared attributes, or null if it could not be
+     * read.
+     */
+    Object getAttribute(Object value, Map<String, Object> attributes) {
+      Object attr;
+      if (attributes.containsKey(this.key)) {
+        attr = attributes.get(this.key);
+      } else {
+        attr = readAttribute(value);
+        attributes.put(this.key, attr);
+      }
+      if (attr instanceof PdxString) {
+        attr = attr.toString();
+      }
+      return attr;
+    }
+
+    boolean mayMatch(Object value, Map<String, Object> attributes) {
+      Object attr = getAttribute(value, attributes);
+      if (attr == null || attr.getClass() != this.literal.getClass()) {
+        return true;
+      }
+      int cmp = compare(this.literal, attr);
+      switch (this.operator) {
+        case TOK_EQ: return cmp == 0;
+        case TOK_NE: return cmp != 0;
+        case TOK_LT: return cmp > 0;
+        case TOK_LE: return cmp >= 0;
+        case TOK_GT: return cmp < 0;
+        case TOK_GE: return cmp <= 0;
+        default: return true;
+      }
+    }
+
+    /** Returns the attribute value or null if it could not be read. */
+    private Object readAttribute(Object value) {
+      Object obj = value;
+      try {
+        for (int i = 0; i < this.path.length && obj != null; i++) {
+          obj = PathUtils.evaluateAttribute(obj, this.path[i]);
+          if (obj == QueryService.UNDEFINED) {
+            return null;
+          }
+        }
+      } catch (Exception e) {
+        return null;
+      }
+      return obj;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.cq;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.gemstone.gemfire.cache.query.internal.cq.CqPredicate.Term;
+import com.gemstone.gemfire.cache.query.internal.parse.OQLLexerTokenTypes;
+
+/**
+ * An index of the CQs of one FilterProfile by the comparisons of their where
+ * clauses, so that an entry event only has to visit the CQs whose query may
+ * be true for its value. Each CQ is filed under one {@link CqPredicate}
+ * term: an equality by its literal, a range by its bound. CQs without such a
+ * term are candidates for every value.
+ * <p>
+ * An index is built from one snapshot of the profile's CQs and never
+ * changes; it is rebuilt once the CQs do.
+ *
+ * @since 9.0
+ */
+public class CqPredicateIndex implements OQLLexerTokenTypes {
+
+  private final Map<String, ServerCQ> cqs;
+
+  private final List<ServerCQImpl> unindexedCqs = new ArrayList<ServerCQImpl>();
+
+  /** The attribute indexes keyed by the attribute path and literal type */
+  private final Map<String, AttributeIndex> attributeIndexes = new HashMap<String, AttributeIndex>();
+
+  public CqPredicateIndex(Map<String, ServerCQ> cqs) {
+    this.cqs = cqs;
+    for (ServerCQ cq : cqs.values()) {
+      ServerCQImpl cQuery = (ServerCQImpl)cq;
+      if (cQuery == null) {
+        continue;
+      }
+      CqPredicate predicate = cQuery.getPredicate();
+      Term term = predicate == null ? null : predicate.getIndexTerm();
+      if (term == null) {
+        this.unindexedCqs.add(cQuery);
+        continue;
+      }
+      String indexKey = term.getKey() + ':' + term.getLiteral().getClass().getName();
+      AttributeIndex index = this.attributeIndexes.get(indexKey);
+      if (index == null) {
+        index = new AttributeIndex(term);
+        this.attributeIndexes.put(indexKey, index);
+      }
+      index.add(term, cQuery);
+    }
+  }
+
+  /**
+   * Returns true if this index was built from the given snapshot of CQs.
+   */
+  public boolean isIndexOf(Map<String, ServerCQ> cqs) {
+    return this.cqs == cqs;
+  }
+
+  /**
+   * Adds the CQs whose query may be true for the given value to the
+   * candidates.
+   *
+   * @param value
+   *          the entry value the CQ queries would be executed on
+   * @param attributes
+   *          attribute values already read from this value, keyed by their
+   *          dotted path; shared with the {@link CqPredicate}s
+   * @param candidates
+   *          the collection the candidate CQs are added to
+   */
+  public void addCandidates(Object value, Map<String, Object> attributes,
+      Collection<ServerCQImpl> candidates) {
+    candidates.addAll(this.unindexedCqs);
+    for (AttributeIndex index : this.attributeIndexes.values()) {
+      index.addCandidates(value, attributes, candidates);
+    }
+  }
+
+  /**
+   * The CQs filed under comparisons of one attribute with literals of one
+   * type.
+   */
+  private static class AttributeIndex {
+    /** The term used to read the attribute from a value */
+    private final Term term;
+
+    private final Class<?> literalClass;
+
+    private final List<ServerCQImpl> allCqs = new ArrayList<ServerCQImpl>();
+
+    private final Map<Object, List<ServerCQImpl>> equalTo = new HashMap<Object, List<ServerCQImpl>>();
+
+    /** CQs whose attribute must be above (or at) the key */
+    private final TreeMap<Object, List<ServerCQImpl>> lowerBounds = new TreeMap<Object, List<ServerCQImpl>>();
+
+    /** CQs whose attribute must be below (or at) the key */
+    private final TreeMap<Object, List<ServerCQImpl>> upperBounds = new TreeMap<Object, List<ServerCQImpl>>();
+
+    AttributeIndex(Term term) {
+      this.term = term;
+      this.literalClass = term.getLiteral().getClass();
+    }
+
+    void add(Term cqTerm, ServerCQImpl cQuery) {
+      this.allCqs.add(cQuery);
+      switch (cqTerm.getOperator()) {
+        case TOK_EQ:
+          add(this.equalTo, cqTerm.getLiteral(), cQuery);
+          break;
+        case TOK_GT:
+        case TOK_GE:
+          add(this.lowerBounds, cqTerm.getLiteral(), cQuery);
+          break;
+        default:
+          add(this.upperBounds, cqTerm.getLiteral(), cQuery);
+          break;
+      }
+    }
+
+    private static void add(Map<Object, List<ServerCQImpl>> map, Object literal, ServerCQImpl cQuery) {
+      List<ServerCQImpl> list = map.get(literal);
+      if (list == null) {
+        list = new ArrayList<ServerCQImpl>(1);
+        map.put(literal, list);
+      }
+      list.add(cQuery);
+    }
+
+    void addCandidates(Object value, Map<String, Object> attributes,
+        Collection<ServerCQImpl> candidates) {
+      Object attr = this.term.getAttribute(value, attributes);
+      if (attr == null || attr.getClass() != this.literalClass) {
+        // the terms can not decide this value, so the queries have to
+        candidates.addAll(this.allCqs);
+        return;
+      }
+      List<ServerCQImpl> equal = this.equalTo.get(attr);
+      if (equal != null) {
+        candidates.addAll(equal);
+      }
+      // the bounds at the attribute itself are left to the predicates, which
+      // tell > from >=
+      for (List<ServerCQImpl> list : this.lowerBounds.headMap(attr, true).values()) {
+        candidates.addAll(list);
+      }
+      for (List<ServerCQImpl> list : this.upperBounds.tailMap(attr, true).values()) {
+        candidates.addAll(list);
+      }
+    }
+  }
+}
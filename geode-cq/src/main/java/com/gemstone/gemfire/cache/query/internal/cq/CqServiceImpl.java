@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -95,7 +96,16 @@ public final class CqServiceImpl implements CqService  {
    * when cq is executed using the execute() method. 
    */  
   public static boolean EXECUTE_QUERY_DURING_INIT = 
-      Boolean.valueOf(System.getProperty("gemfire.cq.EXECUTE_QUERY_DURING_INIT", "true")).booleanValue(); 
+      Boolean.valueOf(System.getProperty("gemfire.cq.EXECUTE_QUERY_DURING_INIT", "true")).booleanValue();
+
+  /**
+   * System property to stream the initial results of a CQ on a replicated
+   * region without indexes to the client chunk by chunk as the region is
+   * scanned, instead of building the whole result set first.
+   * @since 9.0
+   */
+  public static boolean STREAM_INITIAL_RESULTS =
+      Boolean.valueOf(System.getProperty("gemfire.cq.STREAM_INITIAL_RESULTS", "true")).booleanValue();
 
   private static final String CQ_NAME_PREFIX = "GfCq";
   
@@ -1288,9 +1298,11 @@ public final class CqServiceImpl implements CqService  {
     } else {
       // Use the PDX types in serialized form.
       DefaultQuery.setPdxReadSerialized(this.cache, true);
+      long start = this.stats.startCqEventMatch();
       try {
         processEntryEvent (event, localProfile, profiles, frInfo);
       } finally {
+        this.stats.endCqEventMatch(start);
         DefaultQuery.setPdxReadSerialized(this.cache, false);
       }
     }
@@ -1348,11 +1360,29 @@ public final class CqServiceImpl implements CqService  {
     }
   }
 
+  /**
+   * Returns the index of the given CQs of a profile, building it if the CQs
+   * changed since it was last built.
+   */
+  private static CqPredicateIndex getCqPredicateIndex(FilterProfile pf, Map<String, ServerCQ> cqs) {
+    Object index = pf.getCqIndex();
+    if (index instanceof CqPredicateIndex && ((CqPredicateIndex)index).isIndexOf(cqs)) {
+      return (CqPredicateIndex)index;
+    }
+    CqPredicateIndex cqIndex = new CqPredicateIndex(cqs);
+    pf.setCqIndex(cqIndex);
+    return cqIndex;
+  }
+
   private void processEntryEvent(CacheEvent event, Profile localProfile, Profile[] profiles, FilterRoutingInfo frInfo)
   throws CqException {
     final boolean isDebugEnabled = logger.isDebugEnabled();
     HashSet<Object> cqUnfilteredEventsSet_newValue = new HashSet<Object>();
     HashSet<Object> cqUnfilteredEventsSet_oldValue = new HashSet<Object>();
+    // Attribute values read from the new and old value by the CQ predicates,
+    // shared by all CQs so each attribute is read once per event.
+    HashMap<String, Object> newValueAttributes = new HashMap<String, Object>();
+    HashMap<String, Object> oldValueAttributes = new HashMap<String, Object>();
     boolean b_cqResults_newValue = false;
     boolean b_cqResults_oldValue = false;
     boolean queryOldValue;
@@ -1385,7 +1415,7 @@ public final class CqServiceImpl implements CqService  {
         continue;
       }
 
-      Map cqs = pf.getCqMap();
+      Map<String, ServerCQ> cqs = pf.getCqMapSnapshot();
       
       if (isDebugEnabled) {
         logger.debug("Profile for {} processing {} CQs", cf.peerMemberId, cqs.size());
@@ -1404,13 +1434,40 @@ public final class CqServiceImpl implements CqService  {
           cqUnfilteredEventsSet_newValue.add(newValue);
         }
       }
+      if (opRequiringQueryOnOldValue && cqUnfilteredEventsSet_oldValue.isEmpty()) {
+        Object oldValue = entryEvent.getOldValue();
+        if (oldValue != null) {
+          cqUnfilteredEventsSet_oldValue.add(oldValue);
+        }
+      }
+
+      Collection<ServerCQImpl> candidateCqs;
+      if (opRequiringQueryOnOldValue && cqUnfilteredEventsSet_oldValue.isEmpty()) {
+        // Without the old value only the CQ results tell which CQs the key
+        // matched before, so all of them are visited.
+        candidateCqs = new ArrayList<ServerCQImpl>(cqs.size());
+        for (ServerCQ cq : cqs.values()) {
+          candidateCqs.add((ServerCQImpl)cq);
+        }
+      } else {
+        CqPredicateIndex cqIndex = getCqPredicateIndex(pf, cqs);
+        candidateCqs = new LinkedHashSet<ServerCQImpl>();
+        if (!cqUnfilteredEventsSet_newValue.isEmpty()) {
+          cqIndex.addCandidates(cqUnfilteredEventsSet_newValue.iterator().next(),
+              newValueAttributes, candidateCqs);
+        }
+        if (!cqUnfilteredEventsSet_oldValue.isEmpty()) {
+          cqIndex.addCandidates(cqUnfilteredEventsSet_oldValue.iterator().next(),
+              oldValueAttributes, candidateCqs);
+        }
+        if (isDebugEnabled) {
+          logger.debug("Matching {} of {} CQs for key {}", candidateCqs.size(), cqs.size(), eventKey);
+        }
+      }
       
       HashMap<Long, Integer> cqInfo = new HashMap<Long, Integer>();
-      Iterator cqIter = cqs.entrySet().iterator();
       
-      while (cqIter.hasNext()){
-        Map.Entry cqEntry = (Map.Entry)cqIter.next();
-        ServerCQImpl cQuery = (ServerCQImpl)cqEntry.getValue();
+      for (ServerCQImpl cQuery : candidateCqs) {
         b_cqResults_newValue = false;
         b_cqResults_oldValue = false;
         queryOldValue = false;
@@ -1419,6 +1476,7 @@ public final class CqServiceImpl implements CqService  {
         }        
         String cqName = cQuery.getServerCqName();
         Long filterID = cQuery.getFilterID();
+        CqPredicate predicate = cQuery.getPredicate();
 
         if (isDebugEnabled) {
           logger.debug("Processing CQ : {} Key: {}", cqName, eventKey);
@@ -1446,11 +1504,16 @@ public final class CqServiceImpl implements CqService  {
             try {
               // Apply query on new value.
               if (!cqUnfilteredEventsSet_newValue.isEmpty()) {
-                executionStartTime = this.stats.startCqQueryExecution();
+                if (predicate != null && !predicate.mayMatch(
+                    cqUnfilteredEventsSet_newValue.iterator().next(), newValueAttributes)) {
+                  this.stats.incCqQueryExecutionsSkipped();
+                } else {
+                  executionStartTime = this.stats.startCqQueryExecution();
 
-                b_cqResults_newValue = evaluateQuery(cQuery, 
-                    new Object[] {cqUnfilteredEventsSet_newValue});
-                this.stats.endCqQueryExecution(executionStartTime);
+                  b_cqResults_newValue = evaluateQuery(cQuery, 
+                      new Object[] {cqUnfilteredEventsSet_newValue});
+                  this.stats.endCqQueryExecution(executionStartTime);
+                }
               }
 
               // In case of Update, destroy and invalidate.
@@ -1484,10 +1547,15 @@ public final class CqServiceImpl implements CqService  {
                   
                   // Apply query on old value.
                   if (!cqUnfilteredEventsSet_oldValue.isEmpty()) {
-                    executionStartTime = this.stats.startCqQueryExecution();
-                    b_cqResults_oldValue = evaluateQuery(cQuery, 
-                        new Object[] {cqUnfilteredEventsSet_oldValue});
-                    this.stats.endCqQueryExecution(executionStartTime);
+                    if (predicate != null && !predicate.mayMatch(
+                        cqUnfilteredEventsSet_oldValue.iterator().next(), oldValueAttributes)) {
+                      this.stats.incCqQueryExecutionsSkipped();
+                    } else {
+                      executionStartTime = this.stats.startCqQueryExecution();
+                      b_cqResults_oldValue = evaluateQuery(cQuery, 
+                          new Object[] {cqUnfilteredEventsSet_oldValue});
+                      this.stats.endCqQueryExecution(executionStartTime);
+                    }
                   } else {
                     if (isDebugEnabled) {
                       logger.debug("old value for event with key {} is null - query execution not performed", eventKey);
@@ -1961,7 +2029,29 @@ public final class CqServiceImpl implements CqService  {
    * @return boolean
    */
   private boolean evaluateQuery(CqQueryImpl cQuery, Object[] event) throws Exception {
-    ExecutionContext execContext = cQuery.getQueryExecutionContext();
+    return evaluateQuery(cQuery, event, cQuery.getQueryExecutionContext());
+  }
+
+  /**
+   * Returns true if the given value satisfies the query of the CQ. The caller
+   * supplies the execution context, so unlike event processing this does not
+   * need the CQ lock; it is used to evaluate the initial results entry by
+   * entry while the CQ is already receiving events.
+   * @param cQuery
+   * @param value
+   * @param execContext context owned by the caller, reused across calls
+   * @return boolean
+   * @since 9.0
+   */
+  public boolean evaluateInitialResult(ServerCQImpl cQuery, Object value,
+      ExecutionContext execContext) throws Exception {
+    HashSet<Object> values = new HashSet<Object>(1);
+    values.add(value);
+    return evaluateQuery(cQuery, new Object[] {values}, execContext);
+  }
+
+  private boolean evaluateQuery(CqQueryImpl cQuery, Object[] event,
+      ExecutionContext execContext) throws Exception {
     execContext.reset();
     execContext.setBindArguments(event);
     boolean status = false;
@@ -82,6 +82,15 @@ public class CqServiceVsdStats
 
   /** Unique CQs, number of different CQ queries */
   protected static final String UNIQUE_CQ_QUERY = "numUniqueCqQuery";
+
+  /** Time spent matching entry events against the CQs. */
+  protected static final String CQ_EVENT_MATCH_TIME = "cqEventMatchTime";
+
+  /** Entry events matched against the CQs */
+  protected static final String CQ_EVENTS_MATCHED = "cqEventsMatched";
+
+  /** CQ query executions skipped because the CQ predicate ruled the value out */
+  protected static final String CQ_QUERY_EXECUTIONS_SKIPPED = "cqQueryExecutionsSkipped";
   
   /** Id of the CQs created statistic */
   private static final int _numCqsCreatedId;
@@ -113,6 +122,15 @@ public class CqServiceVsdStats
   /** Id for unique CQs, difference in CQ queries */
   private static final int _numUniqueCqQuery;
 
+  /** Id for the CQ event match time */
+  private static final int _cqEventMatchTimeId;
+
+  /** Id for the entry events matched against the CQs */
+  private static final int _cqEventsMatchedId;
+
+  /** Id for the skipped CQ query executions */
+  private static final int _cqQueryExecutionsSkippedId;
+
   /**
    * Static initializer to create and initialize the <code>StatisticsType</code>
    */
@@ -131,6 +149,9 @@ public class CqServiceVsdStats
         f.createLongCounter(CQ_QUERY_EXECUTIONS_COMPLETED, "Number of CQ Query Executions.", "operations"),
         f.createIntGauge(CQ_QUERY_EXECUTION_IN_PROGRESS, "CQ Query Execution In Progress.", "operations"),
         f.createIntGauge(UNIQUE_CQ_QUERY, "Number of Unique CQ Querys.", "Queries"),
+        f.createLongCounter(CQ_EVENT_MATCH_TIME, "Total time spent matching entry events against the CQs.", "nanoseconds"),
+        f.createLongCounter(CQ_EVENTS_MATCHED, "Number of entry events matched against the CQs.", "operations"),
+        f.createLongCounter(CQ_QUERY_EXECUTIONS_SKIPPED, "Number of CQ Query Executions skipped because the CQ predicate could not match the value.", "operations"),
 
     });
 
@@ -145,6 +166,9 @@ public class CqServiceVsdStats
     _cqQueryExecutionsCompletedId = _type.nameToId(CQ_QUERY_EXECUTIONS_COMPLETED);
     _cqQueryExecutionInProgressId = _type.nameToId(CQ_QUERY_EXECUTION_IN_PROGRESS);
     _numUniqueCqQuery = _type.nameToId(UNIQUE_CQ_QUERY);
+    _cqEventMatchTimeId = _type.nameToId(CQ_EVENT_MATCH_TIME);
+    _cqEventsMatchedId = _type.nameToId(CQ_EVENTS_MATCHED);
+    _cqQueryExecutionsSkippedId = _type.nameToId(CQ_QUERY_EXECUTIONS_SKIPPED);
     
   }
 
@@ -339,6 +363,62 @@ public class CqServiceVsdStats
     return this._stats.getLong(_cqQueryExecutionTimeId);
   }
 
+  /**
+   * Start the CQ event match time.
+   * @since 9.0
+   */
+  public long startCqEventMatch() {
+    return NanoTimer.getTime();
+  }
+
+  /**
+   * End the CQ event match time.
+   * @param start long time value.
+   * @since 9.0
+   */
+  public void endCqEventMatch(long start) {
+    long ts = NanoTimer.getTime();
+    this._stats.incLong(_cqEventMatchTimeId, ts-start);
+    this._stats.incLong(_cqEventsMatchedId, 1);
+  }
+
+  /**
+   * Returns the total time spent matching entry events against the CQs.
+   * @return long time spent.
+   * @since 9.0
+   */
+  public long getCqEventMatchTime() {
+    return this._stats.getLong(_cqEventMatchTimeId);
+  }
+
+  /**
+   * Returns the current value of the "cqEventsMatched" stat.
+   * 
+   * @return the current value of the "cqEventsMatched" stat
+   * @since 9.0
+   */
+  public long getCqEventsMatched() {
+    return this._stats.getLong(_cqEventsMatchedId);
+  }
+
+  /**
+   * Increments the "cqQueryExecutionsSkipped" stat by 1.
+   * @since 9.0
+   */
+  public void incCqQueryExecutionsSkipped() {
+    this._stats.incLong(_cqQueryExecutionsSkippedId, 1);
+  }
+
+  /**
+   * Returns the current value of the "cqQueryExecutionsSkipped" stat.
+   * 
+   * @return the current value of the "cqQueryExecutionsSkipped" stat
+   * @since 9.0
+   */
+  public long getCqQueryExecutionsSkipped() {
+    return this._stats.getLong(_cqQueryExecutionsSkippedId);
+  }
+
   /**
    * Increments number of Unique queries.
    */
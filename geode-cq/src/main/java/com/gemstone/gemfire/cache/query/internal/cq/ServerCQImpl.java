@@ -51,6 +51,7 @@ import com.gemstone.gemfire.cache.query.internal.CompiledRegion;
 import com.gemstone.gemfire.cache.query.internal.CompiledSelect;
 import com.gemstone.gemfire.cache.query.internal.CqStateImpl;
 import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
+import com.gemstone.gemfire.cache.query.internal.DefaultQueryService;
 import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
 import com.gemstone.gemfire.internal.cache.LocalRegion;
 import com.gemstone.gemfire.internal.cache.Token;
@@ -103,6 +104,12 @@ public class ServerCQImpl extends CqQueryImpl implements DataSerializable, Serve
   
   /** identifier assigned to this query for FilterRoutingInfos */
   private Long filterID;
+
+  /**
+   * Comparisons of the where clause checked before the query is executed on
+   * an event value; null if the query has none.
+   */
+  private volatile CqPredicate predicate;
   
   public ServerCQImpl(CqServiceImpl cqService, String cqName, String queryString, boolean isDurable, String serverCqName)  {
     super(cqService, cqName, queryString, isDurable);
@@ -138,6 +145,15 @@ public class ServerCQImpl extends CqQueryImpl implements DataSerializable, Serve
   public String getServerCqName() {
     return this.serverCqName;
   }
+
+  /**
+   * Returns the predicate used to rule out event values without executing
+   * the query, or null if the query has none.
+   * @since 9.0
+   */
+  public CqPredicate getPredicate() {
+    return this.predicate;
+  }
   
   @Override
   public void registerCq(ClientProxyMembershipID p_clientProxyId, 
@@ -169,6 +185,7 @@ public class ServerCQImpl extends CqQueryImpl implements DataSerializable, Serve
     Throwable t = null;
     try {
       this.query = constructServerSideQuery();
+      this.predicate = CqPredicate.create(((DefaultQuery)this.query).getSimpleSelect());
       if (isDebugEnabled) {
         logger.debug("Server side query for the cq: {} is: {}", cqName, this.query.getQueryString());
       }
@@ -310,7 +327,9 @@ public class ServerCQImpl extends CqQueryImpl implements DataSerializable, Serve
    */
   private Query constructServerSideQuery() throws QueryException {
     GemFireCacheImpl cache = (GemFireCacheImpl)cqService.getCache();
-    DefaultQuery locQuery = (DefaultQuery)cache.getLocalQueryService().newQuery(this.queryString);      
+    // The iterator is replaced below, so the compiled query is not shared.
+    DefaultQuery locQuery = (DefaultQuery)((DefaultQueryService)cache.getLocalQueryService())
+        .newQuery(this.queryString, false);
     CompiledSelect select = locQuery.getSimpleSelect();
     CompiledIteratorDef from = (CompiledIteratorDef)select.getIterators().get(0);
     // WARNING: ASSUMES QUERY WAS ALREADY VALIDATED FOR PROPER "FORM" ON CLIENT;
@@ -18,10 +18,15 @@ package com.gemstone.gemfire.internal.cache.tier.sockets.command;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.EntryDestroyedException;
+import com.gemstone.gemfire.cache.Region;
 import com.gemstone.gemfire.cache.RegionDestroyedException;
 import com.gemstone.gemfire.cache.operations.QueryOperationContext;
 import com.gemstone.gemfire.cache.query.Query;
@@ -29,9 +34,16 @@ import com.gemstone.gemfire.cache.query.QueryException;
 import com.gemstone.gemfire.cache.query.QueryInvalidException;
 import com.gemstone.gemfire.cache.query.SelectResults;
 import com.gemstone.gemfire.cache.query.Struct;
+import com.gemstone.gemfire.cache.query.internal.CompiledSelect;
 import com.gemstone.gemfire.cache.query.internal.CqEntry;
 import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
+import com.gemstone.gemfire.cache.query.internal.DefaultQueryService;
+import com.gemstone.gemfire.cache.query.internal.ExecutionContext;
+import com.gemstone.gemfire.cache.query.internal.QueryExecutionContext;
+import com.gemstone.gemfire.cache.query.internal.cq.CqPredicate;
+import com.gemstone.gemfire.cache.query.internal.cq.CqServiceImpl;
 import com.gemstone.gemfire.cache.query.internal.cq.InternalCqQuery;
+import com.gemstone.gemfire.cache.query.internal.cq.ServerCQImpl;
 import com.gemstone.gemfire.cache.query.internal.types.CollectionTypeImpl;
 import com.gemstone.gemfire.cache.query.internal.types.StructTypeImpl;
 import com.gemstone.gemfire.cache.query.types.CollectionType;
@@ -39,6 +51,7 @@ import com.gemstone.gemfire.distributed.DistributedSystemDisconnectedException;
 import com.gemstone.gemfire.distributed.internal.DistributionStats;
 import com.gemstone.gemfire.internal.Version;
 import com.gemstone.gemfire.internal.cache.CachedDeserializable;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
 import com.gemstone.gemfire.internal.cache.tier.CachedRegionHelper;
 import com.gemstone.gemfire.internal.cache.tier.MessageType;
 import com.gemstone.gemfire.internal.cache.tier.sockets.BaseCommand;
@@ -54,6 +67,161 @@ import com.gemstone.gemfire.internal.security.AuthorizeRequestPP;
 
 public abstract class BaseCQCommand extends BaseCommandQuery {
 
-  
+  /**
+   * Returns true if the initial results of the given CQ can be streamed to the
+   * client with {@link #streamCqInitialResults}. That needs a replicated base
+   * region without indexes, where the query engine would scan the entries
+   * anyway, no post-processing authorization, which needs the whole result
+   * set, and a client that takes the results with their keys. The query must
+   * also be decided by each entry alone, so a LIMIT, COUNT or GROUP BY,
+   * which apply to the whole result set, leave it to the query engine.
+   * @since 9.0
+   */
+  protected static boolean canStreamCqInitialResults(ServerCQImpl cqQuery,
+      DefaultQueryService qService, ServerConnection servConn)
+      throws IOException {
+    if (!CqServiceImpl.STREAM_INITIAL_RESULTS || cqQuery.isPR()
+        || servConn.getPostAuthzRequest() != null
+        || servConn.getClientVersion().compareTo(Version.GFE_65) < 0) {
+      return false;
+    }
+    CompiledSelect select = ((DefaultQuery)cqQuery.getQuery()).getSimpleSelect();
+    if (select == null || select.hasLimit() || select.isCount()
+        || select.isGroupBy()) {
+      return false;
+    }
+    LocalRegion region = cqQuery.getCqBaseRegion();
+    if (region == null) {
+      return false;
+    }
+    Collection<?> indexes = qService.getIndexes(region);
+    return indexes == null || indexes.isEmpty();
+  }
+
+  /**
+   * Evaluates the CQ on the entries of its base region one at a time and sends
+   * each chunk of matching entries to the client as soon as it is full. The
+   * whole result set is never held in memory and the client gets the first
+   * chunk while the region is still being scanned. Sending a chunk blocks
+   * until the client has read enough of the earlier ones, which throttles the
+   * scan to the speed of the client. Events that arrive meanwhile are queued
+   * for the client as usual and delivered after the initial results.
+   *
+   * @return true if successful execution
+   *         false in case of failure.
+   * @since 9.0
+   */
+  protected static boolean streamCqInitialResults(Message msg,
+      ServerCQImpl cqQuery, CqServiceImpl cqService, String queryString,
+      long start, ServerConnection servConn, boolean sendResults)
+      throws IOException, InterruptedException {
+    ChunkedMessage queryResponseMsg = servConn.getQueryResponseMessage();
+    CacheServerStats stats = servConn.getCacheServerStats();
+
+    {
+      long oldStart = start;
+      start = DistributionStats.getStatTime();
+      stats.incReadQueryRequestTime(start - oldStart);
+    }
+
+    LocalRegion region = cqQuery.getCqBaseRegion();
+    Cache cache = region.getCache();
+    CollectionType collectionType = new CollectionTypeImpl(Collection.class,
+        new StructTypeImpl(new String[]{"key", "value"}));
+    ExecutionContext context = new QueryExecutionContext(null, cache,
+        cqQuery.getQuery());
+    CqPredicate predicate = cqQuery.getPredicate();
+    Map<String, Object> attributes = new HashMap<String, Object>();
+    int numberOfChunks = 0;
+
+    // Use the PDX types in serialized form, as the query would.
+    DefaultQuery.setPdxReadSerialized(cache, true);
+    try {
+      if (sendResults) {
+        queryResponseMsg.setMessageType(MessageType.RESPONSE);
+        queryResponseMsg.setTransactionId(msg.getTransactionId());
+        queryResponseMsg.sendHeader();
+      }
+
+      Object[] results = new Object[maximumChunkSize];
+      int resultIndex = 0;
+      for (Iterator<?> itr = region.entrySet(false).iterator(); itr.hasNext();) {
+        Region.Entry<?, ?> entry = (Region.Entry<?, ?>)itr.next();
+        Object value;
+        try {
+          if (entry.isDestroyed()) {
+            continue;
+          }
+          value = entry.getValue();
+        } catch (EntryDestroyedException ede) {
+          continue;
+        }
+        // The value may have become null because of entry invalidation.
+        if (value == null) {
+          continue;
+        }
+        if (predicate != null) {
+          attributes.clear();
+          if (!predicate.mayMatch(value, attributes)) {
+            continue;
+          }
+        }
+        if (!cqService.evaluateInitialResult(cqQuery, value, context)) {
+          continue;
+        }
+        Object key = entry.getKey();
+        cqQuery.addToCqResultKeys(key);
+        if (sendResults) {
+          results[resultIndex++] = new Object[] {key, value};
+          if (resultIndex == maximumChunkSize) {
+            writeQueryResponseChunk(results, collectionType, false, servConn);
+            numberOfChunks++;
+            results = new Object[maximumChunkSize];
+            resultIndex = 0;
+          }
+        }
+      }
+
+      if (region.isDestroyed()) {
+        throw new RegionDestroyedException(
+            LocalizedStrings.BaseCommand_REGION_DESTROYED_DURING_THE_EXECUTION_OF_THE_QUERY.toLocalizedString(), region.getFullPath());
+      }
+
+      if (sendResults) {
+        Object[] lastResults = new Object[resultIndex];
+        System.arraycopy(results, 0, lastResults, 0, resultIndex);
+        writeQueryResponseChunk(lastResults, collectionType, true, servConn);
+        numberOfChunks++;
+        if (logger.isDebugEnabled()) {
+          logger.debug("{}: Streamed {} chunks of initial results for CQ query: {}",
+              servConn.getName(), numberOfChunks, queryString);
+        }
+      }
+
+      // Set the CQ query result cache initialized flag.
+      cqQuery.setCqResultsCacheInitialized();
+      msg.clearParts();
+    }
+    catch (DistributedSystemDisconnectedException se) {
+      if (msg != null && logger.isDebugEnabled()) {
+        logger.debug("{}: ignoring message of type {} from client {} because shutdown occurred during message processing.",
+            servConn.getName(), MessageType.getString(msg.getMessageType()), servConn.getProxyID());
+      }
+      servConn.setFlagProcessMessagesAsFalse();
+      return false;
+    }
+    catch (Exception e) {
+      // If an interrupted exception is thrown , rethrow it
+      checkForInterrupt(servConn, e);
+      writeQueryResponseException(msg, e, false, servConn);
+      return false;
+    }
+    finally {
+      DefaultQuery.setPdxReadSerialized(cache, false);
+    }
+
+    stats.incProcessQueryTime(DistributionStats.getStatTime() - start);
+    return true;
+  }
 
 }
@@ -173,13 +173,18 @@ public class ExecuteCQ61 extends BaseCQCommand {
     if(sendResults || (CqServiceImpl.EXECUTE_QUERY_DURING_INIT && CqServiceProvider.MAINTAIN_KEYS && !cqQuery.isPR())) {
       // Execute the query and send the result-set to client.
       try {
-        if (query == null) {
-          query = qService.newQuery(cqQueryString);
-          cqRegionNames = ((DefaultQuery)query).getRegionsInQuery(null);
+        if (canStreamCqInitialResults(cqQuery, qService, servConn)) {
+          successQuery = streamCqInitialResults(msg, cqQuery, cqServiceForExec,
+              cqQueryString, start, servConn, sendResults);
+        } else {
+          if (query == null) {
+            query = qService.newQuery(cqQueryString);
+            cqRegionNames = ((DefaultQuery)query).getRegionsInQuery(null);
+          }
+          ((DefaultQuery)query).setIsCqQuery(true);
+          successQuery = processQuery(msg, query, cqQueryString,
+              cqRegionNames, start, cqQuery, executeCQContext, servConn, sendResults);
         }
-        ((DefaultQuery)query).setIsCqQuery(true);
-        successQuery = processQuery(msg, query, cqQueryString,
-            cqRegionNames, start, cqQuery, executeCQContext, servConn, sendResults);
       
 
         // Update the CQ statistics.
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.cq.dunit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.query.CqAttributesFactory;
+import com.gemstone.gemfire.cache.query.CqEvent;
+import com.gemstone.gemfire.cache.query.CqQuery;
+import com.gemstone.gemfire.cache.query.Struct;
+import com.gemstone.gemfire.cache.query.data.Portfolio;
+import com.gemstone.gemfire.cache.query.dunit.HelperTestCase;
+import com.gemstone.gemfire.cache.query.internal.cq.CqServiceImpl;
+import com.gemstone.gemfire.cache.util.CqListenerAdapter;
+import com.gemstone.gemfire.internal.AvailablePortHelper;
+import com.gemstone.gemfire.test.dunit.Assert;
+import com.gemstone.gemfire.test.dunit.AsyncInvocation;
+import com.gemstone.gemfire.test.dunit.Host;
+import com.gemstone.gemfire.test.dunit.SerializableCallable;
+import com.gemstone.gemfire.test.dunit.SerializableRunnable;
+import com.gemstone.gemfire.test.dunit.ThreadUtils;
+import com.gemstone.gemfire.test.dunit.VM;
+import com.gemstone.gemfire.test.dunit.Wait;
+import com.gemstone.gemfire.test.dunit.WaitCriterion;
+
+/**
+ * Tests that the initial results a server streams from the region scan are
+ * the ones the query engine would return.
+ *
+ * @since 9.0
+ */
+public class CqInitialResultsStreamingDUnitTest extends HelperTestCase {
+
+  private static final String REGION_NAME = "portfolios";
+
+  private static final int NUM_ENTRIES = 2000;
+
+  private static final String WHERE_CLAUSE = " p WHERE p.ID > 300 AND p.status = 'active'";
+
+  private static volatile boolean stopPuts;
+
+  private static final List<CqEvent> cqEvents = new ArrayList<CqEvent>();
+
+  private VM server;
+
+  private VM client;
+
+  public CqInitialResultsStreamingDUnitTest(String name) {
+    super(name);
+  }
+
+  @Override
+  public final void postSetUp() throws Exception {
+    Host host = Host.getHost(0);
+    this.server = host.getVM(0);
+    this.client = host.getVM(1);
+    int port = AvailablePortHelper.getRandomAvailableTCPPort();
+    startCacheServer(this.server, port, getServerProperties(0));
+    createReplicatedRegion(this.server, REGION_NAME, null);
+    this.server.invoke(new SerializableRunnable("load portfolios") {
+      public void run() {
+        Region<Object, Object> region = getCache().getRegion(REGION_NAME);
+        for (int i = 0; i < NUM_ENTRIES; i++) {
+          region.put("key" + i, new Portfolio(i));
+        }
+      }
+    });
+    startClient(this.client, new VM[] {this.server}, new int[] {port}, 0, getClientProperties());
+  }
+
+  @Override
+  public final void preTearDownCacheTestCase() throws Exception {
+    this.server.invoke(new SerializableRunnable("reset streaming") {
+      public void run() {
+        CqServiceImpl.STREAM_INITIAL_RESULTS = true;
+      }
+    });
+    this.client.invoke(new SerializableRunnable("clear events") {
+      public void run() {
+        synchronized (cqEvents) {
+          cqEvents.clear();
+        }
+      }
+    });
+  }
+
+  private void setStreaming(final boolean stream) {
+    this.server.invoke(new SerializableRunnable("set streaming") {
+      public void run() {
+        CqServiceImpl.STREAM_INITIAL_RESULTS = stream;
+      }
+    });
+  }
+
+  /**
+   * Executes a new CQ with initial results on the client and returns the IDs
+   * of the results by key.
+   */
+  @SuppressWarnings("unchecked")
+  private Map<Object, Integer> executeWithInitialResults(final String cqName, final String query) {
+    return (Map<Object, Integer>)this.client.invoke(new SerializableCallable("execute " + cqName) {
+      public Object call() throws Exception {
+        CqAttributesFactory cqAf = new CqAttributesFactory();
+        cqAf.addCqListener(new CqListenerAdapter() {
+          @Override
+          public void onEvent(CqEvent event) {
+            synchronized (cqEvents) {
+              cqEvents.add(event);
+            }
+          }
+        });
+        CqQuery cq = getCache().getQueryService().newCq(cqName, query, cqAf.create());
+        Map<Object, Integer> results = new HashMap<Object, Integer>();
+        for (Object result : cq.executeWithInitialResults()) {
+          Struct struct = (Struct)result;
+          assertNull("duplicate result " + struct.get("key"),
+              results.put(struct.get("key"), ((Portfolio)struct.get("value")).ID));
+        }
+        return results;
+      }
+    });
+  }
+
+  /**
+   * Returns the IDs by key of the server's entries that satisfy the where
+   * clause.
+   */
+  @SuppressWarnings("unchecked")
+  private Map<Object, Integer> getExpectedResults() {
+    return (Map<Object, Integer>)this.server.invoke(new SerializableCallable("expected results") {
+      public Object call() throws Exception {
+        Map<Object, Integer> results = new HashMap<Object, Integer>();
+        Region<Object, Portfolio> region = getCache().getRegion(REGION_NAME);
+        for (Map.Entry<Object, Portfolio> entry : region.entrySet()) {
+          Portfolio p = entry.getValue();
+          if (p.ID > 300 && "active".equals(p.status)) {
+            results.put(entry.getKey(), p.ID);
+          }
+        }
+        return results;
+      }
+    });
+  }
+
+  public void testStreamedResultsMatchQueryEngineResults() {
+    String query = "SELECT * FROM /" + REGION_NAME + WHERE_CLAUSE;
+    Map<Object, Integer> streamed = executeWithInitialResults("streamed", query);
+    setStreaming(false);
+    Map<Object, Integer> queried = executeWithInitialResults("queried", query);
+
+    assertEquals(getExpectedResults(), queried);
+    assertEquals(queried, streamed);
+  }
+
+  public void testLimitIsHonoured() {
+    String query = "SELECT * FROM /" + REGION_NAME + WHERE_CLAUSE + " LIMIT 10";
+    Map<Object, Integer> limited = executeWithInitialResults("limited", query);
+
+    assertEquals(10, limited.size());
+    Map<Object, Integer> expected = getExpectedResults();
+    for (Map.Entry<Object, Integer> result : limited.entrySet()) {
+      assertEquals(expected.get(result.getKey()), result.getValue());
+    }
+  }
+
+  public void testEventsDuringTheScanAreNotLost() throws Exception {
+    AsyncInvocation puts = this.server.invokeAsync(new SerializableRunnable("update portfolios") {
+      public void run() {
+        stopPuts = false;
+        Region<Object, Object> region = getCache().getRegion(REGION_NAME);
+        Random random = new Random();
+        for (int i = 0; !stopPuts && i < 10 * NUM_ENTRIES; i++) {
+          String key = "key" + random.nextInt(NUM_ENTRIES);
+          if (random.nextInt(10) == 0) {
+            region.remove(key);
+          } else {
+            // moves the entry in or out of the results
+            region.put(key, new Portfolio(random.nextInt(2 * NUM_ENTRIES)));
+          }
+        }
+      }
+    });
+    final Map<Object, Integer> initialResults = executeWithInitialResults("scanned",
+        "SELECT * FROM /" + REGION_NAME + WHERE_CLAUSE);
+    this.server.invoke(new SerializableRunnable("stop updates") {
+      public void run() {
+        stopPuts = true;
+      }
+    });
+    ThreadUtils.join(puts, 60000);
+    if (puts.exceptionOccurred()) {
+      Assert.fail("updates failed", puts.getException());
+    }
+
+    // the initial results followed by the events must end up at the
+    // server's final state
+    final Map<Object, Integer> expected = getExpectedResults();
+    this.client.invoke(new SerializableRunnable("check results") {
+      public void run() {
+        Wait.waitForCriterion(new WaitCriterion() {
+          private Map<Object, Integer> view;
+
+          public boolean done() {
+            this.view = new HashMap<Object, Integer>(initialResults);
+            synchronized (cqEvents) {
+              for (CqEvent event : cqEvents) {
+                if (event.getQueryOperation().isDestroy()) {
+                  this.view.remove(event.getKey());
+                } else {
+                  this.view.put(event.getKey(), ((Portfolio)event.getNewValue()).ID);
+                }
+              }
+            }
+            return expected.equals(this.view);
+          }
+
+          public String description() {
+            return "expected " + expected.size() + " results but had " + this.view.size();
+          }
+        }, 60000, 200, true);
+      }
+    });
+  }
+}
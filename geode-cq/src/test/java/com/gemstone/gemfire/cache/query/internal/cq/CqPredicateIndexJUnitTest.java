@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.cq;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.query.internal.CompiledSelect;
+import com.gemstone.gemfire.cache.query.internal.QCompiler;
+import com.gemstone.gemfire.cache.query.internal.cq.CqPredicateJUnitTest.LongPosition;
+import com.gemstone.gemfire.cache.query.internal.cq.CqPredicateJUnitTest.Position;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class CqPredicateIndexJUnitTest {
+
+  private Map<String, ServerCQ> cqs;
+
+  @Before
+  public void setUp() {
+    this.cqs = new HashMap<String, ServerCQ>();
+  }
+
+  private ServerCQImpl cq(String name, String query) {
+    ServerCQImpl cq = mock(ServerCQImpl.class);
+    when(cq.getPredicate()).thenReturn(
+        CqPredicate.create((CompiledSelect)new QCompiler().compileQuery(query)));
+    this.cqs.put(name, cq);
+    return cq;
+  }
+
+  private static Set<ServerCQImpl> candidates(CqPredicateIndex index, Object value) {
+    Set<ServerCQImpl> candidates = new HashSet<ServerCQImpl>();
+    index.addCandidates(value, new HashMap<String, Object>(), candidates);
+    return candidates;
+  }
+
+  private static Set<ServerCQImpl> set(ServerCQImpl... cqs) {
+    return new HashSet<ServerCQImpl>(Arrays.asList(cqs));
+  }
+
+  @Test
+  public void testEquality() {
+    ServerCQImpl active = cq("active", "SELECT * FROM /r WHERE status = 'active'");
+    ServerCQImpl closed = cq("closed", "SELECT * FROM /r WHERE status = 'closed' AND id > 5");
+    CqPredicateIndex index = new CqPredicateIndex(this.cqs);
+
+    assertEquals(set(active), candidates(index, new Position("active", 1)));
+    // the equality is preferred to the range
+    assertEquals(set(closed), candidates(index, new Position("closed", 1)));
+    assertEquals(set(), candidates(index, new Position("open", 1)));
+  }
+
+  @Test
+  public void testRanges() {
+    ServerCQImpl above10 = cq("above10", "SELECT * FROM /r WHERE id > 10");
+    ServerCQImpl atLeast10 = cq("atLeast10", "SELECT * FROM /r WHERE id >= 10");
+    ServerCQImpl below5 = cq("below5", "SELECT * FROM /r p WHERE 5 > p.id");
+    CqPredicateIndex index = new CqPredicateIndex(this.cqs);
+
+    assertEquals(set(below5), candidates(index, new Position("a", 2)));
+    assertEquals(set(), candidates(index, new Position("a", 6)));
+    // the predicates tell > from >= for the bound itself
+    assertEquals(set(above10, atLeast10), candidates(index, new Position("a", 10)));
+    assertEquals(set(above10, atLeast10), candidates(index, new Position("a", 11)));
+  }
+
+  @Test
+  public void testRangeWithTwoBounds() {
+    ServerCQImpl between = cq("between", "SELECT * FROM /r WHERE id > 3 AND id < 8");
+    CqPredicateIndex index = new CqPredicateIndex(this.cqs);
+
+    assertEquals(set(between), candidates(index, new Position("a", 4)));
+    assertEquals(set(between), candidates(index, new Position("a", 7)));
+    // the CQ is filed under one of its bounds and the predicate checks the
+    // other one
+    assertFalse(candidates(index, new Position("a", 2)).contains(between)
+        && candidates(index, new Position("a", 10)).contains(between));
+  }
+
+  @Test
+  public void testUndecidableValuesMatchAllCqsOfTheAttribute() {
+    ServerCQImpl five = cq("five", "SELECT * FROM /r WHERE id = 5");
+    ServerCQImpl active = cq("active", "SELECT * FROM /r WHERE status = 'active'");
+    CqPredicateIndex index = new CqPredicateIndex(this.cqs);
+
+    // the id is a Long and the literal an Integer; there is no status
+    assertEquals(set(five, active), candidates(index, new LongPosition(6L)));
+    // a null attribute is left to the query
+    assertEquals(set(active), candidates(index, new Position(null, 6)));
+    // a value without the attributes
+    assertEquals(set(five, active), candidates(index, "a string"));
+  }
+
+  @Test
+  public void testUnindexedCqsAreAlwaysCandidates() {
+    ServerCQImpl all = cq("all", "SELECT * FROM /r");
+    ServerCQImpl or = cq("or", "SELECT * FROM /r WHERE status = 'a' OR id = 1");
+    ServerCQImpl notEqual = cq("notEqual", "SELECT * FROM /r WHERE status <> 'a'");
+    cq("active", "SELECT * FROM /r WHERE status = 'active'");
+    CqPredicateIndex index = new CqPredicateIndex(this.cqs);
+
+    assertEquals(set(all, or, notEqual), candidates(index, new Position("closed", 1)));
+  }
+
+  @Test
+  public void testIndexOfSnapshot() {
+    cq("active", "SELECT * FROM /r WHERE status = 'active'");
+    CqPredicateIndex index = new CqPredicateIndex(this.cqs);
+
+    assertTrue(index.isIndexOf(this.cqs));
+    assertFalse(index.isIndexOf(new HashMap<String, ServerCQ>(this.cqs)));
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.cq;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.query.internal.CompiledSelect;
+import com.gemstone.gemfire.cache.query.internal.QCompiler;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class CqPredicateJUnitTest {
+
+  private static CqPredicate predicate(String query) {
+    return CqPredicate.create((CompiledSelect)new QCompiler().compileQuery(query));
+  }
+
+  private static boolean mayMatch(CqPredicate predicate, Object value) {
+    return predicate.mayMatch(value, new HashMap<String, Object>());
+  }
+
+  @Test
+  public void testEquality() {
+    CqPredicate p = predicate("SELECT * FROM /r WHERE status = 'active'");
+    assertNotNull(p);
+    assertEquals(1, p.getTermCount());
+    assertTrue(mayMatch(p, new Position("active", 1)));
+    assertFalse(mayMatch(p, new Position("inactive", 1)));
+  }
+
+  @Test
+  public void testRangeOnAliasedPath() {
+    CqPredicate p = predicate("SELECT * FROM /r p WHERE p.id > 10 AND p.id <= 20");
+    assertNotNull(p);
+    assertEquals(2, p.getTermCount());
+    assertFalse(mayMatch(p, new Position("active", 10)));
+    assertTrue(mayMatch(p, new Position("active", 11)));
+    assertTrue(mayMatch(p, new Position("active", 20)));
+    assertFalse(mayMatch(p, new Position("active", 21)));
+  }
+
+  @Test
+  public void testLiteralOnTheLeft() {
+    CqPredicate p = predicate("SELECT * FROM /r p WHERE 10 < p.id");
+    assertFalse(mayMatch(p, new Position("active", 10)));
+    assertTrue(mayMatch(p, new Position("active", 11)));
+  }
+
+  @Test
+  public void testNestedPath() {
+    CqPredicate p = predicate("SELECT * FROM /r p WHERE p.parent.status = 'active'");
+    assertTrue(mayMatch(p, new Position("x", 1, new Position("active", 2))));
+    assertFalse(mayMatch(p, new Position("x", 1, new Position("closed", 2))));
+    // null receiver is left to the query
+    assertTrue(mayMatch(p, new Position("x", 1)));
+  }
+
+  @Test
+  public void testUndecidableValuesMayMatch() {
+    CqPredicate p = predicate("SELECT * FROM /r WHERE id = 5");
+    // no such attribute
+    assertTrue(mayMatch(p, "a string"));
+    // the literal is an Integer and the attribute a Long
+    assertTrue(mayMatch(p, new LongPosition(6L)));
+    CqPredicate s = predicate("SELECT * FROM /r WHERE status = 'active'");
+    assertTrue(mayMatch(s, new Position(null, 1)));
+  }
+
+  @Test
+  public void testAttributesAreShared() {
+    CqPredicate p = predicate("SELECT * FROM /r WHERE status = 'active'");
+    Map<String, Object> attributes = new HashMap<String, Object>();
+    attributes.put("status", "active");
+    // the cached attribute wins over the value
+    assertTrue(p.mayMatch(new Position("closed", 1), attributes));
+  }
+
+  @Test
+  public void testNotIndexable() {
+    assertNull(predicate("SELECT * FROM /r"));
+    assertNull(predicate("SELECT * FROM /r WHERE status = 'a' OR id = 1"));
+    assertNull(predicate("SELECT * FROM /r WHERE status.length() = 1"));
+    assertNull(predicate("SELECT * FROM /r WHERE status LIKE 'a%'"));
+    assertNull(predicate("SELECT * FROM /r WHERE price > 1.5"));
+  }
+
+  @Test
+  public void testIndexableConjunctsOfMixedWhereClause() {
+    CqPredicate p = predicate("SELECT * FROM /r WHERE id = 1 AND (status = 'a' OR status = 'b')");
+    assertEquals(1, p.getTermCount());
+    assertFalse(mayMatch(p, new Position("a", 2)));
+    assertTrue(mayMatch(p, new Position("c", 1)));
+  }
+
+  public static class Position {
+    private final String status;
+    private final int id;
+    private final Position parent;
+
+    public Position(String status, int id) {
+      this(status, id, null);
+    }
+
+    public Position(String status, int id, Position parent) {
+      this.status = status;
+      this.id = id;
+      this.parent = parent;
+    }
+
+    public String getStatus() {
+      return this.status;
+    }
+
+    public int getId() {
+      return this.id;
+    }
+
+    public Position getParent() {
+      return this.parent;
+    }
+  }
+
+  public static class LongPosition {
+    private final long id;
+
+    public LongPosition(long id) {
+      this.id = id;
+    }
+
+    public long getId() {
+      return this.id;
+    }
+  }
+}